@@ -0,0 +1,91 @@
+package com.johnk.musicplayer.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import com.johnk.musicplayer.domain.Song;
+
+// Deterministic libraries shaped like real ones: about ten tracks an album, five albums an artist,
+// titles built from a small vocabulary so searches hit a realistic share of songs.
+final class Fixtures {
+
+    static final int TRACKS_PER_ALBUM = 10;
+    static final int ALBUMS_PER_ARTIST = 5;
+
+    private static final String[] WORDS = {
+            "love", "night", "blue", "fire", "heart", "dream", "river", "summer", "light", "rain",
+            "city", "gold", "wild", "home", "shadow", "ocean", "star", "road", "silver", "echo"
+    };
+
+    private Fixtures() {
+    }
+
+    static List<Song> songs(int count) {
+        List<Song> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int album = i / TRACKS_PER_ALBUM;
+            int artist = album / ALBUMS_PER_ARTIST;
+            String title = title(i);
+            String artistName = "Artist " + artist;
+            String albumName = "Album " + album + " " + WORDS[album % WORDS.length];
+            String path = "/music/" + artistName + "/" + albumName + "/" + (i % TRACKS_PER_ALBUM + 1) + " " + title + ".mp3";
+            out.add(new Song(title, artistName, albumName, path));
+        }
+        return out;
+    }
+
+    static List<String> sampleIds(List<Song> songs, int count, long seed) {
+        Random random = new Random(seed);
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) ids.add(songs.get(random.nextInt(songs.size())).getId());
+        return ids;
+    }
+
+    static Map<String, List<String>> playlists(List<Song> songs, int playlists, int songsEach) {
+        Map<String, List<String>> out = new HashMap<>();
+        for (int p = 0; p < playlists; p++) {
+            out.put("Playlist " + p, sampleIds(songs, Math.min(songsEach, songs.size()), p));
+        }
+        return out;
+    }
+
+    // Empty .mp3 files laid out artist/album/track; importFolder only looks at names.
+    static Path audioTree(int files) {
+        try {
+            Path root = Files.createTempDirectory("musicplayer-bench-import");
+            for (int i = 0; i < files; i++) {
+                int album = i / TRACKS_PER_ALBUM;
+                Path dir = root.resolve("Artist " + album / ALBUMS_PER_ARTIST).resolve("Album " + album);
+                if (i % TRACKS_PER_ALBUM == 0) Files.createDirectories(dir);
+                Files.createFile(dir.resolve((i % TRACKS_PER_ALBUM + 1) + " " + title(i) + ".mp3"));
+            }
+            return root;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void deleteTree(Path root) {
+        if (root == null) return;
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String title(int i) {
+        return WORDS[i % WORDS.length] + " " + WORDS[(i / 7) % WORDS.length] + " " + i;
+    }
+}
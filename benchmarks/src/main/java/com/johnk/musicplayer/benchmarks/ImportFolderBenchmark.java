@@ -0,0 +1,53 @@
+package com.johnk.musicplayer.benchmarks;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.johnk.musicplayer.service.LibraryService;
+
+// A folder scan into an empty library, with the directory tree warm in the OS cache after the
+// first iteration. The default sizes stop at 100k files because the fixture is real files on disk;
+// run with -p files=1000000 when there is room for a million.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ImportFolderBenchmark {
+
+    @Param({"1000", "100000"})
+    public int files;
+
+    private Path root;
+
+    @Setup
+    public void setUp() {
+        root = Fixtures.audioTree(files);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Fixtures.deleteTree(root);
+    }
+
+    @Benchmark
+    public LibraryService importFolder() {
+        LibraryService library = new LibraryService();
+        library.importFolder(root);
+        return library;
+    }
+}
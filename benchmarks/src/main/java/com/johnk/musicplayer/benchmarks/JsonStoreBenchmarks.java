@@ -0,0 +1,75 @@
+package com.johnk.musicplayer.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.persistence.DurabilityMode;
+import com.johnk.musicplayer.persistence.JsonStore;
+import com.johnk.musicplayer.service.LibraryService;
+import com.johnk.musicplayer.service.PlaylistService;
+
+// Full data.json round trips. Durability is off so the numbers are serialization and I/O, not fsync.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class JsonStoreBenchmarks {
+
+    @Param({"1000", "100000", "1000000"})
+    public int songs;
+
+    private Path dir;
+    private List<Song> library;
+    private Map<String, List<String>> playlists;
+    private JsonStore saveTarget;
+    private JsonStore loadSource;
+
+    @Setup
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("musicplayer-bench-json");
+        library = Fixtures.songs(songs);
+        playlists = Fixtures.playlists(library, 20, 500);
+
+        saveTarget = new JsonStore(dir.resolve("save.json"), DurabilityMode.NONE);
+        loadSource = new JsonStore(dir.resolve("load.json"), DurabilityMode.NONE);
+        loadSource.save(library, playlists);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Fixtures.deleteTree(dir);
+    }
+
+    @Benchmark
+    public JsonStore save() {
+        saveTarget.save(library, playlists);
+        return saveTarget;
+    }
+
+    @Benchmark
+    public LibraryService load() {
+        LibraryService libraryService = new LibraryService();
+        PlaylistService playlistService = new PlaylistService();
+        loadSource.load(libraryService, playlistService);
+        return libraryService;
+    }
+}
@@ -0,0 +1,74 @@
+package com.johnk.musicplayer.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.service.LibraryService;
+
+// In-memory library operations. The search filter that used to live in MainView is
+// LibraryService.search; the narrowing case is what typing one more character does.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LibraryBenchmarks {
+
+    @Param({"1000", "100000", "1000000"})
+    public int songs;
+
+    private List<Song> library;
+    private LibraryService service;
+    private List<String> playlistIds;
+    private int[] broadResult;
+
+    @Setup
+    public void setUp() {
+        library = Fixtures.songs(songs);
+        service = new LibraryService();
+        service.loadLibrary(library);
+        playlistIds = Fixtures.sampleIds(library, 1000, 42);
+        broadResult = service.search(null, "love");
+    }
+
+    @Benchmark
+    public LibraryService loadLibrary() {
+        LibraryService fresh = new LibraryService();
+        fresh.loadLibrary(library);
+        return fresh;
+    }
+
+    @Benchmark
+    public List<Song> resolveSongsByIds() {
+        return service.resolveSongsByIds(playlistIds);
+    }
+
+    @Benchmark
+    public int[] searchBroad() {
+        return service.search(null, "love");
+    }
+
+    @Benchmark
+    public int[] searchRare() {
+        return service.search(null, "artist 17");
+    }
+
+    @Benchmark
+    public int[] searchNarrowing() {
+        return service.search(broadResult, "love night");
+    }
+}
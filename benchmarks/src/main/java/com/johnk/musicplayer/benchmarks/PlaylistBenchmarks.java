@@ -0,0 +1,93 @@
+package com.johnk.musicplayer.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.service.PlaylistService;
+
+// One playlist holding the whole library, which is the worst case for every per-playlist operation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PlaylistBenchmarks {
+
+    private static final String PLAYLIST = "Everything";
+
+    @Param({"1000", "100000", "1000000"})
+    public int songs;
+
+    private List<String> ids;
+    private PlaylistService filled;
+    private Map<String, List<String>> exported;
+    private String middleId;
+    private String missingId;
+
+    @Setup
+    public void setUp() {
+        List<Song> library = Fixtures.songs(songs);
+        ids = library.stream().map(Song::getId).toList();
+
+        filled = fill(new PlaylistService());
+        exported = filled.exportPlaylists();
+        middleId = ids.get(ids.size() / 2);
+        missingId = new Song("missing", "nobody", "nowhere", "/missing.mp3").getId();
+    }
+
+    @Benchmark
+    public PlaylistService createAndFill() {
+        return fill(new PlaylistService());
+    }
+
+    @Benchmark
+    public boolean containsSong() {
+        return filled.containsSong(PLAYLIST, middleId) & filled.containsSong(PLAYLIST, missingId);
+    }
+
+    // Removing from the middle and appending again keeps the playlist the same size between calls.
+    @Benchmark
+    public PlaylistService removeAndReAdd() {
+        filled.removeSong(PLAYLIST, middleId);
+        filled.addSong(PLAYLIST, middleId);
+        return filled;
+    }
+
+    @Benchmark
+    public List<String> getSongIds() {
+        return filled.getSongIds(PLAYLIST);
+    }
+
+    @Benchmark
+    public Map<String, List<String>> exportPlaylists() {
+        return filled.exportPlaylists();
+    }
+
+    @Benchmark
+    public PlaylistService loadPlaylists() {
+        PlaylistService fresh = new PlaylistService();
+        fresh.loadPlaylists(exported);
+        return fresh;
+    }
+
+    private PlaylistService fill(PlaylistService playlists) {
+        playlists.createPlaylist(PLAYLIST);
+        for (String id : ids) playlists.addSong(PLAYLIST, id);
+        return playlists;
+    }
+}
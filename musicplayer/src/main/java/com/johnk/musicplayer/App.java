@@ -1,52 +1,170 @@
-
 package com.johnk.musicplayer;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Pos;
+import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
 import javafx.scene.image.Image;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.io.InputStream;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import com.johnk.musicplayer.ui.MainView;
+import com.johnk.musicplayer.ui.StartupTimer;
 
+// Startup modes, picked with -Dmusicplayer.startup:
+//   deferred (default)  show an empty window at once, open the store and read the library on a
+//                       background thread, then build the real view into the same scene
+//   eager               build everything on the FX thread before the window appears
+// -Dmusicplayer.startup.exitWhenReady=true quits once the library is loaded; the appcds Maven profile
+// uses it for its training run. See StartupTimer for the timing report.
 public class App extends Application {
 
     private static final String LOGO_PATH = "/com/johnk/musicplayer/ui/playra_logo_p.png";
 
-    @Override
-    public void start(Stage stage) {
-        MainView mainView = new MainView();
+    private static final Executor STARTUP_LOADER = r -> {
+        Thread t = new Thread(r, "startup-loader");
+        t.setDaemon(true);
+        t.start();
+    };
 
-        Scene scene = new Scene(mainView.getRoot(), 1800, 800);
+    private static long launchNanos;
 
-        scene.getStylesheets().add(
-                getClass().getResource("/com/johnk/musicplayer/ui/UIStyles.css").toExternalForm()
-        );
+    @Override
+    public void start(Stage stage) {
+        StartupTimer.record("toolkit", launchNanos);
 
         stage.setTitle("Playra");
 
-        try (InputStream is = getClass().getResourceAsStream(LOGO_PATH)) {
-            if (is != null) {
-                stage.getIcons().add(new Image(is));
-            }
-        } catch (Exception ignored) { }
+        URL logo = getClass().getResource(LOGO_PATH);
+        if (logo != null) {
+            stage.getIcons().add(new Image(logo.toExternalForm(), true));
+        }
 
         stage.setMinWidth(1100);
         stage.setMinHeight(720);
+
+        if (System.getProperty("musicplayer.startup", "deferred").equalsIgnoreCase("eager")) {
+            startEager(stage);
+        } else {
+            startDeferred(stage);
+        }
+    }
+
+    private void startEager(Stage stage) {
+        MainView.Preloaded preloaded = MainView.preload();
+
+        long start = StartupTimer.now();
+        MainView mainView = new MainView(preloaded);
+        StartupTimer.record("view.build", start);
+
+        start = StartupTimer.now();
+        stage.setScene(newScene(mainView.getRoot()));
+        stage.show();
+        StartupTimer.record("window.show", start);
+
+        attach(stage, mainView);
+    }
+
+    private void startDeferred(Stage stage) {
+        long start = StartupTimer.now();
+        StackPane placeholder = new StackPane();
+        Scene scene = newScene(placeholder);
         stage.setScene(scene);
 
+        // Until the view is attached nothing else closes the library store, so closing the window must
+        // not end the FX thread while the loader may still hand it an open store: the loader's callback
+        // closes it and exits instead. Once nothing is loading, closing the window exits straight away.
+        Platform.setImplicitExit(false);
+        boolean[] loading = {false};
+        stage.setOnHidden(e -> {
+            if (!loading[0]) Platform.exit();
+        });
+
+        stage.show();
+        StartupTimer.record("window.show", start);
+        loadDeferred(stage, scene, placeholder, loading);
+    }
+
+    private void loadDeferred(Stage stage, Scene scene, StackPane placeholder, boolean[] loading) {
+        loading[0] = true;
+        placeholder.getChildren().setAll(new Label("Loading library..."));
+
+        CompletableFuture.supplyAsync(MainView::preload, STARTUP_LOADER).whenComplete((preloaded, err) ->
+                Platform.runLater(() -> {
+                    loading[0] = false;
+                    if (!stage.isShowing()) {
+                        if (preloaded != null) preloaded.close();
+                        Platform.exit();
+                        return;
+                    }
+                    if (err != null) {
+                        Throwable cause = (err instanceof CompletionException && err.getCause() != null) ? err.getCause() : err;
+                        showLoadFailure(stage, scene, placeholder, loading, cause);
+                        return;
+                    }
+
+                    long built = StartupTimer.now();
+                    MainView mainView = new MainView(preloaded);
+                    scene.setRoot(mainView.getRoot());
+                    StartupTimer.record("view.build", built);
+
+                    stage.setOnHidden(null);
+                    Platform.setImplicitExit(true);
+                    attach(stage, mainView);
+                }));
+    }
+
+    private void showLoadFailure(Stage stage, Scene scene, StackPane placeholder, boolean[] loading, Throwable cause) {
+        Label message = new Label("Could not open the library: " + cause.getMessage());
+        Button retry = new Button("Retry");
+        retry.setOnAction(e -> loadDeferred(stage, scene, placeholder, loading));
+        Button quit = new Button("Quit");
+        quit.setOnAction(e -> stage.close());
+
+        HBox buttons = new HBox(8, retry, quit);
+        buttons.setAlignment(Pos.CENTER);
+        VBox box = new VBox(12, message, buttons);
+        box.setAlignment(Pos.CENTER);
+        placeholder.getChildren().setAll(box);
+    }
+
+    private Scene newScene(Parent root) {
+        Scene scene = new Scene(root, 1800, 800);
+        scene.getStylesheets().add(
+                getClass().getResource("/com/johnk/musicplayer/ui/UIStyles.css").toExternalForm()
+        );
+        return scene;
+    }
+
+    private void attach(Stage stage, MainView mainView) {
         stage.setOnCloseRequest(e -> {
             try {
-                mainView.saveState();
+                mainView.shutdown();
             } catch (RuntimeException ex) {
             }
         });
 
-        stage.show();
+        mainView.ready().thenRun(() -> {
+            StartupTimer.finish();
+            if (Boolean.getBoolean("musicplayer.startup.exitWhenReady")) {
+                mainView.shutdown();
+                Platform.exit();
+            }
+        });
     }
 
     public static void main(String[] args) {
+        launchNanos = StartupTimer.now();
         launch(args);
     }
 }
@@ -0,0 +1,46 @@
+package com.johnk.musicplayer.analysis;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// Shared plumbing for the per-song analysis caches.
+final class CacheFiles {
+
+    interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private CacheFiles() {
+    }
+
+    // Song ids are UUIDs, but never let one escape the cache directory.
+    static Path fileFor(Path dir, String songId, String extension) {
+        return dir.resolve(songId.replaceAll("[^A-Za-z0-9._-]", "_") + "." + extension);
+    }
+
+    // A failed write only costs a recomputation next time, so errors are swallowed.
+    static void writeAtomically(Path file, Writer writer) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                writer.write(out);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.johnk.musicplayer.analysis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.zip.CRC32C;
+
+// Cheap identity for a file's contents: size, modification time and a checksum of the first 64 KiB.
+// A retagged or re-encoded file changes at least one of these, which is what invalidates cached analysis.
+public final class FileFingerprint {
+
+    private static final int HEAD_BYTES = 64 * 1024;
+
+    private FileFingerprint() {
+    }
+
+    // Size and modification time only, without opening the file; for files whose content is expensive to
+    // read and that are rewritten rather than edited in place. Null when the file cannot be stat'ed.
+    public static String stat(Path file) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            return Long.toHexString(attrs.size()) + "-" + Long.toHexString(attrs.lastModifiedTime().toMillis());
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Returns null when the file cannot be read.
+    public static String of(Path file) {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            long modified = Files.getLastModifiedTime(file).toMillis();
+
+            ByteBuffer head = ByteBuffer.allocate((int) Math.min(HEAD_BYTES, size));
+            while (head.hasRemaining()) {
+                if (ch.read(head) < 0) break;
+            }
+            head.flip();
+            CRC32C crc = new CRC32C();
+            crc.update(head);
+
+            return Long.toHexString(size) + "-" + Long.toHexString(modified) + "-" + Long.toHexString(crc.getValue());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.johnk.musicplayer.analysis;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.johnk.musicplayer.persistence.StorePaths;
+
+// Per-song loudness results under <data dir>/loudness, next to the library files. An entry is only
+// trusted while the file fingerprint matches, which is what lets unchanged files skip re-analysis.
+// The histogram is stored sparsely; typical music occupies a few hundred of its bins.
+public class LoudnessCache {
+
+    private static final int MAGIC = 0x504C4C55; // "PLLU"
+    private static final int VERSION = 1;
+
+    private final Path dir;
+
+    public LoudnessCache() {
+        this(StorePaths.resolve("loudness"));
+    }
+
+    public LoudnessCache(Path dir) {
+        this.dir = dir;
+    }
+
+    // Returns null on a miss, a fingerprint mismatch or an unreadable entry.
+    public TrackLoudness read(String songId, String fingerprint) {
+        Path file = CacheFiles.fileFor(dir, songId, "lufs");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            if (!in.readUTF().equals(fingerprint)) return null;
+
+            float peak = in.readFloat();
+            int used = in.readInt();
+            if (used < 0 || used > LoudnessHistogram.BINS) return null;
+
+            LoudnessHistogram histogram = new LoudnessHistogram();
+            for (int i = 0; i < used; i++) {
+                int bin = in.readUnsignedShort();
+                int count = in.readInt();
+                if (bin >= LoudnessHistogram.BINS || count < 0) return null;
+                histogram.add(bin, count);
+            }
+            return new TrackLoudness(histogram, peak);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public void write(String songId, String fingerprint, TrackLoudness loudness) {
+        LoudnessHistogram histogram = loudness.histogram();
+        CacheFiles.writeAtomically(CacheFiles.fileFor(dir, songId, "lufs"), out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(fingerprint);
+            out.writeFloat(loudness.peak());
+
+            int used = 0;
+            for (int b = 0; b < LoudnessHistogram.BINS; b++) {
+                if (histogram.count(b) != 0) used++;
+            }
+            out.writeInt(used);
+            for (int b = 0; b < LoudnessHistogram.BINS; b++) {
+                if (histogram.count(b) == 0) continue;
+                out.writeShort(b);
+                out.writeInt(histogram.count(b));
+            }
+        });
+    }
+}
@@ -0,0 +1,74 @@
+package com.johnk.musicplayer.analysis;
+
+// Gating-block loudness histogram in 0.1 LU bins from -70 to +5 LUFS. Holding counts instead of the
+// blocks themselves keeps a track at a fixed 3 KB, and histograms of an album's tracks simply add up,
+// which is how album loudness is gated over all of its blocks (the libebur128 histogram approach).
+public final class LoudnessHistogram {
+
+    static final double MIN_LUFS = -70.0;
+    static final double MAX_LUFS = 5.0;
+    static final double BIN_LU = 0.1;
+    static final int BINS = (int) Math.round((MAX_LUFS - MIN_LUFS) / BIN_LU);
+
+    private static final double RELATIVE_GATE_LU = -10.0;
+    private static final double[] BIN_ENERGY = new double[BINS];
+
+    static {
+        for (int b = 0; b < BINS; b++) BIN_ENERGY[b] = energyOf(binCenter(b));
+    }
+
+    private final int[] counts = new int[BINS];
+
+    // Blocks under the absolute gate are dropped here, so they never count towards anything.
+    void addBlock(double meanSquare) {
+        double lufs = lufsOf(meanSquare);
+        if (!(lufs >= MIN_LUFS)) return;
+        int bin = (int) Math.min(BINS - 1, Math.floor((lufs - MIN_LUFS) / BIN_LU));
+        counts[bin]++;
+    }
+
+    void add(int bin, int count) {
+        counts[bin] += count;
+    }
+
+    int count(int bin) {
+        return counts[bin];
+    }
+
+    public void merge(LoudnessHistogram other) {
+        for (int b = 0; b < BINS; b++) counts[b] += other.counts[b];
+    }
+
+    // BS.1770-4 integrated loudness; NaN when no block passed the absolute gate (silence, very short files).
+    public double integratedLufs() {
+        long blocks = 0;
+        double energy = 0;
+        for (int b = 0; b < BINS; b++) {
+            blocks += counts[b];
+            energy += counts[b] * BIN_ENERGY[b];
+        }
+        if (blocks == 0) return Double.NaN;
+
+        double threshold = lufsOf(energy / blocks) + RELATIVE_GATE_LU;
+        blocks = 0;
+        energy = 0;
+        for (int b = 0; b < BINS; b++) {
+            if (binCenter(b) < threshold) continue;
+            blocks += counts[b];
+            energy += counts[b] * BIN_ENERGY[b];
+        }
+        return (blocks == 0) ? Double.NaN : lufsOf(energy / blocks);
+    }
+
+    private static double binCenter(int bin) {
+        return MIN_LUFS + (bin + 0.5) * BIN_LU;
+    }
+
+    static double lufsOf(double meanSquare) {
+        return -0.691 + 10 * Math.log10(meanSquare);
+    }
+
+    private static double energyOf(double lufs) {
+        return Math.pow(10, (lufs + 0.691) / 10);
+    }
+}
@@ -0,0 +1,150 @@
+package com.johnk.musicplayer.analysis;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+// Streaming ITU-R BS.1770 measurement: K-weighting (high shelf + high pass biquads, coefficients
+// derived for the file's sample rate), 400 ms gating blocks with 75% overlap, and sample peak.
+// One pass, one fixed read buffer and a histogram; nothing grows with track length.
+public final class LoudnessMeter {
+
+    private static final int CHUNK_SAMPLES = 16 * 1024;
+
+    private final int channels;
+    private final double[] weights;
+    private final Biquad[] shelf;
+    private final Biquad[] highPass;
+
+    private final int hopFrames;
+    private final double[] hops = new double[4];
+    private int hopsSeen = 0;
+    private int framesInHop = 0;
+    private double hopSum = 0;
+
+    private float peak = 0;
+    private final LoudnessHistogram histogram = new LoudnessHistogram();
+
+    LoudnessMeter(int channels, int sampleRate) {
+        this.channels = channels;
+        this.weights = channelWeights(channels);
+        this.shelf = new Biquad[channels];
+        this.highPass = new Biquad[channels];
+        for (int c = 0; c < channels; c++) {
+            shelf[c] = Biquad.highShelf(sampleRate);
+            highPass[c] = Biquad.highPass(sampleRate);
+        }
+        this.hopFrames = Math.max(1, Math.round(sampleRate / 10f));
+    }
+
+    // Cheap pre-check by name, so callers can skip everything else measure() would reject anyway.
+    public static boolean canMeasure(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".wav") || name.endsWith(".wave");
+    }
+
+    // Returns null when the file is not in a format that can be decoded locally.
+    public static TrackLoudness measure(Path file) throws IOException {
+        try (WavReader reader = WavReader.open(file)) {
+            if (reader == null) return null;
+
+            int channels = reader.channels();
+            LoudnessMeter meter = new LoudnessMeter(channels, reader.sampleRate());
+            float[] chunk = new float[Math.max(channels, CHUNK_SAMPLES - CHUNK_SAMPLES % channels)];
+            int n;
+            while ((n = reader.read(chunk)) > 0) {
+                meter.process(chunk, n);
+                if (Thread.currentThread().isInterrupted()) return null;
+            }
+            return new TrackLoudness(meter.histogram, meter.peak);
+        }
+    }
+
+    void process(float[] interleaved, int frames) {
+        for (int f = 0; f < frames; f++) {
+            int base = f * channels;
+            double sum = 0;
+            for (int c = 0; c < channels; c++) {
+                float s = interleaved[base + c];
+                float abs = Math.abs(s);
+                if (abs > peak) peak = abs;
+                if (weights[c] == 0) continue;
+                double y = highPass[c].apply(shelf[c].apply(s));
+                sum += weights[c] * y * y;
+            }
+            hopSum += sum;
+            if (++framesInHop == hopFrames) endHop();
+        }
+    }
+
+    // Every 100 ms hop closes one 400 ms block made of the last four hops.
+    private void endHop() {
+        hops[hopsSeen % 4] = hopSum;
+        hopsSeen++;
+        hopSum = 0;
+        framesInHop = 0;
+        if (hopsSeen < 4) return;
+        histogram.addBlock((hops[0] + hops[1] + hops[2] + hops[3]) / (4.0 * hopFrames));
+    }
+
+    // BS.1770 weights: 1.0 for front channels, 1.41 for surrounds, and the LFE of a 5.1 layout is ignored.
+    private static double[] channelWeights(int channels) {
+        double[] w = new double[channels];
+        for (int c = 0; c < channels; c++) w[c] = 1.0;
+        if (channels == 6) {
+            w[3] = 0.0;
+            w[4] = 1.41;
+            w[5] = 1.41;
+        }
+        return w;
+    }
+
+    // Transposed direct form II, normalised so a0 == 1.
+    private static final class Biquad {
+        private final double b0, b1, b2, a1, a2;
+        private double z1, z2;
+
+        private Biquad(double b0, double b1, double b2, double a1, double a2) {
+            this.b0 = b0;
+            this.b1 = b1;
+            this.b2 = b2;
+            this.a1 = a1;
+            this.a2 = a2;
+        }
+
+        double apply(double x) {
+            double y = b0 * x + z1;
+            z1 = b1 * x - a1 * y + z2;
+            z2 = b2 * x - a2 * y;
+            return y;
+        }
+
+        // Stage 1: +4 dB shelf modelling the acoustic effect of the head.
+        static Biquad highShelf(int sampleRate) {
+            double f0 = 1681.974450955533;
+            double gainDb = 3.999843853973347;
+            double q = 0.7071752369554196;
+
+            double k = Math.tan(Math.PI * f0 / sampleRate);
+            double vh = Math.pow(10, gainDb / 20);
+            double vb = Math.pow(vh, 0.4996667741545416);
+            double a0 = 1 + k / q + k * k;
+            return new Biquad(
+                    (vh + vb * k / q + k * k) / a0,
+                    2 * (k * k - vh) / a0,
+                    (vh - vb * k / q + k * k) / a0,
+                    2 * (k * k - 1) / a0,
+                    (1 - k / q + k * k) / a0);
+        }
+
+        // Stage 2: the RLB high pass.
+        static Biquad highPass(int sampleRate) {
+            double f0 = 38.13547087602444;
+            double q = 0.5003270373238773;
+
+            double k = Math.tan(Math.PI * f0 / sampleRate);
+            double a0 = 1 + k / q + k * k;
+            return new Biquad(1, -2, 1, 2 * (k * k - 1) / a0, (1 - k / q + k * k) / a0);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.johnk.musicplayer.analysis;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import com.johnk.musicplayer.domain.Song;
+
+// ReplayGain-style loudness normalisation. -Dmusicplayer.replaygain picks what playback uses:
+//   track (default), album, or off.
+// analyze() walks the library album by album on a small background pool. Files the meter cannot
+// decode are left out by name before anything is read, tracks whose fingerprint matches their cache
+// entry are not decoded again, and album loudness is gated over the merged histograms of its tracks.
+// gainDbFor() is a map lookup, cheap enough to call while loading a track.
+public class LoudnessService {
+
+    public enum Mode {
+        OFF, TRACK, ALBUM;
+
+        public static Mode configured() {
+            String value = System.getProperty("musicplayer.replaygain", "track").trim().toUpperCase(Locale.ROOT);
+            try {
+                return Mode.valueOf(value);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown replaygain mode: " + value, e);
+            }
+        }
+    }
+
+    private final Mode mode;
+    private final LoudnessCache cache;
+    private final int parallelism;
+    private final ExecutorService coordinator;
+    private final ExecutorService workers;
+    private final Map<String, ReplayGain> gains = new ConcurrentHashMap<>();
+    // Looked like WAV but did not decode; not retried until the next start.
+    private final Set<String> unmeasurable = ConcurrentHashMap.newKeySet();
+
+    private volatile long generation = 0;
+
+    public LoudnessService() {
+        this(Mode.configured(), new LoudnessCache(), Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() / 2)));
+    }
+
+    public LoudnessService(Mode mode, LoudnessCache cache, int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be at least 1");
+        this.mode = mode;
+        this.cache = cache;
+        this.parallelism = parallelism;
+        this.coordinator = Executors.newSingleThreadExecutor(r -> daemon(r, "loudness-analyzer"));
+        this.workers = Executors.newFixedThreadPool(parallelism, r -> daemon(r, "loudness-worker"));
+    }
+
+    // Analyzes every album with a track that has no result yet. A newer call supersedes an older one.
+    public void analyze(List<Song> songs) {
+        if (mode == Mode.OFF) return;
+
+        Map<String, List<Song>> albums = new LinkedHashMap<>();
+        for (Song s : songs) {
+            if (!LoudnessMeter.canMeasure(Path.of(s.getPath()))) continue;
+            albums.computeIfAbsent(albumKey(s), k -> new ArrayList<>()).add(s);
+        }
+        albums.values().removeIf(tracks -> tracks.stream()
+                .allMatch(s -> gains.containsKey(s.getId()) || unmeasurable.contains(s.getId())));
+        if (albums.isEmpty()) return;
+
+        long myGeneration = ++generation;
+        coordinator.execute(() -> run(new ArrayList<>(albums.values()), myGeneration));
+    }
+
+    public double gainDbFor(Song song) {
+        if (mode == Mode.OFF || song == null) return 0;
+        ReplayGain gain = gains.get(song.getId());
+        return (gain == null) ? 0 : gain.playbackGainDb(mode == Mode.ALBUM);
+    }
+
+    public ReplayGain resultFor(Song song) {
+        return (song == null) ? null : gains.get(song.getId());
+    }
+
+    public void shutdown() {
+        generation++;
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    // Bounds queued albums the same way DurationProber bounds reads, so the queue never holds the library.
+    private void run(List<List<Song>> albums, long myGeneration) {
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        for (List<Song> tracks : albums) {
+            if (generation != myGeneration) return;
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            workers.execute(() -> {
+                try {
+                    if (generation == myGeneration) analyzeAlbum(tracks);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+    }
+
+    private void analyzeAlbum(List<Song> tracks) {
+        List<Song> measured = new ArrayList<>(tracks.size());
+        List<TrackLoudness> results = new ArrayList<>(tracks.size());
+        LoudnessHistogram album = new LoudnessHistogram();
+        float albumPeak = 0;
+
+        for (Song song : tracks) {
+            TrackLoudness loudness = loudnessOf(song);
+            if (loudness == null) {
+                if (!Thread.currentThread().isInterrupted()) unmeasurable.add(song.getId());
+                continue;
+            }
+            measured.add(song);
+            results.add(loudness);
+            album.merge(loudness.histogram());
+            albumPeak = Math.max(albumPeak, loudness.peak());
+        }
+
+        double albumLufs = album.integratedLufs();
+        for (int i = 0; i < measured.size(); i++) {
+            TrackLoudness t = results.get(i);
+            gains.put(measured.get(i).getId(), new ReplayGain(t.integratedLufs(), t.peak(), albumLufs, albumPeak));
+        }
+    }
+
+    private TrackLoudness loudnessOf(Song song) {
+        Path file = Path.of(song.getPath());
+        String fingerprint = FileFingerprint.of(file);
+        if (fingerprint == null) return null;
+
+        TrackLoudness cached = cache.read(song.getId(), fingerprint);
+        if (cached != null) return cached;
+
+        try {
+            TrackLoudness measured = LoudnessMeter.measure(file);
+            if (measured != null) cache.write(song.getId(), fingerprint, measured);
+            return measured;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Album titles like "Greatest Hits" repeat across artists, so the folder is part of the key.
+    // Tracks without an album form an album of one.
+    private static String albumKey(Song song) {
+        String album = song.getAlbum();
+        if (album == null || album.isBlank()) return "track:" + song.getId();
+
+        Path parent = Path.of(song.getPath()).getParent();
+        return album.trim().toLowerCase(Locale.ROOT) + "|" + parent;
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    }
+}
@@ -0,0 +1,62 @@
+package com.johnk.musicplayer.analysis;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.johnk.musicplayer.persistence.StorePaths;
+
+// One small file per song under <data dir>/peaks. Each entry records the fingerprint it was computed
+// from, so a changed file reads as a miss instead of showing a stale waveform.
+public class PeakCache {
+
+    private static final int MAGIC = 0x504C504B; // "PLPK"
+    private static final int VERSION = 1;
+    private static final int MAX_BUCKETS = 1 << 16;
+
+    private final Path dir;
+
+    public PeakCache() {
+        this(StorePaths.resolve("peaks"));
+    }
+
+    public PeakCache(Path dir) {
+        this.dir = dir;
+    }
+
+    // Returns null on a miss, a fingerprint mismatch or an unreadable entry.
+    public Peaks read(String songId, String fingerprint) {
+        Path file = fileFor(songId);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            if (!in.readUTF().equals(fingerprint)) return null;
+
+            int buckets = in.readInt();
+            if (buckets <= 0 || buckets > MAX_BUCKETS) return null;
+            byte[] min = new byte[buckets];
+            byte[] max = new byte[buckets];
+            in.readFully(min);
+            in.readFully(max);
+            return new Peaks(min, max);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public void write(String songId, String fingerprint, Peaks peaks) {
+        CacheFiles.writeAtomically(fileFor(songId), out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(fingerprint);
+            out.writeInt(peaks.buckets());
+            out.write(peaks.rawMin());
+            out.write(peaks.rawMax());
+        });
+    }
+
+    private Path fileFor(String songId) {
+        return CacheFiles.fileFor(dir, songId, "peaks");
+    }
+}
@@ -0,0 +1,54 @@
+package com.johnk.musicplayer.analysis;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Single streaming pass over a decoded file. Memory is one read buffer plus the bucket arrays,
+// regardless of track length.
+public final class PeakGenerator {
+
+    public static final int DEFAULT_BUCKETS = 2000;
+
+    private static final int CHUNK_SAMPLES = 16 * 1024;
+
+    private PeakGenerator() {
+    }
+
+    // Returns null when the file is not in a format that can be decoded locally.
+    public static Peaks compute(Path file, int buckets) throws IOException {
+        if (buckets < 1) throw new IllegalArgumentException("buckets must be at least 1");
+
+        try (WavReader reader = WavReader.open(file)) {
+            if (reader == null) return null;
+
+            int channels = reader.channels();
+            long totalFrames = Math.max(1, reader.totalFrames());
+            float[] chunk = new float[Math.max(channels, CHUNK_SAMPLES - CHUNK_SAMPLES % channels)];
+
+            float[] lo = new float[buckets];
+            float[] hi = new float[buckets];
+            long frame = 0;
+            int n;
+            while ((n = reader.read(chunk)) > 0) {
+                for (int f = 0; f < n; f++, frame++) {
+                    int b = (int) Math.min(buckets - 1, frame * buckets / totalFrames);
+                    int base = f * channels;
+                    for (int c = 0; c < channels; c++) {
+                        float s = chunk[base + c];
+                        if (s < lo[b]) lo[b] = s;
+                        if (s > hi[b]) hi[b] = s;
+                    }
+                }
+                if (Thread.currentThread().isInterrupted()) return null;
+            }
+
+            byte[] min = new byte[buckets];
+            byte[] max = new byte[buckets];
+            for (int b = 0; b < buckets; b++) {
+                min[b] = Peaks.quantize(lo[b]);
+                max[b] = Peaks.quantize(hi[b]);
+            }
+            return new Peaks(min, max);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.johnk.musicplayer.analysis;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.johnk.musicplayer.domain.Song;
+
+// Hands out waveform peaks for songs. Cache lookups and decoding both run on a small pool, and
+// concurrent requests for the same song share one computation. Each job streams its file, so memory
+// stays bounded however many are queued.
+public class PeakService {
+
+    private final PeakCache cache;
+    private final ExecutorService workers;
+    private final Map<String, CompletableFuture<Peaks>> inFlight = new ConcurrentHashMap<>();
+
+    public PeakService() {
+        this(new PeakCache(), Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() / 2)));
+    }
+
+    public PeakService(PeakCache cache, int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be at least 1");
+        this.cache = cache;
+        this.workers = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "peak-worker");
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                });
+    }
+
+    // Completes with null when the song cannot be decoded locally (only WAV for now).
+    public CompletableFuture<Peaks> peaksFor(Song song) {
+        if (song == null) return CompletableFuture.completedFuture(null);
+
+        CompletableFuture<Peaks> existing = inFlight.get(song.getId());
+        if (existing != null) return existing;
+
+        CompletableFuture<Peaks> future = new CompletableFuture<>();
+        existing = inFlight.putIfAbsent(song.getId(), future);
+        if (existing != null) return existing;
+
+        try {
+            workers.execute(() -> {
+                try {
+                    future.complete(load(song));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(song.getId(), future);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(song.getId(), future);
+            future.complete(null);
+        }
+        return future;
+    }
+
+    // Warms the cache for a track that is about to play.
+    public void prefetch(Song song) {
+        if (song != null) peaksFor(song);
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private Peaks load(Song song) {
+        Path file = Path.of(song.getPath());
+        String fingerprint = FileFingerprint.of(file);
+        if (fingerprint == null) return null;
+
+        Peaks cached = cache.read(song.getId(), fingerprint);
+        if (cached != null) return cached;
+
+        try {
+            Peaks peaks = PeakGenerator.compute(file, PeakGenerator.DEFAULT_BUCKETS);
+            if (peaks != null) cache.write(song.getId(), fingerprint, peaks);
+            return peaks;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
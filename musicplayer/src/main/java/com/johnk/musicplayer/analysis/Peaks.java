@@ -0,0 +1,40 @@
+package com.johnk.musicplayer.analysis;
+
+// Downsampled waveform: per bucket, the minimum and maximum sample across all channels,
+// quantized to a signed byte (-127..127 for -1..1). About 4 KB for a whole track.
+public final class Peaks {
+
+    private final byte[] min;
+    private final byte[] max;
+
+    public Peaks(byte[] min, byte[] max) {
+        if (min.length != max.length) throw new IllegalArgumentException("min and max must have the same length");
+        this.min = min;
+        this.max = max;
+    }
+
+    public int buckets() {
+        return min.length;
+    }
+
+    public float min(int bucket) {
+        return min[bucket] / 127f;
+    }
+
+    public float max(int bucket) {
+        return max[bucket] / 127f;
+    }
+
+    byte[] rawMin() {
+        return min;
+    }
+
+    byte[] rawMax() {
+        return max;
+    }
+
+    static byte quantize(float sample) {
+        float clamped = Math.max(-1f, Math.min(1f, sample));
+        return (byte) Math.round(clamped * 127f);
+    }
+}
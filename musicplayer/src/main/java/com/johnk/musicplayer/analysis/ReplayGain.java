@@ -0,0 +1,37 @@
+package com.johnk.musicplayer.analysis;
+
+// Track and album gain relative to the ReplayGain 2.0 reference of -18 LUFS, with their sample peaks.
+// NaN gain means the loudness could not be measured.
+public final class ReplayGain {
+
+    public static final double REFERENCE_LUFS = -18.0;
+
+    private final double trackGainDb;
+    private final float trackPeak;
+    private final double albumGainDb;
+    private final float albumPeak;
+
+    ReplayGain(double trackLufs, float trackPeak, double albumLufs, float albumPeak) {
+        this.trackGainDb = REFERENCE_LUFS - trackLufs;
+        this.trackPeak = trackPeak;
+        this.albumGainDb = REFERENCE_LUFS - albumLufs;
+        this.albumPeak = albumPeak;
+    }
+
+    public double trackGainDb() {
+        return trackGainDb;
+    }
+
+    public double albumGainDb() {
+        return albumGainDb;
+    }
+
+    // The gain to play at, lowered where needed so the peak does not clip; 0 when unmeasured.
+    public double playbackGainDb(boolean album) {
+        double gain = album ? albumGainDb : trackGainDb;
+        float peak = album ? albumPeak : trackPeak;
+        if (Double.isNaN(gain)) return 0;
+        if (peak > 0) gain = Math.min(gain, -20 * Math.log10(peak));
+        return gain;
+    }
+}
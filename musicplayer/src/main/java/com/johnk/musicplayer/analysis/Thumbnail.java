@@ -0,0 +1,29 @@
+package com.johnk.musicplayer.analysis;
+
+// A decoded, downscaled cover image as packed ARGB pixels, row by row.
+public final class Thumbnail {
+
+    private final int width;
+    private final int height;
+    private final int[] argb;
+
+    public Thumbnail(int width, int height, int[] argb) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("thumbnail must not be empty");
+        if (argb.length != width * height) throw new IllegalArgumentException("pixel count does not match the size");
+        this.width = width;
+        this.height = height;
+        this.argb = argb;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int[] argb() {
+        return argb;
+    }
+}
@@ -0,0 +1,144 @@
+package com.johnk.musicplayer.analysis;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.johnk.musicplayer.persistence.StorePaths;
+
+// Cover thumbnails under <data dir>/artwork, one file per distinct image keyed by the hash of its
+// encoded bytes, so every track of an album shares one entry. Pixels are stored deflated.
+// Next to them, one small .art file per song records which image the song's art is (or that it has
+// none) and where it came from, so a later run can skip the tag read and hashing while the stamp of
+// those files still matches.
+public class ThumbnailCache {
+
+    private static final int MAGIC = 0x504C4152; // "PLAR"
+    private static final int VERSION = 1;
+    private static final int MAX_SIDE = 1024;
+
+    private static final int SONG_MAGIC = 0x504C5341; // "PLSA"
+    private static final int SONG_VERSION = 1;
+
+    // source is the file the art was read from (the track itself, or a folder image) or, for a song
+    // without art, the directory a folder image would appear in. stamp is whatever the caller derived
+    // from the track and source; hash is the thumbnail key, or "" for no art.
+    public static final class SongArt {
+        public final Path source;
+        public final String stamp;
+        public final String hash;
+
+        public SongArt(Path source, String stamp, String hash) {
+            this.source = source;
+            this.stamp = stamp;
+            this.hash = hash;
+        }
+    }
+
+    private final Path dir;
+
+    public ThumbnailCache() {
+        this(StorePaths.resolve("artwork"));
+    }
+
+    public ThumbnailCache(Path dir) {
+        this.dir = dir;
+    }
+
+    // Returns null on a miss or an unreadable entry.
+    public Thumbnail read(String contentHash) {
+        Path file = CacheFiles.fileFor(dir, contentHash, "thumb");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            int width = in.readInt();
+            int height = in.readInt();
+            int packed = in.readInt();
+            if (width <= 0 || height <= 0 || width > MAX_SIDE || height > MAX_SIDE) return null;
+            if (packed <= 0 || packed > width * height * 4 + 1024) return null;
+
+            byte[] deflated = new byte[packed];
+            in.readFully(deflated);
+            byte[] raw = new byte[width * height * 4];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(deflated);
+                int n = 0;
+                while (n < raw.length && !inflater.finished()) {
+                    int got = inflater.inflate(raw, n, raw.length - n);
+                    if (got == 0 && (inflater.needsInput() || inflater.needsDictionary())) return null;
+                    n += got;
+                }
+                if (n != raw.length) return null;
+            } finally {
+                inflater.end();
+            }
+
+            int[] argb = new int[width * height];
+            ByteBuffer.wrap(raw).asIntBuffer().get(argb);
+            return new Thumbnail(width, height, argb);
+        } catch (IOException | DataFormatException e) {
+            return null;
+        }
+    }
+
+    public void write(String contentHash, Thumbnail thumbnail) {
+        ByteBuffer raw = ByteBuffer.allocate(thumbnail.argb().length * 4);
+        raw.asIntBuffer().put(thumbnail.argb());
+        byte[] deflated = deflate(raw.array());
+
+        CacheFiles.writeAtomically(CacheFiles.fileFor(dir, contentHash, "thumb"), out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(thumbnail.width());
+            out.writeInt(thumbnail.height());
+            out.writeInt(deflated.length);
+            out.write(deflated);
+        });
+    }
+
+    // Returns null on a miss or an unreadable entry; the caller checks the stamp.
+    public SongArt readSongArt(String songId) {
+        Path file = CacheFiles.fileFor(dir, songId, "art");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SONG_MAGIC || in.readInt() != SONG_VERSION) return null;
+            return new SongArt(Path.of(in.readUTF()), in.readUTF(), in.readUTF());
+        } catch (IOException | InvalidPathException e) {
+            return null;
+        }
+    }
+
+    public void writeSongArt(String songId, SongArt art) {
+        CacheFiles.writeAtomically(CacheFiles.fileFor(dir, songId, "art"), out -> {
+            out.writeInt(SONG_MAGIC);
+            out.writeInt(SONG_VERSION);
+            out.writeUTF(art.source.toString());
+            out.writeUTF(art.stamp);
+            out.writeUTF(art.hash);
+        });
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2);
+            byte[] chunk = new byte[16 * 1024];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                out.write(chunk, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.johnk.musicplayer.analysis;
+
+// Per-track analysis result: the gating histogram (kept so album loudness can be recomputed from
+// cached tracks) and the sample peak as a linear amplitude.
+public final class TrackLoudness {
+
+    private final LoudnessHistogram histogram;
+    private final float peak;
+
+    TrackLoudness(LoudnessHistogram histogram, float peak) {
+        this.histogram = histogram;
+        this.peak = peak;
+    }
+
+    public LoudnessHistogram histogram() {
+        return histogram;
+    }
+
+    public float peak() {
+        return peak;
+    }
+
+    public double integratedLufs() {
+        return histogram.integratedLufs();
+    }
+}
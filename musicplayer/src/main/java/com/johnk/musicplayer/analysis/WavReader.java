@@ -0,0 +1,158 @@
+package com.johnk.musicplayer.analysis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Streams a PCM WAV file as interleaved floats in [-1, 1] through one fixed-size read buffer.
+// Handles 8/16/24/32-bit integer and 32-bit float samples, including WAVE_FORMAT_EXTENSIBLE.
+public final class WavReader implements Closeable {
+
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    private final FileChannel channel;
+    private final int channels;
+    private final int sampleRate;
+    private final int bytesPerSample;
+    private final boolean floatSamples;
+    private final long dataEnd;
+    private final long totalFrames;
+    private final ByteBuffer buffer;
+
+    private WavReader(FileChannel channel, int channels, int sampleRate, int bitsPerSample, boolean floatSamples,
+                      long dataOffset, long dataEnd) throws IOException {
+        this.channel = channel;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.bytesPerSample = bitsPerSample / 8;
+        this.floatSamples = floatSamples;
+        this.dataEnd = dataEnd;
+
+        int frameBytes = bytesPerSample * channels;
+        this.buffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES - READ_BUFFER_BYTES % frameBytes)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        channel.position(dataOffset);
+        this.totalFrames = (dataEnd - dataOffset) / frameBytes;
+    }
+
+    // Returns null when the file is not an uncompressed WAV this reader understands.
+    public static WavReader open(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            WavReader reader = parse(ch);
+            if (reader == null) ch.close();
+            return reader;
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    public int channels() {
+        return channels;
+    }
+
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    public long totalFrames() {
+        return totalFrames;
+    }
+
+    // Fills up to interleaved.length / channels frames; returns the frame count, or -1 at the end.
+    public int read(float[] interleaved) throws IOException {
+        long remaining = dataEnd - channel.position();
+        if (remaining <= 0) return -1;
+
+        int frameBytes = bytesPerSample * channels;
+        int wantBytes = (int) Math.min(Math.min(buffer.capacity(), remaining), (long) (interleaved.length / channels) * frameBytes);
+        wantBytes -= wantBytes % frameBytes;
+        if (wantBytes == 0) return -1;
+
+        buffer.clear().limit(wantBytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) break;
+        }
+        buffer.flip();
+
+        int samples = buffer.remaining() / bytesPerSample;
+        samples -= samples % channels;
+        for (int i = 0; i < samples; i++) interleaved[i] = nextSample();
+        return samples / channels;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private float nextSample() {
+        switch (bytesPerSample) {
+            case 1:
+                return ((buffer.get() & 0xFF) - 128) / 128f;
+            case 2:
+                return buffer.getShort() / 32768f;
+            case 3: {
+                int lo = buffer.get() & 0xFF;
+                int mid = buffer.get() & 0xFF;
+                int hi = buffer.get();
+                return ((hi << 16) | (mid << 8) | lo) / 8388608f;
+            }
+            default:
+                return floatSamples ? buffer.getFloat() : buffer.getInt() / 2147483648f;
+        }
+    }
+
+    private static WavReader parse(FileChannel ch) throws IOException {
+        ByteBuffer head = read(ch, 0, 12);
+        if (head.remaining() < 12 || !ascii(head, 0).equals("RIFF") || !ascii(head, 8).equals("WAVE")) return null;
+
+        long size = ch.size();
+        long pos = 12;
+        int tag = -1, channels = 0, sampleRate = 0, bits = 0;
+
+        while (pos + 8 <= size) {
+            ByteBuffer chunk = read(ch, pos, 8);
+            if (chunk.remaining() < 8) return null;
+            String id = ascii(chunk, 0);
+            long length = Integer.toUnsignedLong(chunk.getInt(4));
+
+            if (id.equals("fmt ")) {
+                ByteBuffer fmt = read(ch, pos + 8, 26);
+                if (fmt.remaining() < 16) return null;
+                tag = fmt.getShort(0) & 0xFFFF;
+                channels = fmt.getShort(2);
+                sampleRate = fmt.getInt(4);
+                bits = fmt.getShort(14);
+                if (tag == 0xFFFE && fmt.remaining() >= 26) tag = fmt.getShort(24) & 0xFFFF;
+            } else if (id.equals("data")) {
+                boolean isFloat = (tag == 3 && bits == 32);
+                if (!(tag == 1 && (bits == 8 || bits == 16 || bits == 24 || bits == 32)) && !isFloat) return null;
+                if (channels <= 0 || sampleRate <= 0) return null;
+                return new WavReader(ch, channels, sampleRate, bits, isFloat, pos + 8, Math.min(size, pos + 8 + length));
+            }
+            pos += 8 + length + (length & 1);
+        }
+        return null;
+    }
+
+    private static ByteBuffer read(FileChannel ch, long pos, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, pos + buf.position()) <= 0) break;
+        }
+        return buf.flip();
+    }
+
+    private static String ascii(ByteBuffer buf, int offset) {
+        byte[] b = new byte[4];
+        buf.get(offset, b);
+        return new String(b, StandardCharsets.ISO_8859_1);
+    }
+}
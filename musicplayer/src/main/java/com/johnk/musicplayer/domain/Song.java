@@ -12,6 +12,10 @@ public final class Song {
     private final String album;
     private final String path;
 
+    // Filled in by the background duration prober: -1 until probed, 0 when the file header had no answer.
+    // Not part of equality.
+    private volatile long durationMillis = -1;
+
     public Song(String title, String artist, String album, String path) {
         this(stableIdFromPath(path), title, artist, album, path);
     }
@@ -49,6 +53,14 @@ public final class Song {
         return path;
     }
 
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = (durationMillis < 0) ? -1 : durationMillis;
+    }
+
     @Override
     public String toString() {
         return title + " — " + artist;
@@ -0,0 +1,239 @@
+package com.johnk.musicplayer.metadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Finds the encoded cover image for a track without decoding it:
+//   MP3  ID3v2.2 PIC / ID3v2.3-2.4 APIC, preferring the front cover
+//   M4A  moov/udta/meta/ilst/covr/data
+// plus the usual cover.jpg / folder.jpg style files next to the audio. Only the tag region is read,
+// and anything larger than MAX_IMAGE_BYTES is ignored rather than loaded.
+public final class CoverArt {
+
+    public static final int MAX_IMAGE_BYTES = 16 * 1024 * 1024;
+
+    private static final int PICTURE_TYPE_FRONT_COVER = 3;
+
+    // Checked in this order; a name only matches with a jpg/jpeg/png extension.
+    private static final String[] FOLDER_IMAGE_NAMES = {"cover", "folder", "front", "album", "albumart"};
+
+    private CoverArt() {
+    }
+
+    // Returns null when the file carries no picture this reader understands.
+    public static byte[] embedded(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (name.endsWith(".mp3")) return id3(ch);
+            if (name.endsWith(".m4a") || name.endsWith(".mp4")) return mp4(ch);
+            return null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Best matching image file in dir, or null. The lookup is one directory listing.
+    public static Path folderImage(Path dir) {
+        if (dir == null) return null;
+        Path best = null;
+        int bestRank = FOLDER_IMAGE_NAMES.length;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                int rank = folderImageRank(entry.getFileName().toString());
+                if (rank < bestRank && Files.isRegularFile(entry)) {
+                    best = entry;
+                    bestRank = rank;
+                    if (rank == 0) break;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        return best;
+    }
+
+    public static byte[] readImageFile(Path file) {
+        try {
+            if (Files.size(file) > MAX_IMAGE_BYTES) return null;
+            return Files.readAllBytes(file);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static int folderImageRank(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        int dot = name.lastIndexOf('.');
+        if (dot < 0) return FOLDER_IMAGE_NAMES.length;
+        String ext = name.substring(dot + 1);
+        if (!ext.equals("jpg") && !ext.equals("jpeg") && !ext.equals("png")) return FOLDER_IMAGE_NAMES.length;
+
+        String base = name.substring(0, dot);
+        for (int i = 0; i < FOLDER_IMAGE_NAMES.length; i++) {
+            // Windows Media Player writes AlbumArt_{GUID}_Large.jpg and friends.
+            if (base.equals(FOLDER_IMAGE_NAMES[i]) || (i == FOLDER_IMAGE_NAMES.length - 1 && base.startsWith("albumart"))) {
+                return i;
+            }
+        }
+        return FOLDER_IMAGE_NAMES.length;
+    }
+
+    static byte[] id3(FileChannel ch) throws IOException {
+        ByteBuffer h = DurationProbe.read(ch, 0, 10);
+        if (h.remaining() < 10 || h.get(0) != 'I' || h.get(1) != 'D' || h.get(2) != '3') return null;
+
+        int major = h.get(3) & 0xFF;
+        int flags = h.get(5) & 0xFF;
+        if (major < 2 || major > 4) return null;
+        int size = syncsafe(h.get(6), h.get(7), h.get(8), h.get(9));
+        if (size <= 0 || size > MAX_IMAGE_BYTES) return null;
+
+        ByteBuffer body = DurationProbe.read(ch, 10, size);
+        byte[] tag = new byte[body.remaining()];
+        body.get(tag);
+        // Before 2.4 unsynchronisation applies to the whole tag; 2.4 flags it per frame.
+        if (major < 4 && (flags & 0x80) != 0) tag = resynchronise(tag, 0, tag.length);
+
+        int pos = 0;
+        if (major >= 3 && (flags & 0x40) != 0) {
+            if (tag.length < 4) return null;
+            pos = (major == 4) ? syncsafe(tag[0], tag[1], tag[2], tag[3]) : 4 + bigEndian(tag, 0, 4);
+        }
+
+        int headerBytes = (major == 2) ? 6 : 10;
+        byte[] fallback = null;
+        while (pos >= 0 && pos + headerBytes <= tag.length && tag[pos] != 0) {
+            String id;
+            int frameSize;
+            int formatFlags = 0;
+            if (major == 2) {
+                id = new String(tag, pos, 3, StandardCharsets.ISO_8859_1);
+                frameSize = bigEndian(tag, pos + 3, 3);
+            } else {
+                id = new String(tag, pos, 4, StandardCharsets.ISO_8859_1);
+                frameSize = (major == 4)
+                        ? syncsafe(tag[pos + 4], tag[pos + 5], tag[pos + 6], tag[pos + 7])
+                        : bigEndian(tag, pos + 4, 4);
+                formatFlags = tag[pos + 9] & 0xFF;
+            }
+            int start = pos + headerBytes;
+            if (frameSize <= 0 || frameSize > tag.length - start) break;
+            int end = start + frameSize;
+
+            if (id.equals(major == 2 ? "PIC" : "APIC")) {
+                byte[] frame = frameBody(tag, start, end, major, formatFlags);
+                if (frame != null) {
+                    int[] picture = pictureData(frame, major);
+                    if (picture != null) {
+                        byte[] data = Arrays.copyOfRange(frame, picture[1], frame.length);
+                        if (picture[0] == PICTURE_TYPE_FRONT_COVER) return data;
+                        if (fallback == null) fallback = data;
+                    }
+                }
+            }
+            pos = end;
+        }
+        return fallback;
+    }
+
+    // Strips the per-frame extras; null for compressed or encrypted frames.
+    private static byte[] frameBody(byte[] tag, int start, int end, int major, int formatFlags) {
+        if (major == 4) {
+            if ((formatFlags & 0x0C) != 0) return null;
+            if ((formatFlags & 0x40) != 0) start += 1;
+            if ((formatFlags & 0x01) != 0) start += 4;
+            if (start >= end) return null;
+            return ((formatFlags & 0x02) != 0) ? resynchronise(tag, start, end) : Arrays.copyOfRange(tag, start, end);
+        }
+        if (major == 3) {
+            if ((formatFlags & 0xC0) != 0) return null;
+            if ((formatFlags & 0x20) != 0) start += 1;
+            if (start >= end) return null;
+        }
+        return Arrays.copyOfRange(tag, start, end);
+    }
+
+    // {picture type, offset of the image bytes}, or null when the frame is malformed.
+    private static int[] pictureData(byte[] frame, int major) {
+        int p = 0;
+        int encoding = frame[p++] & 0xFF;
+        if (major == 2) {
+            p += 3;
+        } else {
+            while (p < frame.length && frame[p] != 0) p++;
+            p++;
+        }
+        if (p >= frame.length) return null;
+        int type = frame[p++] & 0xFF;
+
+        // The description ends with one zero byte, or an aligned zero pair for the UTF-16 encodings.
+        boolean wide = (encoding == 1 || encoding == 2);
+        if (wide) {
+            while (p + 1 < frame.length && (frame[p] != 0 || frame[p + 1] != 0)) p += 2;
+            p += 2;
+        } else {
+            while (p < frame.length && frame[p] != 0) p++;
+            p++;
+        }
+        return (p < frame.length) ? new int[] {type, p} : null;
+    }
+
+    private static byte[] resynchronise(byte[] src, int from, int to) {
+        byte[] out = new byte[to - from];
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            out[n++] = src[i];
+            if (src[i] == (byte) 0xFF && i + 1 < to && src[i + 1] == 0) i++;
+        }
+        return (n == out.length) ? out : Arrays.copyOf(out, n);
+    }
+
+    static byte[] mp4(FileChannel ch) throws IOException {
+        long moov = DurationProbe.findAtom(ch, 0, ch.size(), "moov");
+        long udta = child(ch, moov, "udta", 0);
+        long meta = child(ch, udta, "meta", 0);
+        // meta is a full atom: version and flags precede its children.
+        long ilst = child(ch, meta, "ilst", 4);
+        long covr = child(ch, ilst, "covr", 0);
+        long data = child(ch, covr, "data", 0);
+        if (data < 0) return null;
+
+        long size = DurationProbe.atomSize(ch, data);
+        long header = DurationProbe.atomHeaderBytes(ch, data);
+        // data: 4 bytes of type indicator (13 JPEG, 14 PNG) and 4 bytes of locale before the payload.
+        long length = size - header - 8;
+        if (length <= 0 || length > MAX_IMAGE_BYTES) return null;
+
+        ByteBuffer payload = DurationProbe.read(ch, data + header + 8, (int) length);
+        if (payload.remaining() != length) return null;
+        byte[] image = new byte[(int) length];
+        payload.get(image);
+        return image;
+    }
+
+    private static long child(FileChannel ch, long parent, String type, int skip) throws IOException {
+        if (parent < 0) return -1;
+        long size = DurationProbe.atomSize(ch, parent);
+        if (size < 8) return -1;
+        return DurationProbe.findAtom(ch, parent + DurationProbe.atomHeaderBytes(ch, parent) + skip, parent + size, type);
+    }
+
+    private static int syncsafe(byte b0, byte b1, byte b2, byte b3) {
+        return ((b0 & 0x7F) << 21) | ((b1 & 0x7F) << 14) | ((b2 & 0x7F) << 7) | (b3 & 0x7F);
+    }
+
+    // Negative when a 4-byte size does not fit an int, which the callers treat as malformed.
+    private static int bigEndian(byte[] b, int off, int bytes) {
+        int v = 0;
+        for (int i = 0; i < bytes; i++) v = (v << 8) | (b[off + i] & 0xFF);
+        return v;
+    }
+}
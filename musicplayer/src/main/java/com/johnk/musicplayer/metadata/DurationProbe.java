@@ -0,0 +1,243 @@
+package com.johnk.musicplayer.metadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+// Reads a track's length from container headers only, never decoding audio:
+//   MP3  Xing/Info or VBRI frame count, otherwise CBR estimate from the first frame's bitrate
+//   M4A  mvhd duration / timescale
+//   WAV  data chunk size / byte rate
+// Every method returns -1 when the length cannot be determined.
+public final class DurationProbe {
+
+    private static final int MP3_SCAN_BYTES = 64 * 1024;
+
+    private static final int[][] MP3_BITRATES = {
+            {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448}, // MPEG1 layer I
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},    // MPEG1 layer II
+            {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},     // MPEG1 layer III
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},    // MPEG2/2.5 layer I
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}          // MPEG2/2.5 layer II/III
+    };
+
+    private static final int[][] MP3_SAMPLE_RATES = {
+            {44100, 48000, 32000}, // MPEG1
+            {22050, 24000, 16000}, // MPEG2
+            {11025, 12000, 8000}   // MPEG2.5
+    };
+
+    private DurationProbe() {
+    }
+
+    public static long probeMillis(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (name.endsWith(".mp3")) return mp3(ch);
+            if (name.endsWith(".m4a") || name.endsWith(".mp4")) return mp4(ch);
+            if (name.endsWith(".wav")) return wav(ch);
+            return -1;
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    static long mp3(FileChannel ch) throws IOException {
+        long size = ch.size();
+        long start = 0;
+
+        ByteBuffer id3 = read(ch, 0, 10);
+        if (id3.remaining() == 10 && id3.get(0) == 'I' && id3.get(1) == 'D' && id3.get(2) == '3') {
+            int tagSize = ((id3.get(6) & 0x7F) << 21) | ((id3.get(7) & 0x7F) << 14)
+                    | ((id3.get(8) & 0x7F) << 7) | (id3.get(9) & 0x7F);
+            start = 10L + tagSize + (((id3.get(5) & 0x10) != 0) ? 10 : 0);
+        }
+
+        ByteBuffer buf = read(ch, start, MP3_SCAN_BYTES);
+        for (int i = 0; i + 4 <= buf.limit(); i++) {
+            Mp3Frame frame = Mp3Frame.parse(buf.getInt(i));
+            if (frame == null) continue;
+
+            // Reject false syncs inside leftover tag data: the following frame must line up too.
+            int next = i + frame.length;
+            if (next + 4 <= buf.limit() && Mp3Frame.parse(buf.getInt(next)) == null) continue;
+
+            long frames = vbrFrameCount(buf, i, frame);
+            if (frames > 0) return frames * frame.samplesPerFrame * 1000L / frame.sampleRate;
+
+            long audioBytes = size - (start + i);
+            ByteBuffer tail = read(ch, size - 128, 3);
+            if (tail.remaining() == 3 && tail.get(0) == 'T' && tail.get(1) == 'A' && tail.get(2) == 'G') {
+                audioBytes -= 128;
+            }
+            return audioBytes * 8L / frame.bitrateKbps;
+        }
+        return -1;
+    }
+
+    private static long vbrFrameCount(ByteBuffer buf, int frameStart, Mp3Frame frame) {
+        int xing = frameStart + 4 + frame.sideInfoBytes;
+        if (xing + 12 <= buf.limit()) {
+            String tag = ascii(buf, xing, 4);
+            if (tag.equals("Xing") || tag.equals("Info")) {
+                int flags = buf.getInt(xing + 4);
+                if ((flags & 1) != 0) return Integer.toUnsignedLong(buf.getInt(xing + 8));
+                return -1;
+            }
+        }
+
+        int vbri = frameStart + 4 + 32;
+        if (vbri + 18 <= buf.limit() && ascii(buf, vbri, 4).equals("VBRI")) {
+            return Integer.toUnsignedLong(buf.getInt(vbri + 14));
+        }
+        return -1;
+    }
+
+    static long mp4(FileChannel ch) throws IOException {
+        long moov = findAtom(ch, 0, ch.size(), "moov");
+        if (moov < 0) return -1;
+
+        long moovSize = atomSize(ch, moov);
+        long header = atomHeaderBytes(ch, moov);
+        long mvhd = findAtom(ch, moov + header, moov + moovSize, "mvhd");
+        if (mvhd < 0) return -1;
+
+        long body = mvhd + atomHeaderBytes(ch, mvhd);
+        ByteBuffer b = read(ch, body, 32);
+        if (b.remaining() < 20) return -1;
+
+        int version = b.get(0) & 0xFF;
+        long timescale;
+        long duration;
+        if (version == 1) {
+            if (b.remaining() < 32) return -1;
+            timescale = Integer.toUnsignedLong(b.getInt(20));
+            duration = b.getLong(24);
+        } else {
+            timescale = Integer.toUnsignedLong(b.getInt(12));
+            duration = Integer.toUnsignedLong(b.getInt(16));
+        }
+        if (timescale == 0 || duration <= 0) return -1;
+        return duration * 1000L / timescale;
+    }
+
+    static long findAtom(FileChannel ch, long from, long to, String type) throws IOException {
+        long pos = from;
+        while (pos + 8 <= to) {
+            long size = atomSize(ch, pos);
+            if (size < 8) return -1;
+            ByteBuffer h = read(ch, pos + 4, 4);
+            if (ascii(h, 0, 4).equals(type)) return pos;
+            pos += size;
+        }
+        return -1;
+    }
+
+    // Size 1 means a 64-bit size follows the type; size 0 means "to the end of the file".
+    static long atomSize(FileChannel ch, long pos) throws IOException {
+        ByteBuffer h = read(ch, pos, 16);
+        if (h.remaining() < 8) return -1;
+        long size = Integer.toUnsignedLong(h.getInt(0));
+        if (size == 1) return (h.remaining() < 16) ? -1 : h.getLong(8);
+        if (size == 0) return ch.size() - pos;
+        return size;
+    }
+
+    static long atomHeaderBytes(FileChannel ch, long pos) throws IOException {
+        ByteBuffer h = read(ch, pos, 4);
+        return (h.remaining() == 4 && h.getInt(0) == 1) ? 16 : 8;
+    }
+
+    static long wav(FileChannel ch) throws IOException {
+        ByteBuffer head = read(ch, 0, 12).order(ByteOrder.LITTLE_ENDIAN);
+        if (head.remaining() < 12 || !ascii(head, 0, 4).equals("RIFF") || !ascii(head, 8, 4).equals("WAVE")) return -1;
+
+        long size = ch.size();
+        long pos = 12;
+        long byteRate = -1;
+        while (pos + 8 <= size) {
+            ByteBuffer chunk = read(ch, pos, 8).order(ByteOrder.LITTLE_ENDIAN);
+            if (chunk.remaining() < 8) return -1;
+            String id = ascii(chunk, 0, 4);
+            long length = Integer.toUnsignedLong(chunk.getInt(4));
+
+            if (id.equals("fmt ")) {
+                ByteBuffer fmt = read(ch, pos + 8, 16).order(ByteOrder.LITTLE_ENDIAN);
+                if (fmt.remaining() < 12) return -1;
+                byteRate = Integer.toUnsignedLong(fmt.getInt(8));
+            } else if (id.equals("data")) {
+                if (byteRate <= 0) return -1;
+                long dataBytes = Math.min(length, size - pos - 8);
+                return dataBytes * 1000L / byteRate;
+            }
+            pos += 8 + length + (length & 1);
+        }
+        return -1;
+    }
+
+    static ByteBuffer read(FileChannel ch, long pos, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        if (pos < 0) return buf.flip();
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos + buf.position());
+            if (n <= 0) break;
+        }
+        return buf.flip();
+    }
+
+    private static String ascii(ByteBuffer buf, int offset, int length) {
+        byte[] b = new byte[length];
+        buf.get(offset, b);
+        return new String(b, StandardCharsets.ISO_8859_1);
+    }
+
+    private static final class Mp3Frame {
+        final int bitrateKbps;
+        final int sampleRate;
+        final int samplesPerFrame;
+        final int sideInfoBytes;
+        final int length;
+
+        private Mp3Frame(int bitrateKbps, int sampleRate, int samplesPerFrame, int sideInfoBytes, int length) {
+            this.bitrateKbps = bitrateKbps;
+            this.sampleRate = sampleRate;
+            this.samplesPerFrame = samplesPerFrame;
+            this.sideInfoBytes = sideInfoBytes;
+            this.length = length;
+        }
+
+        static Mp3Frame parse(int header) {
+            if ((header >>> 21) != 0x7FF) return null;
+
+            int versionBits = (header >>> 19) & 3; // 0 = 2.5, 2 = 2, 3 = 1
+            int layerBits = (header >>> 17) & 3;   // 1 = III, 2 = II, 3 = I
+            int bitrateIndex = (header >>> 12) & 0xF;
+            int rateIndex = (header >>> 10) & 3;
+            int padding = (header >>> 9) & 1;
+            boolean mono = ((header >>> 6) & 3) == 3;
+
+            if (versionBits == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15 || rateIndex == 3) {
+                return null;
+            }
+
+            boolean mpeg1 = versionBits == 3;
+            int layer = 4 - layerBits;
+            int table = mpeg1 ? layer - 1 : (layer == 1 ? 3 : 4);
+            int bitrate = MP3_BITRATES[table][bitrateIndex];
+            int sampleRate = MP3_SAMPLE_RATES[mpeg1 ? 0 : (versionBits == 2 ? 1 : 2)][rateIndex];
+
+            int samples = (layer == 1) ? 384 : (layer == 3 && !mpeg1) ? 576 : 1152;
+            int sideInfo = mpeg1 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+            int length = (layer == 1)
+                    ? (12 * bitrate * 1000 / sampleRate + padding) * 4
+                    : (samples / 8) * bitrate * 1000 / sampleRate + padding;
+
+            return new Mp3Frame(bitrate, sampleRate, samples, sideInfo, length);
+        }
+    }
+}
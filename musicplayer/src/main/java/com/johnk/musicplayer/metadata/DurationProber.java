@@ -0,0 +1,122 @@
+package com.johnk.musicplayer.metadata;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import com.johnk.musicplayer.domain.Song;
+
+// Fills in Song durations in the background. A coordinator thread walks the songs and hands header
+// reads to a small pool; a semaphore caps the reads in flight, so memory stays flat for any library
+// size. Probed songs are handed back in batches on deliverExecutor, which is where stores get told,
+// and onFinished follows the last batch there so callers can persist once per run.
+public class DurationProber {
+
+    private static final int BATCH_SIZE = 512;
+
+    private final int parallelism;
+    private final ExecutorService coordinator;
+    private final ExecutorService readers;
+
+    private volatile long generation = 0;
+
+    public DurationProber() {
+        this(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())));
+    }
+
+    public DurationProber(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be at least 1");
+        this.parallelism = parallelism;
+        this.coordinator = Executors.newSingleThreadExecutor(r -> daemon(r, "duration-prober"));
+        this.readers = Executors.newFixedThreadPool(parallelism, r -> daemon(r, "duration-reader"));
+    }
+
+    // Probes every song whose duration is still unknown. A newer call supersedes an older one, and a
+    // superseded run never calls onFinished.
+    public void probeMissing(List<Song> songs, Consumer<List<Song>> onProbed, Runnable onFinished,
+                             Executor deliverExecutor) {
+        List<Song> todo = new ArrayList<>();
+        for (Song s : songs) {
+            if (s.getDurationMillis() < 0) todo.add(s);
+        }
+        if (todo.isEmpty()) return;
+
+        long myGeneration = ++generation;
+        coordinator.execute(() -> {
+            if (run(todo, myGeneration, onProbed, deliverExecutor) && generation == myGeneration) {
+                deliverExecutor.execute(onFinished);
+            }
+        });
+    }
+
+    public void cancel() {
+        generation++;
+    }
+
+    public void shutdown() {
+        cancel();
+        coordinator.shutdownNow();
+        readers.shutdownNow();
+    }
+
+    // False when the run was cancelled or interrupted before it got through every song.
+    private boolean run(List<Song> todo, long myGeneration, Consumer<List<Song>> onProbed, Executor deliverExecutor) {
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        List<Song> batch = new ArrayList<>(BATCH_SIZE);
+
+        for (Song song : todo) {
+            if (generation != myGeneration) return false;
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                return false;
+            }
+
+            readers.execute(() -> {
+                try {
+                    if (song.getDurationMillis() < 0) {
+                        // Zero marks "probed, unknown" so the file is not re-read on every start.
+                        long millis = DurationProbe.probeMillis(Path.of(song.getPath()));
+                        song.setDurationMillis(Math.max(0, millis));
+                    }
+                } finally {
+                    inFlight.release();
+                }
+            });
+
+            batch.add(song);
+            if (batch.size() == BATCH_SIZE) {
+                if (!deliver(batch, inFlight, onProbed, deliverExecutor)) return false;
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        return deliver(batch, inFlight, onProbed, deliverExecutor);
+    }
+
+    // Waits for the outstanding reads so everything in batch really has its duration set. A slow
+    // read (a sleeping network drive, say) only delays the batch; only shutdown abandons it.
+    private boolean deliver(List<Song> batch, Semaphore inFlight, Consumer<List<Song>> onProbed, Executor deliverExecutor) {
+        if (batch.isEmpty()) return true;
+        int permits = parallelism * 2;
+        try {
+            inFlight.acquire(permits);
+        } catch (InterruptedException e) {
+            return false;
+        }
+        inFlight.release(permits);
+        deliverExecutor.execute(() -> onProbed.accept(batch));
+        return true;
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    }
+}
@@ -0,0 +1,257 @@
+package com.johnk.musicplayer.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.service.LibraryService;
+import com.johnk.musicplayer.service.PlaylistService;
+
+// Layout (big-endian): magic, version, string table (length-prefixed UTF-8, each distinct string once),
+// songs as five string-table indices plus a duration in ms (version 2+), then playlists as a name index
+// plus a count of song-id indices.
+public class BinarySnapshotStore implements LibraryStore {
+
+    private static final int MAGIC = 0x504C5242; // "PLRB"
+    private static final int VERSION = 2;
+
+    private final Path storePath;
+    private final DurabilityMode durability;
+
+    private String recoveryNote;
+
+    public BinarySnapshotStore() {
+        this(StorePaths.resolve("library.bin"), DurabilityMode.configured());
+    }
+
+    public BinarySnapshotStore(Path storePath) {
+        this(storePath, DurabilityMode.configured());
+    }
+
+    public BinarySnapshotStore(Path storePath, DurabilityMode durability) {
+        if (storePath == null) throw new IllegalArgumentException("storePath must not be null");
+        if (durability == null) throw new IllegalArgumentException("durability must not be null");
+        this.storePath = storePath;
+        this.durability = durability;
+    }
+
+    public Path getStorePath() {
+        return storePath;
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.exists(storePath);
+    }
+
+    @Override
+    public boolean load(LibraryService library, PlaylistService playlists) {
+        recoveryNote = null;
+        if (!Files.exists(storePath)) return false;
+
+        // This format has no checksums, so a damaged snapshot cannot be salvaged; keep it for inspection.
+        // A snapshot from a newer build is kept the same way, so the save that follows cannot lose it.
+        Decoded decoded = decode(storePath);
+        if (decoded == null) {
+            int version = version(storePath);
+            boolean newer = version > VERSION;
+            Path aside = StorePaths.setAside(storePath, newer ? "v" + version : "damaged");
+            if (aside == null) {
+                throw new RuntimeException("Could not read " + storePath + " and could not keep a copy of it");
+            }
+            recoveryNote = (newer
+                    ? storePath.getFileName() + " was written by a newer version (format " + version + ")"
+                    : "Could not read " + storePath.getFileName())
+                    + "; original kept as " + aside.getFileName() + ".";
+            return false;
+        }
+
+        library.loadLibrary(decoded.songs);
+        playlists.loadPlaylists(decoded.playlists);
+        return true;
+    }
+
+    @Override
+    public String recoveryNote() {
+        return recoveryNote;
+    }
+
+    @Override
+    public void save(List<Song> songs, Map<String, List<String>> playlists) {
+        try {
+            Files.createDirectories(storePath.toAbsolutePath().getParent());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create storage directory: " + storePath.getParent(), e);
+        }
+
+        Path tmp = storePath.resolveSibling(storePath.getFileName() + ".tmp");
+        encode(tmp, songs, playlists);
+
+        try {
+            StorePaths.replace(tmp, storePath, durability);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save snapshot file: " + storePath, e);
+        }
+    }
+
+    static final class Decoded {
+        final List<Song> songs;
+        final Map<String, List<String>> playlists;
+
+        Decoded(List<Song> songs, Map<String, List<String>> playlists) {
+            this.songs = songs;
+            this.playlists = playlists;
+        }
+    }
+
+    // Returns null when the file is missing, truncated, not a snapshot or of an unknown version.
+    static Decoded decode(Path file) {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new RuntimeException("Snapshot too large to map: " + file);
+            }
+
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buf.getInt() != MAGIC) return null;
+
+            int version = buf.getInt();
+            if (version < 1 || version > VERSION) return null;
+
+            String[] strings = readStringTable(buf);
+            if (strings == null) return null;
+
+            int songCount = readCount(buf, version >= 2 ? 28 : 20);
+            if (songCount < 0) return null;
+            List<Song> songs = new ArrayList<>(songCount);
+            for (int i = 0; i < songCount; i++) {
+                Song song = new Song(
+                        strings[buf.getInt()],
+                        strings[buf.getInt()],
+                        strings[buf.getInt()],
+                        strings[buf.getInt()],
+                        strings[buf.getInt()]
+                );
+                if (version >= 2) song.setDurationMillis(buf.getLong());
+                songs.add(song);
+            }
+
+            int playlistCount = buf.getInt();
+            Map<String, List<String>> playlistData = new LinkedHashMap<>();
+            for (int i = 0; i < playlistCount; i++) {
+                String name = strings[buf.getInt()];
+                int n = readCount(buf, 4);
+                if (n < 0) return null;
+                List<String> ids = new ArrayList<>(n);
+                for (int k = 0; k < n; k++) ids.add(strings[buf.getInt()]);
+                playlistData.put(name, ids);
+            }
+
+            return new Decoded(songs, playlistData);
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Format version from the header, or -1 when the file is not a readable snapshot.
+    private static int version(Path file) {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            while (header.hasRemaining() && ch.read(header) >= 0) {
+            }
+            header.flip();
+            return (header.remaining() == 8 && header.getInt() == MAGIC) ? header.getInt() : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    static void encode(Path file, List<Song> songs, Map<String, List<String>> playlists) {
+        List<Song> safeSongs = (songs == null) ? List.of() : songs;
+        Map<String, List<String>> safePlaylists = (playlists == null) ? Map.of() : playlists;
+
+        Map<String, Integer> table = new HashMap<>();
+        List<String> ordered = new ArrayList<>();
+        for (Song s : safeSongs) {
+            intern(table, ordered, s.getId());
+            intern(table, ordered, s.getTitle());
+            intern(table, ordered, s.getArtist());
+            intern(table, ordered, s.getAlbum());
+            intern(table, ordered, s.getPath());
+        }
+        for (Map.Entry<String, List<String>> e : safePlaylists.entrySet()) {
+            intern(table, ordered, e.getKey());
+            for (String id : e.getValue()) intern(table, ordered, id);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(ordered.size());
+            for (String str : ordered) {
+                byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(safeSongs.size());
+            for (Song s : safeSongs) {
+                out.writeInt(table.get(s.getId()));
+                out.writeInt(table.get(s.getTitle()));
+                out.writeInt(table.get(s.getArtist()));
+                out.writeInt(table.get(s.getAlbum()));
+                out.writeInt(table.get(s.getPath()));
+                out.writeLong(s.getDurationMillis());
+            }
+
+            out.writeInt(safePlaylists.size());
+            for (Map.Entry<String, List<String>> e : safePlaylists.entrySet()) {
+                out.writeInt(table.get(e.getKey()));
+                out.writeInt(e.getValue().size());
+                for (String id : e.getValue()) out.writeInt(table.get(id));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write snapshot file: " + file, e);
+        }
+    }
+
+    // Null when a count or length is damaged; see readCount().
+    private static String[] readStringTable(MappedByteBuffer buf) {
+        int count = readCount(buf, 4);
+        if (count < 0) return null;
+        String[] strings = new String[count];
+        byte[] scratch = new byte[256];
+
+        for (int i = 0; i < count; i++) {
+            int len = readCount(buf, 1);
+            if (len < 0) return null;
+            if (len > scratch.length) scratch = new byte[Math.max(len, scratch.length * 2)];
+            buf.get(scratch, 0, len);
+            strings[i] = new String(scratch, 0, len, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    // Reads an entry count, or -1 when it cannot be right: negative, or more entries of at least
+    // minEntryBytes each than the bytes left. Checked before anything is allocated from it.
+    private static int readCount(ByteBuffer buf, int minEntryBytes) {
+        int count = buf.getInt();
+        return (count < 0 || count > buf.remaining() / minEntryBytes) ? -1 : count;
+    }
+
+    private static void intern(Map<String, Integer> table, List<String> ordered, String value) {
+        if (table.putIfAbsent(value, ordered.size()) == null) {
+            ordered.add(value);
+        }
+    }
+}
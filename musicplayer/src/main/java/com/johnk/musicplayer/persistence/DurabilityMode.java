@@ -0,0 +1,52 @@
+package com.johnk.musicplayer.persistence;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+// How hard stores push data to stable storage (-Dmusicplayer.durability=none|batch|always).
+//   NONE   never fsyncs; a crash can lose whatever the OS had not written back yet.
+//   BATCH  fsyncs once per save or journal batch, plus the directory after a rename (default).
+//   ALWAYS fsyncs after every block or journal record, trading throughput for the smallest loss window.
+public enum DurabilityMode {
+    NONE,
+    BATCH,
+    ALWAYS;
+
+    public static DurabilityMode configured() {
+        String value = System.getProperty("musicplayer.durability");
+        if (value == null || value.isBlank()) return BATCH;
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown durability mode: " + value, e);
+        }
+    }
+
+    void afterBlock(FileChannel ch) throws IOException {
+        if (this == ALWAYS) ch.force(false);
+    }
+
+    void afterBatch(FileChannel ch) throws IOException {
+        if (this != NONE) ch.force(false);
+    }
+
+    // For files written through streams: reopens the file and forces it before it is renamed into place.
+    void syncFile(Path file) throws IOException {
+        if (this == NONE) return;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+    }
+
+    // Makes a completed rename survive a crash. Not every platform can open a directory, so failures are ignored.
+    void syncDirectory(Path dir) {
+        if (this == NONE || dir == null) return;
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+}
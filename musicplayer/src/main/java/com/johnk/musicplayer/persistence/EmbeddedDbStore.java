@@ -0,0 +1,479 @@
+package com.johnk.musicplayer.persistence;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.service.LibraryListener;
+import com.johnk.musicplayer.service.LibraryService;
+import com.johnk.musicplayer.service.PlaylistListener;
+import com.johnk.musicplayer.service.PlaylistService;
+
+// File-based H2 database. Service changes are queued as row-level statements on the UI thread and
+// applied in one transaction per save, so a save costs what changed rather than the library size.
+// Startup reads playlists and a first page of songs, then pages through the rest in the background.
+// The point updates and queries of IndexedLibraryStore first apply whatever is queued, so they see
+// the same library as the services.
+public class EmbeddedDbStore implements IndexedLibraryStore, LibraryListener, PlaylistListener {
+
+    private interface SqlOp {
+        void apply(Connection c) throws SQLException;
+    }
+
+    private static final String SONG_COLUMNS = "id, title, artist, album, path, duration_ms";
+
+    private static final int FIRST_PAGE_SIZE = 500;
+    private static final int PAGE_SIZE = 16_384;
+
+    private final Path dbBase;
+    private final List<SqlOp> pending = new ArrayList<>();
+
+    private Connection connection;
+
+    // Offset loadRemaining() continues from; -1 when load() already delivered everything.
+    private int remainingFrom = -1;
+
+    public EmbeddedDbStore() {
+        this(StorePaths.resolve("library"));
+    }
+
+    // dbBase is the database path without H2's ".mv.db" suffix.
+    public EmbeddedDbStore(Path dbBase) {
+        if (dbBase == null) throw new IllegalArgumentException("dbBase must not be null");
+        this.dbBase = dbBase.toAbsolutePath();
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.exists(dbBase.resolveSibling(dbBase.getFileName() + ".mv.db"));
+    }
+
+    @Override
+    public synchronized boolean load(LibraryService library, PlaylistService playlists) {
+        remainingFrom = -1;
+        if (!exists()) return false;
+
+        try {
+            Connection c = connection();
+            List<Song> firstPage = readSongs(0, FIRST_PAGE_SIZE);
+
+            Map<String, List<String>> playlistData = new LinkedHashMap<>();
+            try (Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery(
+                         "SELECT p.name, ps.song_id FROM playlists p "
+                                 + "LEFT JOIN playlist_songs ps ON ps.playlist = p.name "
+                                 + "ORDER BY p.ord, ps.pos")) {
+                while (rs.next()) {
+                    List<String> ids = playlistData.computeIfAbsent(rs.getString(1), k -> new ArrayList<>());
+                    String songId = rs.getString(2);
+                    if (songId != null) ids.add(songId);
+                }
+            }
+
+            library.loadLibrary(firstPage);
+            playlists.loadPlaylists(playlistData);
+            if (firstPage.size() == FIRST_PAGE_SIZE) remainingFrom = FIRST_PAGE_SIZE;
+            return true;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load library database: " + dbBase, e);
+        }
+    }
+
+    // One page at a time on a loader thread, each delivered before the next is read.
+    @Override
+    public CompletableFuture<Void> loadRemaining(Consumer<List<Song>> sink, Executor deliverExecutor) {
+        int from = remainingFrom;
+        remainingFrom = -1;
+        if (from < 0) return CompletableFuture.completedFuture(null);
+
+        ExecutorService reader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "h2-loader");
+            t.setDaemon(true);
+            return t;
+        });
+        return loadPages(from, sink, deliverExecutor, reader).whenComplete((v, err) -> reader.shutdown());
+    }
+
+    private CompletableFuture<Void> loadPages(int offset, Consumer<List<Song>> sink, Executor deliverExecutor,
+                                              Executor reader) {
+        return CompletableFuture.supplyAsync(() -> readSongs(offset, PAGE_SIZE), reader).thenCompose(page -> {
+            if (page.isEmpty()) return CompletableFuture.completedFuture(null);
+            CompletableFuture<Void> delivered = CompletableFuture.runAsync(() -> sink.accept(page), deliverExecutor);
+            if (page.size() < PAGE_SIZE) return delivered;
+            return delivered.thenCompose(v -> loadPages(offset + PAGE_SIZE, sink, deliverExecutor, reader));
+        });
+    }
+
+    @Override
+    public boolean attach(LibraryService library, PlaylistService playlists) {
+        // Playlists that only exist in memory (e.g. the built-in defaults on a fresh database).
+        Set<String> stored = storedPlaylistNames();
+        for (String name : playlists.getPlaylists()) {
+            if (stored.contains(name)) continue;
+            List<String> ids = playlists.getSongIds(name);
+            queue(c -> {
+                insertPlaylistIfMissing(c, name);
+                insertPlaylistSongs(c, name, ids);
+            });
+        }
+
+        library.addListener(this);
+        playlists.addListener(this);
+        synchronized (pending) {
+            return !pending.isEmpty();
+        }
+    }
+
+    @Override
+    public synchronized void save(List<Song> songs, Map<String, List<String>> playlists) {
+        inTransaction(c -> {
+            try (Statement st = c.createStatement()) {
+                st.executeUpdate("DELETE FROM playlist_songs");
+                st.executeUpdate("DELETE FROM playlists");
+                st.executeUpdate("DELETE FROM songs");
+            }
+            insertSongs(c, songs == null ? List.of() : songs);
+            if (playlists != null) {
+                for (Map.Entry<String, List<String>> e : playlists.entrySet()) {
+                    insertPlaylistIfMissing(c, e.getKey());
+                    insertPlaylistSongs(c, e.getKey(), e.getValue());
+                }
+            }
+        });
+    }
+
+    @Override
+    public Runnable prepareSave(LibraryService library, PlaylistService playlists) {
+        synchronized (pending) {
+            if (pending.isEmpty()) return null;
+        }
+        return this::applyPending;
+    }
+
+    // Statements leave the queue only once their transaction has committed, so a failed save is
+    // retried whole by the next one and nothing is applied out of order.
+    private synchronized void applyPending() {
+        List<SqlOp> batch;
+        synchronized (pending) {
+            batch = new ArrayList<>(pending);
+        }
+        if (batch.isEmpty()) return;
+
+        inTransaction(c -> {
+            for (SqlOp op : batch) op.apply(c);
+        });
+        synchronized (pending) {
+            pending.subList(0, batch.size()).clear();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (connection == null) return;
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        } finally {
+            connection = null;
+        }
+    }
+
+    @Override
+    public synchronized void putSong(Song song) {
+        if (song == null) throw new IllegalArgumentException("song must not be null");
+        applyPending();
+        inTransaction(c -> insertSongs(c, List.of(song)));
+    }
+
+    @Override
+    public synchronized void removeSong(String songId) {
+        applyPending();
+        inTransaction(c -> deleteSong(c, songId));
+    }
+
+    @Override
+    public synchronized void putPlaylist(String name, List<String> songIds) {
+        applyPending();
+        inTransaction(c -> {
+            deletePlaylistRows(c, name);
+            insertPlaylistIfMissing(c, name);
+            insertPlaylistSongs(c, name, songIds == null ? List.of() : songIds);
+        });
+    }
+
+    @Override
+    public synchronized void deletePlaylist(String name) {
+        applyPending();
+        inTransaction(c -> deletePlaylistRows(c, name));
+    }
+
+    @Override
+    public synchronized int countSongs() {
+        applyPending();
+        try (Statement st = connection().createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM songs")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to count songs", e);
+        }
+    }
+
+    @Override
+    public synchronized List<Song> readSongs(int offset, int limit) {
+        if (offset < 0 || limit < 0) throw new IllegalArgumentException("offset and limit must not be negative");
+        return querySongs("SELECT " + SONG_COLUMNS + " FROM songs ORDER BY ord LIMIT ? OFFSET ?", limit, offset);
+    }
+
+    @Override
+    public synchronized Optional<Song> findSongById(String songId) {
+        return querySongs("SELECT " + SONG_COLUMNS + " FROM songs WHERE id = ?", songId).stream().findFirst();
+    }
+
+    @Override
+    public synchronized Optional<Song> findSongByPath(String path) {
+        return querySongs("SELECT " + SONG_COLUMNS + " FROM songs WHERE path = ?", path).stream().findFirst();
+    }
+
+    @Override
+    public synchronized List<Song> findSongsByArtist(String artist) {
+        return querySongs("SELECT " + SONG_COLUMNS + " FROM songs WHERE artist = ? ORDER BY ord", artist);
+    }
+
+    @Override
+    public void songsAdded(List<Song> songs) {
+        List<Song> copy = new ArrayList<>(songs);
+        queue(c -> insertSongs(c, copy));
+    }
+
+    @Override
+    public void songsUpdated(List<Song> songs) {
+        List<String> ids = new ArrayList<>(songs.size());
+        long[] durations = new long[songs.size()];
+        for (int i = 0; i < songs.size(); i++) {
+            ids.add(songs.get(i).getId());
+            durations[i] = songs.get(i).getDurationMillis();
+        }
+
+        queue(c -> {
+            try (PreparedStatement ps = c.prepareStatement("UPDATE songs SET duration_ms = ? WHERE id = ?")) {
+                for (int i = 0; i < ids.size(); i++) {
+                    ps.setLong(1, durations[i]);
+                    ps.setString(2, ids.get(i));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        });
+    }
+
+    @Override
+    public void songRemoved(String songId) {
+        queue(c -> deleteSong(c, songId));
+    }
+
+    @Override
+    public void libraryCleared() {
+        queue(c -> {
+            try (Statement st = c.createStatement()) {
+                st.executeUpdate("DELETE FROM songs");
+            }
+        });
+    }
+
+    @Override
+    public void playlistCreated(String playlistName) {
+        queue(c -> insertPlaylistIfMissing(c, playlistName));
+    }
+
+    @Override
+    public void playlistDeleted(String playlistName) {
+        queue(c -> deletePlaylistRows(c, playlistName));
+    }
+
+    @Override
+    public void songsAdded(String playlistName, List<String> songIds) {
+        List<String> copy = new ArrayList<>(songIds);
+        queue(c -> insertPlaylistSongs(c, playlistName, copy));
+    }
+
+    @Override
+    public void songRemoved(String playlistName, String songId) {
+        queue(c -> {
+            try (PreparedStatement ps = c.prepareStatement(
+                    "DELETE FROM playlist_songs WHERE playlist = ? AND song_id = ?")) {
+                ps.setString(1, playlistName);
+                ps.setString(2, songId);
+                ps.executeUpdate();
+            }
+        });
+    }
+
+    // Listener callbacks arrive on the UI thread while the writer thread drains the queue.
+    private void queue(SqlOp op) {
+        synchronized (pending) {
+            pending.add(op);
+        }
+    }
+
+    private synchronized Set<String> storedPlaylistNames() {
+        Set<String> names = new HashSet<>();
+        try (Statement st = connection().createStatement();
+             ResultSet rs = st.executeQuery("SELECT name FROM playlists")) {
+            while (rs.next()) names.add(rs.getString(1));
+        } catch (SQLException e) {
+            throw new RuntimeException("Library database query failed: " + dbBase, e);
+        }
+        return names;
+    }
+
+    private Connection connection() throws SQLException {
+        if (connection != null) return connection;
+
+        Connection c = DriverManager.getConnection("jdbc:h2:file:" + dbBase);
+        try (Statement st = c.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS songs ("
+                    + "ord BIGINT NOT NULL, id VARCHAR PRIMARY KEY, title VARCHAR NOT NULL, "
+                    + "artist VARCHAR NOT NULL, album VARCHAR NOT NULL, path VARCHAR NOT NULL)");
+            st.execute("ALTER TABLE songs ADD COLUMN IF NOT EXISTS duration_ms BIGINT DEFAULT -1 NOT NULL");
+            st.execute("CREATE INDEX IF NOT EXISTS songs_ord ON songs(ord)");
+            st.execute("CREATE INDEX IF NOT EXISTS songs_path ON songs(path)");
+            st.execute("CREATE INDEX IF NOT EXISTS songs_artist ON songs(artist)");
+            st.execute("CREATE TABLE IF NOT EXISTS playlists (name VARCHAR PRIMARY KEY, ord BIGINT NOT NULL)");
+            st.execute("CREATE TABLE IF NOT EXISTS playlist_songs ("
+                    + "playlist VARCHAR NOT NULL, song_id VARCHAR NOT NULL, pos BIGINT NOT NULL, "
+                    + "PRIMARY KEY (playlist, song_id))");
+            st.execute("CREATE INDEX IF NOT EXISTS playlist_songs_pos ON playlist_songs(playlist, pos)");
+        }
+        connection = c;
+        return c;
+    }
+
+    private void inTransaction(SqlOp op) {
+        try {
+            Connection c = connection();
+            c.setAutoCommit(false);
+            try {
+                op.apply(c);
+                c.commit();
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Library database update failed: " + dbBase, e);
+        }
+    }
+
+    private static void insertSongs(Connection c, List<Song> songs) throws SQLException {
+        if (songs.isEmpty()) return;
+
+        long ord = nextValue(c, "SELECT COALESCE(MAX(ord), 0) + 1 FROM songs", null);
+        try (PreparedStatement ps = c.prepareStatement(
+                "MERGE INTO songs t USING (VALUES (CAST(? AS BIGINT), ?, ?, ?, ?, ?, CAST(? AS BIGINT))) "
+                        + "AS v(ord, id, title, artist, album, path, duration_ms) ON t.id = v.id "
+                        + "WHEN NOT MATCHED THEN INSERT (ord, " + SONG_COLUMNS + ") "
+                        + "VALUES (v.ord, v.id, v.title, v.artist, v.album, v.path, v.duration_ms)")) {
+            for (Song s : songs) {
+                ps.setLong(1, ord++);
+                ps.setString(2, s.getId());
+                ps.setString(3, s.getTitle());
+                ps.setString(4, s.getArtist());
+                ps.setString(5, s.getAlbum());
+                ps.setString(6, s.getPath());
+                ps.setLong(7, s.getDurationMillis());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    // Playlist entries stay, as in every other backend; PlaylistService reports their removal itself.
+    private static void deleteSong(Connection c, String songId) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("DELETE FROM songs WHERE id = ?")) {
+            ps.setString(1, songId);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void insertPlaylistIfMissing(Connection c, String name) throws SQLException {
+        long ord = nextValue(c, "SELECT COALESCE(MAX(ord), 0) + 1 FROM playlists", null);
+        try (PreparedStatement ps = c.prepareStatement(
+                "MERGE INTO playlists t USING (VALUES (?, CAST(? AS BIGINT))) AS v(name, ord) ON t.name = v.name "
+                        + "WHEN NOT MATCHED THEN INSERT (name, ord) VALUES (v.name, v.ord)")) {
+            ps.setString(1, name);
+            ps.setLong(2, ord);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void insertPlaylistSongs(Connection c, String name, List<String> songIds) throws SQLException {
+        if (songIds.isEmpty()) return;
+
+        long pos = nextValue(c, "SELECT COALESCE(MAX(pos), 0) + 1 FROM playlist_songs WHERE playlist = ?", name);
+        try (PreparedStatement ps = c.prepareStatement(
+                "MERGE INTO playlist_songs t USING (VALUES (?, ?, CAST(? AS BIGINT))) AS v(playlist, song_id, pos) "
+                        + "ON t.playlist = v.playlist AND t.song_id = v.song_id "
+                        + "WHEN NOT MATCHED THEN INSERT (playlist, song_id, pos) VALUES (v.playlist, v.song_id, v.pos)")) {
+            for (String id : songIds) {
+                ps.setString(1, name);
+                ps.setString(2, id);
+                ps.setLong(3, pos++);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void deletePlaylistRows(Connection c, String name) throws SQLException {
+        try (PreparedStatement a = c.prepareStatement("DELETE FROM playlist_songs WHERE playlist = ?");
+             PreparedStatement b = c.prepareStatement("DELETE FROM playlists WHERE name = ?")) {
+            a.setString(1, name);
+            a.executeUpdate();
+            b.setString(1, name);
+            b.executeUpdate();
+        }
+    }
+
+    private static long nextValue(Connection c, String sql, String param) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            if (param != null) ps.setString(1, param);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 1;
+            }
+        }
+    }
+
+    private List<Song> querySongs(String sql, Object... params) {
+        applyPending();
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) ps.setObject(i + 1, params[i]);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<Song> out = new ArrayList<>();
+                while (rs.next()) out.add(readSong(rs));
+                return out;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Library database query failed: " + dbBase, e);
+        }
+    }
+
+    private static Song readSong(ResultSet rs) throws SQLException {
+        Song song = new Song(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5));
+        song.setDurationMillis(rs.getLong(6));
+        return song;
+    }
+}
@@ -0,0 +1,285 @@
+package com.johnk.musicplayer.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.service.LibraryService;
+import com.johnk.musicplayer.service.PlaylistService;
+
+// Checksummed snapshot: a file header followed by self-contained frames
+//   [int sync][byte type][int payload length][int CRC32C(type + payload)][payload]
+// Songs are written in blocks of SONGS_PER_FRAME, each playlist gets its own frame, and an END frame
+// carries the totals. A frame that fails its checksum is skipped and the reader resynchronises on the
+// next sync word, so one bad sector or a torn tail costs a block instead of the whole library.
+// The file header has no checksum of its own: a version this build does not know is read as the current
+// format anyway and the frame checksums decide what survives; the original is kept either way.
+public class FramedStore implements LibraryStore {
+
+    private static final int MAGIC = 0x504C4652; // "PLFR"
+    private static final int VERSION = 2; // 2 added a duration in ms after each song's path
+    private static final int HEADER_BYTES = 8;
+
+    private static final int SYNC = 0x46524D42; // "FRMB"
+    private static final int FRAME_HEADER_BYTES = 13;
+
+    private static final byte SONGS = 1;
+    private static final byte PLAYLIST = 2;
+    private static final byte END = 3;
+
+    private static final int SONGS_PER_FRAME = 1024;
+
+    private final Path storePath;
+    private final DurabilityMode durability;
+
+    private String recoveryNote;
+
+    public FramedStore() {
+        this(StorePaths.resolve("library.frames"), DurabilityMode.configured());
+    }
+
+    public FramedStore(Path storePath, DurabilityMode durability) {
+        if (storePath == null) throw new IllegalArgumentException("storePath must not be null");
+        if (durability == null) throw new IllegalArgumentException("durability must not be null");
+        this.storePath = storePath;
+        this.durability = durability;
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.exists(storePath);
+    }
+
+    @Override
+    public boolean load(LibraryService library, PlaylistService playlists) {
+        recoveryNote = null;
+        if (!Files.exists(storePath)) return false;
+
+        Decoded decoded = decode(storePath);
+        if (decoded == null) {
+            Path aside = StorePaths.setAside(storePath, "unreadable");
+            recoveryNote = "Library file was not readable"
+                    + (aside == null ? "." : " and was kept as " + aside.getFileName() + ".");
+            return false;
+        }
+
+        if (decoded.unknownVersion && !decoded.complete && decoded.songs.isEmpty() && decoded.playlists.isEmpty()) {
+            Path aside = StorePaths.setAside(storePath, "v" + decoded.storedVersion);
+            recoveryNote = storePath.getFileName() + " has an unknown format version (" + decoded.storedVersion
+                    + ") and nothing in it could be read"
+                    + (aside == null ? "." : "; original kept as " + aside.getFileName() + ".");
+            return false;
+        }
+
+        library.loadLibrary(decoded.songs);
+        playlists.loadPlaylists(decoded.playlists);
+
+        if (decoded.unknownVersion || decoded.damagedFrames > 0 || !decoded.complete) {
+            Path aside = StorePaths.setAside(storePath, decoded.unknownVersion ? "v" + decoded.storedVersion : "damaged");
+            recoveryNote = "Recovered " + decoded.songs.size() + " song(s) from a damaged library file; "
+                    + (decoded.unknownVersion ? "its header named unknown format " + decoded.storedVersion + " and " : "")
+                    + decoded.damagedFrames + " block(s) were unreadable"
+                    + (aside == null ? "." : ", original kept as " + aside.getFileName() + ".");
+        }
+        return true;
+    }
+
+    // A salvaged library is rewritten straight away so the next start reads a clean file.
+    @Override
+    public boolean attach(LibraryService library, PlaylistService playlists) {
+        return recoveryNote != null;
+    }
+
+    @Override
+    public String recoveryNote() {
+        return recoveryNote;
+    }
+
+    @Override
+    public void save(List<Song> songs, Map<String, List<String>> playlists) {
+        List<Song> safeSongs = (songs == null) ? List.of() : songs;
+        Map<String, List<String>> safePlaylists = (playlists == null) ? Map.of() : playlists;
+
+        Path tmp = storePath.resolveSibling(storePath.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(storePath.toAbsolutePath().getParent());
+
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+                while (header.hasRemaining()) ch.write(header);
+
+                ByteArrayOutputStream payload = new ByteArrayOutputStream(1 << 16);
+                DataOutputStream out = new DataOutputStream(payload);
+
+                for (int from = 0; from < safeSongs.size(); from += SONGS_PER_FRAME) {
+                    int to = Math.min(safeSongs.size(), from + SONGS_PER_FRAME);
+                    out.writeInt(to - from);
+                    for (Song s : safeSongs.subList(from, to)) {
+                        out.writeUTF(s.getId());
+                        out.writeUTF(s.getTitle());
+                        out.writeUTF(s.getArtist());
+                        out.writeUTF(s.getAlbum());
+                        out.writeUTF(s.getPath());
+                        out.writeLong(s.getDurationMillis());
+                    }
+                    writeFrame(ch, SONGS, payload);
+                }
+
+                for (Map.Entry<String, List<String>> e : safePlaylists.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeInt(e.getValue().size());
+                    for (String id : e.getValue()) out.writeUTF(id);
+                    writeFrame(ch, PLAYLIST, payload);
+                }
+
+                out.writeInt(safeSongs.size());
+                out.writeInt(safePlaylists.size());
+                writeFrame(ch, END, payload);
+
+                durability.afterBatch(ch);
+            }
+
+            StorePaths.replace(tmp, storePath, durability);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save library file: " + storePath, e);
+        }
+    }
+
+    private void writeFrame(FileChannel ch, byte type, ByteArrayOutputStream payload) throws IOException {
+        byte[] body = payload.toByteArray();
+        payload.reset();
+
+        CRC32C crc = new CRC32C();
+        crc.update(type);
+        crc.update(body);
+
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_BYTES + body.length)
+                .putInt(SYNC)
+                .put(type)
+                .putInt(body.length)
+                .putInt((int) crc.getValue())
+                .put(body)
+                .flip();
+        while (frame.hasRemaining()) ch.write(frame);
+        durability.afterBlock(ch);
+    }
+
+    static final class Decoded {
+        final List<Song> songs = new ArrayList<>();
+        final Map<String, List<String>> playlists = new LinkedHashMap<>();
+        int damagedFrames;
+        boolean complete;
+        // Set when the header's version was not one this build writes; storedVersion is what it said.
+        boolean unknownVersion;
+        int storedVersion;
+    }
+
+    // Returns null only when the file cannot be read or is not a framed store at all.
+    static Decoded decode(Path file) {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) throw new RuntimeException("Library file too large to map: " + file);
+            if (size < HEADER_BYTES) return null;
+
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buf.getInt(0) != MAGIC) return null;
+            int version = buf.getInt(4);
+            Decoded decoded = new Decoded();
+            decoded.storedVersion = version;
+            if (version < 1 || version > VERSION) {
+                decoded.unknownVersion = true;
+                version = VERSION;
+            }
+
+            int limit = buf.limit();
+            int pos = HEADER_BYTES;
+
+            while (pos + FRAME_HEADER_BYTES <= limit) {
+                if (buf.getInt(pos) != SYNC) {
+                    decoded.damagedFrames++;
+                    pos = nextSync(buf, pos + 1);
+                    continue;
+                }
+
+                byte type = buf.get(pos + 4);
+                int length = buf.getInt(pos + 5);
+                int expected = buf.getInt(pos + 9);
+                int start = pos + FRAME_HEADER_BYTES;
+
+                if (length < 0 || length > limit - start || checksum(buf, type, start, length) != expected
+                        || !apply(decoded, version, type, buf, start, length)) {
+                    // The length field itself may be garbage, so never trust it to find the next frame.
+                    decoded.damagedFrames++;
+                    pos = nextSync(buf, pos + 1);
+                    continue;
+                }
+
+                pos = start + length;
+            }
+            if (pos < limit) decoded.damagedFrames++; // torn tail shorter than a frame header
+
+            return decoded;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static boolean apply(Decoded decoded, int version, byte type, ByteBuffer buf, int start, int length) {
+        byte[] body = new byte[length];
+        buf.get(start, body);
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(body))) {
+            switch (type) {
+                case SONGS -> {
+                    int n = in.readInt();
+                    List<Song> block = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) {
+                        Song song = new Song(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF());
+                        if (version >= 2) song.setDurationMillis(in.readLong());
+                        block.add(song);
+                    }
+                    decoded.songs.addAll(block);
+                }
+                case PLAYLIST -> {
+                    String name = in.readUTF();
+                    int n = in.readInt();
+                    List<String> ids = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) ids.add(in.readUTF());
+                    decoded.playlists.put(name, ids);
+                }
+                case END -> decoded.complete = true;
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static int checksum(ByteBuffer buf, byte type, int start, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(type);
+        crc.update(buf.slice(start, length));
+        return (int) crc.getValue();
+    }
+
+    private static int nextSync(ByteBuffer buf, int from) {
+        int limit = buf.limit();
+        for (int i = from; i + 4 <= limit; i++) {
+            if (buf.getInt(i) == SYNC) return i;
+        }
+        return limit;
+    }
+}
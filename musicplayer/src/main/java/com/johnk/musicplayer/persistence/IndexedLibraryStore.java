@@ -0,0 +1,30 @@
+package com.johnk.musicplayer.persistence;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.johnk.musicplayer.domain.Song;
+
+// Stores that can apply single-row changes and answer queries without loading the whole library.
+// They persist row-level changes themselves, so LibraryStores does not put the change journal in front.
+public interface IndexedLibraryStore extends LibraryStore {
+
+    void putSong(Song song);
+
+    void removeSong(String songId);
+
+    void putPlaylist(String name, List<String> songIds);
+
+    void deletePlaylist(String name);
+
+    int countSongs();
+
+    // Songs in library order, for paging.
+    List<Song> readSongs(int offset, int limit);
+
+    Optional<Song> findSongById(String songId);
+
+    Optional<Song> findSongByPath(String path);
+
+    List<Song> findSongsByArtist(String artist);
+}
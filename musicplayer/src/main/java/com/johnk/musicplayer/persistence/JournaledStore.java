@@ -0,0 +1,94 @@
+package com.johnk.musicplayer.persistence;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.service.LibraryService;
+import com.johnk.musicplayer.service.PlaylistService;
+
+// Adds a change journal in front of any snapshot store; full snapshots are only written on compaction.
+public class JournaledStore implements LibraryStore {
+
+    private final LibraryStore snapshot;
+    private final LibraryJournal journal;
+
+    // Set again by a failed snapshot on the writer thread, so the next save retries it.
+    private volatile boolean snapshotDue = false;
+
+    public JournaledStore(LibraryStore snapshot, LibraryJournal journal) {
+        if (snapshot == null) throw new IllegalArgumentException("snapshot must not be null");
+        if (journal == null) throw new IllegalArgumentException("journal must not be null");
+        this.snapshot = snapshot;
+        this.journal = journal;
+    }
+
+    @Override
+    public boolean exists() {
+        return snapshot.exists() || journal.exists();
+    }
+
+    @Override
+    public boolean load(LibraryService library, PlaylistService playlists) {
+        return snapshot.load(library, playlists);
+    }
+
+    @Override
+    public CompletableFuture<Void> loadRemaining(Consumer<List<Song>> sink, Executor deliverExecutor) {
+        return snapshot.loadRemaining(sink, deliverExecutor);
+    }
+
+    @Override
+    public boolean attach(LibraryService library, PlaylistService playlists) {
+        snapshotDue = snapshot.attach(library, playlists);
+        journal.replay(library, playlists);
+        journal.attach(library, playlists);
+        return snapshotDue || journal.needsCompaction();
+    }
+
+    @Override
+    public String recoveryNote() {
+        String snapshotNote = snapshot.recoveryNote();
+        String journalNote = journal.recoveryNote();
+        if (snapshotNote == null) return journalNote;
+        return (journalNote == null) ? snapshotNote : snapshotNote + " " + journalNote;
+    }
+
+    @Override
+    public void save(List<Song> songs, Map<String, List<String>> playlists) {
+        snapshot.save(songs, playlists);
+        journal.reset();
+    }
+
+    @Override
+    public Runnable prepareSave(LibraryService library, PlaylistService playlists) {
+        long through = journal.pendingEnd();
+        if (!snapshotDue && !journal.needsCompaction()) {
+            return () -> journal.appendPending(through);
+        }
+
+        // The snapshot taken here already contains every record buffered so far; they are dropped
+        // once it is on disk, and kept for the next attempt if it is not.
+        List<Song> songs = library.getAllSongs();
+        Map<String, List<String>> playlistData = playlists.exportPlaylists();
+        snapshotDue = false;
+        return () -> {
+            try {
+                save(songs, playlistData);
+            } catch (RuntimeException e) {
+                snapshotDue = true;
+                throw e;
+            }
+            journal.discardPending(through);
+        };
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+        snapshot.close();
+    }
+}
@@ -1,8 +1,12 @@
 package com.johnk.musicplayer.persistence;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.service.LibraryService;
+import com.johnk.musicplayer.service.PlaylistService;
 
 import java.io.IOException;
 import java.io.Reader;
@@ -10,108 +14,328 @@ import java.io.Writer;
 import java.nio.file.*;
 import java.util.*;
 
-public class JsonStore {
+// Streams data.json with JsonReader/JsonWriter instead of binding a whole StoredData graph.
+// Layout: {"songs":[{"id","title","artist","album","path","durationMs"?}...],"playlists":{name:[ids]}}.
+public class JsonStore implements LibraryStore {
 
-    private static final Path STORE_PATH = Paths.get(
-            System.getProperty("user.home"),
-            ".musicplayer",
-            "data.json"
-    );
+    private final Path storePath;
+    private final DurabilityMode durability;
 
-    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private String recoveryNote;
+    private boolean rewriteAfterRecovery;
 
-    public static class StoredData {
-        public List<SongRecord> songs = new ArrayList<>();
-        public Map<String, List<String>> playlists = new LinkedHashMap<>();
+    public JsonStore() {
+        this(StorePaths.resolve("data.json"), DurabilityMode.configured());
     }
-    public static class SongRecord {
-        public String id;
-        public String title;
-        public String artist;
-        public String album;
-        public String path;
+
+    public JsonStore(Path storePath) {
+        this(storePath, DurabilityMode.configured());
+    }
+
+    public JsonStore(Path storePath, DurabilityMode durability) {
+        if (storePath == null) throw new IllegalArgumentException("storePath must not be null");
+        if (durability == null) throw new IllegalArgumentException("durability must not be null");
+        this.storePath = storePath;
+        this.durability = durability;
+    }
+
+    public Path getStorePath() {
+        return storePath;
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.exists(storePath);
     }
 
-    public Optional<StoredData> load() {
-        if (!Files.exists(STORE_PATH)) {
-            return Optional.empty();
+    // A damaged file keeps every song that parsed before the damage and, when the damage is inside
+    // the songs, the playlists that follow them; the original is copied aside and recoveryNote() says
+    // so, instead of the library silently coming up empty.
+    @Override
+    public boolean load(LibraryService library, PlaylistService playlists) {
+        recoveryNote = null;
+        rewriteAfterRecovery = false;
+        if (!Files.exists(storePath)) {
+            return false;
         }
 
-        try (Reader reader = Files.newBufferedReader(STORE_PATH)) {
-            StoredData data = gson.fromJson(reader, StoredData.class);
-            if (data == null) return Optional.empty();
+        boolean songsLoaded = false;
+        Map<String, List<String>> playlistData = null;
+        SongIterable songs = null;
 
-            if (data.songs == null) data.songs = new ArrayList<>();
-            if (data.playlists == null) data.playlists = new LinkedHashMap<>();
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(storePath))) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) throw new JsonParseException("not a library object");
 
-            return Optional.of(data);
-        } catch (IOException e) {
-            return Optional.empty();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("songs") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    songs = new SongIterable(reader);
+                    library.loadLibrary(songs);
+                    songsLoaded = true;
+                    if (songs.failure != null) throw songs.failure;
+                    reader.endArray();
+                } else if (name.equals("playlists") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    playlistData = readPlaylists(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            Path aside = StorePaths.setAside(storePath, "damaged");
+            if (aside == null) {
+                throw new RuntimeException("Could not read " + storePath + " and could not keep a copy of it", e);
+            }
+
+            if (!songsLoaded) library.loadLibrary(List.of());
+            if (playlistData == null) playlistData = salvagePlaylists(storePath);
+            if (playlistData != null) playlists.loadPlaylists(playlistData);
+
+            int recovered = library.getAllSongs().size();
+            recoveryNote = (recovered > 0 ? "Recovered " + recovered + " song(s) from a damaged " : "Could not read ")
+                    + storePath.getFileName()
+                    + (playlistData == null ? " (playlists could not be recovered)" : "")
+                    + "; original kept as " + aside.getFileName() + ".";
+            // Rewriting would make the loss final for anything still missing; leave that to a real edit.
+            rewriteAfterRecovery = playlistData != null;
+            return recovered > 0 || playlistData != null;
         }
+
+        if (!songsLoaded) library.loadLibrary(List.of());
+        playlists.loadPlaylists(playlistData == null ? new LinkedHashMap<>() : playlistData);
+        return true;
+    }
+
+    // A salvaged library is rewritten straight away so the next start reads a clean file, unless the
+    // playlists were lost with it.
+    @Override
+    public boolean attach(LibraryService library, PlaylistService playlists) {
+        return rewriteAfterRecovery;
     }
 
+    @Override
+    public String recoveryNote() {
+        return recoveryNote;
+    }
+
+    @Override
     public void save(List<Song> songs, Map<String, List<String>> playlists) {
+        write(songs, playlists);
+    }
+
+    // Writes straight from the live services; callers must own the services' thread for the duration.
+    public void save(LibraryService library, PlaylistService playlists) {
+        write(library.songsInOrder(), playlists.playlistsView());
+    }
+
+    private void write(Iterable<Song> songs, Map<String, ? extends Collection<String>> playlists) {
         try {
-            Files.createDirectories(STORE_PATH.getParent());
+            Files.createDirectories(storePath.toAbsolutePath().getParent());
         } catch (IOException e) {
-            throw new RuntimeException("Could not create storage directory: " + STORE_PATH.getParent(), e);
+            throw new RuntimeException("Could not create storage directory: " + storePath.getParent(), e);
         }
 
-        StoredData data = new StoredData();
-
-        if (songs != null) {
-            for (Song s : songs) {
-                SongRecord r = new SongRecord();
-                r.id = s.getId();
-                r.title = s.getTitle();
-                r.artist = s.getArtist();
-                r.album = s.getAlbum();
-                r.path = s.getPath();
-                data.songs.add(r);
+        Path tmp = storePath.resolveSibling(storePath.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(tmp);
+             JsonWriter writer = new JsonWriter(out)) {
+            writer.beginObject();
+
+            writer.name("songs").beginArray();
+            if (songs != null) {
+                for (Song s : songs) {
+                    if (s == null) continue;
+                    writer.beginObject();
+                    writer.name("id").value(s.getId());
+                    writer.name("title").value(s.getTitle());
+                    writer.name("artist").value(s.getArtist());
+                    writer.name("album").value(s.getAlbum());
+                    writer.name("path").value(s.getPath());
+                    if (s.getDurationMillis() >= 0) writer.name("durationMs").value(s.getDurationMillis());
+                    writer.endObject();
+                }
             }
-        }
+            writer.endArray();
 
-        if (playlists != null) {
-            for (Map.Entry<String, List<String>> e : playlists.entrySet()) {
-                data.playlists.put(e.getKey(), new ArrayList<>(e.getValue()));
+            writer.name("playlists").beginObject();
+            if (playlists != null) {
+                for (Map.Entry<String, ? extends Collection<String>> e : playlists.entrySet()) {
+                    writer.name(e.getKey()).beginArray();
+                    for (String id : e.getValue()) writer.value(id);
+                    writer.endArray();
+                }
             }
-        }
+            writer.endObject();
 
-        Path tmp = STORE_PATH.resolveSibling("data.json.tmp");
-        try (Writer writer = Files.newBufferedWriter(tmp)) {
-            gson.toJson(data, writer);
+            writer.endObject();
         } catch (IOException e) {
             throw new RuntimeException("Failed to write storage file: " + tmp, e);
         }
 
         try {
-            Files.move(tmp, STORE_PATH, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            StorePaths.replace(tmp, storePath, durability);
         } catch (IOException e) {
-            try {
-                Files.move(tmp, STORE_PATH, StandardCopyOption.REPLACE_EXISTING);
-            } catch (IOException ex) {
-                throw new RuntimeException("Failed to save storage file: " + STORE_PATH, ex);
-            }
+            throw new RuntimeException("Failed to save storage file: " + storePath, e);
         }
     }
 
-    public static List<Song> toSongs(StoredData data) {
-        if (data == null || data.songs == null) return List.of();
+    // The playlists object comes after the songs, so a parse that stopped inside the songs array never
+    // reached it. Finds the last "playlists" key followed by an object and parses from there.
+    static Map<String, List<String>> salvagePlaylists(Path file) {
+        String key = "\"playlists\"";
+        long objectStart = -1;
+        try (Reader in = Files.newBufferedReader(file)) {
+            int matched = 0;
+            int afterKey = 0; // 1 once the key is read, 2 once its colon is
+            long pos = 0;
+            for (int c = in.read(); c >= 0; c = in.read(), pos++) {
+                if (afterKey > 0 && !Character.isWhitespace(c)) {
+                    if (afterKey == 1 && c == ':') {
+                        afterKey = 2;
+                        continue;
+                    }
+                    if (afterKey == 2 && c == '{') objectStart = pos;
+                    afterKey = 0;
+                }
+                matched = (c == key.charAt(matched)) ? matched + 1 : (c == '"' ? 1 : 0);
+                if (matched == key.length()) {
+                    afterKey = 1;
+                    matched = 0;
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        if (objectStart < 0) return null;
 
-        List<Song> out = new ArrayList<>();
-        for (SongRecord r : data.songs) {
-            if (r == null) continue;
+        try (Reader in = Files.newBufferedReader(file)) {
+            for (long skipped = 0; skipped < objectStart; ) {
+                long n = in.skip(objectStart - skipped);
+                if (n <= 0) return null;
+                skipped += n;
+            }
+            return readPlaylists(new JsonReader(in));
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            return null;
+        }
+    }
 
-            if (isBlank(r.id) || isBlank(r.title) || isBlank(r.artist) || isBlank(r.album) || isBlank(r.path)) {
+    private static Map<String, List<String>> readPlaylists(JsonReader reader) throws IOException {
+        Map<String, List<String>> out = new LinkedHashMap<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
                 continue;
             }
 
-            out.add(new Song(r.id, r.title, r.artist, r.album, r.path));
+            List<String> ids = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (reader.peek() == JsonToken.STRING) {
+                    ids.add(reader.nextString());
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endArray();
+            out.put(name, ids);
         }
+        reader.endObject();
         return out;
     }
 
+    private static Song readSong(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        String id = null, title = null, artist = null, album = null, path = null;
+        long durationMillis = -1;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (field.equals("durationMs") && reader.peek() == JsonToken.NUMBER) {
+                durationMillis = reader.nextLong();
+                continue;
+            }
+            if (reader.peek() != JsonToken.STRING) {
+                reader.skipValue();
+                continue;
+            }
+            switch (field) {
+                case "id" -> id = reader.nextString();
+                case "title" -> title = reader.nextString();
+                case "artist" -> artist = reader.nextString();
+                case "album" -> album = reader.nextString();
+                case "path" -> path = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (isBlank(id) || isBlank(title) || isBlank(artist) || isBlank(album) || isBlank(path)) {
+            return null;
+        }
+        Song song = new Song(id, title, artist, album, path);
+        song.setDurationMillis(durationMillis);
+        return song;
+    }
+
     private static boolean isBlank(String s) {
         return s == null || s.trim().isEmpty();
     }
+
+    // Single-pass view over the open "songs" array; each Song is parsed only when the library asks for it.
+    private static final class SongIterable implements Iterable<Song> {
+
+        private final JsonReader reader;
+        private boolean consumed = false;
+
+        // Set when parsing stopped early; the songs read up to that point have already been delivered.
+        private IOException failure;
+
+        SongIterable(JsonReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Iterator<Song> iterator() {
+            if (consumed) throw new IllegalStateException("songs can only be iterated once");
+            consumed = true;
+
+            return new Iterator<>() {
+                private Song next;
+
+                @Override
+                public boolean hasNext() {
+                    if (failure != null) return false;
+                    try {
+                        while (next == null && reader.hasNext()) {
+                            next = readSong(reader);
+                        }
+                        return next != null;
+                    } catch (IOException e) {
+                        failure = e;
+                    } catch (JsonParseException | IllegalStateException e) {
+                        failure = new IOException(e);
+                    }
+                    return false;
+                }
+
+                @Override
+                public Song next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    Song s = next;
+                    next = null;
+                    return s;
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,449 @@
+package com.johnk.musicplayer.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.service.LibraryListener;
+import com.johnk.musicplayer.service.LibraryService;
+import com.johnk.musicplayer.service.PlaylistListener;
+import com.johnk.musicplayer.service.PlaylistService;
+
+// Append-only change log on top of a full snapshot. Replay is idempotent, so a crash between
+// writing a new snapshot and truncating the journal only re-applies changes it already contains.
+// Records are buffered on the thread that mutates the services. The buffer is addressed by a running
+// byte offset: the writer thread (a single one) appends or snapshots up to an offset taken earlier
+// and only then discards that far, so a failed write leaves every record in memory for the next try.
+// Each record is [int length][int CRC32C(body)][body]; replay stops at the first record that fails
+// its checksum, exactly as it does at a torn tail, since later records may depend on the lost one.
+// An intact record the services reject is skipped instead, and a file that is not a journal at all is
+// copied aside before it is replaced; recoveryNote() reports both.
+public class LibraryJournal implements LibraryListener, PlaylistListener {
+
+    private static final int MAGIC = 0x504C4A32; // "PLJ2"
+    private static final int MAGIC_V1 = 0x504C4A31; // "PLJ1", records without checksums
+    private static final int HEADER_BYTES = 4;
+    private static final int MAX_RECORD_BYTES = 64 << 20;
+
+    private static final byte SONG_ADDED = 1;
+    private static final byte SONG_REMOVED = 2;
+    private static final byte LIBRARY_CLEARED = 3;
+    private static final byte PLAYLIST_CREATED = 4;
+    private static final byte PLAYLIST_DELETED = 5;
+    private static final byte PLAYLIST_SONGS_ADDED = 6;
+    private static final byte PLAYLIST_SONG_REMOVED = 7;
+    private static final byte SONG_DURATIONS = 8;
+
+    private final Path journalPath;
+    private final long compactThresholdBytes;
+    private final DurabilityMode durability;
+
+    // Guarded by itself; pendingStart is the running offset of its first byte.
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long pendingStart = 0;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+
+    private FileChannel channel;
+    // End of the last record known to be whole; appends start here, never at the file's current size.
+    private volatile long fileBytes = 0;
+    private String recoveryNote;
+    // A v1 file must be compacted before anything is appended to it in the new record format.
+    private volatile boolean legacyFormat = false;
+
+    public LibraryJournal() {
+        this(StorePaths.resolve("journal.bin"), Long.getLong("musicplayer.journal.compactBytes", 8L << 20),
+                DurabilityMode.configured());
+    }
+
+    public LibraryJournal(Path journalPath, long compactThresholdBytes, DurabilityMode durability) {
+        if (journalPath == null) throw new IllegalArgumentException("journalPath must not be null");
+        if (durability == null) throw new IllegalArgumentException("durability must not be null");
+        this.journalPath = journalPath;
+        this.compactThresholdBytes = compactThresholdBytes;
+        this.durability = durability;
+    }
+
+    public void attach(LibraryService library, PlaylistService playlists) {
+        library.addListener(this);
+        playlists.addListener(this);
+    }
+
+    public boolean exists() {
+        return Files.exists(journalPath);
+    }
+
+    public int replay(LibraryService library, PlaylistService playlists) {
+        fileBytes = 0;
+        recoveryNote = null;
+        if (!Files.exists(journalPath)) return 0;
+
+        int applied = 0;
+        int skipped = 0;
+        long validLength = HEADER_BYTES;
+        boolean checksummed = true;
+        boolean foreign = false;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(journalPath)))) {
+            int magic = in.readInt();
+            if (magic == MAGIC_V1) {
+                checksummed = false;
+            } else if (magic != MAGIC) {
+                validLength = 0;
+                foreign = true;
+            }
+
+            CRC32C crc = new CRC32C();
+            while (validLength > 0) {
+                int length;
+                int expected = 0;
+                try {
+                    length = in.readInt();
+                    if (checksummed) expected = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length <= 0 || length > MAX_RECORD_BYTES) break;
+
+                byte[] body = new byte[length];
+                try {
+                    in.readFully(body);
+                } catch (EOFException e) {
+                    // Torn tail from a crash mid-append: everything before it is still valid.
+                    break;
+                }
+
+                if (checksummed) {
+                    crc.reset();
+                    crc.update(body);
+                    if ((int) crc.getValue() != expected) break;
+                }
+
+                // The record itself is intact, so the ones after it are still trustworthy.
+                try {
+                    apply(body, library, playlists);
+                    applied++;
+                } catch (IOException | IllegalArgumentException e) {
+                    skipped++;
+                }
+                validLength += (checksummed ? 8L : 4L) + length;
+            }
+        } catch (EOFException e) {
+            validLength = 0;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read journal: " + journalPath, e);
+        }
+
+        if (foreign) {
+            Path copy = StorePaths.setAside(journalPath, "unreadable");
+            if (copy == null) {
+                throw new RuntimeException("Journal has an unknown format and could not be set aside: " + journalPath);
+            }
+            recoveryNote = "The change journal was not readable and was moved to " + copy.getFileName()
+                    + "; changes since the last full save may be missing.";
+        } else if (skipped > 0) {
+            recoveryNote = skipped + " change(s) in the journal could not be applied and were skipped.";
+        }
+
+        try {
+            if (validLength == 0) {
+                close();
+                Files.delete(journalPath);
+            } else if (Files.size(journalPath) != validLength) {
+                openChannel().truncate(validLength);
+            }
+            fileBytes = validLength;
+            legacyFormat = !checksummed && validLength > 0;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to truncate journal: " + journalPath, e);
+        }
+        return applied;
+    }
+
+    // Null unless the last replay had to skip or set aside something.
+    public String recoveryNote() {
+        return recoveryNote;
+    }
+
+    public void commit() {
+        appendPending(pendingEnd());
+    }
+
+    // Running offset just past the last buffered record.
+    public long pendingEnd() {
+        synchronized (pending) {
+            return pendingStart + pending.size();
+        }
+    }
+
+    // Writes the buffered records up to the given offset that an earlier call has not written yet.
+    public void appendPending(long through) {
+        byte[] batch;
+        synchronized (pending) {
+            int n = (int) Math.max(0, Math.min(through - pendingStart, pending.size()));
+            batch = Arrays.copyOf(pending.toByteArray(), n);
+        }
+        append(batch);
+        discardPending(through);
+    }
+
+    // Drops records up to the given offset once they are safely in the journal or a snapshot.
+    public void discardPending(long through) {
+        synchronized (pending) {
+            int n = (int) Math.min(through - pendingStart, pending.size());
+            if (n <= 0) return;
+            byte[] all = pending.toByteArray();
+            pending.reset();
+            pending.write(all, n, all.length - n);
+            pendingStart += n;
+        }
+    }
+
+    private void append(byte[] batch) {
+        if (batch == null || batch.length == 0) return;
+
+        try {
+            FileChannel ch = openChannel();
+            // A write that failed partway left a torn record behind; the retry overwrites it, since
+            // replay stops at the first bad record and would drop everything written after it.
+            if (ch.size() > fileBytes) ch.truncate(fileBytes);
+            ch.position(fileBytes);
+            ByteBuffer buf = ByteBuffer.wrap(batch);
+            while (buf.hasRemaining()) {
+                // One record at a time so ALWAYS can sync each of them.
+                int end = buf.position() + 8 + buf.getInt(buf.position());
+                ByteBuffer one = buf.duplicate().limit(end);
+                while (one.hasRemaining()) ch.write(one);
+                buf.position(end);
+                durability.afterBlock(ch);
+            }
+            durability.afterBatch(ch);
+            fileBytes = ch.size();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to append to journal: " + journalPath, e);
+        }
+    }
+
+    public boolean needsCompaction() {
+        synchronized (pending) {
+            return legacyFormat || fileBytes + pending.size() >= compactThresholdBytes;
+        }
+    }
+
+    // Truncates the file only; records still buffered in memory belong after the new snapshot.
+    public void reset() {
+        try {
+            FileChannel ch = openChannel();
+            ch.truncate(0);
+            ch.write(ByteBuffer.allocate(HEADER_BYTES).putInt(0, MAGIC), 0);
+            if (durability != DurabilityMode.NONE) ch.force(true);
+            fileBytes = HEADER_BYTES;
+            legacyFormat = false;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to reset journal: " + journalPath, e);
+        }
+    }
+
+    public void close() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        } finally {
+            channel = null;
+        }
+    }
+
+    @Override
+    public void songsAdded(List<Song> songs) {
+        for (Song s : songs) {
+            beginRecord(SONG_ADDED);
+            writeString(s.getId());
+            writeString(s.getTitle());
+            writeString(s.getArtist());
+            writeString(s.getAlbum());
+            writeString(s.getPath());
+            endRecord();
+        }
+    }
+
+    @Override
+    public void songsUpdated(List<Song> songs) {
+        beginRecord(SONG_DURATIONS);
+        writeInt(songs.size());
+        for (Song s : songs) {
+            writeString(s.getId());
+            writeLong(s.getDurationMillis());
+        }
+        endRecord();
+    }
+
+    @Override
+    public void songRemoved(String songId) {
+        beginRecord(SONG_REMOVED);
+        writeString(songId);
+        endRecord();
+    }
+
+    @Override
+    public void libraryCleared() {
+        beginRecord(LIBRARY_CLEARED);
+        endRecord();
+    }
+
+    @Override
+    public void playlistCreated(String playlistName) {
+        beginRecord(PLAYLIST_CREATED);
+        writeString(playlistName);
+        endRecord();
+    }
+
+    @Override
+    public void playlistDeleted(String playlistName) {
+        beginRecord(PLAYLIST_DELETED);
+        writeString(playlistName);
+        endRecord();
+    }
+
+    @Override
+    public void songsAdded(String playlistName, List<String> songIds) {
+        beginRecord(PLAYLIST_SONGS_ADDED);
+        writeString(playlistName);
+        writeInt(songIds.size());
+        for (String id : songIds) writeString(id);
+        endRecord();
+    }
+
+    @Override
+    public void songRemoved(String playlistName, String songId) {
+        beginRecord(PLAYLIST_SONG_REMOVED);
+        writeString(playlistName);
+        writeString(songId);
+        endRecord();
+    }
+
+    private void apply(byte[] body, LibraryService library, PlaylistService playlists) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        byte type = in.readByte();
+
+        switch (type) {
+            case SONG_ADDED -> {
+                Song song = new Song(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF());
+                if (library.getSongById(song.getId()).isEmpty()) library.addSong(song);
+            }
+            case SONG_REMOVED -> library.removeSong(in.readUTF());
+            case LIBRARY_CLEARED -> library.clearLibrary();
+            case PLAYLIST_CREATED -> {
+                String name = in.readUTF();
+                if (!playlists.hasPlaylist(name)) playlists.createPlaylist(name);
+            }
+            case PLAYLIST_DELETED -> {
+                String name = in.readUTF();
+                if (playlists.hasPlaylist(name)) playlists.deletePlaylist(name);
+            }
+            case PLAYLIST_SONGS_ADDED -> {
+                String name = in.readUTF();
+                int count = in.readInt();
+                List<String> ids = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) ids.add(in.readUTF());
+                if (playlists.hasPlaylist(name)) {
+                    for (String id : ids) playlists.addSong(name, id);
+                }
+            }
+            case PLAYLIST_SONG_REMOVED -> {
+                String name = in.readUTF();
+                String id = in.readUTF();
+                if (playlists.hasPlaylist(name)) playlists.removeSong(name, id);
+            }
+            case SONG_DURATIONS -> {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    String id = in.readUTF();
+                    long millis = in.readLong();
+                    library.getSongById(id).ifPresent(s -> s.setDurationMillis(millis));
+                }
+            }
+            default -> throw new IOException("Unknown journal record type: " + type);
+        }
+    }
+
+    private void beginRecord(byte type) {
+        record.reset();
+        try {
+            recordOut.writeByte(type);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeString(String value) {
+        try {
+            recordOut.writeUTF(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeInt(int value) {
+        try {
+            recordOut.writeInt(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeLong(long value) {
+        try {
+            recordOut.writeLong(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void endRecord() {
+        byte[] body = record.toByteArray();
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        synchronized (pending) {
+            writeRaw(body.length);
+            writeRaw((int) crc.getValue());
+            pending.writeBytes(body);
+        }
+    }
+
+    private void writeRaw(int value) {
+        pending.write(value >>> 24);
+        pending.write(value >>> 16);
+        pending.write(value >>> 8);
+        pending.write(value);
+    }
+
+    private FileChannel openChannel() throws IOException {
+        if (channel != null && channel.isOpen()) return channel;
+
+        Files.createDirectories(journalPath.getParent());
+        channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_BYTES) {
+            channel.truncate(0);
+            channel.write(ByteBuffer.allocate(HEADER_BYTES).putInt(0, MAGIC), 0);
+            if (durability != DurabilityMode.NONE) channel.force(true);
+        }
+        // Opened without a replay (or after it deleted the file): the file holds only whole records.
+        if (fileBytes < HEADER_BYTES) fileBytes = channel.size();
+        return channel;
+    }
+}
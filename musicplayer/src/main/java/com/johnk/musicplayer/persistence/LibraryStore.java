@@ -0,0 +1,46 @@
+package com.johnk.musicplayer.persistence;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.service.LibraryService;
+import com.johnk.musicplayer.service.PlaylistService;
+
+public interface LibraryStore {
+
+    boolean exists();
+
+    // Fills the services with whatever is needed for first paint; false when there is nothing stored.
+    boolean load(LibraryService library, PlaylistService playlists);
+
+    // Stores that load in stages deliver the rest here, in library order, on deliverExecutor.
+    default CompletableFuture<Void> loadRemaining(Consumer<List<Song>> sink, Executor deliverExecutor) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // Called once the library is complete. Returns true when the store wants an early save.
+    default boolean attach(LibraryService library, PlaylistService playlists) {
+        return false;
+    }
+
+    // Set by load() when stored data was damaged and only partly recovered, or set aside; shown to the user.
+    default String recoveryNote() {
+        return null;
+    }
+
+    void save(List<Song> songs, Map<String, List<String>> playlists);
+
+    // Runs on the thread that owns the services; the returned task does the I/O on the writer thread.
+    default Runnable prepareSave(LibraryService library, PlaylistService playlists) {
+        List<Song> songs = library.getAllSongs();
+        Map<String, List<String>> playlistData = playlists.exportPlaylists();
+        return () -> save(songs, playlistData);
+    }
+
+    default void close() {
+    }
+}
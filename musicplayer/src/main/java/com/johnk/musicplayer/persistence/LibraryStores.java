@@ -0,0 +1,56 @@
+package com.johnk.musicplayer.persistence;
+
+import java.util.Locale;
+
+// Picks the storage backend from system properties:
+//   musicplayer.store   = json (default) | binary | sharded | framed | h2 | journal (json plus change journal)
+//   musicplayer.journal = true to put the change journal in front of a snapshot backend
+//   musicplayer.durability = none | batch (default) | always, see DurabilityMode
+// A backend with no data yet is seeded from data.json, so switching backends keeps the library.
+public final class LibraryStores {
+
+    private LibraryStores() {
+    }
+
+    public static LibraryStore open() {
+        String kind = System.getProperty("musicplayer.store");
+        boolean journaled = Boolean.getBoolean("musicplayer.journal");
+
+        if (kind == null || kind.isBlank()) {
+            // Older property, kept so existing launch scripts still pick the same snapshot format.
+            kind = System.getProperty("musicplayer.snapshot", "json");
+        }
+        if (kind.equalsIgnoreCase("journal")) {
+            kind = "json";
+            journaled = true;
+        }
+
+        LibraryStore store = create(kind);
+        if (!(store instanceof JsonStore)) {
+            LibraryStore legacy = new JsonStore();
+            LibraryJournal legacyJournal = new LibraryJournal();
+            if (legacyJournal.exists()) legacy = new JournaledStore(legacy, legacyJournal);
+            try {
+                StoreMigration.migrateIfEmpty(legacy, store);
+            } finally {
+                legacy.close();
+            }
+        }
+
+        if (journaled && !(store instanceof IndexedLibraryStore)) {
+            store = new JournaledStore(store, new LibraryJournal());
+        }
+        return store;
+    }
+
+    public static LibraryStore create(String kind) {
+        return switch (kind.trim().toLowerCase(Locale.ROOT)) {
+            case "json" -> new JsonStore();
+            case "binary" -> new BinarySnapshotStore();
+            case "sharded" -> new ShardedStore();
+            case "framed" -> new FramedStore();
+            case "h2" -> new EmbeddedDbStore();
+            default -> throw new IllegalArgumentException("Unknown store type: " + kind);
+        };
+    }
+}
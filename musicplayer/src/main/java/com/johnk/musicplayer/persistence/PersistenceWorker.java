@@ -0,0 +1,112 @@
+package com.johnk.musicplayer.persistence;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Coalesces dirty notifications into one write per delay window. The capture step runs on
+// captureExecutor (the thread that owns the in-memory state) and must only copy what it needs;
+// the Runnable it returns does the disk I/O on the worker thread. A failed write marks the state
+// dirty again and is retried after a pause that doubles up to MAX_RETRY_DELAY_MS.
+public class PersistenceWorker {
+
+    private static final long MAX_RETRY_DELAY_MS = 30_000;
+
+    private final Supplier<Runnable> capture;
+    private final Executor captureExecutor;
+    private final long delayMillis;
+
+    private final ScheduledThreadPoolExecutor worker;
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private volatile boolean closed = false;
+    // Only touched on the worker thread.
+    private int failedWrites = 0;
+
+    private volatile Consumer<RuntimeException> onError = e -> { };
+
+    public PersistenceWorker(Supplier<Runnable> capture, Executor captureExecutor, long delayMillis) {
+        if (capture == null) throw new IllegalArgumentException("capture must not be null");
+        if (captureExecutor == null) throw new IllegalArgumentException("captureExecutor must not be null");
+        if (delayMillis < 0) throw new IllegalArgumentException("delayMillis must not be negative");
+
+        this.capture = capture;
+        this.captureExecutor = captureExecutor;
+        this.delayMillis = delayMillis;
+
+        this.worker = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "persistence-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        this.worker.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    public void setOnError(Consumer<RuntimeException> onError) {
+        this.onError = (onError == null) ? e -> { } : onError;
+    }
+
+    public void markDirty() {
+        scheduleCapture(delayMillis);
+    }
+
+    private void scheduleCapture(long delay) {
+        if (closed) return;
+        if (!dirty.compareAndSet(false, true)) return;
+
+        try {
+            worker.schedule(this::requestCapture, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+        }
+    }
+
+    // Must be called on the capture thread. Writes whatever is dirty and waits at most the given time.
+    public boolean flushAndShutdown(long timeout, TimeUnit unit) {
+        closed = true;
+
+        if (dirty.getAndSet(false)) {
+            Runnable write = capture.get();
+            try {
+                worker.execute(() -> runWrite(write));
+            } catch (RejectedExecutionException ignored) {
+            }
+        }
+
+        worker.shutdown();
+        try {
+            return worker.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void requestCapture() {
+        captureExecutor.execute(() -> {
+            // A shutdown flush may already have taken this batch.
+            if (!dirty.getAndSet(false)) return;
+
+            Runnable write = capture.get();
+            try {
+                worker.execute(() -> runWrite(write));
+            } catch (RejectedExecutionException ignored) {
+            }
+        });
+    }
+
+    private void runWrite(Runnable write) {
+        if (write == null) return;
+        try {
+            write.run();
+            failedWrites = 0;
+        } catch (RuntimeException e) {
+            onError.accept(e);
+            failedWrites++;
+            long backoff = Math.max(1, delayMillis) << Math.min(failedWrites, 20);
+            scheduleCapture(Math.min(MAX_RETRY_DELAY_MS, backoff));
+        }
+    }
+}
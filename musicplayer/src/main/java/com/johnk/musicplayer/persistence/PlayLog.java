@@ -0,0 +1,138 @@
+package com.johnk.musicplayer.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Append-only listening log: an 8-byte header ("PLOG", version) followed by fixed 32-byte records
+//   [long time][long songKey][long artistKey][int listenedMillis][byte kind][3 bytes padding]
+// Fixed records need no framing: a crash mid-append leaves a length that is not a whole number of
+// records, and replay just drops the partial one. Appends always start at the end of the last whole
+// record, so a write that failed partway is overwritten by the next one instead of misaligning it. Keys are 64-bit hashes so records never grow with
+// titles or paths; the reader maps them back to songs.
+public class PlayLog {
+
+    public static final int RECORD_BYTES = 32;
+
+    private static final int MAGIC = 0x504C4F47; // "PLOG"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int REPLAY_BUFFER_RECORDS = 2048;
+
+    public interface Visitor {
+        void visit(long timeMillis, byte kind, long songKey, long artistKey, int listenedMillis);
+    }
+
+    private final Path path;
+    private final DurabilityMode durability;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    private FileChannel channel;
+    // End of the last whole record; set whenever the channel is opened.
+    private long end;
+
+    public PlayLog() {
+        this(StorePaths.resolve("history.bin"), DurabilityMode.configured());
+    }
+
+    public PlayLog(Path path, DurabilityMode durability) {
+        if (path == null) throw new IllegalArgumentException("path must not be null");
+        if (durability == null) throw new IllegalArgumentException("durability must not be null");
+        this.path = path;
+        this.durability = durability;
+    }
+
+    // Streams every complete record to the visitor and cuts off a torn tail. Returns the record count.
+    public long replay(Visitor visitor) {
+        if (!Files.exists(path)) return 0;
+
+        long count = 0;
+        try {
+            FileChannel ch = openChannel();
+            long size = ch.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining()) {
+                if (ch.read(header, header.position()) <= 0) break;
+            }
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                // Not a log this version understands; keep it aside rather than append to it.
+                close();
+                StorePaths.setAside(path, "unreadable");
+                Files.deleteIfExists(path);
+                return 0;
+            }
+
+            long records = (size - HEADER_BYTES) / RECORD_BYTES;
+            ByteBuffer buf = ByteBuffer.allocateDirect(REPLAY_BUFFER_RECORDS * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            long pos = HEADER_BYTES;
+            end = HEADER_BYTES + records * RECORD_BYTES;
+            while (pos < end) {
+                buf.clear().limit((int) Math.min(buf.capacity(), end - pos));
+                while (buf.hasRemaining()) {
+                    if (ch.read(buf, pos + buf.position()) <= 0) break;
+                }
+                buf.flip();
+                while (buf.remaining() >= RECORD_BYTES) {
+                    long time = buf.getLong();
+                    long songKey = buf.getLong();
+                    long artistKey = buf.getLong();
+                    int listened = buf.getInt();
+                    byte kind = buf.get();
+                    buf.position(buf.position() + 3);
+                    visitor.visit(time, kind, songKey, artistKey, listened);
+                    count++;
+                }
+                pos += buf.limit();
+            }
+
+            if (size != end) ch.truncate(end);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read listening history: " + path, e);
+        }
+        return count;
+    }
+
+    public void append(long timeMillis, byte kind, long songKey, long artistKey, int listenedMillis) {
+        try {
+            FileChannel ch = openChannel();
+            record.clear();
+            record.putLong(timeMillis).putLong(songKey).putLong(artistKey).putInt(listenedMillis).put(kind);
+            record.put(new byte[3]).flip();
+            if (ch.size() > end) ch.truncate(end);
+            long pos = end;
+            while (record.hasRemaining()) pos += ch.write(record, pos);
+            durability.afterBatch(ch);
+            end = pos;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to append to listening history: " + path, e);
+        }
+    }
+
+    public void close() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        } finally {
+            channel = null;
+        }
+    }
+
+    private FileChannel openChannel() throws IOException {
+        if (channel == null) {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() < HEADER_BYTES) {
+                channel.truncate(0);
+                channel.write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip(), 0);
+                if (durability != DurabilityMode.NONE) channel.force(true);
+            }
+            end = HEADER_BYTES + (channel.size() - HEADER_BYTES) / RECORD_BYTES * RECORD_BYTES;
+        }
+        return channel;
+    }
+}
@@ -0,0 +1,156 @@
+package com.johnk.musicplayer.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.johnk.musicplayer.domain.Song;
+
+// What was playing when the app closed. The queue is stored as library ordinals, each paired with the
+// song id's hash so that a library reordered since (import, reset) drops stale entries instead of
+// playing the wrong songs. The current track is stored in full so it can start before the library loads.
+public final class PlaybackSession {
+
+    private final Song current;
+    private final boolean currentQueued;
+    private final long positionMillis;
+    private final boolean playing;
+    private final boolean shuffle;
+    private final String repeat;
+
+    private final int contextIndex;
+    private final int[] context;
+    private final int[] contextHashes;
+    private final int[] upNext;
+    private final int[] upNextHashes;
+
+    PlaybackSession(Song current, boolean currentQueued, long positionMillis, boolean playing, boolean shuffle,
+                    String repeat, int contextIndex, int[] context, int[] contextHashes, int[] upNext, int[] upNextHashes) {
+        this.current = current;
+        this.currentQueued = currentQueued;
+        this.positionMillis = positionMillis;
+        this.playing = playing;
+        this.shuffle = shuffle;
+        this.repeat = repeat;
+        this.contextIndex = contextIndex;
+        this.context = context;
+        this.contextHashes = contextHashes;
+        this.upNext = upNext;
+        this.upNextHashes = upNextHashes;
+    }
+
+    // Runs on the writer thread; every list passed in must be an immutable snapshot.
+    public static PlaybackSession capture(List<Song> library, List<Song> context, int contextIndex, List<Song> upNext,
+                                          Song current, boolean currentQueued, long positionMillis, boolean playing,
+                                          boolean shuffle, String repeat) {
+        Map<String, Integer> ordinals = new HashMap<>(library.size() * 2);
+        int ord = 0;
+        for (Song s : library) ordinals.put(s.getId(), ord++);
+
+        // Songs that are not in the library cannot be resolved later; the index shifts past them.
+        int[][] ctx = toOrdinals(context, ordinals);
+        int index = -1;
+        if (contextIndex >= 0 && contextIndex < context.size() && ordinals.containsKey(context.get(contextIndex).getId())) {
+            index = 0;
+            for (int i = 0; i < contextIndex; i++) {
+                if (ordinals.containsKey(context.get(i).getId())) index++;
+            }
+        }
+        int[][] queued = toOrdinals(upNext, ordinals);
+
+        return new PlaybackSession(current, currentQueued, Math.max(0, positionMillis), playing, shuffle, repeat,
+                index, ctx[0], ctx[1], queued[0], queued[1]);
+    }
+
+    public Song getCurrent() {
+        return current;
+    }
+
+    public boolean isCurrentQueued() {
+        return currentQueued;
+    }
+
+    public long getPositionMillis() {
+        return positionMillis;
+    }
+
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    public boolean isShuffle() {
+        return shuffle;
+    }
+
+    public String getRepeat() {
+        return repeat;
+    }
+
+    public List<Song> resolveContext(List<Song> library) {
+        return resolve(context, contextHashes, library);
+    }
+
+    // Position of the current track within resolveContext(library), or -1 if it did not survive.
+    public int resolveContextIndex(List<Song> library) {
+        if (contextIndex < 0 || contextIndex >= context.length || !matches(context[contextIndex], contextHashes[contextIndex], library)) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 0; i < contextIndex; i++) {
+            if (matches(context[i], contextHashes[i], library)) index++;
+        }
+        return index;
+    }
+
+    public List<Song> resolveUpNext(List<Song> library) {
+        return resolve(upNext, upNextHashes, library);
+    }
+
+    int getContextIndex() {
+        return contextIndex;
+    }
+
+    int[] getContext() {
+        return context;
+    }
+
+    int[] getContextHashes() {
+        return contextHashes;
+    }
+
+    int[] getUpNext() {
+        return upNext;
+    }
+
+    int[] getUpNextHashes() {
+        return upNextHashes;
+    }
+
+    private static int[][] toOrdinals(List<Song> songs, Map<String, Integer> ordinals) {
+        int[] ords = new int[songs.size()];
+        int[] hashes = new int[songs.size()];
+        int n = 0;
+        for (Song s : songs) {
+            Integer ord = ordinals.get(s.getId());
+            if (ord == null) continue;
+            ords[n] = ord;
+            hashes[n] = s.getId().hashCode();
+            n++;
+        }
+        return new int[][] {Arrays.copyOf(ords, n), Arrays.copyOf(hashes, n)};
+    }
+
+    private static List<Song> resolve(int[] ords, int[] hashes, List<Song> library) {
+        List<Song> out = new ArrayList<>(ords.length);
+        for (int i = 0; i < ords.length; i++) {
+            if (matches(ords[i], hashes[i], library)) out.add(library.get(ords[i]));
+        }
+        return out;
+    }
+
+    private static boolean matches(int ord, int hash, List<Song> library) {
+        return ord >= 0 && ord < library.size() && library.get(ord).getId().hashCode() == hash;
+    }
+}
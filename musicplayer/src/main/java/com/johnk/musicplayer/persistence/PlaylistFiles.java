@@ -0,0 +1,186 @@
+package com.johnk.musicplayer.persistence;
+
+import com.johnk.musicplayer.domain.Song;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+public final class PlaylistFiles {
+
+    private static final String EXTM3U = "#EXTM3U";
+    private static final String EXTINF = "#EXTINF:";
+
+    private PlaylistFiles() {
+    }
+
+    // Entries are streamed line by line; only the resolved paths are kept, never the file text.
+    public static List<String> readPaths(Path file) {
+        PlaylistFormat format = requireFormat(file);
+        Path baseDir = file.toAbsolutePath().getParent();
+
+        // InputStreamReader replaces malformed bytes instead of failing, which matters for legacy .m3u files.
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8))) {
+            return (format == PlaylistFormat.PLS)
+                    ? readPls(reader, baseDir)
+                    : readM3u(reader, baseDir);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read playlist file: " + file, e);
+        }
+    }
+
+    public static void write(Path file, List<Song> songs) {
+        PlaylistFormat format = requireFormat(file);
+        Path baseDir = file.toAbsolutePath().getParent();
+        List<Song> safeSongs = (songs == null) ? List.of() : songs;
+
+        try (BufferedWriter writer = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8))) {
+            if (format == PlaylistFormat.PLS) {
+                writePls(writer, safeSongs, baseDir);
+            } else {
+                writeM3u(writer, safeSongs, baseDir);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write playlist file: " + file, e);
+        }
+    }
+
+    private static List<String> readM3u(BufferedReader reader, Path baseDir) throws IOException {
+        List<String> out = new ArrayList<>();
+        String line;
+        boolean first = true;
+
+        while ((line = reader.readLine()) != null) {
+            if (first) {
+                line = stripBom(line);
+                first = false;
+            }
+
+            String entry = line.trim();
+            if (entry.isEmpty() || entry.startsWith("#")) continue;
+
+            String resolved = resolveEntry(entry, baseDir);
+            if (resolved != null) out.add(resolved);
+        }
+        return out;
+    }
+
+    private static List<String> readPls(BufferedReader reader, Path baseDir) throws IOException {
+        // PLS entries are numbered and may appear in any order.
+        TreeMap<Integer, String> byNumber = new TreeMap<>();
+        String line;
+        boolean first = true;
+
+        while ((line = reader.readLine()) != null) {
+            if (first) {
+                line = stripBom(line);
+                first = false;
+            }
+
+            String entry = line.trim();
+            int eq = entry.indexOf('=');
+            if (eq <= 4 || !entry.regionMatches(true, 0, "File", 0, 4)) continue;
+
+            int number;
+            try {
+                number = Integer.parseInt(entry.substring(4, eq).trim());
+            } catch (NumberFormatException e) {
+                continue;
+            }
+
+            String resolved = resolveEntry(entry.substring(eq + 1).trim(), baseDir);
+            if (resolved != null) byNumber.put(number, resolved);
+        }
+        return new ArrayList<>(byNumber.values());
+    }
+
+    private static void writeM3u(BufferedWriter writer, List<Song> songs, Path baseDir) throws IOException {
+        writer.write(EXTM3U);
+        writer.newLine();
+
+        for (Song s : songs) {
+            if (s == null) continue;
+
+            writer.write(EXTINF);
+            writer.write("-1,");
+            writer.write(displayName(s));
+            writer.newLine();
+            writer.write(relativize(s.getPath(), baseDir));
+            writer.newLine();
+        }
+    }
+
+    private static void writePls(BufferedWriter writer, List<Song> songs, Path baseDir) throws IOException {
+        writer.write("[playlist]");
+        writer.newLine();
+
+        int n = 0;
+        for (Song s : songs) {
+            if (s == null) continue;
+            n++;
+
+            writer.write("File" + n + "=" + relativize(s.getPath(), baseDir));
+            writer.newLine();
+            writer.write("Title" + n + "=" + displayName(s));
+            writer.newLine();
+            writer.write("Length" + n + "=-1");
+            writer.newLine();
+        }
+
+        writer.write("NumberOfEntries=" + n);
+        writer.newLine();
+        writer.write("Version=2");
+        writer.newLine();
+    }
+
+    private static String resolveEntry(String entry, Path baseDir) {
+        if (entry.isEmpty()) return null;
+
+        try {
+            Path path;
+            if (entry.regionMatches(true, 0, "file:", 0, 5)) {
+                path = Paths.get(URI.create(entry));
+            } else if (entry.contains("://")) {
+                return null;
+            } else {
+                path = Paths.get(entry);
+                if (!path.isAbsolute() && baseDir != null) {
+                    path = baseDir.resolve(path);
+                }
+            }
+            return path.toAbsolutePath().normalize().toString();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String relativize(String songPath, Path baseDir) {
+        if (baseDir == null) return songPath;
+
+        Path path = Paths.get(songPath).toAbsolutePath().normalize();
+        Path base = baseDir.normalize();
+        return path.startsWith(base) ? base.relativize(path).toString() : path.toString();
+    }
+
+    private static String displayName(Song s) {
+        return s.getArtist() + " - " + s.getTitle();
+    }
+
+    private static String stripBom(String line) {
+        return (!line.isEmpty() && line.charAt(0) == '\uFEFF') ? line.substring(1) : line;
+    }
+
+    private static PlaylistFormat requireFormat(Path file) {
+        if (file == null) throw new IllegalArgumentException("file must not be null");
+        return PlaylistFormat.fromPath(file).orElseThrow(
+                () -> new IllegalArgumentException("Unsupported playlist format: " + file.getFileName()));
+    }
+}
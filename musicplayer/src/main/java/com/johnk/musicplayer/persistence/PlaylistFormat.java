@@ -0,0 +1,36 @@
+package com.johnk.musicplayer.persistence;
+
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Optional;
+
+public enum PlaylistFormat {
+
+    M3U("m3u"),
+    M3U8("m3u8"),
+    PLS("pls");
+
+    private final String extension;
+
+    PlaylistFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static Optional<PlaylistFormat> fromPath(Path file) {
+        if (file == null || file.getFileName() == null) return Optional.empty();
+
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot < 0 || dot == name.length() - 1) return Optional.empty();
+
+        String ext = name.substring(dot + 1).toLowerCase(Locale.ROOT);
+        for (PlaylistFormat format : values()) {
+            if (format.extension.equals(ext)) return Optional.of(format);
+        }
+        return Optional.empty();
+    }
+}
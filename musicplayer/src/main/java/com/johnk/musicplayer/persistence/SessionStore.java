@@ -0,0 +1,143 @@
+package com.johnk.musicplayer.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+import com.johnk.musicplayer.domain.Song;
+
+// session.bin next to the library: magic, version, body, CRC32C of the body. Small enough to read
+// synchronously at startup; written by the persistence worker, never on the FX thread.
+// Body: flags, repeat, position, current song (full record), context index, then the context and
+// up-next queues as (ordinal, id hash) pairs.
+public class SessionStore {
+
+    private static final int MAGIC = 0x504C5353; // "PLSS"
+    private static final int VERSION = 1;
+
+    private static final int FLAG_PLAYING = 1;
+    private static final int FLAG_SHUFFLE = 2;
+    private static final int FLAG_CURRENT_QUEUED = 4;
+    private static final int FLAG_HAS_CURRENT = 8;
+
+    private final Path path;
+    private final DurabilityMode durability;
+
+    public SessionStore() {
+        this(StorePaths.resolve("session.bin"), DurabilityMode.configured());
+    }
+
+    public SessionStore(Path path, DurabilityMode durability) {
+        if (path == null) throw new IllegalArgumentException("path must not be null");
+        if (durability == null) throw new IllegalArgumentException("durability must not be null");
+        this.path = path;
+        this.durability = durability;
+    }
+
+    // A missing or damaged session just means starting fresh.
+    public PlaybackSession read() {
+        if (!Files.exists(path)) return null;
+        try {
+            byte[] bytes = Files.readAllBytes(path);
+            if (bytes.length < 12) return null;
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+
+            int bodyLength = bytes.length - 12;
+            CRC32C crc = new CRC32C();
+            crc.update(bytes, 8, bodyLength);
+            int stored = ((bytes[bytes.length - 4] & 0xFF) << 24) | ((bytes[bytes.length - 3] & 0xFF) << 16)
+                    | ((bytes[bytes.length - 2] & 0xFF) << 8) | (bytes[bytes.length - 1] & 0xFF);
+            if ((int) crc.getValue() != stored) return null;
+
+            int flags = in.readUnsignedByte();
+            String repeat = in.readUTF();
+            long position = in.readLong();
+
+            Song current = null;
+            if ((flags & FLAG_HAS_CURRENT) != 0) {
+                current = new Song(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF());
+                current.setDurationMillis(in.readLong());
+            }
+
+            int contextIndex = in.readInt();
+            int[][] context = readPairs(in);
+            int[][] upNext = readPairs(in);
+
+            return new PlaybackSession(current, (flags & FLAG_CURRENT_QUEUED) != 0, position,
+                    (flags & FLAG_PLAYING) != 0, (flags & FLAG_SHUFFLE) != 0, repeat,
+                    contextIndex, context[0], context[1], upNext[0], upNext[1]);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public void write(PlaybackSession session) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            Song current = session.getCurrent();
+            int flags = (session.isPlaying() ? FLAG_PLAYING : 0)
+                    | (session.isShuffle() ? FLAG_SHUFFLE : 0)
+                    | (session.isCurrentQueued() ? FLAG_CURRENT_QUEUED : 0)
+                    | (current != null ? FLAG_HAS_CURRENT : 0);
+            out.writeByte(flags);
+            out.writeUTF(session.getRepeat() == null ? "" : session.getRepeat());
+            out.writeLong(session.getPositionMillis());
+            if (current != null) {
+                out.writeUTF(current.getId());
+                out.writeUTF(current.getTitle());
+                out.writeUTF(current.getArtist());
+                out.writeUTF(current.getAlbum());
+                out.writeUTF(current.getPath());
+                out.writeLong(current.getDurationMillis());
+            }
+            out.writeInt(session.getContextIndex());
+            writePairs(out, session.getContext(), session.getContextHashes());
+            writePairs(out, session.getUpNext(), session.getUpNextHashes());
+            out.flush();
+
+            byte[] bytes = buffer.toByteArray();
+            CRC32C crc = new CRC32C();
+            crc.update(bytes, 8, bytes.length - 8);
+            out.writeInt((int) crc.getValue());
+            out.flush();
+
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(tmp, buffer.toByteArray());
+            StorePaths.replace(tmp, path, durability);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save playback session: " + path, e);
+        }
+    }
+
+    private static void writePairs(DataOutputStream out, int[] ordinals, int[] hashes) throws IOException {
+        out.writeInt(ordinals.length);
+        for (int i = 0; i < ordinals.length; i++) {
+            out.writeInt(ordinals[i]);
+            out.writeInt(hashes[i]);
+        }
+    }
+
+    private static int[][] readPairs(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0) throw new IOException("negative count");
+        int[] ordinals = new int[n];
+        int[] hashes = new int[n];
+        for (int i = 0; i < n; i++) {
+            ordinals[i] = in.readInt();
+            hashes[i] = in.readInt();
+        }
+        return new int[][] {ordinals, hashes};
+    }
+}
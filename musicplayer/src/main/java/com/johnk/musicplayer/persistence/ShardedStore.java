@@ -0,0 +1,271 @@
+package com.johnk.musicplayer.persistence;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.service.LibraryService;
+import com.johnk.musicplayer.service.PlaylistService;
+
+// Splits the library into independently decodable binary snapshot files: playlist metadata, a small
+// first page of songs, then fixed-size song blocks. Each save writes a new generation directory and
+// switches the CURRENT pointer atomically, so readers never see a half-written set of shards.
+// A generation with a block that does not decode is loaded as far as it goes, reported through
+// recoveryNote(), and renamed to damaged-gen-* by the next save instead of being deleted.
+public class ShardedStore implements LibraryStore {
+
+    private static final int MANIFEST_MAGIC = 0x504C5348; // "PLSH"
+    private static final int MANIFEST_VERSION = 1;
+
+    private static final int FIRST_PAGE_SIZE = 500;
+    private static final int BLOCK_SIZE = 16_384;
+
+    private final Path rootDir;
+    private final DurabilityMode durability;
+
+    private Path loadingGeneration;
+    private int loadingShardCount;
+
+    // Written by load() and the shard loaders, read on the save and UI threads.
+    private volatile Path damagedGeneration;
+    private volatile String recoveryNote;
+
+    public ShardedStore() {
+        this(StorePaths.resolve("shards"), DurabilityMode.configured());
+    }
+
+    public ShardedStore(Path rootDir, DurabilityMode durability) {
+        if (rootDir == null) throw new IllegalArgumentException("rootDir must not be null");
+        if (durability == null) throw new IllegalArgumentException("durability must not be null");
+        this.rootDir = rootDir;
+        this.durability = durability;
+    }
+
+    @Override
+    public boolean exists() {
+        return currentGeneration() != null;
+    }
+
+    // Loads playlists and the first page synchronously; the cost is independent of library size.
+    @Override
+    public boolean load(LibraryService library, PlaylistService playlists) {
+        damagedGeneration = null;
+        recoveryNote = null;
+        Path generation = currentGeneration();
+        if (generation == null) return false;
+
+        int shardCount = readManifest(generation);
+        if (shardCount < 0) {
+            markDamaged(generation, "Could not read the library manifest");
+            return false;
+        }
+
+        BinarySnapshotStore.Decoded meta = BinarySnapshotStore.decode(generation.resolve("playlists.bin"));
+        if (meta == null) markDamaged(generation, "Could not read the saved playlists");
+
+        BinarySnapshotStore.Decoded firstPage = (shardCount > 0)
+                ? BinarySnapshotStore.decode(generation.resolve(shardName(0)))
+                : null;
+        if (shardCount > 0 && firstPage == null) markDamaged(generation, "Could not read 1 block of songs");
+
+        library.loadLibrary(firstPage == null ? List.of() : firstPage.songs);
+        playlists.loadPlaylists(meta == null ? Map.of() : meta.playlists);
+
+        loadingGeneration = generation;
+        loadingShardCount = shardCount;
+        return true;
+    }
+
+    // Decodes the remaining shards in parallel and hands each block to sink, in library order, on deliverExecutor.
+    @Override
+    public CompletableFuture<Void> loadRemaining(Consumer<List<Song>> sink, Executor deliverExecutor) {
+        Path generation = loadingGeneration;
+        int shardCount = loadingShardCount;
+        loadingGeneration = null;
+
+        if (generation == null || shardCount <= 1) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        int threads = Math.max(1, Math.min(shardCount - 1, Runtime.getRuntime().availableProcessors()));
+        ExecutorService decoders = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "shard-loader");
+            t.setDaemon(true);
+            return t;
+        });
+
+        AtomicInteger unreadable = new AtomicInteger();
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (int i = 1; i < shardCount; i++) {
+            Path shard = generation.resolve(shardName(i));
+            CompletableFuture<List<Song>> block = CompletableFuture.supplyAsync(() -> {
+                BinarySnapshotStore.Decoded decoded = BinarySnapshotStore.decode(shard);
+                if (decoded != null) return decoded.songs;
+                unreadable.incrementAndGet();
+                return List.<Song>of();
+            }, decoders);
+
+            chain = chain.thenCompose(v -> block).thenAcceptAsync(sink, deliverExecutor);
+        }
+
+        return chain.whenComplete((v, err) -> {
+            decoders.shutdown();
+            if (unreadable.get() > 0) {
+                markDamaged(generation, "Could not read " + unreadable.get() + " block(s) of songs");
+            }
+        });
+    }
+
+    @Override
+    public String recoveryNote() {
+        return recoveryNote;
+    }
+
+    private synchronized void markDamaged(Path generation, String problem) {
+        damagedGeneration = generation;
+        String note = problem + "; the damaged copy will be kept as damaged-" + generation.getFileName() + ".";
+        recoveryNote = (recoveryNote == null) ? note : recoveryNote + " " + note;
+    }
+
+    @Override
+    public void save(List<Song> songs, Map<String, List<String>> playlists) {
+        List<Song> safeSongs = (songs == null) ? List.of() : songs;
+        Map<String, List<String>> safePlaylists = (playlists == null) ? Map.of() : playlists;
+
+        long stamp = System.currentTimeMillis();
+        while (Files.exists(rootDir.resolve("gen-" + stamp))) stamp++;
+
+        Path generation = rootDir.resolve("gen-" + stamp);
+        try {
+            Files.createDirectories(generation);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create shard directory: " + generation, e);
+        }
+
+        BinarySnapshotStore.encode(generation.resolve("playlists.bin"), List.of(), safePlaylists);
+
+        int shardCount = 0;
+        int from = 0;
+        while (from < safeSongs.size()) {
+            int size = (shardCount == 0) ? FIRST_PAGE_SIZE : BLOCK_SIZE;
+            int to = Math.min(safeSongs.size(), from + size);
+            BinarySnapshotStore.encode(generation.resolve(shardName(shardCount)), safeSongs.subList(from, to), Map.of());
+            shardCount++;
+            from = to;
+        }
+
+        writeManifest(generation, safeSongs.size(), shardCount);
+        syncGeneration(generation);
+        switchCurrent(generation);
+        setAsideDamaged();
+        deleteOtherGenerations(generation);
+    }
+
+    // Renames the generation the last load could not fully read out of the way of deleteOtherGenerations.
+    private void setAsideDamaged() {
+        Path damaged = damagedGeneration;
+        if (damaged == null) return;
+        try {
+            if (Files.isDirectory(damaged)) {
+                Files.move(damaged, damaged.resolveSibling("damaged-" + damaged.getFileName()));
+            }
+            damagedGeneration = null;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not set aside damaged shard generation: " + damaged, e);
+        }
+    }
+
+    private Path currentGeneration() {
+        Path current = rootDir.resolve("CURRENT");
+        if (!Files.exists(current)) return null;
+
+        try {
+            String name = Files.readString(current, StandardCharsets.UTF_8).trim();
+            Path generation = rootDir.resolve(name);
+            return Files.isDirectory(generation) ? generation : null;
+        } catch (IOException | InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private int readManifest(Path generation) {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(generation.resolve("manifest.bin")))) {
+            if (in.readInt() != MANIFEST_MAGIC) return -1;
+            if (in.readInt() != MANIFEST_VERSION) return -1;
+            in.readInt(); // total songs, informational
+            return in.readInt();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private void writeManifest(Path generation, int totalSongs, int shardCount) {
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(generation.resolve("manifest.bin")))) {
+            out.writeInt(MANIFEST_MAGIC);
+            out.writeInt(MANIFEST_VERSION);
+            out.writeInt(totalSongs);
+            out.writeInt(shardCount);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write shard manifest: " + generation, e);
+        }
+    }
+
+    // Every shard must be on disk before CURRENT can point at the generation.
+    private void syncGeneration(Path generation) {
+        if (durability == DurabilityMode.NONE) return;
+        try (Stream<Path> files = Files.list(generation)) {
+            for (Path file : (Iterable<Path>) files::iterator) durability.syncFile(file);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to sync shard generation: " + generation, e);
+        }
+        durability.syncDirectory(generation);
+    }
+
+    private void switchCurrent(Path generation) {
+        Path current = rootDir.resolve("CURRENT");
+        Path tmp = rootDir.resolve("CURRENT.tmp");
+        try {
+            Files.writeString(tmp, generation.getFileName().toString(), StandardCharsets.UTF_8);
+            StorePaths.replace(tmp, current, durability);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to switch shard generation: " + generation, e);
+        }
+    }
+
+    private void deleteOtherGenerations(Path keep) {
+        try (Stream<Path> dirs = Files.list(rootDir)) {
+            dirs.filter(Files::isDirectory)
+                    .filter(d -> d.getFileName().toString().startsWith("gen-"))
+                    .filter(d -> !d.equals(keep))
+                    .forEach(ShardedStore::deleteQuietly);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void deleteQuietly(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException ignored) {
+                }
+            });
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static String shardName(int index) {
+        return String.format("songs-%05d.bin", index);
+    }
+}
@@ -0,0 +1,50 @@
+package com.johnk.musicplayer.persistence;
+
+import com.johnk.musicplayer.service.LibraryService;
+import com.johnk.musicplayer.service.PlaylistService;
+
+// Copies a library between backends through throwaway services, so any store can feed any other.
+public final class StoreMigration {
+
+    private StoreMigration() {
+    }
+
+    public static void migrate(LibraryStore from, LibraryStore to) {
+        if (from == null || to == null) throw new IllegalArgumentException("stores must not be null");
+        if (!from.exists()) throw new IllegalStateException("Nothing to migrate: source store is empty");
+
+        LibraryService library = new LibraryService();
+        PlaylistService playlists = new PlaylistService();
+
+        // A journal can exist without a snapshot, so a failed load still goes on to attach().
+        from.load(library, playlists);
+        from.loadRemaining(library::appendLoaded, Runnable::run).join();
+        from.attach(library, playlists);
+
+        to.save(library.getAllSongs(), playlists.exportPlaylists());
+    }
+
+    // One-time upgrade path: fills a fresh target from the source when only the source has data.
+    public static boolean migrateIfEmpty(LibraryStore from, LibraryStore to) {
+        if (to.exists() || !from.exists()) return false;
+        migrate(from, to);
+        return true;
+    }
+
+    // Usage: StoreMigration <from> <to>, where each is one of json, binary, sharded, framed, h2.
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: StoreMigration <json|binary|sharded|framed|h2> <json|binary|sharded|framed|h2>");
+            System.exit(2);
+        }
+
+        LibraryStore from = LibraryStores.create(args[0]);
+        LibraryStore to = LibraryStores.create(args[1]);
+        try {
+            migrate(from, to);
+        } finally {
+            from.close();
+            to.close();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.johnk.musicplayer.persistence;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+public final class StorePaths {
+
+    private StorePaths() {
+    }
+
+    // -Dmusicplayer.home lets benchmarks and tooling point the store at a scratch directory.
+    public static Path dataDir() {
+        String override = System.getProperty("musicplayer.home");
+        if (override != null && !override.isBlank()) {
+            return Paths.get(override.trim());
+        }
+        return Paths.get(System.getProperty("user.home"), ".musicplayer");
+    }
+
+    public static Path resolve(String fileName) {
+        return dataDir().resolve(fileName);
+    }
+
+    // Moves a fully written temp file over target. Only a missing atomic-move capability falls back
+    // to a plain replace; any other failure propagates so the caller can report a failed save.
+    static void replace(Path tmp, Path target, DurabilityMode durability) throws IOException {
+        durability.syncFile(tmp);
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        durability.syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    // Keeps a copy of a damaged file next to it before it gets rewritten; returns null if that failed.
+    static Path setAside(Path file, String suffix) {
+        Path copy = file.resolveSibling(file.getFileName() + "." + suffix + "-" + System.currentTimeMillis());
+        try {
+            Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING);
+            return copy;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.johnk.musicplayer.player;
+
+import java.util.function.Supplier;
+
+import com.johnk.musicplayer.domain.Song;
+
+// One playback backend. Times are in milliseconds so engines need no UI toolkit; listener callbacks
+// arrive on whatever thread the engine uses internally and must be marshalled by the caller.
+public interface AudioEngine {
+
+    interface Listener {
+        default void onReady() {
+        }
+
+        default void onPlaying() {
+        }
+
+        default void onPaused() {
+        }
+
+        default void onStopped() {
+        }
+
+        default void onEndOfMedia() {
+        }
+
+        default void onError(RuntimeException error) {
+        }
+    }
+
+    boolean canPlay(Song song);
+
+    // Replaces whatever was loaded with song, positioned at startMillis, and starts it when play is set;
+    // otherwise it waits, paused, for resume().
+    void load(Song song, long startMillis, boolean play);
+
+    default void loadAndPlay(Song song, long startMillis) {
+        load(song, startMillis, true);
+    }
+
+    default void loadAndPlay(Song song) {
+        loadAndPlay(song, 0);
+    }
+
+    void pause();
+
+    void resume();
+
+    void stop();
+
+    // Releases the loaded track; the engine stays usable for the next loadAndPlay.
+    void unload();
+
+    // Releases everything, including threads and audio devices.
+    void dispose();
+
+    boolean hasMedia();
+
+    boolean isPlaying();
+
+    long positionMillis();
+
+    // Negative while unknown.
+    long durationMillis();
+
+    void seek(long millis);
+
+    void setListener(Listener listener);
+
+    // Gain for the track loaded next and the one playing now; 0 dB is unity. Engines that cannot
+    // amplify clamp positive gains.
+    default void setGainDb(double db) {
+    }
+
+    // Engines with slow start-up can prepare the track returned by supplier shortly before the current one ends.
+    default void setNextTrackSupplier(Supplier<Song> supplier) {
+    }
+}
@@ -2,133 +2,227 @@ package com.johnk.musicplayer.player;
 
 import javafx.application.Platform;
 import javafx.beans.property.ReadOnlyObjectProperty;
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaPlayer;
 import javafx.util.Duration;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
 
 import com.johnk.musicplayer.domain.Song;
 
+// UI-facing façade over the playback engines. -Dmusicplayer.audio.engine picks the backend:
+//   auto (default) uses the PCM engine for WAV and JavaFX for everything else; javafx or pcm force one.
+// Engine callbacks become PlaybackEvents on events(); subscribe once instead of per track.
 public class AudioPlayer {
 
-    private MediaPlayer mediaPlayer;
-    private Song currentSong;
+    private final String engineChoice =
+            System.getProperty("musicplayer.audio.engine", "auto").trim().toLowerCase(Locale.ROOT);
+
+    private JavaFxAudioEngine fxEngine;
+    private PcmAudioEngine pcmEngine;
+    private AudioEngine engine;
+
+    private final PlaybackEventBus events = new PlaybackEventBus();
+
+    // Every load gets the next number; events carry the number of the load that produced them, so a
+    // replay of the same Song can still tell its events from those of the previous play.
+    private long loads = 0;
+    private volatile long currentLoad = 0;
+    private volatile Song currentSong;
+    private Supplier<Song> nextTrackSupplier = () -> null;
+    private ToDoubleFunction<Song> gainSource = song -> 0;
+
+    public AudioPlayer() {
+        // A failed track is unloaded before anyone else hears about it.
+        events.subscribeErrors(event -> {
+            if (event.getLoad() == currentLoad) stopAndDispose();
+        }, Platform::runLater);
+    }
+
+    public PlaybackEventBus events() {
+        return events;
+    }
+
+    public void setNextTrackSupplier(Supplier<Song> supplier) {
+        this.nextTrackSupplier = (supplier == null) ? () -> null : supplier;
+    }
+
+    // Looked up once per track at load time, e.g. LoudnessService::gainDbFor.
+    public void setGainSource(ToDoubleFunction<Song> source) {
+        this.gainSource = (source == null) ? song -> 0 : source;
+    }
 
     public void loadAndPlay(Song song) {
+        loadAndPlay(song, 0);
+    }
+
+    // Starts song at startMillis, e.g. where the previous session left off.
+    public void loadAndPlay(Song song, long startMillis) {
+        load(song, startMillis, true);
+    }
+
+    // Loads song at startMillis without making a sound; resume() starts it, e.g. a session saved while paused.
+    public void loadPaused(Song song, long startMillis) {
+        load(song, startMillis, false);
+    }
+
+    private void load(Song song, long startMillis, boolean play) {
         if (song == null) {
             throw new IllegalArgumentException("No song selected.");
         }
 
-        Path filePath = Path.of(song.getPath());
-        if (!Files.exists(filePath)) {
-            throw new IllegalArgumentException("File not found: " + filePath);
-        }
-
-        stopAndDispose();
+        AudioEngine target = engineFor(song);
+        // Unloaded before the listener changes, so nothing the previous track still reports is tagged as this one.
+        if (engine != null) engine.unload();
 
-        String uri = filePath.toUri().toString();
-        Media media = new Media(uri);
-
-        mediaPlayer = new MediaPlayer(media);
+        long load = ++loads;
+        currentLoad = load;
         currentSong = song;
-
-        mediaPlayer.setOnError(() -> {
-            RuntimeException err = (mediaPlayer != null && mediaPlayer.getError() != null)
-                    ? mediaPlayer.getError()
-                    : new RuntimeException("Unknown MediaPlayer error");
-            stopAndDispose();
-            throw err;
-        });
-
-        mediaPlayer.play();
+        engine = target;
+        try {
+            target.setListener(listenerFor(song, load));
+            target.setGainDb(gainSource.applyAsDouble(song));
+            target.load(song, startMillis, play);
+        } catch (RuntimeException e) {
+            currentSong = null;
+            throw e;
+        }
     }
 
     public void pause() {
-        if (mediaPlayer != null) mediaPlayer.pause();
+        if (engine != null) engine.pause();
     }
 
     public void resume() {
-        if (mediaPlayer != null) mediaPlayer.play();
+        if (engine != null) engine.resume();
     }
 
     public void stop() {
-        if (mediaPlayer != null) mediaPlayer.stop();
+        if (engine != null) engine.stop();
     }
 
     public boolean isPlaying() {
-        return mediaPlayer != null && mediaPlayer.getStatus() == MediaPlayer.Status.PLAYING;
+        return engine != null && engine.isPlaying();
     }
 
     public Song getCurrentSong() {
         return currentSong;
     }
 
+    // The load whose events are still of interest; unchanged by stopAndDispose, so its error still matches.
+    public long currentLoad() {
+        return currentLoad;
+    }
+
+    // True for events of the track that is loaded right now.
+    public boolean isCurrent(PlaybackEvent event) {
+        return event.getLoad() == currentLoad && currentSong != null;
+    }
+
     public void stopAndDispose() {
-        if (mediaPlayer != null) {
-            try {
-                mediaPlayer.stop();
-            } finally {
-                mediaPlayer.dispose();
-                mediaPlayer = null;
-            }
-        }
+        if (engine != null) engine.unload();
         currentSong = null;
     }
 
+    // Releases both engines, including the prepared next track and the audio thread.
+    public void dispose() {
+        stopAndDispose();
+        if (fxEngine != null) fxEngine.dispose();
+        if (pcmEngine != null) pcmEngine.dispose();
+        engine = null;
+        events.shutdown();
+    }
+
     public boolean hasMedia() {
-        return mediaPlayer != null;
+        return engine != null && engine.hasMedia();
     }
 
     public Duration getCurrentTime() {
-        return (mediaPlayer == null) ? Duration.ZERO : mediaPlayer.getCurrentTime();
+        return (engine == null) ? Duration.ZERO : Duration.millis(engine.positionMillis());
     }
 
     public Duration getTotalDuration() {
-        if (mediaPlayer == null) return Duration.UNKNOWN;
-        Duration d = mediaPlayer.getTotalDuration();
-        return (d == null) ? Duration.UNKNOWN : d;
+        if (engine == null) return Duration.UNKNOWN;
+        long millis = engine.durationMillis();
+        return (millis < 0) ? Duration.UNKNOWN : Duration.millis(millis);
     }
 
+    // Only the JavaFX engine exposes a property; callers must cope with null.
     public ReadOnlyObjectProperty<Duration> currentTimeProperty() {
-        return (mediaPlayer == null) ? null : mediaPlayer.currentTimeProperty();
+        return (engine == fxEngine && fxEngine != null) ? fxEngine.currentTimeProperty() : null;
     }
 
     public void seek(Duration time) {
-        if (mediaPlayer == null || time == null) return;
-
-        if (Platform.isFxApplicationThread()) {
-            mediaPlayer.seek(time);
-        } else {
-            Platform.runLater(() -> {
-                if (mediaPlayer != null) mediaPlayer.seek(time);
-            });
-        }
+        if (engine == null || time == null) return;
+        engine.seek((long) time.toMillis());
     }
 
-    public void setOnEndOfMedia(Runnable r) {
-        if (mediaPlayer == null) return;
-        mediaPlayer.setOnEndOfMedia(r);
+    private AudioEngine engineFor(Song song) {
+        return usesPcm(song) ? pcmEngine() : fxEngine();
     }
 
-    public void setOnReady(Runnable r) {
-        if (mediaPlayer == null) return;
-        mediaPlayer.setOnReady(r);
+    private boolean usesPcm(Song song) {
+        return switch (engineChoice) {
+            case "pcm" -> true;
+            case "javafx" -> false;
+            default -> PcmAudioEngine.supports(song);
+        };
     }
 
-    public void setOnPlaying(Runnable r) {
-        if (mediaPlayer == null) return;
-        mediaPlayer.setOnPlaying(r);
+    private PcmAudioEngine pcmEngine() {
+        if (pcmEngine == null) {
+            pcmEngine = new PcmAudioEngine();
+        }
+        return pcmEngine;
     }
 
-    public void setOnPaused(Runnable r) {
-        if (mediaPlayer == null) return;
-        mediaPlayer.setOnPaused(r);
+    private JavaFxAudioEngine fxEngine() {
+        if (fxEngine == null) {
+            fxEngine = new JavaFxAudioEngine();
+            // Only tracks this engine will actually play are worth preparing.
+            fxEngine.setNextTrackSupplier(() -> {
+                Song next = nextTrackSupplier.get();
+                return (next != null && !usesPcm(next)) ? next : null;
+            });
+        }
+        return fxEngine;
     }
 
-    public void setOnStopped(Runnable r) {
-        if (mediaPlayer == null) return;
-        mediaPlayer.setOnStopped(r);
+    private AudioEngine.Listener listenerFor(Song song, long load) {
+        return new AudioEngine.Listener() {
+            @Override
+            public void onReady() {
+                publish(PlaybackEvent.Type.READY, null);
+            }
+
+            @Override
+            public void onPlaying() {
+                publish(PlaybackEvent.Type.PLAYING, null);
+            }
+
+            @Override
+            public void onPaused() {
+                publish(PlaybackEvent.Type.PAUSED, null);
+            }
+
+            @Override
+            public void onStopped() {
+                publish(PlaybackEvent.Type.STOPPED, null);
+            }
+
+            @Override
+            public void onEndOfMedia() {
+                publish(PlaybackEvent.Type.END_OF_MEDIA, null);
+            }
+
+            @Override
+            public void onError(RuntimeException error) {
+                publish(PlaybackEvent.Type.ERROR, error);
+            }
+
+            private void publish(PlaybackEvent.Type type, RuntimeException error) {
+                events.publish(new PlaybackEvent(type, song, load, error));
+            }
+        };
     }
 }
@@ -0,0 +1,274 @@
+package com.johnk.musicplayer.player;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+import javafx.util.Duration;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import com.johnk.musicplayer.domain.Song;
+
+// MediaPlayer-backed engine for every format JavaFX can decode. Must be driven from the FX thread;
+// its callbacks arrive there too.
+public class JavaFxAudioEngine implements AudioEngine {
+
+    // How long before the end of the current track the next one starts preparing.
+    private static final Duration PRELOAD_LEAD = Duration.millis(Long.getLong("musicplayer.preloadLeadMs", 8000));
+
+    private final ExecutorService preloader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "track-preloader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private MediaPlayer mediaPlayer;
+    private Listener listener = new Listener() { };
+    private double volume = 1.0;
+
+    // A start offset can only be applied once the player is READY, so play() waits for it too.
+    private boolean playWhenReady = false;
+
+    // Position a track loaded without playing reports until its player has reached READY and seeked.
+    private long startPending = -1;
+
+    // Prepared (READY, not playing) player for the track expected next; swapped in by load.
+    private MediaPlayer preloadedPlayer;
+    private Song preloadedSong;
+    private long preloadGeneration = 0;
+    private boolean preloadRequested = false;
+
+    private Supplier<Song> nextTrackSupplier = () -> null;
+    private final ChangeListener<Duration> preloadTrigger = (obs, oldTime, newTime) -> maybePreloadNext(newTime);
+
+    @Override
+    public boolean canPlay(Song song) {
+        return song != null;
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        this.listener = (listener == null) ? new Listener() { } : listener;
+    }
+
+    @Override
+    public void setNextTrackSupplier(Supplier<Song> supplier) {
+        this.nextTrackSupplier = (supplier == null) ? () -> null : supplier;
+    }
+
+    // MediaPlayer volume is linear and tops out at 1, so only attenuation takes effect.
+    @Override
+    public void setGainDb(double db) {
+        volume = Math.min(1.0, Math.pow(10, db / 20));
+        if (mediaPlayer != null) mediaPlayer.setVolume(volume);
+    }
+
+    @Override
+    public void load(Song song, long startMillis, boolean play) {
+        MediaPlayer prepared = takePreloaded(song);
+        if (prepared == null) {
+            Path filePath = Path.of(song.getPath());
+            if (!Files.exists(filePath)) {
+                throw new IllegalArgumentException("File not found: " + filePath);
+            }
+        }
+
+        unload();
+
+        MediaPlayer player = (prepared != null) ? prepared : createPlayer(song);
+        mediaPlayer = player;
+        startPending = -1;
+        preloadRequested = false;
+        player.setVolume(volume);
+
+        boolean ready = prepared != null && prepared.getStatus() == MediaPlayer.Status.READY;
+        playWhenReady = false;
+        // Callbacks the old player queued before it was disposed still reach the old listener.
+        Listener notify = listener;
+        player.setOnReady(() -> {
+            if (startMillis > 0) player.seek(Duration.millis(startMillis));
+            notify.onReady();
+            if (playWhenReady) {
+                playWhenReady = false;
+                player.play();
+            }
+        });
+        player.setOnPlaying(() -> notify.onPlaying());
+        player.setOnPaused(() -> notify.onPaused());
+        player.setOnStopped(() -> notify.onStopped());
+        player.setOnEndOfMedia(() -> notify.onEndOfMedia());
+        player.setOnError(() -> {
+            RuntimeException err = (player.getError() != null)
+                    ? player.getError()
+                    : new RuntimeException("Unknown MediaPlayer error");
+            notify.onError(err);
+        });
+        player.currentTimeProperty().addListener(preloadTrigger);
+
+        // A preloaded player already reached READY, so its onReady will not fire again.
+        if (ready) {
+            if (startMillis > 0) player.seek(Duration.millis(startMillis));
+            notify.onReady();
+        }
+
+        if (!play) {
+            startPending = startMillis;
+        } else if (startMillis > 0 && !ready) {
+            playWhenReady = true;
+        } else {
+            player.play();
+        }
+    }
+
+    @Override
+    public void pause() {
+        playWhenReady = false;
+        if (mediaPlayer != null) mediaPlayer.pause();
+    }
+
+    @Override
+    public void resume() {
+        if (mediaPlayer == null) return;
+        if (mediaPlayer.getStatus() == MediaPlayer.Status.UNKNOWN) {
+            playWhenReady = true;
+        } else {
+            mediaPlayer.play();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (mediaPlayer != null) mediaPlayer.stop();
+    }
+
+    @Override
+    public void unload() {
+        if (mediaPlayer != null) {
+            mediaPlayer.currentTimeProperty().removeListener(preloadTrigger);
+            try {
+                mediaPlayer.stop();
+            } finally {
+                mediaPlayer.dispose();
+                mediaPlayer = null;
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        unload();
+        discardPreloaded();
+        preloader.shutdownNow();
+    }
+
+    @Override
+    public boolean hasMedia() {
+        return mediaPlayer != null;
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return mediaPlayer != null && mediaPlayer.getStatus() == MediaPlayer.Status.PLAYING;
+    }
+
+    @Override
+    public long positionMillis() {
+        if (mediaPlayer == null) return 0;
+        if (startPending >= 0 && mediaPlayer.getStatus() == MediaPlayer.Status.UNKNOWN) return startPending;
+        return (long) mediaPlayer.getCurrentTime().toMillis();
+    }
+
+    @Override
+    public long durationMillis() {
+        if (mediaPlayer == null) return -1;
+        Duration d = mediaPlayer.getTotalDuration();
+        return (d == null || d.isUnknown() || d.isIndefinite()) ? -1 : (long) d.toMillis();
+    }
+
+    @Override
+    public void seek(long millis) {
+        if (mediaPlayer == null) return;
+
+        Duration time = Duration.millis(millis);
+        if (Platform.isFxApplicationThread()) {
+            mediaPlayer.seek(time);
+        } else {
+            Platform.runLater(() -> {
+                if (mediaPlayer != null) mediaPlayer.seek(time);
+            });
+        }
+    }
+
+    public ReadOnlyObjectProperty<Duration> currentTimeProperty() {
+        return (mediaPlayer == null) ? null : mediaPlayer.currentTimeProperty();
+    }
+
+    private static MediaPlayer createPlayer(Song song) {
+        return new MediaPlayer(new Media(Path.of(song.getPath()).toUri().toString()));
+    }
+
+    // FX thread. Fires once per track, as soon as the remaining time drops under PRELOAD_LEAD.
+    private void maybePreloadNext(Duration current) {
+        if (preloadRequested || mediaPlayer == null || current == null) return;
+
+        Duration total = mediaPlayer.getTotalDuration();
+        if (total == null || total.isUnknown() || total.isIndefinite()) return;
+        if (total.subtract(current).greaterThan(PRELOAD_LEAD)) return;
+
+        preloadRequested = true;
+        Song next = nextTrackSupplier.get();
+        if (next == null || !canPlay(next) || next.equals(preloadedSong)) return;
+
+        discardPreloaded();
+        long generation = ++preloadGeneration;
+
+        // Media parsing and player construction happen off the FX thread; only the hand-over runs on it.
+        preloader.execute(() -> {
+            if (!Files.exists(Path.of(next.getPath()))) return;
+
+            MediaPlayer player;
+            try {
+                player = createPlayer(next);
+            } catch (RuntimeException e) {
+                return; // load will report the problem if this track is actually played
+            }
+
+            Platform.runLater(() -> {
+                if (generation != preloadGeneration) {
+                    player.dispose();
+                    return;
+                }
+                preloadedPlayer = player;
+                preloadedSong = next;
+            });
+        });
+    }
+
+    private MediaPlayer takePreloaded(Song song) {
+        if (preloadedPlayer == null || !song.equals(preloadedSong)
+                || preloadedPlayer.getStatus() == MediaPlayer.Status.HALTED) {
+            discardPreloaded();
+            return null;
+        }
+
+        MediaPlayer player = preloadedPlayer;
+        preloadedPlayer = null;
+        preloadedSong = null;
+        return player;
+    }
+
+    private void discardPreloaded() {
+        preloadGeneration++;
+        if (preloadedPlayer != null) {
+            preloadedPlayer.dispose();
+            preloadedPlayer = null;
+        }
+        preloadedSong = null;
+    }
+}
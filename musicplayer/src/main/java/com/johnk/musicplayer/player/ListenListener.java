@@ -0,0 +1,14 @@
+package com.johnk.musicplayer.player;
+
+import com.johnk.musicplayer.domain.Song;
+
+// Listens as ListenTracker sees them. Every started track is followed by exactly one skipped or
+// completed call; listenedMillis counts time actually spent playing, not the track position.
+public interface ListenListener {
+
+    void started(Song song, long timeMillis);
+
+    void skipped(Song song, long timeMillis, long listenedMillis);
+
+    void completed(Song song, long timeMillis, long listenedMillis);
+}
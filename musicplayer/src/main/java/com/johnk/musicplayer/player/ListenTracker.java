@@ -0,0 +1,78 @@
+package com.johnk.musicplayer.player;
+
+import com.johnk.musicplayer.domain.Song;
+
+// Turns engine events into listens. A track starts the first time it reports PLAYING and ends when it
+// reaches END_OF_MEDIA (completed) or when anything else takes over, fails or the app closes (skipped).
+// Runs on the event bus thread with uncoalesced delivery, since every pause/resume matters here.
+public class ListenTracker {
+
+    private final ListenListener listener;
+    private final PlaybackEventBus.Subscription events;
+    private final PlaybackEventBus.Subscription errors;
+
+    // Guarded by this.
+    private Song current;
+    private long listenedMillis;
+    private long playingSince = -1;
+
+    public ListenTracker(PlaybackEventBus bus, ListenListener listener) {
+        if (bus == null) throw new IllegalArgumentException("bus must not be null");
+        if (listener == null) throw new IllegalArgumentException("listener must not be null");
+        this.listener = listener;
+        this.events = bus.subscribe(this::onEvent);
+        this.errors = bus.subscribeErrors(this::onEvent, Runnable::run);
+    }
+
+    // Ends the listen in progress as a skip. Call before the listener shuts down.
+    public synchronized void close() {
+        events.cancel();
+        errors.cancel();
+        finish(System.currentTimeMillis(), false);
+    }
+
+    private synchronized void onEvent(PlaybackEvent event) {
+        Song song = event.getSong();
+        if (song == null) return;
+        long now = event.getTimeMillis();
+
+        if (song != current) {
+            // Only PLAYING begins a listen; stray events from an engine being torn down are ignored.
+            if (event.getType() != PlaybackEvent.Type.PLAYING) return;
+            finish(now, false);
+            current = song;
+            listenedMillis = 0;
+            listener.started(song, now);
+        }
+
+        switch (event.getType()) {
+            case PLAYING -> {
+                if (playingSince < 0) playingSince = now;
+            }
+            case PAUSED, STOPPED -> pauseClock(now);
+            case END_OF_MEDIA -> finish(now, true);
+            case ERROR -> finish(now, false);
+            default -> {
+            }
+        }
+    }
+
+    private void pauseClock(long now) {
+        if (playingSince >= 0) {
+            listenedMillis += Math.max(0, now - playingSince);
+            playingSince = -1;
+        }
+    }
+
+    private void finish(long now, boolean completed) {
+        if (current == null) return;
+        pauseClock(now);
+        Song song = current;
+        current = null;
+        if (completed) {
+            listener.completed(song, now, listenedMillis);
+        } else {
+            listener.skipped(song, now, listenedMillis);
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package com.johnk.musicplayer.player;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.FloatControl;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+import com.johnk.musicplayer.domain.Song;
+
+// Plays uncompressed WAV straight from a FileChannel through javax.sound.sampled, with no UI toolkit.
+// A single "pcm-audio" thread owns the line: it tops up a preallocated ring buffer from the file and
+// feeds the line in small periods, so start and seek only cost a header parse and one read.
+public class PcmAudioEngine implements AudioEngine {
+
+    private static final int RING_BYTES = 1 << 18;
+    private static final int LINE_BUFFER_MILLIS = 40;
+    private static final long IDLE_RETRY_MILLIS = 10;
+
+    private final Object lock = new Object();
+    private final byte[] ring = new byte[RING_BYTES];
+    private final ByteBuffer ringView = ByteBuffer.wrap(ring);
+    private final Thread audioThread;
+
+    // Guarded by lock.
+    private int readPos = 0;
+    private int fill = 0;
+    private long epoch = 0;
+    private boolean playing = false;
+    private boolean running = true;
+    private boolean sourceDone = false;
+
+    private FileChannel channel;
+    private WavInfo wav;
+    private SourceDataLine line;
+    private long baseFrame = 0;
+    private double gainDb = 0;
+
+    private volatile Listener listener = new Listener() { };
+
+    public PcmAudioEngine() {
+        audioThread = new Thread(this::runAudio, "pcm-audio");
+        audioThread.setDaemon(true);
+        audioThread.setPriority(Thread.MAX_PRIORITY);
+        audioThread.start();
+    }
+
+    @Override
+    public boolean canPlay(Song song) {
+        return supports(song);
+    }
+
+    public static boolean supports(Song song) {
+        return song != null && song.getPath().toLowerCase(Locale.ROOT).endsWith(".wav");
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        this.listener = (listener == null) ? new Listener() { } : listener;
+    }
+
+    @Override
+    public void setGainDb(double db) {
+        synchronized (lock) {
+            gainDb = db;
+            applyGainLocked();
+        }
+    }
+
+    @Override
+    public void load(Song song, long startMillis, boolean play) {
+        Path file = Path.of(song.getPath());
+        if (!Files.exists(file)) {
+            throw new IllegalArgumentException("File not found: " + file);
+        }
+
+        FileChannel next;
+        WavInfo info;
+        try {
+            next = FileChannel.open(file, StandardOpenOption.READ);
+            info = WavInfo.parse(next);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read audio file: " + file, e);
+        }
+        if (info == null) {
+            closeQuietly(next);
+            throw new IllegalArgumentException("Not a PCM WAV file: " + file);
+        }
+
+        RuntimeException failure;
+        synchronized (lock) {
+            haltLocked();
+            closeQuietly(channel);
+
+            try {
+                openLineLocked(info.format);
+            } catch (LineUnavailableException | IllegalArgumentException e) {
+                closeQuietly(next);
+                channel = null;
+                wav = null;
+                throw new IllegalArgumentException("Audio format not supported by this system: " + info.format, e);
+            }
+
+            applyGainLocked();
+            channel = next;
+            wav = info;
+            long startFrame = (long) (Math.max(0, startMillis) / 1000.0 * info.format.getFrameRate());
+            positionLocked(Math.min(startFrame, info.totalFrames()));
+            failure = fillLocked();
+
+            if (play) {
+                playing = true;
+                line.start();
+                lock.notifyAll();
+            }
+        }
+
+        listener.onReady();
+        if (play) listener.onPlaying();
+        if (failure != null) listener.onError(failure);
+    }
+
+    @Override
+    public void pause() {
+        synchronized (lock) {
+            if (!playing) return;
+            playing = false;
+            line.stop();
+        }
+        listener.onPaused();
+    }
+
+    @Override
+    public void resume() {
+        synchronized (lock) {
+            if (playing || wav == null) return;
+            // Paused while the last bytes drained: the loop finishes the track once it is playing again.
+            playing = true;
+            line.start();
+            lock.notifyAll();
+        }
+        listener.onPlaying();
+    }
+
+    @Override
+    public void stop() {
+        synchronized (lock) {
+            if (wav == null) return;
+            haltLocked();
+            positionLocked(0);
+        }
+        listener.onStopped();
+    }
+
+    @Override
+    public void unload() {
+        synchronized (lock) {
+            haltLocked();
+            closeQuietly(channel);
+            channel = null;
+            wav = null;
+        }
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (lock) {
+            unload();
+            running = false;
+            if (line != null) {
+                line.close();
+                line = null;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public boolean hasMedia() {
+        synchronized (lock) {
+            return wav != null;
+        }
+    }
+
+    @Override
+    public boolean isPlaying() {
+        synchronized (lock) {
+            return playing;
+        }
+    }
+
+    @Override
+    public long positionMillis() {
+        synchronized (lock) {
+            if (wav == null || line == null) return 0;
+            long frame = baseFrame + line.getLongFramePosition();
+            return (long) (Math.min(frame, wav.totalFrames()) * 1000.0 / wav.format.getFrameRate());
+        }
+    }
+
+    @Override
+    public long durationMillis() {
+        synchronized (lock) {
+            return (wav == null) ? -1 : (long) (wav.totalFrames() * 1000.0 / wav.format.getFrameRate());
+        }
+    }
+
+    @Override
+    public void seek(long millis) {
+        RuntimeException failure;
+        synchronized (lock) {
+            if (wav == null) return;
+            long frame = (long) (Math.max(0, millis) / 1000.0 * wav.format.getFrameRate());
+            boolean wasPlaying = playing;
+            if (wasPlaying) line.stop();
+            line.flush();
+            positionLocked(Math.min(frame, wav.totalFrames()));
+            failure = fillLocked();
+            if (wasPlaying) line.start();
+        }
+        if (failure != null) listener.onError(failure);
+    }
+
+    private void runAudio() {
+        while (true) {
+            SourceDataLine target;
+            int offset;
+            int length;
+            long writeEpoch;
+            boolean ended;
+            RuntimeException failure;
+            Listener notify;
+
+            synchronized (lock) {
+                while (running && !playing) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running) return;
+
+                failure = fillLocked();
+                ended = (fill == 0 && sourceDone);
+                if (failure == null && fill == 0 && !sourceDone) {
+                    // The file gave nothing this time (a read returned 0); try again shortly instead of spinning.
+                    try {
+                        lock.wait(IDLE_RETRY_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    continue;
+                }
+
+                target = line;
+                offset = readPos;
+                length = ended ? 0 : Math.min(Math.min(fill, RING_BYTES - readPos), periodBytesLocked());
+                writeEpoch = epoch;
+                // Read with the epoch: a new track is only installed after the old one was unloaded under the lock.
+                notify = listener;
+            }
+
+            // Listeners may call straight back into the engine, so they never run under the lock.
+            if (failure != null) notify.onError(failure);
+            if (ended) {
+                if (finish(target, writeEpoch)) notify.onEndOfMedia();
+                continue;
+            }
+
+            // Outside the lock: write() blocks until the line has room, and stop()/flush() wake it early.
+            int written;
+            try {
+                written = target.write(ring, offset, length);
+            } catch (RuntimeException e) {
+                written = 0;
+            }
+
+            synchronized (lock) {
+                // A seek, stop or new track reset the ring while we were writing; the old bytes are void.
+                if (epoch != writeEpoch) continue;
+                readPos = (readPos + written) % RING_BYTES;
+                fill -= written;
+            }
+        }
+    }
+
+    // Audio thread: lets the line play out its last few milliseconds, then rewinds. drain() blocks, so it
+    // runs outside the lock; pause, seek and stop stop the line, which ends the drain early. Returns
+    // false when one of them got in first and the track has not really ended.
+    private boolean finish(SourceDataLine target, long drainEpoch) {
+        try {
+            target.drain();
+        } catch (RuntimeException ignored) {
+        }
+        synchronized (lock) {
+            if (epoch != drainEpoch || !playing || line != target) return false;
+            playing = false;
+            line.stop();
+            positionLocked(0);
+            return true;
+        }
+    }
+
+    private void openLineLocked(AudioFormat format) throws LineUnavailableException {
+        if (line != null && line.getFormat().matches(format)) {
+            line.flush();
+            return;
+        }
+        if (line != null) line.close();
+        line = null;
+
+        SourceDataLine opened = AudioSystem.getSourceDataLine(format);
+        int frameSize = format.getFrameSize();
+        int bytes = (int) (format.getFrameRate() * LINE_BUFFER_MILLIS / 1000) * frameSize;
+        opened.open(format, Math.max(bytes, frameSize * 256));
+        line = opened;
+    }
+
+    // Mixers without a gain control play at unity rather than pay for scaling every sample.
+    private void applyGainLocked() {
+        if (line == null || !line.isControlSupported(FloatControl.Type.MASTER_GAIN)) return;
+        FloatControl control = (FloatControl) line.getControl(FloatControl.Type.MASTER_GAIN);
+        control.setValue((float) Math.max(control.getMinimum(), Math.min(control.getMaximum(), gainDb)));
+    }
+
+    private void haltLocked() {
+        epoch++;
+        playing = false;
+        if (line != null) {
+            line.stop();
+            line.flush();
+        }
+    }
+
+    // Moves the file position to frame and empties the ring; the caller refills.
+    private void positionLocked(long frame) {
+        epoch++;
+        readPos = 0;
+        fill = 0;
+        sourceDone = false;
+        baseFrame = frame - (line == null ? 0 : line.getLongFramePosition());
+        try {
+            channel.position(wav.dataOffset + frame * wav.format.getFrameSize());
+        } catch (IOException e) {
+            sourceDone = true;
+        }
+    }
+
+    // Returns the read failure, if any, for the caller to report once it has released the lock.
+    private RuntimeException fillLocked() {
+        if (sourceDone || channel == null) return null;
+
+        try {
+            while (fill < RING_BYTES) {
+                int writePos = (readPos + fill) % RING_BYTES;
+                int space = Math.min(RING_BYTES - fill, RING_BYTES - writePos);
+                long remaining = wav.dataEnd - channel.position();
+                if (remaining <= 0) {
+                    sourceDone = true;
+                    return null;
+                }
+
+                ringView.limit(writePos + (int) Math.min(space, remaining)).position(writePos);
+                int n = channel.read(ringView);
+                if (n < 0) {
+                    sourceDone = true;
+                    return null;
+                }
+                if (n == 0) return null;
+                fill += n;
+            }
+            return null;
+        } catch (IOException e) {
+            sourceDone = true;
+            return new RuntimeException("Failed to read audio data", e);
+        }
+    }
+
+    private int periodBytesLocked() {
+        int frameSize = wav.format.getFrameSize();
+        int period = Math.max(frameSize, line.getBufferSize() / 4);
+        return period - (period % frameSize);
+    }
+
+    private static void closeQuietly(FileChannel ch) {
+        if (ch == null) return;
+        try {
+            ch.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    // RIFF/WAVE header: fmt chunk gives the format, data chunk gives where the samples are.
+    private static final class WavInfo {
+        final AudioFormat format;
+        final long dataOffset;
+        final long dataEnd;
+
+        WavInfo(AudioFormat format, long dataOffset, long dataEnd) {
+            this.format = format;
+            this.dataOffset = dataOffset;
+            this.dataEnd = dataEnd;
+        }
+
+        long totalFrames() {
+            return (dataEnd - dataOffset) / format.getFrameSize();
+        }
+
+        static WavInfo parse(FileChannel ch) throws IOException {
+            ByteBuffer head = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            if (ch.read(head, 0) < 12) return null;
+            if (head.getInt(0) != 0x46464952 || head.getInt(8) != 0x45564157) return null; // "RIFF", "WAVE"
+
+            AudioFormat format = null;
+            long pos = 12;
+            long size = ch.size();
+            ByteBuffer chunk = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+
+            while (pos + 8 <= size) {
+                chunk.clear().limit(8);
+                if (ch.read(chunk, pos) < 8) return null;
+                int id = chunk.getInt(0);
+                long length = Integer.toUnsignedLong(chunk.getInt(4));
+                long body = pos + 8;
+
+                if (id == 0x20746D66) { // "fmt "
+                    chunk.clear().limit((int) Math.min(40, length));
+                    ch.read(chunk, body);
+                    format = toFormat(chunk, length);
+                    if (format == null) return null;
+                } else if (id == 0x61746164) { // "data"
+                    if (format == null) return null;
+                    long end = Math.min(size, body + length);
+                    return new WavInfo(format, body, end);
+                }
+                pos = body + length + (length & 1);
+            }
+            return null;
+        }
+
+        private static AudioFormat toFormat(ByteBuffer fmt, long length) {
+            if (length < 16) return null;
+
+            int tag = fmt.getShort(0) & 0xFFFF;
+            int channels = fmt.getShort(2);
+            int sampleRate = fmt.getInt(4);
+            int blockAlign = fmt.getShort(12);
+            int bits = fmt.getShort(14);
+            if (tag == 0xFFFE && length >= 26) tag = fmt.getShort(24) & 0xFFFF; // WAVE_FORMAT_EXTENSIBLE sub-format
+
+            AudioFormat.Encoding encoding;
+            if (tag == 1) {
+                encoding = (bits <= 8) ? AudioFormat.Encoding.PCM_UNSIGNED : AudioFormat.Encoding.PCM_SIGNED;
+            } else if (tag == 3) {
+                encoding = AudioFormat.Encoding.PCM_FLOAT;
+            } else {
+                return null;
+            }
+            if (channels <= 0 || sampleRate <= 0 || blockAlign <= 0) return null;
+
+            return new AudioFormat(encoding, sampleRate, bits, channels, blockAlign, sampleRate, false);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.johnk.musicplayer.player;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+// Immutable list as a size-annotated AVL tree. Every update copies only the O(log n) nodes on its
+// path and shares the rest with the previous version, so holding on to an old version (a snapshot)
+// is free and never sees later changes.
+// A tree made by wrap() starts as one slice node over the caller's list: conceptually the balanced
+// tree of() would build, but each slice is split into two halves and a middle node only when an update
+// walks into it. Reads go straight to the wrapped list.
+public final class PersistentList<E> {
+
+    private static final PersistentList<?> EMPTY = new PersistentList<>(null);
+
+    private final Node<E> root;
+
+    private PersistentList(Node<E> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentList<E> empty() {
+        return (PersistentList<E>) EMPTY;
+    }
+
+    // O(n): builds a perfectly balanced tree directly instead of n inserts.
+    public static <E> PersistentList<E> of(List<? extends E> items) {
+        if (items == null || items.isEmpty()) return empty();
+        return new PersistentList<>(build(items, 0, items.size()));
+    }
+
+    // O(1): shares items instead of copying them, so items must never change afterwards (e.g. a
+    // LibraryService.getAllSongs() snapshot). Each update expands O(log n) slices along its path.
+    public static <E> PersistentList<E> wrap(List<? extends E> items) {
+        if (items == null || items.isEmpty()) return empty();
+        return new PersistentList<>(slice(items, 0, items.size()));
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public E get(int index) {
+        checkIndex(index, size());
+        return get(root, index);
+    }
+
+    private static <E> E get(Node<E> n, int index) {
+        while (true) {
+            if (n.items != null) return n.items.get(n.from + index);
+            int leftSize = size(n.left);
+            if (index < leftSize) {
+                n = n.left;
+            } else if (index == leftSize) {
+                return n.value;
+            } else {
+                index -= leftSize + 1;
+                n = n.right;
+            }
+        }
+    }
+
+    public PersistentList<E> insert(int index, E value) {
+        checkIndex(index, size() + 1);
+        return new PersistentList<>(insert(root, index, value));
+    }
+
+    public PersistentList<E> add(E value) {
+        return insert(size(), value);
+    }
+
+    public PersistentList<E> remove(int index) {
+        checkIndex(index, size());
+        return new PersistentList<>(remove(root, index));
+    }
+
+    public PersistentList<E> move(int from, int to) {
+        checkIndex(from, size());
+        checkIndex(to, size());
+        if (from == to) return this;
+        E value = get(from);
+        return remove(from).insert(to, value);
+    }
+
+    // Read-only List view of this version; O(1) to create, iteration is O(n).
+    public List<E> asList() {
+        return new View<>(this);
+    }
+
+    private static <E> Node<E> build(List<? extends E> items, int from, int to) {
+        if (from >= to) return null;
+        int mid = (from + to) >>> 1;
+        return node(build(items, from, mid), items.get(mid), build(items, mid + 1, to));
+    }
+
+    private static <E> Node<E> insert(Node<E> n, int index, E value) {
+        if (n == null) return node(null, value, null);
+        n = expand(n);
+        int leftSize = size(n.left);
+        if (index <= leftSize) return balance(insert(n.left, index, value), n.value, n.right);
+        return balance(n.left, n.value, insert(n.right, index - leftSize - 1, value));
+    }
+
+    private static <E> Node<E> remove(Node<E> n, int index) {
+        n = expand(n);
+        int leftSize = size(n.left);
+        if (index < leftSize) return balance(remove(n.left, index), n.value, n.right);
+        if (index > leftSize) return balance(n.left, n.value, remove(n.right, index - leftSize - 1));
+
+        if (n.left == null) return n.right;
+        if (n.right == null) return n.left;
+        // Replace with the first element of the right subtree.
+        return balance(n.left, get(n.right, 0), remove(n.right, 0));
+    }
+
+    private static <E> Node<E> balance(Node<E> left, E value, Node<E> right) {
+        int lh = height(left);
+        int rh = height(right);
+        if (lh > rh + 1) {
+            left = expand(left);
+            if (height(left.left) >= height(left.right)) {
+                return node(left.left, left.value, node(left.right, value, right));
+            }
+            Node<E> lr = expand(left.right);
+            return node(node(left.left, left.value, lr.left), lr.value, node(lr.right, value, right));
+        }
+        if (rh > lh + 1) {
+            right = expand(right);
+            if (height(right.right) >= height(right.left)) {
+                return node(node(left, value, right.left), right.value, right.right);
+            }
+            Node<E> rl = expand(right.left);
+            return node(node(left, value, rl.left), rl.value, node(rl.right, right.value, right.right));
+        }
+        return node(left, value, right);
+    }
+
+    private static <E> Node<E> node(Node<E> left, E value, Node<E> right) {
+        return new Node<>(left, value, right);
+    }
+
+    private static <E> Node<E> slice(List<? extends E> items, int from, int to) {
+        return (from >= to) ? null : new Node<>(items, from, to - from);
+    }
+
+    // Splits a slice the way build() would, so heights stay those of a balanced tree; other nodes pass through.
+    private static <E> Node<E> expand(Node<E> n) {
+        if (n == null || n.items == null) return n;
+        int to = n.from + n.size;
+        int mid = (n.from + to) >>> 1;
+        return node(slice(n.items, n.from, mid), n.items.get(mid), slice(n.items, mid + 1, to));
+    }
+
+    private static int size(Node<?> n) {
+        return (n == null) ? 0 : n.size;
+    }
+
+    private static int height(Node<?> n) {
+        return (n == null) ? 0 : n.height;
+    }
+
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + bound);
+        }
+    }
+
+    // Either an inner node, or (items != null) a leaf standing for items[from, from + size).
+    private static final class Node<E> {
+        final Node<E> left;
+        final Node<E> right;
+        final E value;
+        final int size;
+        final int height;
+        final List<? extends E> items;
+        final int from;
+
+        Node(Node<E> left, E value, Node<E> right) {
+            this.left = left;
+            this.right = right;
+            this.value = value;
+            this.size = size(left) + size(right) + 1;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.items = null;
+            this.from = 0;
+        }
+
+        Node(List<? extends E> items, int from, int size) {
+            this.left = null;
+            this.right = null;
+            this.value = null;
+            this.size = size;
+            // Height of the tree build() makes for size elements.
+            this.height = 32 - Integer.numberOfLeadingZeros(size);
+            this.items = items;
+            this.from = from;
+        }
+    }
+
+    private static final class View<E> extends AbstractList<E> implements RandomAccess {
+        private final PersistentList<E> list;
+
+        View(PersistentList<E> list) {
+            this.list = list;
+        }
+
+        @Override
+        public E get(int index) {
+            return list.get(index);
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+
+        // In-order walk with an explicit stack, so a full pass is O(n) rather than n lookups. Slices are
+        // read straight from their list.
+        @Override
+        public Iterator<E> iterator() {
+            ArrayDeque<Node<E>> stack = new ArrayDeque<>();
+            for (Node<E> n = list.root; n != null; n = n.left) stack.push(n);
+            return new Iterator<>() {
+                private Node<E> slice;
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return slice != null || !stack.isEmpty();
+                }
+
+                @Override
+                public E next() {
+                    if (slice == null) {
+                        if (stack.isEmpty()) throw new NoSuchElementException();
+                        Node<E> n = stack.pop();
+                        for (Node<E> c = n.right; c != null; c = c.left) stack.push(c);
+                        if (n.items == null) return n.value;
+                        slice = n;
+                        next = 0;
+                    }
+                    E value = slice.items.get(slice.from + next++);
+                    if (next == slice.size) slice = null;
+                    return value;
+                }
+            };
+        }
+    }
+}
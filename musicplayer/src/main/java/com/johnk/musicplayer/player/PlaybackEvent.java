@@ -0,0 +1,56 @@
+package com.johnk.musicplayer.player;
+
+import com.johnk.musicplayer.domain.Song;
+
+// Something the active engine reported, tagged with the track it concerns and the load of that track
+// (see AudioPlayer.isCurrent). error is set only for ERROR.
+public final class PlaybackEvent {
+
+    public enum Type {
+        READY, PLAYING, PAUSED, STOPPED, END_OF_MEDIA, ERROR;
+
+        // Transport states: only the latest of a run matters to someone catching up.
+        boolean isState() {
+            return this == PLAYING || this == PAUSED || this == STOPPED;
+        }
+    }
+
+    private final Type type;
+    private final Song song;
+    private final long load;
+    private final RuntimeException error;
+    private final long timeMillis;
+
+    PlaybackEvent(Type type, Song song, long load, RuntimeException error) {
+        this.type = type;
+        this.song = song;
+        this.load = load;
+        this.error = error;
+        this.timeMillis = System.currentTimeMillis();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Song getSong() {
+        return song;
+    }
+
+    public long getLoad() {
+        return load;
+    }
+
+    public RuntimeException getError() {
+        return error;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + song;
+    }
+}
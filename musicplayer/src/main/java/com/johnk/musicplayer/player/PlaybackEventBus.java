@@ -0,0 +1,140 @@
+package com.johnk.musicplayer.player;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+// Fans playback events out to subscribers from a single "playback-events" thread, so engines never
+// wait on a slow consumer and every subscriber sees events in the order they were published.
+// Subscribers with an executor (the UI passes Platform::runLater) get coalesced delivery: at most one
+// task is pending per subscriber, and a run of transport states collapses to the latest one.
+// Errors go only to the error channel, and are never coalesced.
+public class PlaybackEventBus {
+
+    public interface Subscription {
+        void cancel();
+    }
+
+    private final BlockingQueue<PlaybackEvent> queue = new LinkedBlockingQueue<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Thread dispatcher;
+
+    public PlaybackEventBus() {
+        dispatcher = new Thread(this::dispatchLoop, "playback-events");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    // Handler runs on the dispatch thread and must not block it.
+    public Subscription subscribe(Consumer<PlaybackEvent> handler) {
+        return add(new Subscriber(handler, null, false));
+    }
+
+    public Subscription subscribe(Consumer<PlaybackEvent> handler, Executor executor) {
+        return add(new Subscriber(handler, executor, false));
+    }
+
+    public Subscription subscribeErrors(Consumer<PlaybackEvent> handler, Executor executor) {
+        return add(new Subscriber(handler, executor, true));
+    }
+
+    void publish(PlaybackEvent event) {
+        queue.add(event);
+    }
+
+    public void shutdown() {
+        dispatcher.interrupt();
+        subscribers.clear();
+    }
+
+    private Subscription add(Subscriber subscriber) {
+        if (subscriber.handler == null) throw new IllegalArgumentException("handler must not be null");
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    private void dispatchLoop() {
+        while (true) {
+            PlaybackEvent event;
+            try {
+                event = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            boolean isError = event.getType() == PlaybackEvent.Type.ERROR;
+            for (Subscriber s : subscribers) {
+                if (s.errorsOnly != isError) continue;
+                try {
+                    s.offer(event);
+                } catch (RuntimeException e) {
+                    report(e);
+                }
+            }
+        }
+    }
+
+    // One broken subscriber must not silence the others, stall its queue or kill the thread.
+    private static void report(RuntimeException e) {
+        Thread t = Thread.currentThread();
+        t.getUncaughtExceptionHandler().uncaughtException(t, e);
+    }
+
+    private final class Subscriber {
+        final Consumer<PlaybackEvent> handler;
+        final Executor executor;
+        final boolean errorsOnly;
+
+        // Guarded by this; only used with an executor.
+        private final ArrayDeque<PlaybackEvent> pending = new ArrayDeque<>();
+        private boolean scheduled = false;
+
+        Subscriber(Consumer<PlaybackEvent> handler, Executor executor, boolean errorsOnly) {
+            this.handler = handler;
+            this.executor = executor;
+            this.errorsOnly = errorsOnly;
+        }
+
+        void offer(PlaybackEvent event) {
+            if (executor == null) {
+                handler.accept(event);
+                return;
+            }
+
+            synchronized (this) {
+                PlaybackEvent last = pending.peekLast();
+                if (last != null && last.getType().isState() && event.getType().isState()
+                        && last.getSong() == event.getSong()) {
+                    pending.pollLast();
+                }
+                pending.addLast(event);
+                if (scheduled) return;
+                scheduled = true;
+            }
+            executor.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                PlaybackEvent event;
+                synchronized (this) {
+                    event = pending.pollFirst();
+                    if (event == null) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                if (!subscribers.contains(this)) continue;
+                try {
+                    handler.accept(event);
+                } catch (RuntimeException e) {
+                    report(e);
+                }
+            }
+        }
+    }
+}
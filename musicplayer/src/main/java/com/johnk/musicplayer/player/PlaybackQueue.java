@@ -1,58 +1,309 @@
 package com.johnk.musicplayer.player;
 
-import java.util.Collections;
 import java.util.List;
+import java.util.SplittableRandom;
 
 import com.johnk.musicplayer.domain.Song;
 
+// What plays next. Two persistent lists, both owned by the queue:
+//   context  a snapshot of the view playback started from; the UI can re-filter or switch views freely
+//   up next  songs queued by hand ("play next", "add to queue"), played before the context continues
+// Both are structurally shared trees, so queue edits are O(log n) and snapshot()/upNext() are O(1).
+//
+// Context order supports shuffle and repeat.
+// Shuffle is a Fisher-Yates permutation drawn one position at a time as playback reaches it. order and
+// its inverse start out as all zeros, which reads as the identity, so enabling shuffle on a huge queue
+// costs one zeroed allocation and every later draw is O(1) without allocating. Repeat-all replays the
+// same shuffled order; toggling shuffle draws a new one. prev() in shuffle mode walks a bounded history
+// of what actually played, so it returns to the previous track rather than a neighbour in the list.
 public class PlaybackQueue {
 
-    private List<Song> songs = Collections.emptyList();
+    private static final int HISTORY_CAPACITY = 256;
+
+    private PersistentList<Song> songs = PersistentList.empty();
+    private PersistentList<Song> upNext = PersistentList.empty();
     private int currentIndex = -1;
 
+    // Non-null while an up-next song is playing; currentIndex then still marks where the context resumes.
+    private Song queuedCurrent;
+
+    private RepeatMode repeat = RepeatMode.OFF;
+    private boolean shuffle = false;
+    private final SplittableRandom random = new SplittableRandom();
+
+    // Shuffle state; both arrays store value + 1 so that 0 means "untouched, maps to itself".
+    private int[] order;
+    private int[] position;
+    private int drawn = 0;
+    private int pos = -1;
+
+    private final int[] history = new int[HISTORY_CAPACITY];
+    private int historyHead = 0;
+    private int historySize = 0;
+
+    // Copies songs into the queue's own list; later changes to the caller's list do not affect playback.
     public void setQueue(List<Song> songs) {
-        this.songs = (songs == null) ? Collections.emptyList() : songs;
+        replaceContext(PersistentList.of(songs));
+    }
+
+    // O(1) whatever the size: shares snapshot instead of copying it, so it must be a list that never
+    // changes, such as LibraryService.getAllSongs() or a view over one.
+    public void setQueueSnapshot(List<Song> snapshot) {
+        replaceContext(PersistentList.wrap(snapshot));
+    }
+
+    private void replaceContext(PersistentList<Song> context) {
+        this.songs = context;
         currentIndex = -1;
+        queuedCurrent = null;
+        historySize = 0;
+        if (shuffle) resetShuffle();
+    }
+
+    // Drops the context and everything queued by hand.
+    public void clear() {
+        setQueue(null);
+        upNext = PersistentList.empty();
+    }
+
+    // Rebuilds a saved queue. queuedCurrent is the hand-queued song that was playing, or null.
+    public void restore(List<Song> context, int index, List<Song> queued, Song queuedCurrent) {
+        setQueue(context);
+        upNext = PersistentList.of(queued);
+        if (index >= 0 && index < songs.size()) {
+            playAt(index);
+        }
+        this.queuedCurrent = queuedCurrent;
+    }
+
+    public boolean isPlayingQueued() {
+        return queuedCurrent != null;
+    }
+
+    public void playNext(Song song) {
+        if (song != null) upNext = upNext.insert(0, song);
+    }
+
+    public void enqueue(Song song) {
+        if (song != null) upNext = upNext.add(song);
+    }
+
+    public void removeFromUpNext(int index) {
+        upNext = upNext.remove(index);
+    }
+
+    public void moveInUpNext(int from, int to) {
+        upNext = upNext.move(from, to);
+    }
+
+    public List<Song> upNext() {
+        return upNext.asList();
+    }
+
+    public List<Song> snapshot() {
+        return songs.asList();
+    }
+
+    public Song getCurrent() {
+        if (queuedCurrent != null) return queuedCurrent;
+        return (currentIndex >= 0 && currentIndex < songs.size()) ? songs.get(currentIndex) : null;
     }
 
     public Song playAt(int index) {
         // allow "no selection"
         if (index < 0) {
             currentIndex = -1;
+            pos = -1;
             return null;
         }
         if (index >= songs.size()) {
             return null;
         }
+        if (index == currentIndex && queuedCurrent == null) return songs.get(index);
+
+        if (queuedCurrent == null) remember(currentIndex);
+        queuedCurrent = null;
         currentIndex = index;
+        if (shuffle) pos = placeDrawn(index);
         return songs.get(currentIndex);
     }
 
+    // Explicit skip: ignores repeat-one.
     public Song next() {
-        if (!hasNext()) return null;
-        currentIndex++;
+        if (!upNext.isEmpty()) {
+            if (queuedCurrent == null) remember(currentIndex);
+            queuedCurrent = upNext.get(0);
+            upNext = upNext.remove(0);
+            return queuedCurrent;
+        }
+
+        int next = nextIndex();
+        if (next < 0) return null;
+        if (queuedCurrent == null) remember(currentIndex);
+        queuedCurrent = null;
+        moveTo(next);
         return songs.get(currentIndex);
     }
 
+    // What follows when the current track finishes on its own.
+    public Song advanceAfterEnd() {
+        if (repeat == RepeatMode.ONE && getCurrent() != null) return getCurrent();
+        return next();
+    }
+
+    // What advanceAfterEnd() would return, without moving; used to prepare the following track early.
+    public Song peekNext() {
+        if (repeat == RepeatMode.ONE && getCurrent() != null) return getCurrent();
+        if (!upNext.isEmpty()) return upNext.get(0);
+        int next = nextIndex();
+        return (next < 0) ? null : songs.get(next);
+    }
+
     public Song prev() {
-        if (!hasPrev()) return null;
-        currentIndex--;
+        // From a hand-queued song, "previous" is the context track that was playing before it.
+        if (queuedCurrent != null) {
+            if (currentIndex < 0 || currentIndex >= songs.size()) return null;
+            queuedCurrent = null;
+            return songs.get(currentIndex);
+        }
+
+        int prev = prevIndex();
+        if (prev < 0) return null;
+
+        if (shuffle) {
+            historyHead = (historyHead - 1 + HISTORY_CAPACITY) % HISTORY_CAPACITY;
+            historySize--;
+            currentIndex = prev;
+            pos = placeDrawn(prev);
+        } else {
+            currentIndex = prev;
+        }
         return songs.get(currentIndex);
     }
 
     public boolean hasNext() {
-        if (songs.isEmpty()) return false;
-        if (currentIndex < 0) return false;
-        return currentIndex + 1 < songs.size();
+        return !upNext.isEmpty() || nextIndex() >= 0;
     }
 
     public boolean hasPrev() {
-        if (songs.isEmpty()) return false;
-        if (currentIndex < 0) return false;
-        return currentIndex - 1 >= 0;
+        if (queuedCurrent != null) return currentIndex >= 0 && currentIndex < songs.size();
+        return prevIndex() >= 0;
     }
 
     public int getCurrentIndex() {
         return currentIndex;
     }
+
+    public boolean isShuffle() {
+        return shuffle;
+    }
+
+    public void setShuffle(boolean on) {
+        if (on == shuffle) return;
+        shuffle = on;
+        if (on) {
+            resetShuffle();
+        } else {
+            order = null;
+            position = null;
+        }
+    }
+
+    public RepeatMode getRepeat() {
+        return repeat;
+    }
+
+    public void setRepeat(RepeatMode mode) {
+        this.repeat = (mode == null) ? RepeatMode.OFF : mode;
+    }
+
+    private int nextIndex() {
+        int n = songs.size();
+        if (n == 0 || currentIndex < 0) return -1;
+
+        if (!shuffle) {
+            if (currentIndex + 1 < n) return currentIndex + 1;
+            return (repeat == RepeatMode.ALL) ? 0 : -1;
+        }
+
+        int p = pos + 1;
+        if (p >= n) {
+            if (repeat != RepeatMode.ALL) return -1;
+            p = 0;
+        }
+        if (p >= drawn) draw(p);
+        return orderAt(p);
+    }
+
+    private int prevIndex() {
+        int n = songs.size();
+        if (n == 0 || currentIndex < 0) return -1;
+
+        if (shuffle) {
+            if (historySize == 0) return -1;
+            int last = history[(historyHead - 1 + HISTORY_CAPACITY) % HISTORY_CAPACITY];
+            return (last < n) ? last : -1;
+        }
+        if (currentIndex > 0) return currentIndex - 1;
+        return (repeat == RepeatMode.ALL && n > 1) ? n - 1 : -1;
+    }
+
+    private void moveTo(int index) {
+        currentIndex = index;
+        if (shuffle) pos = positionOf(index);
+    }
+
+    private void remember(int index) {
+        if (index < 0) return;
+        history[historyHead] = index;
+        historyHead = (historyHead + 1) % HISTORY_CAPACITY;
+        if (historySize < HISTORY_CAPACITY) historySize++;
+    }
+
+    // Starts a fresh permutation with the current track (if any) in front of it.
+    private void resetShuffle() {
+        int n = songs.size();
+        order = new int[n];
+        position = new int[n];
+        drawn = 0;
+        pos = -1;
+        if (currentIndex >= 0 && currentIndex < n) {
+            swapPositions(0, currentIndex);
+            drawn = 1;
+            pos = 0;
+        }
+    }
+
+    // A track reached outside the shuffle order (picked by hand, or from history after a reshuffle)
+    // joins the drawn prefix, so the shuffle continues from it.
+    private int placeDrawn(int index) {
+        int p = positionOf(index);
+        if (p < drawn) return p;
+        swapPositions(p, drawn);
+        return drawn++;
+    }
+
+    private void draw(int p) {
+        swapPositions(p, p + random.nextInt(songs.size() - p));
+        drawn = p + 1;
+    }
+
+    private int orderAt(int p) {
+        int v = order[p];
+        return (v == 0) ? p : v - 1;
+    }
+
+    private int positionOf(int index) {
+        int v = position[index];
+        return (v == 0) ? index : v - 1;
+    }
+
+    private void swapPositions(int a, int b) {
+        int ia = orderAt(a);
+        int ib = orderAt(b);
+        order[a] = ib + 1;
+        order[b] = ia + 1;
+        position[ib] = a + 1;
+        position[ia] = b + 1;
+    }
 }
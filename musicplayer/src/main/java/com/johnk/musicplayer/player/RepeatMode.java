@@ -0,0 +1,10 @@
+package com.johnk.musicplayer.player;
+
+public enum RepeatMode {
+    OFF, ALL, ONE;
+
+    // Order of the repeat button's cycle.
+    public RepeatMode next() {
+        return values()[(ordinal() + 1) % values().length];
+    }
+}
@@ -0,0 +1,144 @@
+package com.johnk.musicplayer.service;
+
+import java.util.Arrays;
+
+// Symmetric sparse matrix of int weights over dense song ordinals. Each row is one long[] kept sorted
+// by neighbour, every entry packed as (neighbour << 32 | weight): 8 bytes per entry plus growth slack,
+// and no per-entry or per-row objects beyond the array itself. Updates binary-search the row and shift
+// at most the row's tail; entries whose weight drops to zero are removed. Not thread-safe.
+final class CooccurrenceMatrix {
+
+    private static final long[] EMPTY = new long[0];
+
+    private long[][] rows = new long[1024][];
+    private int[] sizes = new int[1024];
+
+    void add(int a, int b, int delta) {
+        if (a == b || delta == 0) return;
+        addToRow(a, b, delta);
+        addToRow(b, a, delta);
+    }
+
+    int weight(int a, int b) {
+        if (a >= rows.length || rows[a] == null) return 0;
+        int i = find(rows[a], sizes[a], b);
+        return (i >= 0) ? (int) rows[a][i] : 0;
+    }
+
+    int rowSize(int a) {
+        return (a < sizes.length) ? sizes[a] : 0;
+    }
+
+    // Neighbours of a with the k highest weights, highest first (ties by ordinal), via a bounded min-heap.
+    int[] top(int a, int k) {
+        int n = rowSize(a);
+        if (n == 0 || k <= 0) return new int[0];
+        long[] row = rows[a];
+
+        // Heap entries are re-packed as (weight << 32 | ~neighbour) so one long comparison ranks them.
+        long[] heap = new long[Math.min(k, n)];
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            long rank = (row[i] << 32) | (~(row[i] >>> 32) & 0xFFFFFFFFL);
+            if (size < heap.length) {
+                heap[size] = rank;
+                siftUp(heap, size++);
+            } else if (rank > heap[0]) {
+                heap[0] = rank;
+                siftDown(heap, 0, size);
+            }
+        }
+
+        int[] out = new int[size];
+        for (int end = size - 1; end >= 0; end--) {
+            out[end] = (int) ~heap[0];
+            heap[0] = heap[end];
+            siftDown(heap, 0, end);
+        }
+        return out;
+    }
+
+    private void addToRow(int from, int to, int delta) {
+        ensureRow(from);
+        long[] row = rows[from];
+        int size = sizes[from];
+        int i = find(row, size, to);
+
+        if (i >= 0) {
+            int w = (int) row[i] + delta;
+            if (w > 0) {
+                row[i] = pack(to, w);
+            } else {
+                System.arraycopy(row, i + 1, row, i, size - i - 1);
+                sizes[from] = --size;
+                if (size == 0) rows[from] = EMPTY;
+            }
+            return;
+        }
+        if (delta < 0) return;
+
+        int at = -i - 1;
+        if (size == row.length) {
+            row = Arrays.copyOf(row, Math.max(4, size + (size >> 1) + 1));
+            rows[from] = row;
+        }
+        System.arraycopy(row, at, row, at + 1, size - at);
+        row[at] = pack(to, delta);
+        sizes[from] = size + 1;
+    }
+
+    private void ensureRow(int a) {
+        if (a >= rows.length) {
+            int capacity = Math.max(a + 1, rows.length * 2);
+            rows = Arrays.copyOf(rows, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+        if (rows[a] == null) rows[a] = EMPTY;
+    }
+
+    // Index of neighbour in row, or -(insertion point) - 1.
+    private static int find(long[] row, int size, int neighbour) {
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int n = (int) (row[mid] >>> 32);
+            if (n < neighbour) {
+                lo = mid + 1;
+            } else if (n > neighbour) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    private static long pack(int neighbour, int weight) {
+        return ((long) neighbour << 32) | (weight & 0xFFFFFFFFL);
+    }
+
+    private static void siftUp(long[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= heap[i]) return;
+            long t = heap[parent];
+            heap[parent] = heap[i];
+            heap[i] = t;
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int i, int n) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= n) return;
+            if (child + 1 < n && heap[child + 1] < heap[child]) child++;
+            if (heap[i] <= heap[child]) return;
+            long t = heap[child];
+            heap[child] = heap[i];
+            heap[i] = t;
+            i = child;
+        }
+    }
+}
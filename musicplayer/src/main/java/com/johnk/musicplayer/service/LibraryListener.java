@@ -0,0 +1,21 @@
+package com.johnk.musicplayer.service;
+
+import java.util.List;
+
+import com.johnk.musicplayer.domain.Song;
+
+public interface LibraryListener {
+
+    default void songsAdded(List<Song> songs) {
+    }
+
+    default void songRemoved(String songId) {
+    }
+
+    default void libraryCleared() {
+    }
+
+    // Derived per-song data (e.g. a probed duration) changed; the songs themselves are the same objects.
+    default void songsUpdated(List<Song> songs) {
+    }
+}
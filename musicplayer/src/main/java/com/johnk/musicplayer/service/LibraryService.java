@@ -4,77 +4,290 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Stream;
 
 import com.johnk.musicplayer.domain.Song;
 
 public class LibraryService {
 
-    private final Map<String, Song> songsById = new HashMap<>();
-    private final List<String> songOrder = new ArrayList<>();
+    // Songs in library order; a song's index here is its ordinal. Appends only write past the end, and
+    // removals or a clear swap in a fresh array, so no slot below a published snapshot's size is ever
+    // written again and snapshot() can share the array instead of copying it.
+    private Song[] ordered = new Song[16];
+    private int size = 0;
+    private final Map<String, Integer> ordinalById = new HashMap<>();
+
+    // Duration already counted into totalMillis for each ordinal, so updates adjust the total in O(batch).
+    private int[] countedMillis = new int[16];
+    private long totalMillis = 0;
+
+    // Built off the owner thread by prepareSortIndex(); appends are merged in, a removal or clear drops it.
+    private SortIndex sortIndex;
+    private CompletableFuture<Void> sortIndexBuild;
+    private long sortIndexBuildVersion;
+    private long structureVersion = 0;
 
     private final Map<String, List<String>> artistToSongIds = new HashMap<>();
     private final Map<String, List<String>> albumToSongIds = new HashMap<>();
 
     private final Map<String, String> pathToSongId = new HashMap<>();
 
+    private final List<LibraryListener> listeners = new ArrayList<>();
+
     private static final Set<String> SUPPORTED_EXTENSIONS = Set.of("mp3", "wav", "m4a");
 
+    public void addListener(LibraryListener listener) {
+        if (listener != null) listeners.add(listener);
+    }
+
+    public void removeListener(LibraryListener listener) {
+        listeners.remove(listener);
+    }
+
     public void importFolder(Path folder) {
         validateFolder(folder);
 
+        List<Song> added = new ArrayList<>();
         try (Stream<Path> paths = Files.walk(folder)) {
             paths.filter(Files::isRegularFile)
                     .filter(this::isSupportedAudioFile)
                     .sorted()
-                    .forEach(this::addFileAsSongIfMissing);
+                    .forEach(file -> addFileAsSongIfMissing(file, added));
         } catch (IOException e) {
             throw new RuntimeException("Failed to scan folder: " + folder, e);
+        } finally {
+            appendToSortIndex();
+            fireSongsAdded(added);
         }
     }
 
+    public boolean addSong(Song song) {
+        if (song == null) throw new IllegalArgumentException("song must not be null");
+        if (ordinalById.containsKey(song.getId())) return false;
+
+        indexSong(song);
+        appendToSortIndex();
+        fireSongsAdded(List.of(song));
+        return true;
+    }
+
+    // Called after derived data on library songs changed, so stores can persist it.
+    public void notifySongsUpdated(List<Song> songs) {
+        if (songs == null || songs.isEmpty()) return;
+        for (Song s : songs) {
+            Integer ordinal = ordinalById.get(s.getId());
+            if (ordinal != null) recount(ordinal, s);
+        }
+        // The duration ordering is refreshed once per probing run (refreshDurationOrder), not per batch.
+        List<Song> view = Collections.unmodifiableList(songs);
+        for (LibraryListener l : listeners) l.songsUpdated(view);
+    }
+
+    public boolean removeSong(String songId) {
+        if (songId == null) return false;
+
+        Integer ordinal = ordinalById.remove(songId.trim());
+        if (ordinal == null) return false;
+        Song removed = ordered[ordinal];
+
+        // Later ordinals shift down; a new array leaves existing snapshots untouched. That makes a removal
+        // O(n), which is fine for a user deleting a song but not for bulk deletes; those should clear and reload.
+        Song[] next = new Song[ordered.length];
+        System.arraycopy(ordered, 0, next, 0, ordinal);
+        System.arraycopy(ordered, ordinal + 1, next, ordinal, size - ordinal - 1);
+        ordered = next;
+        totalMillis -= countedMillis[ordinal];
+        System.arraycopy(countedMillis, ordinal + 1, countedMillis, ordinal, size - ordinal - 1);
+        size--;
+        countedMillis[size] = 0;
+        sortIndex = null;
+        structureVersion++;
+        for (int i = ordinal; i < size; i++) ordinalById.put(ordered[i].getId(), i);
+
+        pathToSongId.remove(removed.getPath());
+        indexRemove(artistToSongIds, removed.getArtist(), removed.getId());
+        indexRemove(albumToSongIds, removed.getAlbum(), removed.getId());
+
+        for (LibraryListener l : listeners) l.songRemoved(removed.getId());
+        return true;
+    }
+
     public void clearLibrary() {
         clear();
+        for (LibraryListener l : listeners) l.libraryCleared();
     }
 
+    // Immutable and O(1): later imports or removals do not show up in a list already handed out,
+    // so it may be read from any thread.
     public List<Song> getAllSongs() {
-        List<Song> songs = new ArrayList<>();
-        for (String id : songOrder) {
-            Song s = songsById.get(id);
-            if (s != null) songs.add(s);
-        }
-        return Collections.unmodifiableList(songs);
+        return new Snapshot(ordered, size);
     }
 
     public Optional<Song> getSongById(String id) {
         if (id == null) return Optional.empty();
-        return Optional.ofNullable(songsById.get(id.trim()));
+        Integer ordinal = ordinalById.get(id.trim());
+        return Optional.ofNullable((ordinal == null) ? null : ordered[ordinal]);
+    }
+
+    public Iterable<Song> songsInOrder() {
+        return getAllSongs();
+    }
+
+    public int size() {
+        return size;
     }
 
-    public void loadLibrary(List<Song> songs) {
+    public Song songAt(int ordinal) {
+        Objects.checkIndex(ordinal, size);
+        return ordered[ordinal];
+    }
+
+    public int ordinalOf(String songId) {
+        Integer ordinal = (songId == null) ? null : ordinalById.get(songId);
+        return (ordinal == null) ? -1 : ordinal;
+    }
+
+    // Ordinals of the given songs in the given order; ids not in the library are skipped.
+    public int[] ordinalsOf(List<String> songIds) {
+        if (songIds == null) return new int[0];
+        int[] out = new int[songIds.size()];
+        int n = 0;
+        for (String id : songIds) {
+            int ordinal = ordinalOf(id);
+            if (ordinal >= 0) out[n++] = ordinal;
+        }
+        return (n == out.length) ? out : Arrays.copyOf(out, n);
+    }
+
+    // Case-insensitive substring match on title, artist or album. base is a list of ordinals to search,
+    // or null for the whole library; a blank query returns base itself. Matching is done in place with
+    // regionMatches, so a search allocates only its result.
+    public int[] search(int[] base, String query) {
+        String q = (query == null) ? "" : query.trim();
+        if (q.isEmpty()) return base;
+
+        int n = (base == null) ? size : base.length;
+        int[] out = new int[Math.min(n, 1024)];
+        int found = 0;
+        for (int i = 0; i < n; i++) {
+            int ordinal = (base == null) ? i : base[i];
+            Song s = ordered[ordinal];
+            if (containsIgnoreCase(s.getTitle(), q) || containsIgnoreCase(s.getArtist(), q) || containsIgnoreCase(s.getAlbum(), q)) {
+                if (found == out.length) out = Arrays.copyOf(out, Math.min(n, found * 2));
+                out[found++] = ordinal;
+            }
+        }
+        return Arrays.copyOf(out, found);
+    }
+
+    public boolean isSortIndexReady() {
+        return sortIndex != null;
+    }
+
+    // Ordinals ordered by column: the whole library for a null subset (a shared, read-only array when
+    // ascending), otherwise the subset re-ordered by a primitive sort on the column's ranks.
+    // Sorting is never done on the caller's thread: until prepareSortIndex() has installed the index,
+    // subset comes back as it is (null meaning the whole library in order).
+    public int[] sortedOrdinals(SortColumn column, boolean ascending, int[] subset) {
+        SortIndex index = sortIndex;
+        if (index == null) return subset;
+        if (subset == null) {
+            int[] order = index.order(column);
+            return ascending ? order : reversed(order);
+        }
+
+        int[] rank = index.rank(column);
+        long[] packed = new long[subset.length];
+        for (int i = 0; i < subset.length; i++) packed[i] = ((long) rank[subset[i]] << 32) | subset[i];
+        Arrays.sort(packed);
+        int[] out = new int[subset.length];
+        for (int i = 0; i < out.length; i++) out[ascending ? i : out.length - 1 - i] = (int) packed[i];
+        return out;
+    }
+
+    // Builds the sort index from a snapshot on background, then installs it on owner (the thread that
+    // owns this service), merging songs appended meanwhile. Dropped if songs were removed in between,
+    // in which case isSortIndexReady() stays false and the caller may ask again. A build already under
+    // way for the current songs is shared rather than started twice.
+    public CompletableFuture<Void> prepareSortIndex(Executor background, Executor owner) {
+        if (sortIndex != null) return CompletableFuture.completedFuture(null);
+        if (sortIndexBuild != null && sortIndexBuildVersion == structureVersion) return sortIndexBuild;
+
+        List<Song> snapshot = getAllSongs();
+        long version = structureVersion;
+        sortIndexBuildVersion = version;
+        sortIndexBuild = CompletableFuture.supplyAsync(() -> SortIndex.build(snapshot), background)
+                .thenAcceptAsync(index -> {
+                    if (sortIndex != null || version != structureVersion) return;
+                    index.append(getAllSongs());
+                    sortIndex = index;
+                }, owner);
+        return sortIndexBuild;
+    }
+
+    // Re-sorts the duration column on background once probing has settled the durations, and installs
+    // it on owner. Nothing to do before the index exists: its build reads the current durations anyway.
+    public CompletableFuture<Void> refreshDurationOrder(Executor background, Executor owner) {
+        if (sortIndex == null) return CompletableFuture.completedFuture(null);
+        List<Song> snapshot = getAllSongs();
+        long version = structureVersion;
+        return CompletableFuture.supplyAsync(() -> SortIndex.durationOrder(snapshot), background)
+                .thenAcceptAsync(order -> {
+                    if (sortIndex == null || version != structureVersion) return;
+                    sortIndex.replaceDurations(order, getAllSongs());
+                }, owner);
+    }
+
+    // Sum of known durations over the given ordinals, or over the whole library (kept as a running total) for null.
+    public long totalDurationMillis(int[] ordinals) {
+        if (ordinals == null) return totalMillis;
+        long total = 0;
+        for (int ordinal : ordinals) total += countedMillis[ordinal];
+        return total;
+    }
+
+    public void loadLibrary(Iterable<Song> songs) {
         clear();
 
         if (songs == null) return;
 
         for (Song s : songs) {
             if (s == null) continue;
+            indexSong(s);
+        }
+    }
 
-            songsById.put(s.getId(), s);
-            songOrder.add(s.getId());
-
-            pathToSongId.put(s.getPath(), s.getId());
+    // Appends restored songs (e.g. later store shards) without notifying listeners.
+    public void appendLoaded(Iterable<Song> songs) {
+        if (songs == null) return;
 
-            indexAppend(artistToSongIds, s.getArtist(), s.getId());
-            indexAppend(albumToSongIds, s.getAlbum(), s.getId());
+        for (Song s : songs) {
+            if (s == null || ordinalById.containsKey(s.getId())) continue;
+            indexSong(s);
         }
+        appendToSortIndex();
     }
 
     public List<Song> resolveSongsByIds(List<String> songIds) {
         if (songIds == null) return List.of();
         List<Song> out = new ArrayList<>();
         for (String id : songIds) {
-            Song s = (id == null) ? null : songsById.get(id);
-            if (s != null) out.add(s);
+            int ordinal = ordinalOf(id);
+            if (ordinal >= 0) out.add(ordered[ordinal]);
+        }
+        return Collections.unmodifiableList(out);
+    }
+
+    public List<String> resolveSongIdsByPaths(List<String> paths) {
+        if (paths == null) return List.of();
+        List<String> out = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            if (path == null) continue;
+            String id = pathToSongId.get(path);
+            if (id == null) id = pathToSongId.get(normalizePath(path));
+            if (id != null) out.add(id);
         }
         return Collections.unmodifiableList(out);
     }
@@ -88,8 +301,13 @@ public class LibraryService {
     }
 
     private void clear() {
-        songsById.clear();
-        songOrder.clear();
+        ordered = new Song[16];
+        size = 0;
+        ordinalById.clear();
+        countedMillis = new int[16];
+        totalMillis = 0;
+        sortIndex = null;
+        structureVersion++;
         artistToSongIds.clear();
         albumToSongIds.clear();
         pathToSongId.clear();
@@ -109,7 +327,7 @@ public class LibraryService {
         return SUPPORTED_EXTENSIONS.contains(ext);
     }
 
-    private void addFileAsSongIfMissing(Path file) {
+    private void addFileAsSongIfMissing(Path file, List<Song> added) {
         String path = file.toAbsolutePath().toString();
 
         if (pathToSongId.containsKey(path)) return;
@@ -124,14 +342,64 @@ public class LibraryService {
 
         Song song = new Song(stableId, title, artist, album, path);
 
-        songsById.put(song.getId(), song);
-        songOrder.add(song.getId());
-        pathToSongId.put(path, song.getId());
+        indexSong(song);
+        added.add(song);
+    }
+
+    private void indexSong(Song song) {
+        if (size == ordered.length) {
+            ordered = Arrays.copyOf(ordered, size * 2);
+            countedMillis = Arrays.copyOf(countedMillis, size * 2);
+        }
+        ordered[size] = song;
+        ordinalById.put(song.getId(), size);
+        recount(size, song);
+        size++;
+        pathToSongId.put(song.getPath(), song.getId());
 
         indexAppend(artistToSongIds, song.getArtist(), song.getId());
         indexAppend(albumToSongIds, song.getAlbum(), song.getId());
     }
 
+    private void appendToSortIndex() {
+        if (sortIndex != null) sortIndex.append(getAllSongs());
+    }
+
+    private static int[] reversed(int[] a) {
+        int[] out = new int[a.length];
+        for (int i = 0; i < a.length; i++) out[i] = a[a.length - 1 - i];
+        return out;
+    }
+
+    private void recount(int ordinal, Song song) {
+        int millis = (int) Math.min(Integer.MAX_VALUE, Math.max(0, song.getDurationMillis()));
+        totalMillis += millis - countedMillis[ordinal];
+        countedMillis[ordinal] = millis;
+    }
+
+    private static boolean containsIgnoreCase(String haystack, String needle) {
+        if (haystack == null) return false;
+        int last = haystack.length() - needle.length();
+        for (int i = 0; i <= last; i++) {
+            if (haystack.regionMatches(true, i, needle, 0, needle.length())) return true;
+        }
+        return false;
+    }
+
+    private void fireSongsAdded(List<Song> added) {
+        if (added.isEmpty()) return;
+        List<Song> view = Collections.unmodifiableList(added);
+        for (LibraryListener l : listeners) l.songsAdded(view);
+    }
+
+    private String normalizePath(String path) {
+        try {
+            return Path.of(path).toAbsolutePath().normalize().toString();
+        } catch (InvalidPathException e) {
+            return path;
+        }
+    }
+
     private String stripExtension(String filename) {
         int dot = filename.lastIndexOf('.');
         return (dot > 0) ? filename.substring(0, dot) : filename;
@@ -142,6 +410,35 @@ public class LibraryService {
         index.computeIfAbsent(safeKey, k -> new ArrayList<>()).add(songId);
     }
 
+    private void indexRemove(Map<String, List<String>> index, String key, String songId) {
+        String safeKey = (key == null || key.isBlank()) ? "Unknown" : key.trim();
+        List<String> ids = index.get(safeKey);
+        if (ids == null) return;
+        ids.remove(songId);
+        if (ids.isEmpty()) index.remove(safeKey);
+    }
+
+    private static final class Snapshot extends AbstractList<Song> implements RandomAccess {
+        private final Song[] songs;
+        private final int size;
+
+        Snapshot(Song[] songs, int size) {
+            this.songs = songs;
+            this.size = size;
+        }
+
+        @Override
+        public Song get(int index) {
+            Objects.checkIndex(index, size);
+            return songs[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
     private Map<String, List<String>> unmodifiableCopyMapOfLists(Map<String, List<String>> src) {
         Map<String, List<String>> copy = new HashMap<>();
         for (Map.Entry<String, List<String>> e : src.entrySet()) {
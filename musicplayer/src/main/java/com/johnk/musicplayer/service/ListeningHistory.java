@@ -0,0 +1,298 @@
+package com.johnk.musicplayer.service;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.persistence.PlayLog;
+import com.johnk.musicplayer.player.ListenListener;
+
+// Play counts over the listening log. Every listen is appended to the log and folded into running
+// aggregates at the same time: one counter per day (kept for the last few weeks), per calendar month
+// and for all time, each split into tracks and artists. A query merges at most a week of day counters
+// or reads one month/all-time counter, then picks the top k with a bounded heap, so its cost depends on
+// how many distinct songs were played in the window, never on how long the log is.
+// The log is replayed once at startup; all writes and aggregate updates run on one background thread.
+public class ListeningHistory implements ListenListener {
+
+    public enum Window {
+        TODAY, THIS_WEEK, THIS_MONTH, ALL_TIME
+    }
+
+    public static final class PlayCount<T> {
+        private final T item;
+        private final int plays;
+
+        PlayCount(T item, int plays) {
+            this.item = item;
+            this.plays = plays;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public int getPlays() {
+            return plays;
+        }
+
+        @Override
+        public String toString() {
+            return item + " (" + plays + ")";
+        }
+    }
+
+    // Sees every counted play in log order: first the replay, then live listens. Runs on the history thread.
+    public interface PlayListener {
+        void played(long timeMillis, long songKey);
+    }
+
+    static final byte STARTED = 1;
+    static final byte SKIPPED = 2;
+    static final byte COMPLETED = 3;
+
+    // Day counters older than this are dropped; month counters cover anything further back.
+    private static final int DAYS_KEPT = 40;
+
+    private final PlayLog log;
+    private final ZoneId zone;
+    private final long playThresholdMillis;
+    private final ExecutorService writer;
+    private volatile PlayListener playListener;
+
+    // Guarded by this.
+    private final Counts allTime = new Counts();
+    private final Map<Long, Counts> days = new HashMap<>();
+    private final Map<Integer, Counts> months = new HashMap<>();
+    private long newestDay = Long.MIN_VALUE;
+    // Names for keys that have plays; the log itself only stores hashes.
+    private final Map<Long, Song> songsByKey = new HashMap<>();
+    private final Map<Long, String> artistsByKey = new HashMap<>();
+
+    // Writer thread only: day boundaries of the last timestamp seen, since most records share a day.
+    private long cachedDayStart = Long.MAX_VALUE;
+    private long cachedDayEnd = Long.MIN_VALUE;
+    private LocalDate cachedDate;
+
+    public ListeningHistory() {
+        this(new PlayLog(), ZoneId.systemDefault(), Long.getLong("musicplayer.history.playThresholdMs", 30_000));
+    }
+
+    public ListeningHistory(PlayLog log, ZoneId zone, long playThresholdMillis) {
+        if (log == null) throw new IllegalArgumentException("log must not be null");
+        if (zone == null) throw new IllegalArgumentException("zone must not be null");
+        if (playThresholdMillis < 0) throw new IllegalArgumentException("playThresholdMillis must not be negative");
+        this.log = log;
+        this.zone = zone;
+        this.playThresholdMillis = playThresholdMillis;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "listening-history");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Set before load() to see the replayed plays as well.
+    public void setPlayListener(PlayListener listener) {
+        this.playListener = listener;
+    }
+
+    // Replays the log into the aggregates. Listens recorded meanwhile queue up behind the replay.
+    public CompletableFuture<Long> load() {
+        return CompletableFuture.supplyAsync(() -> log.replay(this::apply), writer);
+    }
+
+    // Puts names to the keys loaded from the log. Only songs that were actually played are kept.
+    public void index(List<Song> library) {
+        writer.execute(() -> {
+            synchronized (this) {
+                for (Song s : library) {
+                    long key = songKey(s);
+                    if (allTime.tracks.get(key) > 0) songsByKey.put(key, s);
+                    long artist = artistKey(s);
+                    if (allTime.artists.get(artist) > 0) artistsByKey.putIfAbsent(artist, s.getArtist());
+                }
+            }
+        });
+    }
+
+    @Override
+    public void started(Song song, long timeMillis) {
+        record(song, timeMillis, STARTED, 0);
+    }
+
+    @Override
+    public void skipped(Song song, long timeMillis, long listenedMillis) {
+        record(song, timeMillis, SKIPPED, listenedMillis);
+    }
+
+    @Override
+    public void completed(Song song, long timeMillis, long listenedMillis) {
+        record(song, timeMillis, COMPLETED, listenedMillis);
+    }
+
+    public List<PlayCount<Song>> topTracks(Window window, int k) {
+        List<PlayCount<Song>> out = new ArrayList<>();
+        synchronized (this) {
+            LongIntCounts counts = select(window, true);
+            for (long key : counts.topKeys(k)) {
+                Song song = songsByKey.get(key);
+                if (song != null) out.add(new PlayCount<>(song, counts.get(key)));
+            }
+        }
+        return out;
+    }
+
+    public List<PlayCount<String>> topArtists(Window window, int k) {
+        List<PlayCount<String>> out = new ArrayList<>();
+        synchronized (this) {
+            LongIntCounts counts = select(window, false);
+            for (long key : counts.topKeys(k)) {
+                String artist = artistsByKey.get(key);
+                if (artist != null) out.add(new PlayCount<>(artist, counts.get(key)));
+            }
+        }
+        return out;
+    }
+
+    public synchronized int playCount(Song song) {
+        return allTime.tracks.get(songKey(song));
+    }
+
+    // Number of day counters held; at most DAYS_KEPT.
+    synchronized int dayCounters() {
+        return days.size();
+    }
+
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(Long.getLong("musicplayer.save.shutdownTimeoutMs", 5000), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+    }
+
+    // Stable across runs: the same song id or artist name always hashes to the same key.
+    public static long songKey(Song song) {
+        return songKey(song.getId());
+    }
+
+    public static long songKey(String songId) {
+        return hash64(songId);
+    }
+
+    public static long artistKey(Song song) {
+        return hash64(song.getArtist().trim().toLowerCase(Locale.ROOT));
+    }
+
+    private void record(Song song, long timeMillis, byte kind, long listenedMillis) {
+        if (song == null) return;
+        long songKey = songKey(song);
+        long artistKey = artistKey(song);
+        int listened = (int) Math.min(Integer.MAX_VALUE, Math.max(0, listenedMillis));
+
+        writer.execute(() -> {
+            log.append(timeMillis, kind, songKey, artistKey, listened);
+            if (apply(timeMillis, kind, songKey, artistKey, listened)) {
+                synchronized (this) {
+                    songsByKey.put(songKey, song);
+                    artistsByKey.putIfAbsent(artistKey, song.getArtist());
+                }
+            }
+        });
+    }
+
+    // A listen counts as a play once it completed or ran past the threshold before being skipped.
+    private boolean apply(long timeMillis, byte kind, long songKey, long artistKey, int listenedMillis) {
+        boolean counts = kind == COMPLETED || (kind == SKIPPED && listenedMillis >= playThresholdMillis);
+        if (!counts) return false;
+
+        LocalDate date = dateOf(timeMillis);
+        long day = date.toEpochDay();
+        int month = date.getYear() * 12 + date.getMonthValue() - 1;
+
+        synchronized (this) {
+            allTime.add(songKey, artistKey);
+            months.computeIfAbsent(month, m -> new Counts()).add(songKey, artistKey);
+
+            if (day > newestDay) {
+                newestDay = day;
+                days.keySet().removeIf(d -> d <= newestDay - DAYS_KEPT);
+            }
+            if (day > newestDay - DAYS_KEPT) {
+                days.computeIfAbsent(day, d -> new Counts()).add(songKey, artistKey);
+            }
+        }
+
+        PlayListener listener = playListener;
+        if (listener != null) listener.played(timeMillis, songKey);
+        return true;
+    }
+
+    private LongIntCounts select(Window window, boolean tracks) {
+        LocalDate today = LocalDate.now(zone);
+        switch (window) {
+            case TODAY:
+                return pick(days.get(today.toEpochDay()), tracks);
+            case THIS_WEEK: {
+                LongIntCounts merged = new LongIntCounts();
+                for (LocalDate d = today.with(DayOfWeek.MONDAY); !d.isAfter(today); d = d.plusDays(1)) {
+                    Counts c = days.get(d.toEpochDay());
+                    if (c != null) merged.addAll(tracks ? c.tracks : c.artists);
+                }
+                return merged;
+            }
+            case THIS_MONTH:
+                return pick(months.get(today.getYear() * 12 + today.getMonthValue() - 1), tracks);
+            default:
+                return tracks ? allTime.tracks : allTime.artists;
+        }
+    }
+
+    private static LongIntCounts pick(Counts counts, boolean tracks) {
+        if (counts == null) return new LongIntCounts(0);
+        return tracks ? counts.tracks : counts.artists;
+    }
+
+    private LocalDate dateOf(long timeMillis) {
+        if (timeMillis < cachedDayStart || timeMillis >= cachedDayEnd) {
+            cachedDate = LocalDate.ofInstant(Instant.ofEpochMilli(timeMillis), zone);
+            cachedDayStart = cachedDate.atStartOfDay(zone).toInstant().toEpochMilli();
+            cachedDayEnd = cachedDate.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+        return cachedDate;
+    }
+
+    // FNV-1a over the UTF-16 chars.
+    private static long hash64(String s) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return h;
+    }
+
+    private static final class Counts {
+        final LongIntCounts tracks = new LongIntCounts();
+        final LongIntCounts artists = new LongIntCounts();
+
+        void add(long songKey, long artistKey) {
+            tracks.add(songKey, 1);
+            artists.add(artistKey, 1);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.johnk.musicplayer.service;
+
+import java.util.Arrays;
+
+// Open-addressing long -> int counter: linear probing over parallel primitive arrays, so a count costs
+// 12 bytes per slot instead of two boxed objects and a map entry. Keys whose count drops to zero are
+// removed (backward-shift deletion, no tombstones). Not thread-safe.
+public final class LongIntCounts {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int resizeAt;
+
+    // Zero marks an empty slot, so key 0 lives outside the table.
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    public LongIntCounts() {
+        this(8);
+    }
+
+    public LongIntCounts(int expectedSize) {
+        if (expectedSize < 0) throw new IllegalArgumentException("expectedSize must not be negative");
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int get(long key) {
+        if (key == 0) return hasZeroKey ? zeroValue : 0;
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) return values[i];
+            if (k == 0) return 0;
+        }
+    }
+
+    // Returns the new count; a result of zero or less removes the key.
+    public int add(long key, int delta) {
+        if (key == 0) {
+            int v = (hasZeroKey ? zeroValue : 0) + delta;
+            hasZeroKey = v > 0;
+            zeroValue = Math.max(0, v);
+            return zeroValue;
+        }
+
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (true) {
+            long k = keys[i];
+            if (k == key) {
+                int v = values[i] + delta;
+                if (v > 0) {
+                    values[i] = v;
+                    return v;
+                }
+                removeAt(i);
+                return 0;
+            }
+            if (k == 0) break;
+            i = (i + 1) & mask;
+        }
+
+        if (delta <= 0) return 0;
+        keys[i] = key;
+        values[i] = delta;
+        if (++size >= resizeAt) rehash(keys.length << 1);
+        return delta;
+    }
+
+    public void addAll(LongIntCounts other) {
+        if (other.hasZeroKey) add(0, other.zeroValue);
+        long[] ok = other.keys;
+        int[] ov = other.values;
+        for (int i = 0; i < ok.length; i++) {
+            if (ok[i] != 0) add(ok[i], ov[i]);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+        hasZeroKey = false;
+        zeroValue = 0;
+    }
+
+    public interface Visitor {
+        void visit(long key, int count);
+    }
+
+    public void forEach(Visitor visitor) {
+        if (hasZeroKey) visitor.visit(0, zeroValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) visitor.visit(keys[i], values[i]);
+        }
+    }
+
+    // The k highest counts, highest first (ties by key), through a bounded min-heap: O(n log k).
+    public long[] topKeys(int k) {
+        if (k <= 0) return new long[0];
+        long[] heapKeys = new long[Math.min(k, size())];
+        int[] heapValues = new int[heapKeys.length];
+        int[] n = {0};
+
+        forEach((key, count) -> {
+            if (n[0] < heapKeys.length) {
+                heapKeys[n[0]] = key;
+                heapValues[n[0]] = count;
+                siftUp(heapKeys, heapValues, n[0]++);
+            } else if (ranksAbove(count, key, heapValues[0], heapKeys[0])) {
+                heapKeys[0] = key;
+                heapValues[0] = count;
+                siftDown(heapKeys, heapValues, 0, n[0]);
+            }
+        });
+
+        // Pop the minimum to the back repeatedly: the array ends up highest first.
+        for (int end = n[0] - 1; end > 0; end--) {
+            swap(heapKeys, heapValues, 0, end);
+            siftDown(heapKeys, heapValues, 0, end);
+        }
+        return heapKeys;
+    }
+
+    private static boolean ranksAbove(int count, long key, int otherCount, long otherKey) {
+        return count != otherCount ? count > otherCount : key < otherKey;
+    }
+
+    private static void siftUp(long[] keys, int[] values, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!ranksAbove(values[parent], keys[parent], values[i], keys[i])) break;
+            swap(keys, values, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] keys, int[] values, int i, int n) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= n) return;
+            if (child + 1 < n && ranksAbove(values[child], keys[child], values[child + 1], keys[child + 1])) child++;
+            if (!ranksAbove(values[i], keys[i], values[child], keys[child])) return;
+            swap(keys, values, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(long[] keys, int[] values, int a, int b) {
+        long k = keys[a];
+        keys[a] = keys[b];
+        keys[b] = k;
+        int v = values[a];
+        values[a] = values[b];
+        values[b] = v;
+    }
+
+    private void removeAt(int i) {
+        int mask = keys.length - 1;
+        // Shift later members of the probe run back so lookups never stop at the hole early.
+        int hole = i;
+        for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = 0;
+        values[hole] = 0;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long k = oldKeys[i];
+            if (k == 0) continue;
+            int j = slot(k, mask);
+            while (keys[j] != 0) j = (j + 1) & mask;
+            keys[j] = k;
+            values[j] = oldValues[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        resizeAt = Math.max(1, (int) (capacity * LOAD_FACTOR));
+    }
+
+    private static int tableSizeFor(int expected) {
+        int needed = (int) Math.ceil(Math.max(expected, 1) / LOAD_FACTOR) + 1;
+        return Math.max(8, Integer.highestOneBit(needed - 1) << 1);
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
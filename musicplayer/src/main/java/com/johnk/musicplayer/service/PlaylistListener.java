@@ -0,0 +1,18 @@
+package com.johnk.musicplayer.service;
+
+import java.util.List;
+
+public interface PlaylistListener {
+
+    default void playlistCreated(String playlistName) {
+    }
+
+    default void playlistDeleted(String playlistName) {
+    }
+
+    default void songsAdded(String playlistName, List<String> songIds) {
+    }
+
+    default void songRemoved(String playlistName, String songId) {
+    }
+}
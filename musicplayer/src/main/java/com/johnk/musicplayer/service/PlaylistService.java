@@ -4,7 +4,20 @@ import java.util.*;
 
 public class PlaylistService {
 
+    public static class ImportResult {
+        public final String playlistName;
+        public final int imported;
+        public final int skipped;
+
+        ImportResult(String playlistName, int imported, int skipped) {
+            this.playlistName = playlistName;
+            this.imported = imported;
+            this.skipped = skipped;
+        }
+    }
+
     private final Map<String, LinkedHashSet<String>> playlists = new LinkedHashMap<>();
+    private final List<PlaylistListener> listeners = new ArrayList<>();
 
     public PlaylistService() {
         createPlaylist("Favorites");
@@ -12,6 +25,14 @@ public class PlaylistService {
         createPlaylist("Gym");
     }
 
+    public void addListener(PlaylistListener listener) {
+        if (listener != null) listeners.add(listener);
+    }
+
+    public void removeListener(PlaylistListener listener) {
+        listeners.remove(listener);
+    }
+
     public void createPlaylist(String name) {
         String safe = normalizeName(name);
         if (safe.isBlank()) {
@@ -21,6 +42,7 @@ public class PlaylistService {
             throw new IllegalArgumentException("Playlist already exists: " + safe);
         }
         playlists.put(safe, new LinkedHashSet<>());
+        for (PlaylistListener l : listeners) l.playlistCreated(safe);
     }
 
     public void deletePlaylist(String name) {
@@ -29,6 +51,7 @@ public class PlaylistService {
             throw new IllegalArgumentException("Playlist not found: " + safe);
         }
         playlists.remove(safe);
+        for (PlaylistListener l : listeners) l.playlistDeleted(safe);
     }
 
     public void addSong(String playlistName, String songId) {
@@ -39,7 +62,9 @@ public class PlaylistService {
         if (songId == null || songId.isBlank()) {
             throw new IllegalArgumentException("songId must not be blank.");
         }
-        playlists.get(pl).add(songId);
+        if (playlists.get(pl).add(songId)) {
+            for (PlaylistListener l : listeners) l.songsAdded(pl, List.of(songId));
+        }
     }
 
     public void removeSong(String playlistName, String songId) {
@@ -50,7 +75,9 @@ public class PlaylistService {
         if (songId == null || songId.isBlank()) {
             throw new IllegalArgumentException("songId must not be blank.");
         }
-        playlists.get(pl).remove(songId);
+        if (playlists.get(pl).remove(songId)) {
+            for (PlaylistListener l : listeners) l.songRemoved(pl, songId);
+        }
     }
 
     public List<String> getPlaylists() {
@@ -74,6 +101,10 @@ public class PlaylistService {
         return out;
     }
 
+    public Map<String, ? extends Collection<String>> playlistsView() {
+        return Collections.unmodifiableMap(playlists);
+    }
+
     public void loadPlaylists(Map<String, List<String>> data) {
         playlists.clear();
 
@@ -96,6 +127,30 @@ public class PlaylistService {
         }
     }
 
+    // Creates a playlist from file paths read by the caller (e.g. from an .m3u file); the name is made
+    // unique. Paths that are not in the library are skipped, and repeated entries are added once.
+    public ImportResult importPlaylist(String suggestedName, List<String> paths, LibraryService library) {
+        if (paths == null) throw new IllegalArgumentException("paths must not be null");
+        if (library == null) throw new IllegalArgumentException("library must not be null");
+
+        List<String> songIds = library.resolveSongIdsByPaths(paths);
+
+        String name = uniqueName(suggestedName);
+        createPlaylist(name);
+
+        LinkedHashSet<String> ids = playlists.get(name);
+        List<String> added = new ArrayList<>();
+        for (String id : songIds) {
+            if (ids.add(id)) added.add(id);
+        }
+        if (!added.isEmpty()) {
+            List<String> view = Collections.unmodifiableList(added);
+            for (PlaylistListener l : listeners) l.songsAdded(name, view);
+        }
+
+        return new ImportResult(name, added.size(), paths.size() - songIds.size());
+    }
+
     public boolean hasPlaylist(String playlistName) {
         return playlists.containsKey(normalizeName(playlistName));
     }
@@ -106,6 +161,16 @@ public class PlaylistService {
         return ids != null && ids.contains(songId);
     }
 
+    private String uniqueName(String base) {
+        String safe = normalizeName(base);
+        if (safe.isBlank()) safe = "Imported Playlist";
+        if (!playlists.containsKey(safe)) return safe;
+
+        int n = 2;
+        while (playlists.containsKey(safe + " (" + n + ")")) n++;
+        return safe + " (" + n + ")";
+    }
+
     private String normalizeName(String name) {
         return name == null ? "" : name.trim();
     }
@@ -0,0 +1,194 @@
+package com.johnk.musicplayer.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.johnk.musicplayer.domain.Song;
+
+// "Songs like this" from a sparse, symmetric song-to-song co-occurrence matrix (CooccurrenceMatrix).
+// Songs are identified by ListeningHistory.songKey, so listens replayed from the log need no library
+// lookup; each key gets a dense ordinal the first time it is seen, and the matrix works on those.
+// Two sources feed it, both incrementally:
+//   playlists  songs within WINDOW positions of each other in a playlist, so a large playlist adds
+//              O(size * WINDOW) pairs instead of O(size^2); small playlists still pair every song
+//   listens    each play pairs with the few plays before it in the same listening session
+// A query reads one row and takes its top k with a bounded heap.
+public class RecommendationService implements PlaylistListener, ListeningHistory.PlayListener {
+
+    private static final int PLAYLIST_WEIGHT = 2;
+    private static final int SESSION_WEIGHT = 1;
+    private static final int SESSION_WINDOW = 4;
+    private static final long SESSION_GAP_MILLIS = 30 * 60 * 1000L;
+
+    private final int window;
+
+    // Guarded by this.
+    private final CooccurrenceMatrix matrix = new CooccurrenceMatrix();
+    // songKey -> ordinal + 1; ordinals are only ever added, so the counter doubles as a primitive map.
+    private final LongIntCounts ordinals = new LongIntCounts(1024);
+    private Song[] songsByOrdinal = new Song[1024];
+    // Each playlist's order as this service last saw it, so removals know which neighbours to unpair.
+    private final Map<String, OrdinalList> playlists = new HashMap<>();
+
+    private final int[] sessionOrdinals = new int[SESSION_WINDOW];
+    private int sessionSize = 0;
+    private long sessionLastPlay = Long.MIN_VALUE;
+
+    public RecommendationService() {
+        this(Integer.getInteger("musicplayer.recommend.window", 10));
+    }
+
+    public RecommendationService(int window) {
+        if (window < 1) throw new IllegalArgumentException("window must be at least 1");
+        this.window = window;
+    }
+
+    // Builds the playlist part of the matrix once; afterwards the listener keeps it current.
+    public synchronized void attach(PlaylistService playlistService) {
+        for (Map.Entry<String, ? extends Collection<String>> e : playlistService.playlistsView().entrySet()) {
+            OrdinalList list = new OrdinalList();
+            playlists.put(e.getKey(), list);
+            for (String id : e.getValue()) append(list, ordinalOf(ListeningHistory.songKey(id)));
+        }
+        playlistService.addListener(this);
+    }
+
+    public synchronized void index(List<Song> library) {
+        Arrays.fill(songsByOrdinal, null);
+        for (Song s : library) {
+            int ordinal = ordinalOf(ListeningHistory.songKey(s));
+            songsByOrdinal[ordinal] = s;
+        }
+    }
+
+    // Strongest co-occurrences first; songs no longer in the library are left out.
+    public synchronized List<Song> similar(Song song, int k) {
+        List<Song> out = new ArrayList<>();
+        if (song == null || k <= 0) return out;
+
+        int ordinal = ordinals.get(ListeningHistory.songKey(song)) - 1;
+        if (ordinal < 0) return out;
+
+        for (int neighbour : matrix.top(ordinal, k + 8)) {
+            Song s = songsByOrdinal[neighbour];
+            if (s != null) out.add(s);
+            if (out.size() == k) break;
+        }
+        return out;
+    }
+
+    public synchronized int neighbourCount(Song song) {
+        int ordinal = ordinals.get(ListeningHistory.songKey(song)) - 1;
+        return (ordinal < 0) ? 0 : matrix.rowSize(ordinal);
+    }
+
+    // Combined weight between two songs; 0 when either has never been seen.
+    synchronized int weight(String songIdA, String songIdB) {
+        int a = ordinals.get(ListeningHistory.songKey(songIdA)) - 1;
+        int b = ordinals.get(ListeningHistory.songKey(songIdB)) - 1;
+        return (a < 0 || b < 0) ? 0 : matrix.weight(a, b);
+    }
+
+    @Override
+    public synchronized void playlistCreated(String playlistName) {
+        playlists.putIfAbsent(playlistName, new OrdinalList());
+    }
+
+    @Override
+    public synchronized void playlistDeleted(String playlistName) {
+        OrdinalList list = playlists.remove(playlistName);
+        if (list == null) return;
+        for (int i = 0; i < list.size; i++) {
+            for (int j = i + 1; j < list.size && j - i <= window; j++) {
+                matrix.add(list.ordinals[i], list.ordinals[j], -PLAYLIST_WEIGHT);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void songsAdded(String playlistName, List<String> songIds) {
+        OrdinalList list = playlists.computeIfAbsent(playlistName, n -> new OrdinalList());
+        for (String id : songIds) append(list, ordinalOf(ListeningHistory.songKey(id)));
+    }
+
+    @Override
+    public synchronized void songRemoved(String playlistName, String songId) {
+        OrdinalList list = playlists.get(playlistName);
+        if (list == null) return;
+        int p = list.indexOf(ordinals.get(ListeningHistory.songKey(songId)) - 1);
+        if (p < 0) return;
+
+        int[] ords = list.ordinals;
+        for (int q = Math.max(0, p - window); q <= Math.min(list.size - 1, p + window); q++) {
+            if (q != p) matrix.add(ords[p], ords[q], -PLAYLIST_WEIGHT);
+        }
+        // Closing the gap brings pairs that were just outside the window into it.
+        for (int a = Math.max(0, p - window); a < p; a++) {
+            int b = a + window + 1;
+            if (b < list.size) matrix.add(ords[a], ords[b], PLAYLIST_WEIGHT);
+        }
+        list.removeAt(p);
+    }
+
+    // Called on the history thread, in log order during replay.
+    @Override
+    public synchronized void played(long timeMillis, long songKey) {
+        if (timeMillis - sessionLastPlay > SESSION_GAP_MILLIS || timeMillis < sessionLastPlay) sessionSize = 0;
+        sessionLastPlay = timeMillis;
+
+        int ordinal = ordinalOf(songKey);
+        for (int i = 0; i < sessionSize; i++) {
+            matrix.add(ordinal, sessionOrdinals[i], SESSION_WEIGHT);
+        }
+        if (sessionSize < SESSION_WINDOW) {
+            sessionOrdinals[sessionSize++] = ordinal;
+        } else {
+            System.arraycopy(sessionOrdinals, 1, sessionOrdinals, 0, SESSION_WINDOW - 1);
+            sessionOrdinals[SESSION_WINDOW - 1] = ordinal;
+        }
+    }
+
+    private void append(OrdinalList list, int ordinal) {
+        for (int i = Math.max(0, list.size - window); i < list.size; i++) {
+            matrix.add(list.ordinals[i], ordinal, PLAYLIST_WEIGHT);
+        }
+        list.add(ordinal);
+    }
+
+    private int ordinalOf(long songKey) {
+        int ordinal = ordinals.get(songKey) - 1;
+        if (ordinal >= 0) return ordinal;
+
+        ordinal = ordinals.size();
+        ordinals.add(songKey, ordinal + 1);
+        if (ordinal >= songsByOrdinal.length) songsByOrdinal = Arrays.copyOf(songsByOrdinal, songsByOrdinal.length * 2);
+        return ordinal;
+    }
+
+    private static final class OrdinalList {
+        int[] ordinals = new int[8];
+        int size;
+
+        void add(int ordinal) {
+            if (size == ordinals.length) ordinals = Arrays.copyOf(ordinals, size * 2);
+            ordinals[size++] = ordinal;
+        }
+
+        int indexOf(int ordinal) {
+            if (ordinal < 0) return -1;
+            for (int i = 0; i < size; i++) {
+                if (ordinals[i] == ordinal) return i;
+            }
+            return -1;
+        }
+
+        void removeAt(int i) {
+            System.arraycopy(ordinals, i + 1, ordinals, i, size - i - 1);
+            size--;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.johnk.musicplayer.service;
+
+public enum SortColumn {
+    TITLE, ARTIST, ALBUM, DURATION
+}
@@ -0,0 +1,200 @@
+package com.johnk.musicplayer.service;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import com.johnk.musicplayer.domain.Song;
+
+// Library orderings per column as ordinal permutations (order) and their inverses (rank), so sorting a
+// view is an array lookup, or a primitive sort by rank for a subset, instead of a Comparator pass over
+// Strings. Text columns are ordered by CollationKey (case-insensitive, locale-aware), computed once per
+// song when a column is built; ties keep library order. Appended songs are merged in: their keys are
+// binary-searched against keys computed only for the O(log n) songs probed, then one O(n) merge.
+// Durations are packed (millis << 32 | ordinal) and sorted as longs. They change while they are probed;
+// the duration column keeps the order it was built with until replaceDurations() installs a fresh one.
+final class SortIndex {
+
+    private final Collator collator;
+    private final int[][] order = new int[SortColumn.values().length][];
+    private final int[][] rank = new int[SortColumn.values().length][];
+    private int size;
+
+    private SortIndex(int size) {
+        this.collator = Collator.getInstance(Locale.getDefault());
+        this.collator.setStrength(Collator.SECONDARY);
+        this.size = size;
+    }
+
+    // Builds every column; safe on any thread for an immutable snapshot.
+    static SortIndex build(List<Song> songs) {
+        SortIndex index = new SortIndex(songs.size());
+        for (SortColumn column : SortColumn.values()) index.buildColumn(column, songs);
+        return index;
+    }
+
+    // The duration column for songs as they are now; safe on any thread for an immutable snapshot.
+    static int[] durationOrder(List<Song> songs) {
+        return unpack(durationKeys(songs, 0, songs.size()));
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Never modified after it is returned; later changes produce new arrays.
+    int[] order(SortColumn column) {
+        return order[column.ordinal()];
+    }
+
+    int[] rank(SortColumn column) {
+        return rank[column.ordinal()];
+    }
+
+    // songs holds every song up to its new size; ordinals from size() on are the new ones.
+    void append(List<Song> songs) {
+        int from = size;
+        size = songs.size();
+        if (size == from) return;
+
+        for (SortColumn column : SortColumn.values()) {
+            int c = column.ordinal();
+            order[c] = (column == SortColumn.DURATION)
+                    ? mergeDurations(order[c], durationKeys(songs, from, size), songs)
+                    : merge(column, order[c], sortedKeys(column, songs, from, size), songs);
+            rank[c] = invert(order[c]);
+        }
+    }
+
+    // fresh is durationOrder() of the first fresh.length songs; any appended since are merged in.
+    void replaceDurations(int[] fresh, List<Song> songs) {
+        int c = SortColumn.DURATION.ordinal();
+        order[c] = (fresh.length < size) ? mergeDurations(fresh, durationKeys(songs, fresh.length, size), songs) : fresh;
+        rank[c] = invert(order[c]);
+    }
+
+    private void buildColumn(SortColumn column, List<Song> songs) {
+        int c = column.ordinal();
+        if (column == SortColumn.DURATION) {
+            order[c] = unpack(durationKeys(songs, 0, size));
+        } else {
+            Keyed[] keyed = sortedKeys(column, songs, 0, size);
+            int[] out = new int[size];
+            for (int i = 0; i < size; i++) out[i] = keyed[i].ordinal;
+            order[c] = out;
+        }
+        rank[c] = invert(order[c]);
+    }
+
+    private Keyed[] sortedKeys(SortColumn column, List<Song> songs, int from, int to) {
+        Keyed[] keyed = new Keyed[to - from];
+        for (int i = from; i < to; i++) {
+            keyed[i - from] = new Keyed(collator.getCollationKey(text(column, songs.get(i))), i);
+        }
+        // Stable sort over ascending ordinals: equal keys stay in library order.
+        Arrays.sort(keyed, (a, b) -> a.key.compareTo(b.key));
+        return keyed;
+    }
+
+    private int[] merge(SortColumn column, int[] existing, Keyed[] added, List<Song> songs) {
+        int[] out = new int[existing.length + added.length];
+        int n = 0;
+        int taken = 0;
+        int lo = 0;
+        for (Keyed k : added) {
+            // Upper bound: new songs have the highest ordinals, so they go after equal keys. Added keys
+            // are sorted, so each search starts where the previous one ended.
+            int hi = existing.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                CollationKey probe = collator.getCollationKey(text(column, songs.get(existing[mid])));
+                if (probe.compareTo(k.key) <= 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            System.arraycopy(existing, taken, out, n, lo - taken);
+            n += lo - taken;
+            taken = lo;
+            out[n++] = k.ordinal;
+        }
+        System.arraycopy(existing, taken, out, n, existing.length - taken);
+        return out;
+    }
+
+    // Same upper-bound merge as merge(), on packed duration keys. Songs whose duration changed since the
+    // column was built sit where they were, so the searches may land a little off until the next rebuild;
+    // the result is still a permutation.
+    private static int[] mergeDurations(int[] existing, long[] added, List<Song> songs) {
+        int[] out = new int[existing.length + added.length];
+        int n = 0;
+        int taken = 0;
+        int lo = 0;
+        for (long key : added) {
+            int hi = existing.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (durationKey(songs, existing[mid]) <= key) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            System.arraycopy(existing, taken, out, n, lo - taken);
+            n += lo - taken;
+            taken = lo;
+            out[n++] = (int) key;
+        }
+        System.arraycopy(existing, taken, out, n, existing.length - taken);
+        return out;
+    }
+
+    private static long[] durationKeys(List<Song> songs, int from, int to) {
+        long[] packed = new long[to - from];
+        for (int i = from; i < to; i++) packed[i - from] = durationKey(songs, i);
+        Arrays.sort(packed);
+        return packed;
+    }
+
+    // Unknown durations sort first; ties keep library order because the ordinal is the low half.
+    private static long durationKey(List<Song> songs, int ordinal) {
+        long millis = Math.min(Integer.MAX_VALUE, Math.max(0, songs.get(ordinal).getDurationMillis()));
+        return (millis << 32) | ordinal;
+    }
+
+    private static int[] unpack(long[] packed) {
+        int[] out = new int[packed.length];
+        for (int i = 0; i < packed.length; i++) out[i] = (int) packed[i];
+        return out;
+    }
+
+    private static int[] invert(int[] order) {
+        int[] inverse = new int[order.length];
+        for (int i = 0; i < order.length; i++) inverse[order[i]] = i;
+        return inverse;
+    }
+
+    private static String text(SortColumn column, Song song) {
+        switch (column) {
+            case ARTIST:
+                return song.getArtist();
+            case ALBUM:
+                return song.getAlbum();
+            default:
+                return song.getTitle();
+        }
+    }
+
+    private static final class Keyed {
+        final CollationKey key;
+        final int ordinal;
+
+        Keyed(CollationKey key, int ordinal) {
+            this.key = key;
+            this.ordinal = ordinal;
+        }
+    }
+}
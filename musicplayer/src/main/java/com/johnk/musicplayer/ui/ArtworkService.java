@@ -0,0 +1,338 @@
+package com.johnk.musicplayer.ui;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import com.johnk.musicplayer.analysis.FileFingerprint;
+import com.johnk.musicplayer.analysis.Thumbnail;
+import com.johnk.musicplayer.analysis.ThumbnailCache;
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.metadata.CoverArt;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+
+// Cover art for list cells and the now-playing area. Everything but the memory lookup runs on a small
+// pool. A song's art is located and hashed once; which image it was is kept in memory and on disk, and
+// trusted on later runs while the size and modification time of the track and of the art's source are
+// unchanged. Each distinct image is decoded straight to thumbnail size at most once, then served from a
+// pixel-bounded LRU or the thumbnail cache on disk. The pool works newest request first, and a request
+// whose cells have all moved on to other songs by the time a worker reaches it is dropped unread, so
+// after a fast scroll the rows on screen win and the rows scrolled past cost nothing.
+final class ArtworkService {
+
+    static final int THUMBNAIL_SIZE = 96;
+
+    private static final long MAX_CACHED_PIXELS =
+            Math.max(1, Long.getLong("musicplayer.artwork.cacheMB", 24)) * (1 << 20) / 4;
+    private static final int SONG_MEMO_ENTRIES = 20_000;
+    private static final int DIRECTORY_MEMO_ENTRIES = 2_000;
+
+    // Memo value for songs known to have no usable art.
+    private static final String NO_ART = "";
+
+    private final ThumbnailCache disk;
+    private final ExecutorService workers;
+    private final Map<String, Request> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Image>> decoding = new ConcurrentHashMap<>();
+
+    // The three maps below are guarded by this.
+    private final Map<String, String> hashBySong = boundedLru(SONG_MEMO_ENTRIES);
+    private final Map<Path, Optional<Path>> folderImageByDir = boundedLru(DIRECTORY_MEMO_ENTRIES);
+    private final LinkedHashMap<String, Image> images = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedPixels = 0;
+
+    ArtworkService() {
+        this(new ThumbnailCache(), Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() / 2)));
+    }
+
+    ArtworkService(ThumbnailCache disk, int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be at least 1");
+        this.disk = disk;
+        this.workers = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingDeque<>() {
+                    @Override
+                    public boolean offer(Runnable r) {
+                        return offerFirst(r);
+                    }
+                }, r -> {
+                    Thread t = new Thread(r, "artwork-worker");
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                });
+    }
+
+    // Memory only, safe to call from the FX thread while laying out cells. Null when not loaded yet.
+    synchronized Image cached(Song song) {
+        if (song == null) return null;
+        String hash = hashBySong.get(song.getId());
+        return (hash == null || hash.equals(NO_ART)) ? null : images.get(hash);
+    }
+
+    // Completes with null when the song has no art.
+    CompletableFuture<Image> artworkFor(Song song) {
+        return artworkFor(song, null);
+    }
+
+    // As above, but the work is skipped, completing with null, if wanted is false (and nobody else asked
+    // for the song) by the time a worker gets to it. wanted is polled on a worker thread.
+    CompletableFuture<Image> artworkFor(Song song, BooleanSupplier wanted) {
+        if (song == null) return CompletableFuture.completedFuture(null);
+        synchronized (this) {
+            String hash = hashBySong.get(song.getId());
+            if (NO_ART.equals(hash)) return CompletableFuture.completedFuture(null);
+            Image image = (hash == null) ? null : images.get(hash);
+            if (image != null) return CompletableFuture.completedFuture(image);
+        }
+
+        while (true) {
+            Request existing = inFlight.get(song.getId());
+            if (existing != null) {
+                if (existing.join(wanted)) return existing.future;
+                inFlight.remove(song.getId(), existing); // dropped just now; queue a fresh one
+                continue;
+            }
+
+            Request request = new Request();
+            request.join(wanted);
+            if (inFlight.putIfAbsent(song.getId(), request) != null) continue;
+
+            try {
+                workers.execute(() -> run(song, request));
+            } catch (RuntimeException e) {
+                inFlight.remove(song.getId(), request);
+                request.future.complete(null);
+            }
+            return request.future;
+        }
+    }
+
+    private void run(Song song, Request request) {
+        try {
+            if (request.dropIfUnwanted()) {
+                request.future.complete(null);
+                return;
+            }
+            request.future.complete(load(song));
+        } catch (RuntimeException e) {
+            request.future.completeExceptionally(e);
+        } finally {
+            inFlight.remove(song.getId(), request);
+        }
+    }
+
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private Image load(Song song) {
+        Path file = Path.of(song.getPath());
+        String known;
+        synchronized (this) {
+            known = hashBySong.get(song.getId());
+        }
+        if (known == null) known = indexedHash(song, file);
+        if (NO_ART.equals(known)) return null;
+        if (known != null) {
+            Image image = fromCaches(known);
+            if (image != null) return image;
+        }
+
+        Path source = file;
+        byte[] encoded = CoverArt.embedded(file);
+        if (encoded == null) {
+            Path folderImage = folderImage(file.getParent());
+            if (folderImage != null) encoded = CoverArt.readImageFile(folderImage);
+            source = (encoded != null) ? folderImage : file.getParent();
+        }
+
+        Image image = null;
+        String hash = NO_ART;
+        if (encoded != null) {
+            hash = contentHash(encoded);
+            image = decodeOnce(hash, encoded);
+            if (image == null) hash = NO_ART;
+        }
+        synchronized (this) {
+            hashBySong.put(song.getId(), hash);
+        }
+
+        String stamp = (source == null) ? null : stamp(file, source);
+        if (stamp != null) disk.writeSongArt(song.getId(), new ThumbnailCache.SongArt(source, stamp, hash));
+        return image;
+    }
+
+    // What an earlier run found for this song, if neither the track nor the art's source changed since.
+    private String indexedHash(Song song, Path file) {
+        ThumbnailCache.SongArt art = disk.readSongArt(song.getId());
+        if (art == null || !art.stamp.equals(stamp(file, art.source))) return null;
+        synchronized (this) {
+            hashBySong.put(song.getId(), art.hash);
+        }
+        return art.hash;
+    }
+
+    // A folder image appearing or disappearing changes the directory's modification time, which is the
+    // source recorded for songs without art.
+    private static String stamp(Path file, Path source) {
+        String track = FileFingerprint.stat(file);
+        String origin = source.equals(file) ? "" : FileFingerprint.stat(source);
+        return (track == null || origin == null) ? null : track + "/" + origin;
+    }
+
+    // Tracks of one album race here with the same hash; only the first one decodes.
+    private Image decodeOnce(String hash, byte[] encoded) {
+        Image image = fromCaches(hash);
+        if (image != null) return image;
+
+        CompletableFuture<Image> mine = new CompletableFuture<>();
+        CompletableFuture<Image> other = decoding.putIfAbsent(hash, mine);
+        if (other != null) return other.join();
+
+        try {
+            image = fromCaches(hash);
+            if (image == null) {
+                Thumbnail thumbnail = decode(encoded);
+                if (thumbnail != null) {
+                    disk.write(hash, thumbnail);
+                    image = remember(hash, thumbnail);
+                }
+            }
+            mine.complete(image);
+            return image;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            decoding.remove(hash, mine);
+        }
+    }
+
+    private Image fromCaches(String hash) {
+        synchronized (this) {
+            Image image = images.get(hash);
+            if (image != null) return image;
+        }
+        Thumbnail thumbnail = disk.read(hash);
+        return (thumbnail == null) ? null : remember(hash, thumbnail);
+    }
+
+    private Image remember(String hash, Thumbnail thumbnail) {
+        WritableImage image = new WritableImage(thumbnail.width(), thumbnail.height());
+        image.getPixelWriter().setPixels(0, 0, thumbnail.width(), thumbnail.height(),
+                PixelFormat.getIntArgbInstance(), thumbnail.argb(), 0, thumbnail.width());
+
+        synchronized (this) {
+            Image previous = images.put(hash, image);
+            if (previous != null) cachedPixels -= pixels(previous);
+            cachedPixels += pixels(image);
+
+            Iterator<Image> eldest = images.values().iterator();
+            while (cachedPixels > MAX_CACHED_PIXELS && images.size() > 1 && eldest.hasNext()) {
+                Image evicted = eldest.next();
+                if (evicted == image) continue;
+                cachedPixels -= pixels(evicted);
+                eldest.remove();
+            }
+        }
+        return image;
+    }
+
+    // The listing runs outside the lock so cached() never waits on the disk.
+    private Path folderImage(Path dir) {
+        if (dir == null) return null;
+        Optional<Path> known;
+        synchronized (this) {
+            known = folderImageByDir.get(dir);
+        }
+        if (known == null) {
+            known = Optional.ofNullable(CoverArt.folderImage(dir));
+            synchronized (this) {
+                folderImageByDir.put(dir, known);
+            }
+        }
+        return known.orElse(null);
+    }
+
+    // The requested size makes the decoder scale while loading, so the full-size image is never kept.
+    private static Thumbnail decode(byte[] encoded) {
+        Image image = new Image(new ByteArrayInputStream(encoded), THUMBNAIL_SIZE, THUMBNAIL_SIZE, true, true);
+        PixelReader reader = image.getPixelReader();
+        if (image.isError() || reader == null) return null;
+
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        if (width <= 0 || height <= 0) return null;
+        int[] argb = new int[width * height];
+        reader.getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), argb, 0, width);
+        return new Thumbnail(width, height, argb);
+    }
+
+    private static long pixels(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight();
+    }
+
+    private static String contentHash(byte[] encoded) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(encoded));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // One queued load and everyone waiting for it. A null wanted means "always", e.g. now playing or prefetch.
+    private static final class Request {
+        final CompletableFuture<Image> future = new CompletableFuture<>();
+        private final List<BooleanSupplier> interest = new ArrayList<>(1);
+        private boolean always = false;
+        private boolean dropped = false;
+
+        // False once the request was dropped; the caller then queues a new one.
+        synchronized boolean join(BooleanSupplier wanted) {
+            if (dropped) return false;
+            if (wanted == null) {
+                always = true;
+            } else {
+                interest.add(wanted);
+            }
+            return true;
+        }
+
+        synchronized boolean dropIfUnwanted() {
+            if (always) return false;
+            for (BooleanSupplier wanted : interest) {
+                if (wanted.getAsBoolean()) return false;
+            }
+            dropped = true;
+            return true;
+        }
+    }
+
+    private static <K, V> Map<K, V> boundedLru(int maxEntries) {
+        return new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+}
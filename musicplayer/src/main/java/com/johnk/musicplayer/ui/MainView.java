@@ -1,7 +1,10 @@
 package com.johnk.musicplayer.ui;
 
-import javafx.animation.AnimationTimer;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Parent;
@@ -11,21 +14,39 @@ import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 import javafx.scene.shape.SVGPath;
 import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
 import javafx.util.Duration;
 
 import java.io.File;
-import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.johnk.musicplayer.analysis.LoudnessService;
+import com.johnk.musicplayer.analysis.PeakService;
 import com.johnk.musicplayer.domain.Song;
-import com.johnk.musicplayer.persistence.JsonStore;
+import com.johnk.musicplayer.metadata.DurationProber;
+import com.johnk.musicplayer.persistence.LibraryStore;
+import com.johnk.musicplayer.persistence.LibraryStores;
+import com.johnk.musicplayer.persistence.PersistenceWorker;
+import com.johnk.musicplayer.persistence.PlaylistFiles;
+import com.johnk.musicplayer.persistence.PlaybackSession;
+import com.johnk.musicplayer.persistence.SessionStore;
 import com.johnk.musicplayer.player.AudioPlayer;
+import com.johnk.musicplayer.player.ListenTracker;
 import com.johnk.musicplayer.player.PlaybackQueue;
+import com.johnk.musicplayer.player.RepeatMode;
 import com.johnk.musicplayer.service.LibraryService;
+import com.johnk.musicplayer.service.ListeningHistory;
 import com.johnk.musicplayer.service.PlaylistService;
+import com.johnk.musicplayer.service.RecommendationService;
+import com.johnk.musicplayer.service.SortColumn;
 
 public class MainView {
 
@@ -36,24 +57,32 @@ public class MainView {
     private final Button resetLibraryButton = new Button("Reset Library");
 
     private final ListView<Song> songsListView = new ListView<>();
+    private final TableView<Song> songsTableView = new TableView<>();
+    private final ToggleButton tableModeButton = new ToggleButton("Table");
+
+    // Column the song views are ordered by, or null for library/playlist order.
+    private SortColumn sortColumn = null;
+    private boolean sortAscending = true;
+    private boolean awaitingSortIndex = false;
     private final ListView<String> playlistsListView = new ListView<>();
 
     private final Button prevButton = new Button();
     private final Button playPauseButton = new Button();
     private final Button nextButton = new Button();
+    private final ToggleButton shuffleButton = new ToggleButton();
+    private final Button repeatButton = new Button();
 
     private final Label activeViewLabel = new Label("Viewing: Library");
 
     private final Label nowPlayingLabel = new Label("Not Playing");
+    private final ImageView nowPlayingArt = artView(NOW_PLAYING_ART_SIZE);
     private final Label selectedLabel = new Label("Selected: —");
     private final Label statusLabel = new Label("");
 
-    private final LibraryService libraryService = new LibraryService();
-    private final PlaylistService playlistService = new PlaylistService();
+    private final LibraryService libraryService;
+    private final PlaylistService playlistService;
 
-    private final javafx.collections.ObservableList<Song> displayedSongs =
-            javafx.collections.FXCollections.observableArrayList();
-    private List<Song> librarySongsSnapshot = List.of();
+    private final SongListModel displayedSongs;
 
     private final AudioPlayer audioPlayer = new AudioPlayer();
     private final PlaybackQueue playbackQueue = new PlaybackQueue();
@@ -67,34 +96,130 @@ public class MainView {
     private final Button addToPlaylistButton = new Button("Add to Playlist");
     private final Button removeFromPlaylistButton = new Button("Remove Song");
     private final Button deletePlaylistButton = new Button("Delete Playlist");
-
-    private final JsonStore jsonStore = new JsonStore();
+    private final Button importPlaylistButton = new Button("Import Playlist");
+    private final Button exportPlaylistButton = new Button("Export Playlist");
+
+    private final LibraryStore store;
+    private final DurationProber durationProber = new DurationProber();
+    private final PeakService peakService = new PeakService();
+    private final ArtworkService artworkService = new ArtworkService();
+    private final LoudnessService loudnessService = new LoudnessService();
+    private final ListeningHistory listeningHistory = new ListeningHistory();
+    private final RecommendationService recommendationService = new RecommendationService();
+    private final ListenTracker listenTracker = new ListenTracker(audioPlayer.events(), listeningHistory);
+    private final PersistenceWorker persistenceWorker =
+            new PersistenceWorker(this::captureSave, Platform::runLater, Long.getLong("musicplayer.save.delayMs", 500));
+
+    private final SessionStore sessionStore = new SessionStore();
+    private final PersistenceWorker sessionWorker =
+            new PersistenceWorker(this::captureSession, Platform::runLater, Long.getLong("musicplayer.session.delayMs", 1000));
+
+    private boolean libraryLoading = false;
+    private boolean saveDeferred = false;
+    private long loadStartNanos;
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+
+    // The saved session is only overwritten once it has been read back and its queue re-applied.
+    private boolean sessionRestored = false;
+    private PlaybackSession pendingSession = null;
+
+    // While a track plays the position is saved every so often too, so a crash or a killed process loses at
+    // most one interval of it. -Dmusicplayer.session.saveIntervalMs sets the interval (default 15000).
+    private final Timeline sessionTicker = new Timeline(new KeyFrame(
+            Duration.millis(Math.max(1000, Long.getLong("musicplayer.session.saveIntervalMs", 15000))),
+            e -> saveSession()));
 
     private final Slider progressSlider = new Slider(0, 1, 0);
     private final Label currentTimeLabel = new Label("0:00");
     private final Label durationLabel = new Label("0:00");
-    private boolean userDragging = false;
-
-    private AnimationTimer progressTimer;
+    private final WaveformView waveformView = new WaveformView();
+    private final PlaybackProgress playbackProgress =
+            new PlaybackProgress(audioPlayer, progressSlider, currentTimeLabel, durationLabel, waveformView);
 
     private final SVGPath iconPrev = makeIcon("M6 6h2v12H6z M9.5 12l10 6V6z");
     private final SVGPath iconNext = makeIcon("M6 6l10 6-10 6V6z M18 6h2v12h-2z");
     private final SVGPath iconPlay = makeIcon("M8 6v12l10-6z");
     private final SVGPath iconPause = makeIcon("M7 6h4v12H7z M13 6h4v12h-4z");
+    private final SVGPath iconShuffle = makeIcon("M10.59 9.17L5.41 4 4 5.41l5.17 5.17z M14.5 4l2.04 2.04L4 18.59 5.41 20 17.96 7.46 20 9.5V4z M14.83 13.41l-1.41 1.41 3.13 3.13L14.5 20H20v-5.5l-2.04 2.04z");
+    private final SVGPath iconRepeat = makeIcon("M7 7h10v3l4-4-4-4v3H5v6h2z M17 17H7v-3l-4 4 4 4v-3h12v-6h-2z");
+    private final SVGPath iconRepeatOne = makeIcon("M7 7h10v3l4-4-4-4v3H5v6h2z M17 17H7v-3l-4 4 4 4v-3h12v-6h-2z M13 15V9h-1l-2 1v1h1.5v4z");
+
+    // Sort indexes are built once per library load; a short-lived low-priority thread is enough.
+    private static final Executor SORT_INDEX_BUILDER = r -> {
+        Thread t = new Thread(r, "sort-index");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        t.start();
+    };
+
+    private static final double LIST_ART_SIZE = 32;
+    private static final double NOW_PLAYING_ART_SIZE = 48;
 
     private static final String LOGO_PATH = "/com/johnk/musicplayer/ui/playra_logo_p.png";
 
-    public MainView() {
+    // Everything the view needs before it can show the library: the opened store and its first shard.
+    // This is the blocking part of startup, so it may be built off the FX thread.
+    public static final class Preloaded {
+        private final LibraryStore store;
+        private final LibraryService library = new LibraryService();
+        private final PlaylistService playlists = new PlaylistService();
+
+        private Preloaded(LibraryStore store) {
+            this.store = store;
+        }
+
+        // For a preload that never gets a view, e.g. when the window closes first.
+        public void close() {
+            store.close();
+        }
+    }
+
+    public static Preloaded preload() {
+        long start = StartupTimer.now();
+        Preloaded preloaded = new Preloaded(LibraryStores.open());
+        StartupTimer.record("store.open", start);
+
+        start = StartupTimer.now();
+        try {
+            preloaded.store.load(preloaded.library, preloaded.playlists);
+        } catch (RuntimeException e) {
+            preloaded.close();
+            throw e;
+        }
+        StartupTimer.record("library.firstShard", start);
+        return preloaded;
+    }
+
+    public MainView(Preloaded preloaded) {
+        store = preloaded.store;
+        libraryService = preloaded.library;
+        playlistService = preloaded.playlists;
+        displayedSongs = new SongListModel(libraryService::ordinalOf);
+
+        persistenceWorker.setOnError(ex -> Platform.runLater(
+                () -> statusLabel.setText("Saving failed: " + ex.getMessage())));
+        sessionWorker.setOnError(ex -> Platform.runLater(
+                () -> statusLabel.setText("Saving session failed: " + ex.getMessage())));
+        audioPlayer.setNextTrackSupplier(playbackQueue::peekNext);
+        audioPlayer.setGainSource(loudnessService::gainDbFor);
+        sessionTicker.setCycleCount(Animation.INDEFINITE);
+
         buildLayout();
         configureListRendering();
+        configureTableRendering();
         wireHandlers();
+        wirePlaybackEvents();
 
+        listeningHistory.setPlayListener(recommendationService);
+        listeningHistory.load().whenComplete((records, err) -> {
+            if (err != null) Platform.runLater(() -> statusLabel.setText("Listening history unavailable: " + err.getMessage()));
+        });
         loadState();
+        restoreSession();
 
         refreshPlaylistsList();
         refreshPlaylistButtons();
 
-        initProgressBar();
         setActiveViewLabel();
         updateNowPlayingHint();
     }
@@ -103,37 +228,221 @@ public class MainView {
         return root;
     }
 
+    // Completes on the FX thread once the whole saved library is in.
+    public CompletableFuture<Void> ready() {
+        return ready;
+    }
+
     public void saveState() {
-        List<Song> songsToSave = libraryService.getAllSongs();
-        Map<String, List<String>> playlistsToSave = playlistService.exportPlaylists();
-        jsonStore.save(songsToSave, playlistsToSave);
+        // Never snapshot a partially loaded library; the save runs once the last shard is in.
+        if (libraryLoading) {
+            saveDeferred = true;
+            return;
+        }
+        persistenceWorker.markDirty();
+    }
+
+    public void shutdown() {
+        long timeoutMillis = Long.getLong("musicplayer.save.shutdownTimeoutMs", 5000);
+        persistenceWorker.flushAndShutdown(timeoutMillis, TimeUnit.MILLISECONDS);
+        // Always capture the final position, even if nothing else changed since the last session write.
+        sessionTicker.stop();
+        sessionWorker.markDirty();
+        sessionWorker.flushAndShutdown(timeoutMillis, TimeUnit.MILLISECONDS);
+        listenTracker.close();
+        listeningHistory.shutdown();
+        durationProber.shutdown();
+        peakService.shutdown();
+        artworkService.shutdown();
+        loudnessService.shutdown();
+        store.close();
+        audioPlayer.dispose();
+    }
+
+    // Runs on the FX thread: copies references only, the returned task does the disk I/O.
+    private Runnable captureSave() {
+        return store.prepareSave(libraryService, playlistService);
+    }
+
+    private void saveSession() {
+        sessionWorker.markDirty();
+    }
+
+    // Runs on the FX thread. Queue snapshots are immutable, so mapping them to ordinals happens on the writer.
+    private Runnable captureSession() {
+        if (!sessionRestored || pendingSession != null) return null;
+
+        List<Song> library = libraryService.getAllSongs();
+        List<Song> context = playbackQueue.snapshot();
+        List<Song> upNext = playbackQueue.upNext();
+        int index = playbackQueue.getCurrentIndex();
+        boolean queued = playbackQueue.isPlayingQueued();
+        Song current = audioPlayer.getCurrentSong();
+        Duration time = audioPlayer.getCurrentTime();
+        long positionMillis = (time == null || time.isUnknown()) ? 0 : (long) time.toMillis();
+        boolean playing = audioPlayer.isPlaying();
+        boolean shuffle = playbackQueue.isShuffle();
+        String repeat = playbackQueue.getRepeat().name();
+
+        return () -> sessionStore.write(PlaybackSession.capture(
+                library, context, index, upNext, current, queued, positionMillis, playing, shuffle, repeat));
+    }
+
+    // Starts the last session's track straight away at its saved position, using the stored song record
+    // if its library shard has not loaded yet. The queue is stored as library ordinals, so it is only
+    // rebuilt once the whole library is in.
+    private void restoreSession() {
+        PlaybackSession session = sessionStore.read();
+        sessionRestored = true;
+        if (session == null) return;
+
+        applyRepeatMode(parseRepeat(session.getRepeat()));
+        playbackQueue.setShuffle(session.isShuffle());
+        shuffleButton.setSelected(session.isShuffle());
+
+        Song saved = session.getCurrent();
+        if (saved != null && Files.isRegularFile(Path.of(saved.getPath()))) {
+            Song current = libraryService.getSongById(saved.getId()).orElse(saved);
+            try {
+                if (session.isPlaying()) {
+                    audioPlayer.loadAndPlay(current, session.getPositionMillis());
+                } else {
+                    audioPlayer.loadPaused(current, session.getPositionMillis());
+                }
+                afterTrackLoadedSetup();
+            } catch (RuntimeException ex) {
+                statusLabel.setText("Could not resume " + current.getTitle() + ": " + ex.getMessage());
+            }
+        }
+
+        if (libraryLoading) {
+            pendingSession = session;
+        } else {
+            applySessionQueue(session);
+        }
+
+        refreshPlayPauseButton();
+        updateNowPlayingHint();
+    }
+
+    private void applySessionQueue(PlaybackSession session) {
+        pendingSession = null;
+
+        // Something else was started while the library was loading; that queue wins.
+        Song current = audioPlayer.getCurrentSong();
+        if (current == null || current.equals(session.getCurrent())) {
+            List<Song> library = libraryService.getAllSongs();
+            playbackQueue.restore(
+                    session.resolveContext(library),
+                    session.resolveContextIndex(library),
+                    session.resolveUpNext(library),
+                    (session.isCurrentQueued() && current != null) ? current : null);
+            refreshQueueButtons();
+        }
+        saveSession();
+    }
+
+    private static RepeatMode parseRepeat(String name) {
+        for (RepeatMode mode : RepeatMode.values()) {
+            if (mode.name().equals(name)) return mode;
+        }
+        return RepeatMode.OFF;
     }
 
     private void loadState() {
-        Optional<JsonStore.StoredData> maybe = jsonStore.load();
-        if (maybe.isEmpty()) {
-            librarySongsSnapshot = List.of();
-            displayedSongs.setAll(librarySongsSnapshot);
-            playbackQueue.setQueue(displayedSongs);
+        loadStartNanos = StartupTimer.now();
+        displayedSongs.showAll(libraryService.getAllSongs());
+
+        CompletableFuture<Void> remaining = store.loadRemaining(this::appendLoadedSongs, Platform::runLater);
+        if (remaining.isDone()) {
+            finishLoading();
             return;
         }
 
-        JsonStore.StoredData data = maybe.get();
+        libraryLoading = true;
+        importFolderButton.setDisable(true);
+        resetLibraryButton.setDisable(true);
+        statusLabel.setText("Loading library...");
+
+        remaining.whenComplete((v, err) -> Platform.runLater(this::finishLoading));
+    }
+
+    private void appendLoadedSongs(List<Song> block) {
+        libraryService.appendLoaded(block);
+
+        String q = searchField.getText();
+        if (!showingPlaylist && (q == null || q.isBlank())) {
+            displayedSongs.libraryAppended(libraryService.getAllSongs());
+        }
+
+        statusLabel.setText("Loading library... " + libraryService.size() + " song(s)");
+    }
+
+    private void finishLoading() {
+        StartupTimer.record("library.remaining", loadStartNanos);
+        boolean wasLoading = libraryLoading;
+        libraryLoading = false;
 
-        List<Song> songs = JsonStore.toSongs(data);
-        libraryService.loadLibrary(songs);
+        boolean wantsSave = store.attach(libraryService, playlistService);
+        recommendationService.attach(playlistService);
+
+        String q = searchField.getText();
+        if (showingPlaylist && activePlaylistName != null) {
+            if (wasLoading && selectedSong == null) switchToPlaylistView(activePlaylistName);
+        } else if ((q != null && !q.isBlank()) || sortColumn != null) {
+            showView(null, q);
+        } else {
+            displayedSongs.libraryAppended(libraryService.getAllSongs());
+        }
 
-        playlistService.loadPlaylists(data.playlists);
+        importFolderButton.setDisable(false);
+        resetLibraryButton.setDisable(false);
 
-        librarySongsSnapshot = libraryService.getAllSongs();
-        displayedSongs.setAll(librarySongsSnapshot);
-        playbackQueue.setQueue(displayedSongs);
+        String recoveryNote = store.recoveryNote();
+        if (recoveryNote != null) {
+            statusLabel.setText(recoveryNote);
+        } else {
+            statusLabel.setText(
+                    libraryService.size() == 0
+                            ? ""
+                            : "Loaded " + libraryService.size() + " song(s) from saved library."
+            );
+        }
 
-        statusLabel.setText(
-                librarySongsSnapshot.isEmpty()
-                        ? ""
-                        : "Loaded " + librarySongsSnapshot.size() + " song(s) from saved library."
-        );
+        if (saveDeferred || wantsSave) {
+            saveDeferred = false;
+            saveState();
+        }
+
+        if (pendingSession != null) applySessionQueue(pendingSession);
+
+        startBackgroundAnalysis();
+        ready.complete(null);
+    }
+
+    private void startBackgroundAnalysis() {
+        List<Song> library = libraryService.getAllSongs();
+        listeningHistory.index(library);
+        recommendationService.index(library);
+        durationProber.probeMissing(library, this::onDurationsProbed, this::onDurationProbingFinished, Platform::runLater);
+        loudnessService.analyze(library);
+        libraryService.prepareSortIndex(SORT_INDEX_BUILDER, Platform::runLater);
+    }
+
+    private void onDurationsProbed(List<Song> probed) {
+        libraryService.notifySongsUpdated(probed);
+        songsListView.refresh();
+        songsTableView.refresh();
+        setActiveViewLabel();
+    }
+
+    // One save per probing run instead of one per batch; songs probed before an exit are probed again.
+    // The duration sort order is likewise rebuilt once here, off the FX thread.
+    private void onDurationProbingFinished() {
+        saveState();
+        libraryService.refreshDurationOrder(SORT_INDEX_BUILDER, Platform::runLater).thenRun(() -> {
+            if (sortColumn == SortColumn.DURATION) reapplyView();
+        });
     }
 
     private void buildLayout() {
@@ -169,22 +478,36 @@ public class MainView {
 
         activeViewLabel.getStyleClass().add("active-view");
 
-        VBox songsPane = new VBox(6, activeViewLabel, statusLabel, songsListView);
+        Region viewSpacer = new Region();
+        HBox.setHgrow(viewSpacer, Priority.ALWAYS);
+        HBox songsHeader = new HBox(8, activeViewLabel, viewSpacer, tableModeButton);
+        songsHeader.setAlignment(Pos.CENTER_LEFT);
+        tableModeButton.setTooltip(new Tooltip("Show songs as a sortable table"));
+
+        songsTableView.setVisible(false);
+        StackPane songsHolder = new StackPane(songsListView, songsTableView);
+
+        VBox songsPane = new VBox(6, songsHeader, statusLabel, songsHolder);
         songsPane.setPadding(new Insets(0, 10, 0, 0));
-        VBox.setVgrow(songsListView, Priority.ALWAYS);
+        VBox.setVgrow(songsHolder, Priority.ALWAYS);
 
         HBox playlistActions = new HBox(8, newPlaylistButton, addToPlaylistButton, removeFromPlaylistButton, deletePlaylistButton);
         playlistActions.setAlignment(Pos.CENTER_LEFT);
 
+        HBox playlistFileActions = new HBox(8, importPlaylistButton, exportPlaylistButton);
+        playlistFileActions.setAlignment(Pos.CENTER_LEFT);
+
         addToPlaylistButton.setDisable(true);
         removeFromPlaylistButton.setDisable(true);
         deletePlaylistButton.setDisable(true);
+        exportPlaylistButton.setDisable(true);
 
         VBox playlistsPane = new VBox(
                 6,
                 sectionHeader("Playlists"),
                 playlistsListView,
-                playlistActions
+                playlistActions,
+                playlistFileActions
         );
 
         playlistsPane.getStyleClass().add("sidebar");
@@ -199,8 +522,10 @@ public class MainView {
         setupIconButton(prevButton, iconPrev, "Previous");
         setupIconButton(playPauseButton, iconPlay, "Play / Pause");
         setupIconButton(nextButton, iconNext, "Next");
+        setupIconButton(shuffleButton, iconShuffle, "Shuffle");
+        setupIconButton(repeatButton, iconRepeat, "Repeat: off");
 
-        HBox controls = new HBox(10, prevButton, playPauseButton, nextButton);
+        HBox controls = new HBox(10, shuffleButton, prevButton, playPauseButton, nextButton, repeatButton);
         controls.setAlignment(Pos.CENTER_LEFT);
 
         nowPlayingLabel.getStyleClass().add("now-playing");
@@ -217,12 +542,18 @@ public class MainView {
         progressSlider.setMax(1);
         progressSlider.setValue(0);
 
-        HBox progressRow = new HBox(10, currentTimeLabel, progressSlider, durationLabel);
+        StackPane seekBar = new StackPane(waveformView, progressSlider);
+        seekBar.setMinWidth(0);
+
+        HBox progressRow = new HBox(10, currentTimeLabel, seekBar, durationLabel);
         progressRow.getStyleClass().add("player-progress-row");
         progressRow.setAlignment(Pos.CENTER);
-        HBox.setHgrow(progressSlider, Priority.ALWAYS);
+        HBox.setHgrow(seekBar, Priority.ALWAYS);
 
-        HBox bottomButtonsRow = new HBox(12, controls, bottomSpacer, rightLabels);
+        HBox nowPlayingBox = new HBox(10, rightLabels, nowPlayingArt);
+        nowPlayingBox.setAlignment(Pos.CENTER_RIGHT);
+
+        HBox bottomButtonsRow = new HBox(12, controls, bottomSpacer, nowPlayingBox);
         bottomButtonsRow.setAlignment(Pos.CENTER_LEFT);
 
         VBox bottomBar = new VBox(6, progressRow, bottomButtonsRow);
@@ -235,26 +566,25 @@ public class MainView {
         nextButton.setDisable(true);
 
         songsListView.setItems(displayedSongs);
+        songsTableView.setItems(displayedSongs);
 
         statusLabel.setWrapText(true);
         statusLabel.setMinHeight(18);
     }
 
+    // Decoded in the background; the view fills in once the image arrives.
     private ImageView buildLogoView() {
-        try (InputStream is = getClass().getResourceAsStream(LOGO_PATH)) {
-            if (is == null) return null;
+        URL logo = getClass().getResource(LOGO_PATH);
+        if (logo == null) return null;
 
-            ImageView iv = new ImageView(new Image(is));
-            iv.getStyleClass().add("brand-logo");
-            iv.setPreserveRatio(true);
-            iv.setSmooth(true);
+        ImageView iv = new ImageView(new Image(logo.toExternalForm(), true));
+        iv.getStyleClass().add("brand-logo");
+        iv.setPreserveRatio(true);
+        iv.setSmooth(true);
 
-            iv.setFitHeight(44);
+        iv.setFitHeight(44);
 
-            return iv;
-        } catch (Exception ignored) {
-            return null;
-        }
+        return iv;
     }
 
     private Label sectionHeader(String text) {
@@ -265,97 +595,146 @@ public class MainView {
 
     private void configureListRendering() {
         songsListView.setCellFactory(lv -> new ListCell<>() {
+            private final ImageView art = artView(LIST_ART_SIZE);
+            // What this cell shows now; read by artwork workers to drop requests for rows scrolled past.
+            private volatile Song shown;
+
             @Override
             protected void updateItem(Song song, boolean empty) {
                 super.updateItem(song, empty);
-                setText(empty || song == null ? null : song.toString());
+                shown = empty ? null : song;
+                if (empty || song == null) {
+                    setText(null);
+                    setGraphic(null);
+                    return;
+                }
+                setText((song.getDurationMillis() > 0)
+                        ? song + "   " + formatTime(Duration.millis(song.getDurationMillis()))
+                        : song.toString());
+
+                // Cells are recycled while scrolling, so a late image only lands if the cell still shows its song.
+                setGraphic(art);
+                art.setImage(artworkService.cached(song));
+                if (art.getImage() == null) {
+                    artworkService.artworkFor(song, () -> shown == song).thenAccept(image -> Platform.runLater(() -> {
+                        if (image != null && getItem() == song) art.setImage(image);
+                    }));
+                }
             }
         });
     }
 
-    private void wireHandlers() {
-
-        songsListView.getSelectionModel().selectedIndexProperty().addListener((obs, oldIdx, newIdx) -> {
-            if (newIdx == null || newIdx.intValue() < 0) {
-                selectedSong = null;
-                playbackQueue.playAt(-1);
-
-                selectedLabel.setText("Selected: —");
-
-                playPauseButton.setDisable(true);
-                prevButton.setDisable(true);
-                nextButton.setDisable(true);
-                setPlayPauseIcon(false);
-
-                resetProgressUI();
-                updateNowPlayingHint();
-                refreshPlaylistButtons();
-                return;
+    // Headers sort through LibraryService's precomputed orderings; the table's own Comparator sort never runs.
+    private void configureTableRendering() {
+        songsTableView.getColumns().add(textColumn("Title", SortColumn.TITLE, 260, Song::getTitle));
+        songsTableView.getColumns().add(textColumn("Artist", SortColumn.ARTIST, 180, Song::getArtist));
+        songsTableView.getColumns().add(textColumn("Album", SortColumn.ALBUM, 180, Song::getAlbum));
+        songsTableView.getColumns().add(textColumn("Duration", SortColumn.DURATION, 80,
+                s -> (s.getDurationMillis() > 0) ? formatTime(Duration.millis(s.getDurationMillis())) : ""));
+        songsTableView.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+
+        songsTableView.setSortPolicy(table -> {
+            TableColumn<Song, ?> first = table.getSortOrder().isEmpty() ? null : table.getSortOrder().get(0);
+            SortColumn column = (first == null) ? null : (SortColumn) first.getUserData();
+            boolean ascending = first == null || first.getSortType() == TableColumn.SortType.ASCENDING;
+            if (column != sortColumn || ascending != sortAscending) {
+                sortColumn = column;
+                sortAscending = ascending;
+                reapplyView();
             }
+            return true;
+        });
+    }
+
+    private static TableColumn<Song, String> textColumn(String title, SortColumn key, double width,
+                                                         Function<Song, String> value) {
+        TableColumn<Song, String> column = new TableColumn<>(title);
+        column.setUserData(key);
+        column.setPrefWidth(width);
+        column.setCellValueFactory(cell -> new ReadOnlyStringWrapper(value.apply(cell.getValue())));
+        return column;
+    }
 
-            int idx = newIdx.intValue();
-            selectedSong = displayedSongs.get(idx);
-            playbackQueue.playAt(idx);
+    // The list and the table show the same items; only the visible one carries the selection.
+    private MultipleSelectionModel<Song> songSelection() {
+        return tableModeButton.isSelected() ? songsTableView.getSelectionModel() : songsListView.getSelectionModel();
+    }
 
+    private void onSongSelectionChanged(Number newIdx) {
+        // Selection only picks what Play starts; the queue and current playback are left alone.
+        if (newIdx == null || newIdx.intValue() < 0) {
+            selectedSong = null;
+            selectedLabel.setText("Selected: —");
+        } else {
+            selectedSong = displayedSongs.get(newIdx.intValue());
             selectedLabel.setText("Selected: " + selectedSong);
+        }
 
-            playPauseButton.setDisable(false);
-            prevButton.setDisable(!playbackQueue.hasPrev());
-            nextButton.setDisable(!playbackQueue.hasNext());
+        refreshPlayPauseButton();
+        updateNowPlayingHint();
+        refreshPlaylistButtons();
+    }
 
-            boolean isSameAndPlaying =
-                    audioPlayer.getCurrentSong() != null
-                            && selectedSong.equals(audioPlayer.getCurrentSong())
-                            && audioPlayer.isPlaying();
+    private void wireHandlers() {
 
-            setPlayPauseIcon(isSameAndPlaying);
+        songsListView.getSelectionModel().selectedIndexProperty().addListener((obs, oldIdx, newIdx) -> {
+            if (!tableModeButton.isSelected()) onSongSelectionChanged(newIdx);
+        });
+        songsTableView.getSelectionModel().selectedIndexProperty().addListener((obs, oldIdx, newIdx) -> {
+            if (tableModeButton.isSelected()) onSongSelectionChanged(newIdx);
+        });
 
-            updateNowPlayingHint();
-            refreshPlaylistButtons();
+        tableModeButton.setOnAction(e -> {
+            boolean table = tableModeButton.isSelected();
+            int selected = (table ? songsListView.getSelectionModel() : songsTableView.getSelectionModel()).getSelectedIndex();
+            (table ? songsListView.getSelectionModel() : songsTableView.getSelectionModel()).clearSelection();
+            songsListView.setVisible(!table);
+            songsTableView.setVisible(table);
+            if (selected >= 0) {
+                songSelection().select(selected);
+                if (table) {
+                    songsTableView.scrollTo(selected);
+                } else {
+                    songsListView.scrollTo(selected);
+                }
+            }
         });
 
+        MenuItem playNextItem = new MenuItem("Play Next");
+        playNextItem.setOnAction(e -> handleQueueSelected(true));
+        MenuItem addToQueueItem = new MenuItem("Add to Queue");
+        addToQueueItem.setOnAction(e -> handleQueueSelected(false));
+        MenuItem similarItem = new MenuItem("Similar Songs");
+        similarItem.setOnAction(e -> handleShowSimilar());
+        ContextMenu songMenu = new ContextMenu(playNextItem, addToQueueItem, new SeparatorMenuItem(), similarItem);
+        songsListView.setContextMenu(songMenu);
+        songsTableView.setContextMenu(songMenu);
+
         importFolderButton.setOnAction(e -> handleImportFolder());
         playPauseButton.setOnAction(e -> handlePlayPause());
         resetLibraryButton.setOnAction(e -> handleResetLibrary());
 
-        prevButton.setOnAction(e -> {
-            Song prev = playbackQueue.prev();
-            if (prev == null) return;
-
-            songsListView.getSelectionModel().select(playbackQueue.getCurrentIndex());
-            selectedSong = prev;
-            selectedLabel.setText("Selected: " + prev);
-
-            audioPlayer.loadAndPlay(prev);
-            afterTrackLoadedSetup();
-
-            prevButton.setDisable(!playbackQueue.hasPrev());
-            nextButton.setDisable(!playbackQueue.hasNext());
-
-            refreshPlaylistButtons();
+        shuffleButton.setOnAction(e -> {
+            playbackQueue.setShuffle(shuffleButton.isSelected());
+            refreshQueueButtons();
+            saveSession();
         });
 
-        nextButton.setOnAction(e -> {
-            Song next = playbackQueue.next();
-            if (next == null) return;
-
-            songsListView.getSelectionModel().select(playbackQueue.getCurrentIndex());
-            selectedSong = next;
-            selectedLabel.setText("Selected: " + next);
-
-            audioPlayer.loadAndPlay(next);
-            afterTrackLoadedSetup();
-
-            prevButton.setDisable(!playbackQueue.hasPrev());
-            nextButton.setDisable(!playbackQueue.hasNext());
-
-            refreshPlaylistButtons();
+        repeatButton.setOnAction(e -> {
+            applyRepeatMode(playbackQueue.getRepeat().next());
+            refreshQueueButtons();
+            saveSession();
         });
 
+        prevButton.setOnAction(e -> playFromQueue(playbackQueue.prev()));
+        nextButton.setOnAction(e -> playFromQueue(playbackQueue.next()));
+
         newPlaylistButton.setOnAction(e -> handleCreatePlaylist());
         addToPlaylistButton.setOnAction(e -> handleAddSelectedToPlaylist());
         removeFromPlaylistButton.setOnAction(e -> handleRemoveSelectedFromPlaylist());
         deletePlaylistButton.setOnAction(e -> handleDeletePlaylist());
+        importPlaylistButton.setOnAction(e -> handleImportPlaylist());
+        exportPlaylistButton.setOnAction(e -> handleExportPlaylist());
 
         playlistsListView.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
             if (newVal == null) {
@@ -376,133 +755,173 @@ public class MainView {
         searchField.textProperty().addListener((obs, oldVal, newVal) -> applySearchFilter(newVal));
     }
 
-    private void initProgressBar() {
-        progressSlider.setOnMousePressed(e -> userDragging = true);
-        progressSlider.setOnMouseReleased(e -> {
-            if (!audioPlayer.hasMedia()) {
-                userDragging = false;
-                return;
-            }
-
-            Duration total = audioPlayer.getTotalDuration();
-            if (total == null || total.isUnknown() || total.lessThanOrEqualTo(Duration.ZERO)) {
-                userDragging = false;
-                return;
-            }
-
-            double seconds = progressSlider.getValue();
-            audioPlayer.seek(Duration.seconds(seconds));
-            userDragging = false;
-        });
-
-        progressSlider.valueChangingProperty().addListener((obs, wasChanging, isChanging) -> userDragging = isChanging);
-
-        progressTimer = new AnimationTimer() {
-            @Override
-            public void handle(long now) {
-                if (!audioPlayer.hasMedia()) return;
-
-                Duration total = audioPlayer.getTotalDuration();
-                Duration current = audioPlayer.getCurrentTime();
-
-                if (total == null || total.isUnknown() || total.lessThanOrEqualTo(Duration.ZERO)) return;
-                if (current == null) current = Duration.ZERO;
-
-                durationLabel.setText(formatTime(total));
-
-                if (!userDragging) {
-                    progressSlider.setDisable(false);
-                    progressSlider.setMax(total.toSeconds());
-                    progressSlider.setValue(current.toSeconds());
-                }
-
-                currentTimeLabel.setText(formatTime(current));
-            }
-        };
-        progressTimer.start();
+    private void applyRepeatMode(RepeatMode mode) {
+        playbackQueue.setRepeat(mode);
+        repeatButton.setGraphic((mode == RepeatMode.ONE) ? iconRepeatOne : iconRepeat);
+        repeatButton.setTooltip(new Tooltip("Repeat: " + mode.name().toLowerCase(Locale.ROOT)));
+        if (mode == RepeatMode.OFF) {
+            repeatButton.getStyleClass().remove("mode-on");
+        } else if (!repeatButton.getStyleClass().contains("mode-on")) {
+            repeatButton.getStyleClass().add("mode-on");
+        }
     }
 
     private void afterTrackLoadedSetup() {
         resetProgressUI();
+        showWaveform(audioPlayer.getCurrentSong());
+        showArtwork(audioPlayer.getCurrentSong());
+        saveSession();
+    }
 
-        audioPlayer.setOnReady(() -> Platform.runLater(() -> {
-            Duration total = audioPlayer.getTotalDuration();
-            if (total == null || total.isUnknown() || total.lessThanOrEqualTo(Duration.ZERO)) {
-                resetProgressUI();
-                updateNowPlayingHint();
-                return;
+    // Subscribed once for the lifetime of the view; events from an earlier load are stale, even when
+    // that load played the same song (repeat-one, replay).
+    private void wirePlaybackEvents() {
+        audioPlayer.events().subscribe(event -> {
+            if (!audioPlayer.isCurrent(event)) return;
+            switch (event.getType()) {
+                case READY -> onTrackReady();
+                case PLAYING -> {
+                    playbackProgress.start();
+                    sessionTicker.play();
+                    setPlayPauseIcon(true);
+                    updateNowPlayingHint();
+                }
+                case PAUSED, STOPPED -> {
+                    playbackProgress.stop();
+                    sessionTicker.stop();
+                    setPlayPauseIcon(false);
+                    updateNowPlayingHint();
+                    saveSession();
+                }
+                case END_OF_MEDIA -> {
+                    playbackProgress.stop();
+                    sessionTicker.stop();
+                    advanceAfterEndOfMedia();
+                }
+                default -> {
+                }
             }
-            progressSlider.setDisable(false);
-            progressSlider.setMax(total.toSeconds());
-            durationLabel.setText(formatTime(total));
-            updateNowPlayingHint();
-        }));
+        }, Platform::runLater);
 
-        audioPlayer.setOnPlaying(() -> Platform.runLater(() -> {
-            setPlayPauseIcon(true);
+        // The player has already unloaded the failed track, so compare loads rather than isCurrent.
+        audioPlayer.events().subscribeErrors(event -> {
+            if (event.getLoad() != audioPlayer.currentLoad()) return;
+            sessionTicker.stop();
+            resetProgressUI();
+            setPlayPauseIcon(false);
             updateNowPlayingHint();
-        }));
+            RuntimeException error = event.getError();
+            statusLabel.setText("Playback error: " + ((error == null) ? "unknown error." : error.getMessage()));
+        }, Platform::runLater);
+    }
 
-        audioPlayer.setOnPaused(() -> Platform.runLater(() -> {
-            setPlayPauseIcon(false);
+    private void onTrackReady() {
+        Duration total = audioPlayer.getTotalDuration();
+        if (total == null || total.isUnknown() || total.lessThanOrEqualTo(Duration.ZERO)) {
+            resetProgressUI();
             updateNowPlayingHint();
-        }));
+            return;
+        }
+        playbackProgress.trackReady(total);
+        updateNowPlayingHint();
+    }
 
-        audioPlayer.setOnStopped(() -> Platform.runLater(() -> {
+    private void advanceAfterEndOfMedia() {
+        Song next = playbackQueue.advanceAfterEnd();
+        if (next == null) {
             setPlayPauseIcon(false);
             updateNowPlayingHint();
-        }));
+            return;
+        }
+        playFromQueue(next);
+    }
 
-        audioPlayer.setOnEndOfMedia(() -> Platform.runLater(() -> {
-            Song next = playbackQueue.next();
-            if (next == null) {
-                setPlayPauseIcon(false);
-                updateNowPlayingHint();
-                return;
-            }
+    // Plays a song the queue moved to, and highlights it if the current view happens to show it.
+    private void playFromQueue(Song song) {
+        if (song == null) return;
 
-            songsListView.getSelectionModel().select(playbackQueue.getCurrentIndex());
-            selectedSong = next;
-            selectedLabel.setText("Selected: " + next);
+        // A queued song outside the current view must not leave the old selection behind, or Play/Pause
+        // would restart that song instead of pausing this one.
+        int visibleIndex = displayedSongs.indexOf(song);
+        if (visibleIndex >= 0) {
+            songSelection().select(visibleIndex);
+        } else {
+            songSelection().clearSelection();
+        }
 
-            audioPlayer.loadAndPlay(next);
+        try {
+            audioPlayer.loadAndPlay(song);
             afterTrackLoadedSetup();
+        } catch (IllegalArgumentException ex) {
+            statusLabel.setText("Playback error: " + ex.getMessage());
+        }
 
-            prevButton.setDisable(!playbackQueue.hasPrev());
-            nextButton.setDisable(!playbackQueue.hasNext());
+        refreshQueueButtons();
+        refreshPlayPauseButton();
+        updateNowPlayingHint();
+        refreshPlaylistButtons();
+    }
 
-            refreshPlaylistButtons();
+    // Peaks come from the cache or a background decode; a late result for a previous track is dropped.
+    private void showWaveform(Song song) {
+        clearWaveform();
+        if (song == null) return;
+
+        peakService.peaksFor(song).thenAccept(peaks -> Platform.runLater(() -> {
+            if (peaks == null || song != audioPlayer.getCurrentSong()) return;
+            waveformView.setPeaks(peaks);
+            if (!progressSlider.getStyleClass().contains("waveform-slider")) {
+                progressSlider.getStyleClass().add("waveform-slider");
+            }
         }));
+        peakService.prefetch(playbackQueue.peekNext());
+    }
+
+    private void showArtwork(Song song) {
+        nowPlayingArt.setImage(artworkService.cached(song));
+        if (song != null && nowPlayingArt.getImage() == null) {
+            artworkService.artworkFor(song).thenAccept(image -> Platform.runLater(() -> {
+                if (song == audioPlayer.getCurrentSong()) nowPlayingArt.setImage(image);
+            }));
+        }
+        artworkService.artworkFor(playbackQueue.peekNext());
+    }
+
+    private void clearWaveform() {
+        waveformView.setPeaks(null);
+        progressSlider.getStyleClass().remove("waveform-slider");
     }
 
     private void resetProgressUI() {
-        progressSlider.setDisable(true);
-        progressSlider.setMin(0);
-        progressSlider.setMax(1);
-        progressSlider.setValue(0);
-        currentTimeLabel.setText("0:00");
-        durationLabel.setText("0:00");
-        userDragging = false;
+        playbackProgress.reset();
+        if (!audioPlayer.hasMedia()) clearWaveform();
+    }
+
+    private static String stripExtension(String filename) {
+        int dot = filename.lastIndexOf('.');
+        return (dot > 0) ? filename.substring(0, dot) : filename;
     }
 
     private String formatTime(Duration d) {
         if (d == null || d.isUnknown()) return "0:00";
+        return PlaybackProgress.formatSeconds((long) Math.floor(d.toSeconds()));
+    }
 
-        int totalSeconds = (int) Math.floor(d.toSeconds());
-        if (totalSeconds < 0) totalSeconds = 0;
+    private void setActiveViewLabel() {
+        String view = (showingPlaylist && activePlaylistName != null && !activePlaylistName.isBlank())
+                ? activePlaylistName
+                : "Library";
 
-        int minutes = totalSeconds / 60;
-        int seconds = totalSeconds % 60;
+        long totalMillis = libraryService.totalDurationMillis(displayedSongs.ordinals());
 
-        return minutes + ":" + String.format("%02d", seconds);
+        activeViewLabel.setText(totalMillis > 0
+                ? "Viewing: " + view + " (" + formatTotal(totalMillis) + ")"
+                : "Viewing: " + view);
     }
 
-    private void setActiveViewLabel() {
-        if (showingPlaylist && activePlaylistName != null && !activePlaylistName.isBlank()) {
-            activeViewLabel.setText("Viewing: " + activePlaylistName);
-        } else {
-            activeViewLabel.setText("Viewing: Library");
-        }
+    private static String formatTotal(long millis) {
+        long minutes = millis / 60_000;
+        return (minutes >= 60) ? (minutes / 60) + " h " + (minutes % 60) + " min" : minutes + " min";
     }
 
     private void updateNowPlayingHint() {
@@ -514,10 +933,20 @@ public class MainView {
             nowPlayingLabel.setText("Paused: " + playing);
         } else {
             nowPlayingLabel.setText("Not Playing");
+            nowPlayingArt.setImage(null);
         }
     }
 
-    private void setupIconButton(Button btn, SVGPath icon, String tooltip) {
+    private static ImageView artView(double size) {
+        ImageView view = new ImageView();
+        view.setFitWidth(size);
+        view.setFitHeight(size);
+        view.setPreserveRatio(true);
+        view.setSmooth(true);
+        return view;
+    }
+
+    private void setupIconButton(ButtonBase btn, SVGPath icon, String tooltip) {
         btn.getStyleClass().addAll("icon-btn");
         btn.setGraphic(icon);
         btn.setText(null);
@@ -527,6 +956,22 @@ public class MainView {
         btn.setMinHeight(34);
     }
 
+    // Shuffle and repeat change what "next" and "previous" mean, so their availability is recomputed.
+    private void refreshQueueButtons() {
+        boolean active = playbackQueue.getCurrent() != null;
+        prevButton.setDisable(!active || !playbackQueue.hasPrev());
+        nextButton.setDisable(!active || !playbackQueue.hasNext());
+    }
+
+    // Play/pause works on the selection, or on whatever is loaded when nothing is selected.
+    private void refreshPlayPauseButton() {
+        playPauseButton.setDisable(selectedSong == null && audioPlayer.getCurrentSong() == null);
+
+        Song current = audioPlayer.getCurrentSong();
+        boolean showsCurrent = selectedSong == null || selectedSong.equals(current);
+        setPlayPauseIcon(showsCurrent && current != null && audioPlayer.isPlaying());
+    }
+
     private void setPlayPauseIcon(boolean playing) {
         playPauseButton.setGraphic(playing ? iconPause : iconPlay);
     }
@@ -550,16 +995,16 @@ public class MainView {
         resetProgressUI();
 
         libraryService.clearLibrary();
-        librarySongsSnapshot = List.of();
 
         showingPlaylist = false;
         activePlaylistName = null;
         setActiveViewLabel();
 
-        displayedSongs.clear();
-        playbackQueue.setQueue(displayedSongs);
+        displayedSongs.showAll(libraryService.getAllSongs());
+        playbackQueue.clear();
+        saveSession();
 
-        songsListView.getSelectionModel().clearSelection();
+        songSelection().clearSelection();
         selectedSong = null;
 
         selectedLabel.setText("Selected: —");
@@ -616,18 +1061,22 @@ public class MainView {
     }
 
     private void handlePlayPause() {
-        if (selectedSong == null) {
+        if (selectedSong == null && audioPlayer.getCurrentSong() == null) {
             statusLabel.setText("Select a song first.");
             return;
         }
 
         try {
-            if (audioPlayer.getCurrentSong() == null || !selectedSong.equals(audioPlayer.getCurrentSong())) {
+            // Starting a different song makes the current view the new play context.
+            if (selectedSong != null
+                    && (audioPlayer.getCurrentSong() == null || !selectedSong.equals(audioPlayer.getCurrentSong()))) {
+                playbackQueue.setQueueSnapshot(displayedSongs.snapshot());
+                playbackQueue.playAt(songSelection().getSelectedIndex());
+
                 audioPlayer.loadAndPlay(selectedSong);
                 afterTrackLoadedSetup();
 
-                prevButton.setDisable(!playbackQueue.hasPrev());
-                nextButton.setDisable(!playbackQueue.hasNext());
+                refreshQueueButtons();
 
                 statusLabel.setText("");
                 refreshPlaylistButtons();
@@ -654,6 +1103,36 @@ public class MainView {
         }
     }
 
+    private void handleQueueSelected(boolean next) {
+        if (selectedSong == null) return;
+
+        if (next) {
+            playbackQueue.playNext(selectedSong);
+            statusLabel.setText("Playing next: " + selectedSong.getTitle());
+        } else {
+            playbackQueue.enqueue(selectedSong);
+            statusLabel.setText("Added to queue: " + selectedSong.getTitle() + " (" + playbackQueue.upNext().size() + " queued)");
+        }
+        refreshQueueButtons();
+        saveSession();
+    }
+
+    private void handleShowSimilar() {
+        if (selectedSong == null) return;
+
+        List<Song> similar = recommendationService.similar(selectedSong, 5);
+        if (similar.isEmpty()) {
+            statusLabel.setText("No similar songs yet for " + selectedSong.getTitle() + ".");
+            return;
+        }
+        StringBuilder sb = new StringBuilder("Similar to " + selectedSong.getTitle() + ": ");
+        for (int i = 0; i < similar.size(); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(similar.get(i));
+        }
+        statusLabel.setText(sb.toString());
+    }
+
     private void handleImportFolder() {
         DirectoryChooser chooser = new DirectoryChooser();
         chooser.setTitle("Select Music Folder");
@@ -662,34 +1141,26 @@ public class MainView {
         if (selected == null) return;
 
         try {
-            int before = libraryService.getAllSongs().size();
+            int before = libraryService.size();
 
             Path folderPath = selected.toPath();
             libraryService.importFolder(folderPath);
 
-            librarySongsSnapshot = libraryService.getAllSongs();
-            int after = librarySongsSnapshot.size();
+            int after = libraryService.size();
             int added = after - before;
+            if (added > 0) startBackgroundAnalysis();
 
             if (showingPlaylist && activePlaylistName != null) {
                 switchToPlaylistView(activePlaylistName);
             } else {
-                displayedSongs.setAll(filterSongs(librarySongsSnapshot, searchField.getText()));
-                playbackQueue.setQueue(displayedSongs);
-
-                audioPlayer.stopAndDispose();
-                resetProgressUI();
+                showView(null, searchField.getText());
 
                 selectedSong = null;
-                songsListView.getSelectionModel().clearSelection();
+                songSelection().clearSelection();
 
                 selectedLabel.setText("Selected: —");
+                refreshPlayPauseButton();
                 updateNowPlayingHint();
-
-                playPauseButton.setDisable(true);
-                prevButton.setDisable(true);
-                nextButton.setDisable(true);
-                setPlayPauseIcon(false);
             }
 
             statusLabel.setText(
@@ -720,6 +1191,7 @@ public class MainView {
         String selectedPlaylist = playlistsListView.getSelectionModel().getSelectedItem();
         boolean canDeletePlaylist = selectedPlaylist != null && !selectedPlaylist.equals("Library");
         deletePlaylistButton.setDisable(!canDeletePlaylist);
+        exportPlaylistButton.setDisable(!canDeletePlaylist);
     }
 
     private void refreshPlaylistsList() {
@@ -752,6 +1224,68 @@ public class MainView {
         });
     }
 
+    private void handleImportPlaylist() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Playlist");
+        chooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("Playlists (*.m3u, *.m3u8, *.pls)", "*.m3u", "*.m3u8", "*.pls"));
+
+        File selected = chooser.showOpenDialog(root.getScene().getWindow());
+        if (selected == null) return;
+
+        try {
+            List<String> paths = PlaylistFiles.readPaths(selected.toPath());
+            PlaylistService.ImportResult result =
+                    playlistService.importPlaylist(stripExtension(selected.getName()), paths, libraryService);
+
+            refreshPlaylistsList();
+            playlistsListView.getSelectionModel().select(result.playlistName);
+
+            statusLabel.setText(
+                    result.skipped <= 0
+                            ? "Imported playlist " + result.playlistName + ": " + result.imported + " song(s)"
+                            : "Imported playlist " + result.playlistName + ": " + result.imported + " song(s), "
+                                    + result.skipped + " entr(ies) not found in the library"
+            );
+
+            refreshPlaylistButtons();
+            saveState();
+        } catch (IllegalArgumentException ex) {
+            statusLabel.setText("Playlist import failed: " + ex.getMessage());
+        } catch (RuntimeException ex) {
+            statusLabel.setText("Playlist import failed due to an unexpected error.");
+        }
+    }
+
+    private void handleExportPlaylist() {
+        String selectedPlaylist = playlistsListView.getSelectionModel().getSelectedItem();
+        if (selectedPlaylist == null || selectedPlaylist.equals("Library")) {
+            statusLabel.setText("Select a playlist to export.");
+            return;
+        }
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Playlist");
+        chooser.setInitialFileName(selectedPlaylist + ".m3u8");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Extended M3U (*.m3u8)", "*.m3u8"),
+                new FileChooser.ExtensionFilter("M3U (*.m3u)", "*.m3u"),
+                new FileChooser.ExtensionFilter("PLS (*.pls)", "*.pls"));
+
+        File selected = chooser.showSaveDialog(root.getScene().getWindow());
+        if (selected == null) return;
+
+        try {
+            List<Song> songs = libraryService.resolveSongsByIds(playlistService.getSongIds(selectedPlaylist));
+            PlaylistFiles.write(selected.toPath(), songs);
+            statusLabel.setText("Exported playlist " + selectedPlaylist + " to: " + selected.getName());
+        } catch (IllegalArgumentException ex) {
+            statusLabel.setText("Playlist export failed: " + ex.getMessage());
+        } catch (RuntimeException ex) {
+            statusLabel.setText("Playlist export failed due to an unexpected error.");
+        }
+    }
+
     private void handleAddSelectedToPlaylist() {
         if (selectedSong == null) {
             statusLabel.setText("Select a song first.");
@@ -824,26 +1358,18 @@ public class MainView {
         setActiveViewLabel();
 
         List<String> ids = playlistService.getSongIds(playlistName);
-        List<Song> playlistSongs = libraryService.resolveSongsByIds(ids);
+        int[] playlistOrdinals = libraryService.ordinalsOf(ids);
 
-        String q = searchField.getText();
-        displayedSongs.setAll(filterSongs(playlistSongs, q));
+        showView(playlistOrdinals, searchField.getText());
 
-        songsListView.getSelectionModel().clearSelection();
+        songSelection().clearSelection();
         selectedSong = null;
 
-        playbackQueue.setQueue(displayedSongs);
-
-        playPauseButton.setDisable(true);
-        prevButton.setDisable(true);
-        nextButton.setDisable(true);
-        setPlayPauseIcon(false);
-
         selectedLabel.setText("Selected: —");
-        resetProgressUI();
+        refreshPlayPauseButton();
         refreshPlaylistButtons();
 
-        if (!ids.isEmpty() && playlistSongs.isEmpty()) {
+        if (!ids.isEmpty() && playlistOrdinals.length == 0) {
             statusLabel.setText("This playlist has songs, but they are not currently in the library. Import the folder again.");
         }
     }
@@ -853,63 +1379,65 @@ public class MainView {
         activePlaylistName = null;
         setActiveViewLabel();
 
-        String q = searchField.getText();
-        displayedSongs.setAll(filterSongs(librarySongsSnapshot, q));
+        showView(null, searchField.getText());
 
-        songsListView.getSelectionModel().clearSelection();
+        songSelection().clearSelection();
         selectedSong = null;
 
-        playbackQueue.setQueue(displayedSongs);
-
-        playPauseButton.setDisable(true);
-        prevButton.setDisable(true);
-        nextButton.setDisable(true);
-        setPlayPauseIcon(false);
-
         selectedLabel.setText("Selected: —");
-        resetProgressUI();
+        refreshPlayPauseButton();
         refreshPlaylistButtons();
     }
 
     private void applySearchFilter(String query) {
         if (showingPlaylist && activePlaylistName != null) {
-            List<String> ids = playlistService.getSongIds(activePlaylistName);
-            List<Song> base = libraryService.resolveSongsByIds(ids);
-            displayedSongs.setAll(filterSongs(base, query));
+            showView(libraryService.ordinalsOf(playlistService.getSongIds(activePlaylistName)), query);
         } else {
-            displayedSongs.setAll(filterSongs(librarySongsSnapshot, query));
+            showView(null, query);
         }
 
-        playbackQueue.setQueue(displayedSongs);
-
-        songsListView.getSelectionModel().clearSelection();
+        songSelection().clearSelection();
         selectedSong = null;
 
-        playPauseButton.setDisable(true);
-        prevButton.setDisable(true);
-        nextButton.setDisable(true);
-        setPlayPauseIcon(false);
-
         selectedLabel.setText("Selected: —");
-        resetProgressUI();
+        refreshPlayPauseButton();
         refreshPlaylistButtons();
     }
 
-    private List<Song> filterSongs(List<Song> base, String query) {
-        if (base == null) return List.of();
-        String q = (query == null) ? "" : query.trim().toLowerCase();
-
-        if (q.isBlank()) return base;
+    // base is a playlist's ordinals, or null for the whole library; search and sort run in LibraryService.
+    // Until the sort index is ready the rows are shown unsorted and re-sorted once it arrives.
+    private void showView(int[] base, String query) {
+        int[] rows = libraryService.search(base, query);
+        if (sortColumn != null) {
+            if (!libraryService.isSortIndexReady()) awaitSortIndex();
+            rows = libraryService.sortedOrdinals(sortColumn, sortAscending, rows);
+        }
+        displayedSongs.show(libraryService.getAllSongs(), rows);
+    }
 
-        return base.stream()
-                .filter(s -> containsIgnoreCase(s.getTitle(), q)
-                        || containsIgnoreCase(s.getArtist(), q)
-                        || containsIgnoreCase(s.getAlbum(), q))
-                .toList();
+    // prepareSortIndex shares a build that is already running, so this never starts a second one.
+    private void awaitSortIndex() {
+        if (awaitingSortIndex) return;
+        awaitingSortIndex = true;
+        // A failed build completes on the builder thread, so hop back either way.
+        libraryService.prepareSortIndex(SORT_INDEX_BUILDER, Platform::runLater).whenComplete((v, err) -> Platform.runLater(() -> {
+            awaitingSortIndex = false;
+            if (sortColumn != null && libraryService.isSortIndexReady()) reapplyView();
+        }));
     }
 
-    private boolean containsIgnoreCase(String haystack, String needleLower) {
-        if (haystack == null) return false;
-        return haystack.toLowerCase().contains(needleLower);
+    // Re-shows the current view (after a sort change) and keeps the selected song selected.
+    private void reapplyView() {
+        Song keep = selectedSong;
+        int[] base = (showingPlaylist && activePlaylistName != null)
+                ? libraryService.ordinalsOf(playlistService.getSongIds(activePlaylistName))
+                : null;
+        showView(base, searchField.getText());
+
+        int index = (keep == null) ? -1 : displayedSongs.indexOf(keep);
+        if (index >= 0) {
+            songSelection().select(index);
+            songsTableView.scrollTo(index);
+        }
     }
 }
@@ -0,0 +1,143 @@
+package com.johnk.musicplayer.ui;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
+import javafx.util.Duration;
+
+import com.johnk.musicplayer.player.AudioPlayer;
+
+// Keeps the seek bar, waveform and time labels in step with playback, and only while something plays.
+// The JavaFX engine pushes currentTime changes, which are throttled to the configured interval; the PCM
+// engine has no property, so a Timeline polls it at that interval instead. Labels change only when the
+// displayed second does. -Dmusicplayer.progress.intervalMs sets the rate (default 200).
+class PlaybackProgress {
+
+    private static final long INTERVAL_MILLIS = Math.max(16, Long.getLong("musicplayer.progress.intervalMs", 200));
+
+    private final AudioPlayer audioPlayer;
+    private final Slider slider;
+    private final Label currentLabel;
+    private final Label totalLabel;
+    private final WaveformView waveform;
+
+    private final ChangeListener<Duration> timeListener = (obs, oldTime, newTime) -> onTime(newTime);
+    private final Timeline poller = new Timeline(new KeyFrame(Duration.millis(INTERVAL_MILLIS), e -> poll()));
+
+    private ReadOnlyObjectProperty<Duration> observed;
+    private long lastUpdateNanos = 0;
+    private long totalMillis = -1;
+    private long shownSecond = -1;
+    private boolean dragging = false;
+
+    PlaybackProgress(AudioPlayer audioPlayer, Slider slider, Label currentLabel, Label totalLabel, WaveformView waveform) {
+        this.audioPlayer = audioPlayer;
+        this.slider = slider;
+        this.currentLabel = currentLabel;
+        this.totalLabel = totalLabel;
+        this.waveform = waveform;
+
+        poller.setCycleCount(Animation.INDEFINITE);
+
+        slider.setOnMousePressed(e -> dragging = true);
+        slider.setOnMouseReleased(e -> {
+            dragging = false;
+            if (!audioPlayer.hasMedia() || totalMillis <= 0) return;
+
+            long target = (long) (slider.getValue() * 1000);
+            audioPlayer.seek(Duration.millis(target));
+            // Paused playback produces no updates, so show where the seek landed right away.
+            show(target);
+        });
+        slider.valueChangingProperty().addListener((obs, wasChanging, isChanging) -> dragging = isChanging);
+    }
+
+    // Playback (re)started: follow the engine's clock until stop().
+    void start() {
+        stop();
+        ReadOnlyObjectProperty<Duration> time = audioPlayer.currentTimeProperty();
+        if (time != null) {
+            observed = time;
+            time.addListener(timeListener);
+        } else {
+            poller.play();
+        }
+        lastUpdateNanos = 0;
+        poll();
+    }
+
+    // Paused, stopped or finished: one last update, then no work at all until the next start().
+    void stop() {
+        boolean wasRunning = observed != null || poller.getStatus() == Animation.Status.RUNNING;
+        if (observed != null) {
+            observed.removeListener(timeListener);
+            observed = null;
+        }
+        poller.stop();
+        if (wasRunning && audioPlayer.hasMedia()) poll();
+    }
+
+    void trackReady(Duration total) {
+        totalMillis = (total == null || total.isUnknown() || total.isIndefinite()) ? -1 : (long) total.toMillis();
+        if (totalMillis <= 0) return;
+        slider.setDisable(false);
+        slider.setMax(totalMillis / 1000.0);
+        totalLabel.setText(formatSeconds(totalMillis / 1000));
+        // A track loaded paused produces no updates until it plays, so show where it starts.
+        poll();
+    }
+
+    void reset() {
+        stop();
+        totalMillis = -1;
+        shownSecond = -1;
+        dragging = false;
+        slider.setDisable(true);
+        slider.setMin(0);
+        slider.setMax(1);
+        slider.setValue(0);
+        waveform.setProgress(0);
+        currentLabel.setText("0:00");
+        totalLabel.setText("0:00");
+    }
+
+    private void onTime(Duration time) {
+        long now = System.nanoTime();
+        if (now - lastUpdateNanos < INTERVAL_MILLIS * 1_000_000L) return;
+        lastUpdateNanos = now;
+        show((time == null) ? 0 : (long) time.toMillis());
+    }
+
+    private void poll() {
+        if (!audioPlayer.hasMedia()) return;
+        show(Math.max(0, (long) audioPlayer.getCurrentTime().toMillis()));
+    }
+
+    private void show(long positionMillis) {
+        // Some streams only learn their length after they start; pick it up on the first update that knows.
+        if (totalMillis <= 0) {
+            trackReady(audioPlayer.getTotalDuration());
+            if (totalMillis <= 0) return;
+        }
+
+        if (!dragging) slider.setValue(positionMillis / 1000.0);
+        waveform.setProgress((double) positionMillis / totalMillis);
+
+        long second = positionMillis / 1000;
+        if (second != shownSecond) {
+            shownSecond = second;
+            currentLabel.setText(formatSeconds(second));
+        }
+    }
+
+    static String formatSeconds(long totalSeconds) {
+        if (totalSeconds < 0) totalSeconds = 0;
+        long minutes = totalSeconds / 60;
+        long seconds = totalSeconds % 60;
+        return minutes + ":" + ((seconds < 10) ? "0" : "") + seconds;
+    }
+}
@@ -0,0 +1,164 @@
+package com.johnk.musicplayer.ui;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.ToIntFunction;
+
+import javafx.collections.ObservableListBase;
+
+import com.johnk.musicplayer.domain.Song;
+
+// Items of the song list: a window onto the library by ordinal rather than a copy of it. A view is a
+// library snapshot (LibraryService.getAllSongs(), O(1)) plus an optional int[] of ordinals for a playlist
+// or search result; null ordinals mean every song in library order. Only rows the ListView asks for are
+// resolved, into a cache of the rows around the last request, so switching views or scrolling costs
+// the same for ten songs or a million.
+final class SongListModel extends ObservableListBase<Song> {
+
+    private static final int PREFETCH = Math.max(8, Integer.getInteger("musicplayer.list.prefetch", 64));
+
+    private final ToIntFunction<String> ordinalLookup;
+
+    private List<Song> library = List.of();
+    private int[] ordinals;
+    private boolean ascending;
+
+    private final Song[] window = new Song[2 * PREFETCH + 1];
+    private int windowStart = 0;
+    private int windowSize = 0;
+
+    SongListModel(ToIntFunction<String> ordinalLookup) {
+        this.ordinalLookup = ordinalLookup;
+    }
+
+    @Override
+    public Song get(int index) {
+        Objects.checkIndex(index, size());
+        if (index < windowStart || index >= windowStart + windowSize) fill(index);
+        return window[index - windowStart];
+    }
+
+    @Override
+    public int size() {
+        return (ordinals != null) ? ordinals.length : library.size();
+    }
+
+    // Ordinals shown, or null when the view is the whole library in order.
+    int[] ordinals() {
+        return ordinals;
+    }
+
+    void showAll(List<Song> librarySnapshot) {
+        show(librarySnapshot, null);
+    }
+
+    void show(List<Song> librarySnapshot, int[] viewOrdinals) {
+        List<Song> removed = snapshot();
+        library = librarySnapshot;
+        ordinals = viewOrdinals;
+        ascending = viewOrdinals == null || isAscending(viewOrdinals);
+        windowSize = 0;
+
+        beginChange();
+        if (!removed.isEmpty()) nextRemove(0, removed);
+        if (size() > 0) nextAdd(0, size());
+        endChange();
+    }
+
+    // The library grew (a later shard, an import); a whole-library view picks up the new rows in place.
+    void libraryAppended(List<Song> librarySnapshot) {
+        if (ordinals != null) {
+            library = librarySnapshot;
+            return;
+        }
+        int from = library.size();
+        library = librarySnapshot;
+        windowSize = 0;
+        if (library.size() > from) {
+            beginChange();
+            nextAdd(from, library.size());
+            endChange();
+        }
+    }
+
+    // O(1) for the whole library, a binary search for ascending ordinals (searches), a scan of ints otherwise.
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof Song)) return -1;
+        Song song = (Song) o;
+        if (ordinals == null) return indexInLibrary(song);
+
+        int ordinal = indexInLibrary(song);
+        if (ordinal < 0) return -1;
+        if (ascending) {
+            int i = Arrays.binarySearch(ordinals, ordinal);
+            return (i >= 0) ? i : -1;
+        }
+        for (int i = 0; i < ordinals.length; i++) {
+            if (ordinals[i] == ordinal) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    // Immutable view of the current rows that does not go through the window, e.g. for the play queue.
+    List<Song> snapshot() {
+        List<Song> lib = library;
+        int[] ords = ordinals;
+        if (ords == null) return lib;
+        return new Rows(lib, ords);
+    }
+
+    // The live ordinal only counts if this view's snapshot still has the song there.
+    private int indexInLibrary(Song song) {
+        int ordinal = ordinalLookup.applyAsInt(song.getId());
+        return (ordinal >= 0 && ordinal < library.size() && library.get(ordinal).equals(song)) ? ordinal : -1;
+    }
+
+    private int ordinalAt(int index) {
+        return (ordinals != null) ? ordinals[index] : index;
+    }
+
+    private void fill(int index) {
+        int size = size();
+        windowStart = Math.max(0, Math.min(index - PREFETCH, size - window.length));
+        windowSize = Math.min(window.length, size - windowStart);
+        for (int i = 0; i < windowSize; i++) {
+            window[i] = library.get(ordinalAt(windowStart + i));
+        }
+    }
+
+    private static boolean isAscending(int[] ords) {
+        for (int i = 1; i < ords.length; i++) {
+            if (ords[i] <= ords[i - 1]) return false;
+        }
+        return true;
+    }
+
+    private static final class Rows extends AbstractList<Song> implements RandomAccess {
+        private final List<Song> library;
+        private final int[] ordinals;
+
+        Rows(List<Song> library, int[] ordinals) {
+            this.library = library;
+            this.ordinals = ordinals;
+        }
+
+        @Override
+        public Song get(int index) {
+            return library.get(ordinals[index]);
+        }
+
+        @Override
+        public int size() {
+            return ordinals.length;
+        }
+    }
+}
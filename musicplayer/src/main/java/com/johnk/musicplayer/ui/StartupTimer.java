@@ -0,0 +1,116 @@
+package com.johnk.musicplayer.ui;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import com.johnk.musicplayer.persistence.StorePaths;
+
+// Wall-clock breakdown of one startup, for tracking cold-start regressions. Phases come from several
+// threads and may overlap, so each keeps its own start and end, measured from JVM launch.
+// With -Dmusicplayer.startup.report=true the breakdown goes to stderr and a one-line summary is
+// appended to <data dir>/startup-timings.log.
+public final class StartupTimer {
+
+    private static final boolean REPORT = Boolean.getBoolean("musicplayer.startup.report");
+
+    private static final long ORIGIN_NANOS = System.nanoTime();
+    private static final long JVM_MILLIS = ProcessHandle.current().info().startInstant()
+            .map(start -> Math.max(0, System.currentTimeMillis() - start.toEpochMilli()))
+            .orElse(0L);
+
+    private static final List<Phase> phases = new ArrayList<>();
+    private static boolean reported = false;
+
+    private StartupTimer() {
+    }
+
+    public static long now() {
+        return System.nanoTime();
+    }
+
+    public static void record(String phase, long startNanos) {
+        long end = System.nanoTime();
+        synchronized (phases) {
+            phases.add(new Phase(phase, startNanos, end, Thread.currentThread().getName()));
+        }
+    }
+
+    // Prints once; later calls do nothing.
+    public static void finish() {
+        String report;
+        String summary;
+        synchronized (phases) {
+            if (!REPORT || reported) return;
+            reported = true;
+            report = report();
+            summary = summary();
+        }
+
+        System.err.print(report);
+        try {
+            Path log = StorePaths.resolve("startup-timings.log");
+            Files.createDirectories(log.getParent());
+            Files.writeString(log, summary + System.lineSeparator(),
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException | RuntimeException ignored) {
+            // The log is a convenience; stderr already has the numbers.
+        }
+    }
+
+    private static String report() {
+        List<Phase> sorted = new ArrayList<>(phases);
+        sorted.sort(Comparator.comparingLong(p -> p.start));
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Startup timings (ms since JVM launch)\n");
+        sb.append(String.format(Locale.ROOT, "  %-22s %8s %8s  %s%n", "phase", "start", "took", "thread"));
+        sb.append(String.format(Locale.ROOT, "  %-22s %8d %8d  %s%n", "jvm", 0, JVM_MILLIS, "-"));
+        for (Phase p : sorted) {
+            sb.append(String.format(Locale.ROOT, "  %-22s %8d %8d  %s%n",
+                    p.name, millisSinceLaunch(p.start), (p.end - p.start) / 1_000_000, p.thread));
+        }
+        sb.append(String.format(Locale.ROOT, "  %-22s %8s %8d%n", "total", "", totalMillis()));
+        return sb.toString();
+    }
+
+    private static String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(Instant.now()).append(" total=").append(totalMillis()).append(" jvm=").append(JVM_MILLIS);
+        for (Phase p : phases) {
+            sb.append(' ').append(p.name).append('=').append((p.end - p.start) / 1_000_000);
+        }
+        return sb.toString();
+    }
+
+    private static long totalMillis() {
+        long last = ORIGIN_NANOS;
+        for (Phase p : phases) last = Math.max(last, p.end);
+        return millisSinceLaunch(last);
+    }
+
+    private static long millisSinceLaunch(long nanos) {
+        return JVM_MILLIS + (nanos - ORIGIN_NANOS) / 1_000_000;
+    }
+
+    private static final class Phase {
+        final String name;
+        final long start;
+        final long end;
+        final String thread;
+
+        Phase(String name, long start, long end, String thread) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+            this.thread = thread;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.johnk.musicplayer.ui;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+
+import com.johnk.musicplayer.analysis.Peaks;
+
+// Waveform behind the seek slider. Both layers are painted once per track (and on resize); playback
+// only moves the clip that reveals the "played" layer, so the per-frame cost is one rectangle width.
+class WaveformView extends Region {
+
+    // Modena's default -fx-accent and a neutral grey, so the waveform matches the stock slider.
+    private static final Color REMAINING = Color.web("#000000", 0.22);
+    private static final Color PLAYED = Color.web("#0096c9", 0.85);
+
+    private final Canvas remainingLayer = new Canvas();
+    private final Canvas playedLayer = new Canvas();
+    private final Rectangle playedClip = new Rectangle();
+
+    private Peaks peaks;
+    private double progress = 0;
+
+    WaveformView() {
+        getStyleClass().add("waveform");
+        setMouseTransparent(true);
+        setMinSize(0, 0);
+        setPrefHeight(28);
+
+        playedLayer.setClip(playedClip);
+        getChildren().addAll(remainingLayer, playedLayer);
+
+        widthProperty().addListener((obs, oldVal, newVal) -> redraw());
+        heightProperty().addListener((obs, oldVal, newVal) -> redraw());
+    }
+
+    void setPeaks(Peaks peaks) {
+        this.peaks = peaks;
+        redraw();
+    }
+
+    boolean hasPeaks() {
+        return peaks != null;
+    }
+
+    void setProgress(double fraction) {
+        double clamped = Double.isNaN(fraction) ? 0 : Math.max(0, Math.min(1, fraction));
+        if (clamped == progress) return;
+        progress = clamped;
+        playedClip.setWidth(getWidth() * progress);
+    }
+
+    @Override
+    protected void layoutChildren() {
+        // Canvases are sized in redraw(); nothing to lay out beyond the default origin.
+    }
+
+    private void redraw() {
+        double w = Math.floor(getWidth());
+        double h = Math.floor(getHeight());
+        remainingLayer.setWidth(w);
+        remainingLayer.setHeight(h);
+        playedLayer.setWidth(w);
+        playedLayer.setHeight(h);
+        playedClip.setHeight(h);
+        playedClip.setWidth(w * progress);
+
+        paint(remainingLayer.getGraphicsContext2D(), w, h, REMAINING);
+        paint(playedLayer.getGraphicsContext2D(), w, h, PLAYED);
+    }
+
+    private void paint(GraphicsContext g, double w, double h, Color color) {
+        g.clearRect(0, 0, w, h);
+        if (peaks == null || w < 1 || h < 1) return;
+
+        g.setFill(color);
+        double mid = h / 2;
+        int columns = (int) w;
+        int buckets = peaks.buckets();
+        for (int x = 0; x < columns; x++) {
+            // Each pixel column covers a range of buckets; take its extremes so peaks never vanish.
+            int from = (int) ((long) x * buckets / columns);
+            int to = Math.max(from + 1, (int) ((long) (x + 1) * buckets / columns));
+            float lo = 0, hi = 0;
+            for (int b = from; b < to && b < buckets; b++) {
+                lo = Math.min(lo, peaks.min(b));
+                hi = Math.max(hi, peaks.max(b));
+            }
+            double top = mid - hi * mid;
+            double bottom = mid - lo * mid;
+            g.fillRect(x, top, 1, Math.max(1, bottom - top));
+        }
+    }
+}
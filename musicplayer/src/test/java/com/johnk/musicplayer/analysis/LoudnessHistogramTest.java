@@ -0,0 +1,56 @@
+package com.johnk.musicplayer.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LoudnessHistogramTest {
+
+    private static double meanSquareOf(double lufs) {
+        return Math.pow(10, (lufs + 0.691) / 10);
+    }
+
+    @Test
+    void steadyBlocksGiveTheirOwnLoudness() {
+        LoudnessHistogram h = new LoudnessHistogram();
+        for (int i = 0; i < 100; i++) h.addBlock(meanSquareOf(-23.0));
+
+        assertEquals(-23.0, h.integratedLufs(), LoudnessHistogram.BIN_LU);
+    }
+
+    @Test
+    void blocksUnderTheAbsoluteGateAreIgnored() {
+        LoudnessHistogram h = new LoudnessHistogram();
+        h.addBlock(0);
+        h.addBlock(meanSquareOf(-80));
+
+        assertTrue(Double.isNaN(h.integratedLufs()));
+    }
+
+    @Test
+    void relativeGateDropsQuietPassages() {
+        LoudnessHistogram h = new LoudnessHistogram();
+        for (int i = 0; i < 100; i++) h.addBlock(meanSquareOf(-20.0));
+        // 20 LU below the loud part: over the absolute gate, under the relative one.
+        for (int i = 0; i < 100; i++) h.addBlock(meanSquareOf(-40.0));
+
+        assertEquals(-20.0, h.integratedLufs(), LoudnessHistogram.BIN_LU);
+    }
+
+    @Test
+    void mergedHistogramsGateOverAllBlocks() {
+        LoudnessHistogram loud = new LoudnessHistogram();
+        LoudnessHistogram quiet = new LoudnessHistogram();
+        for (int i = 0; i < 50; i++) loud.addBlock(meanSquareOf(-14.0));
+        for (int i = 0; i < 50; i++) quiet.addBlock(meanSquareOf(-20.0));
+
+        LoudnessHistogram album = new LoudnessHistogram();
+        album.merge(loud);
+        album.merge(quiet);
+
+        double expected = LoudnessHistogram.lufsOf((meanSquareOf(-14.0) + meanSquareOf(-20.0)) / 2);
+        assertEquals(expected, album.integratedLufs(), LoudnessHistogram.BIN_LU);
+        assertEquals(50, loud.count((int) Math.floor((-14.0 - LoudnessHistogram.MIN_LUFS) / LoudnessHistogram.BIN_LU)));
+    }
+}
@@ -0,0 +1,74 @@
+package com.johnk.musicplayer.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.johnk.musicplayer.domain.Song;
+
+class LoudnessServiceTest {
+
+    @TempDir
+    Path dir;
+
+    // Mono 16-bit sine at the given peak level in dBFS.
+    private static void writeSine(Path file, int sampleRate, double seconds, double dbfs) throws IOException {
+        int frames = (int) (sampleRate * seconds);
+        ByteBuffer b = ByteBuffer.allocate(44 + frames * 2).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(0x46464952).putInt(36 + frames * 2).putInt(0x45564157);
+        b.putInt(0x20746D66).putInt(16).putShort((short) 1).putShort((short) 1)
+                .putInt(sampleRate).putInt(sampleRate * 2).putShort((short) 2).putShort((short) 16);
+        b.putInt(0x61746164).putInt(frames * 2);
+        double amplitude = Math.pow(10, dbfs / 20) * 32767;
+        for (int i = 0; i < frames; i++) {
+            b.putShort((short) Math.round(amplitude * Math.sin(2 * Math.PI * 1000 * i / sampleRate)));
+        }
+        Files.write(file, b.array());
+    }
+
+    private static ReplayGain await(LoudnessService service, Song song) throws InterruptedException {
+        for (int i = 0; i < 500 && service.resultFor(song) == null; i++) Thread.sleep(10);
+        return service.resultFor(song);
+    }
+
+    @Test
+    void measuresWavAndNeverTouchesOtherFormats() throws Exception {
+        Path wav = dir.resolve("a.wav");
+        writeSine(wav, 48_000, 3, -20);
+        Path mp3 = dir.resolve("b.mp3");
+        Files.write(mp3, new byte[1024]);
+        Song measured = new Song("A", "Artist", "Album", wav.toString());
+        Song skipped = new Song("B", "Artist", "Album", mp3.toString());
+
+        Path cacheDir = dir.resolve("cache");
+        LoudnessService service = new LoudnessService(LoudnessService.Mode.TRACK, new LoudnessCache(cacheDir), 1);
+        try {
+            service.analyze(List.of(measured, skipped));
+            ReplayGain gain = await(service, measured);
+
+            assertNotNull(gain);
+            // A 1 kHz sine peaking at -20 dBFS measures close to -23 LUFS, 5 dB under the reference.
+            assertEquals(ReplayGain.REFERENCE_LUFS + 23.0, gain.trackGainDb(), 0.5);
+            assertNull(service.resultFor(skipped));
+            assertEquals(0.0, service.gainDbFor(skipped));
+        } finally {
+            service.shutdown();
+        }
+
+        try (Stream<Path> files = Files.walk(cacheDir)) {
+            assertFalse(files.anyMatch(p -> p.getFileName().toString().contains(skipped.getId())));
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.johnk.musicplayer.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CoverArtTest {
+
+    @TempDir
+    Path dir;
+
+    private static byte[] bytes(int length, int seed) {
+        byte[] out = new byte[length];
+        for (int i = 0; i < length; i++) out[i] = (byte) (seed + i * 7);
+        return out;
+    }
+
+    private static byte[] syncsafe(int value) {
+        return new byte[] {(byte) ((value >> 21) & 0x7F), (byte) ((value >> 14) & 0x7F),
+                (byte) ((value >> 7) & 0x7F), (byte) (value & 0x7F)};
+    }
+
+    private static byte[] bigEndian(long value, int length) {
+        byte[] out = new byte[length];
+        for (int i = length - 1; i >= 0; i--, value >>>= 8) out[i] = (byte) value;
+        return out;
+    }
+
+    // APIC body: text encoding, MIME type, picture type, description, image.
+    private static byte[] apic(int pictureType, byte[] image) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(0);
+        body.writeBytes("image/png\0".getBytes(StandardCharsets.ISO_8859_1));
+        body.write(pictureType);
+        body.writeBytes("desc\0".getBytes(StandardCharsets.ISO_8859_1));
+        body.writeBytes(image);
+        return body.toByteArray();
+    }
+
+    private static byte[] frame(int major, String id, byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(id.getBytes(StandardCharsets.ISO_8859_1));
+        out.writeBytes(major == 4 ? syncsafe(body.length) : bigEndian(body.length, 4));
+        out.writeBytes(new byte[2]);
+        out.writeBytes(body);
+        return out.toByteArray();
+    }
+
+    private Path mp3(int major, byte[]... frames) throws Exception {
+        ByteArrayOutputStream tag = new ByteArrayOutputStream();
+        for (byte[] f : frames) tag.writeBytes(f);
+        tag.writeBytes(new byte[16]); // padding
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.writeBytes(new byte[] {'I', 'D', '3', (byte) major, 0, 0});
+        file.writeBytes(syncsafe(tag.size()));
+        file.writeBytes(tag.toByteArray());
+        file.writeBytes(bytes(64, 0)); // stands in for audio
+        Path path = dir.resolve("v" + major + "-" + frames.length + ".mp3");
+        Files.write(path, file.toByteArray());
+        return path;
+    }
+
+    private static byte[] atom(String type, byte[]... children) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (byte[] c : children) body.writeBytes(c);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(bigEndian(8 + body.size(), 4));
+        out.writeBytes(type.getBytes(StandardCharsets.ISO_8859_1));
+        out.writeBytes(body.toByteArray());
+        return out.toByteArray();
+    }
+
+    @Test
+    void id3v23PrefersTheFrontCover() throws Exception {
+        byte[] back = bytes(40, 1);
+        byte[] front = bytes(50, 2);
+        Path file = mp3(3, frame(3, "TIT2", bytes(9, 3)), frame(3, "APIC", apic(4, back)), frame(3, "APIC", apic(3, front)));
+
+        assertArrayEquals(front, CoverArt.embedded(file));
+    }
+
+    @Test
+    void id3v23FallsBackToTheFirstPicture() throws Exception {
+        byte[] first = bytes(40, 4);
+        Path file = mp3(3, frame(3, "APIC", apic(0, first)), frame(3, "APIC", apic(8, bytes(10, 5))));
+
+        assertArrayEquals(first, CoverArt.embedded(file));
+    }
+
+    @Test
+    void id3v24ReadsSyncsafeFrameSizes() throws Exception {
+        // Over 127 bytes, so a syncsafe size differs from a plain big-endian one.
+        byte[] image = bytes(300, 6);
+        Path file = mp3(4, frame(4, "TIT2", bytes(200, 7)), frame(4, "APIC", apic(3, image)));
+
+        assertArrayEquals(image, CoverArt.embedded(file));
+    }
+
+    @Test
+    void id3v22ReadsPicFrames() throws Exception {
+        byte[] image = bytes(30, 8);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(0);
+        body.writeBytes("PNG".getBytes(StandardCharsets.ISO_8859_1));
+        body.write(3);
+        body.write(0);
+        body.writeBytes(image);
+        ByteArrayOutputStream pic = new ByteArrayOutputStream();
+        pic.writeBytes("PIC".getBytes(StandardCharsets.ISO_8859_1));
+        pic.writeBytes(bigEndian(body.size(), 3));
+        pic.writeBytes(body.toByteArray());
+
+        assertArrayEquals(image, CoverArt.embedded(mp3(2, pic.toByteArray())));
+    }
+
+    @Test
+    void damagedOrMissingTagsHaveNoArt() throws Exception {
+        // A frame claiming more bytes than the tag holds ends the scan instead of reading past it.
+        byte[] truncated = frame(3, "APIC", apic(3, bytes(20, 9)));
+        truncated[7] = 127;
+        assertNull(CoverArt.embedded(mp3(3, truncated)));
+
+        Path untagged = dir.resolve("plain.mp3");
+        Files.write(untagged, bytes(200, 10));
+        assertNull(CoverArt.embedded(untagged));
+        assertNull(CoverArt.embedded(dir.resolve("missing.mp3")));
+    }
+
+    @Test
+    void mp4ReadsTheCovrAtom() throws Exception {
+        byte[] image = bytes(80, 11);
+        byte[] data = atom("data", bigEndian(13, 4), new byte[4], image);
+        byte[] meta = atom("meta", new byte[4], atom("hdlr", new byte[12]), atom("ilst", atom("covr", data)));
+        byte[] moov = atom("moov", atom("mvhd", new byte[20]), atom("udta", meta));
+        Path file = dir.resolve("track.m4a");
+        Files.write(file, concat(atom("ftyp", bytes(8, 12)), moov, atom("mdat", bytes(32, 13))));
+
+        assertArrayEquals(image, CoverArt.embedded(file));
+    }
+
+    @Test
+    void folderImagesAreRankedByName() throws Exception {
+        Files.write(dir.resolve("AlbumArt_{1234}_Large.jpg"), bytes(4, 14));
+        Files.write(dir.resolve("notes.txt"), bytes(4, 15));
+        assertEquals("AlbumArt_{1234}_Large.jpg", CoverArt.folderImage(dir).getFileName().toString());
+
+        Files.write(dir.resolve("Folder.PNG"), bytes(4, 16));
+        assertEquals("Folder.PNG", CoverArt.folderImage(dir).getFileName().toString());
+
+        Files.write(dir.resolve("cover.jpeg"), bytes(4, 17));
+        assertEquals("cover.jpeg", CoverArt.folderImage(dir).getFileName().toString());
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] p : parts) out.writeBytes(p);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,120 @@
+package com.johnk.musicplayer.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DurationProbeTest {
+
+    // MPEG1 layer III, 128 kbps, 44.1 kHz, stereo, no padding: 417-byte frames.
+    private static final int MP3_HEADER = 0xFFFB9000;
+    private static final int MP3_FRAME_BYTES = 417;
+
+    @TempDir
+    Path dir;
+
+    private Path write(String name, byte[] bytes) throws Exception {
+        Path file = dir.resolve(name);
+        Files.write(file, bytes);
+        return file;
+    }
+
+    private static byte[] mp3Frame() {
+        return ByteBuffer.allocate(MP3_FRAME_BYTES).putInt(MP3_HEADER).array();
+    }
+
+    private static byte[] id3(int bodyBytes) {
+        ByteBuffer tag = ByteBuffer.allocate(10 + bodyBytes);
+        tag.put(new byte[] {'I', 'D', '3', 3, 0, 0});
+        tag.put(new byte[] {0, 0, (byte) (bodyBytes >> 7), (byte) (bodyBytes & 0x7F)});
+        return tag.array();
+    }
+
+    private static byte[] atom(String type, byte[]... children) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (byte[] c : children) body.writeBytes(c);
+        return ByteBuffer.allocate(8 + body.size())
+                .putInt(8 + body.size())
+                .put(type.getBytes(StandardCharsets.ISO_8859_1))
+                .put(body.toByteArray())
+                .array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] p : parts) out.writeBytes(p);
+        return out.toByteArray();
+    }
+
+    @Test
+    void constantBitrateMp3IsEstimatedFromTheAudioBytes() throws Exception {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.writeBytes(id3(200));
+        for (int i = 0; i < 100; i++) file.writeBytes(mp3Frame());
+        // An ID3v1 tag at the end is not audio.
+        byte[] v1 = new byte[128];
+        v1[0] = 'T';
+        v1[1] = 'A';
+        v1[2] = 'G';
+        file.writeBytes(v1);
+
+        assertEquals(100L * MP3_FRAME_BYTES * 8 / 128, DurationProbe.probeMillis(write("cbr.mp3", file.toByteArray())));
+    }
+
+    @Test
+    void xingFrameCountWins() throws Exception {
+        // Side info for MPEG1 stereo is 32 bytes, so the Xing tag starts 36 bytes into the frame.
+        byte[] first = mp3Frame();
+        ByteBuffer.wrap(first, 36, 12).put("Xing".getBytes(StandardCharsets.ISO_8859_1)).putInt(1).putInt(1000);
+        byte[] file = concat(first, mp3Frame(), mp3Frame());
+
+        assertEquals(1000L * 1152 * 1000 / 44100, DurationProbe.probeMillis(write("vbr.mp3", file)));
+    }
+
+    @Test
+    void mp4ReadsMvhdInBothVersions() throws Exception {
+        byte[] v0 = ByteBuffer.allocate(100).putInt(0).putInt(0).putInt(0).putInt(1000).putInt(5_000).array();
+        byte[] file = concat(atom("ftyp", new byte[8]), atom("moov", atom("mvhd", v0)), atom("mdat", new byte[16]));
+        assertEquals(5_000, DurationProbe.probeMillis(write("v0.m4a", file)));
+
+        byte[] v1 = ByteBuffer.allocate(112).putInt(1 << 24).putLong(0).putLong(0).putInt(44_100).putLong(44_100L * 3).array();
+        file = concat(atom("ftyp", new byte[8]), atom("free", new byte[3]), atom("moov", atom("mvhd", v1)));
+        assertEquals(3_000, DurationProbe.probeMillis(write("v1.mp4", file)));
+
+        assertEquals(-1, DurationProbe.probeMillis(write("nomoov.m4a", atom("ftyp", new byte[8]))));
+    }
+
+    private static byte[] wav(int dataClaimed, int dataPresent) {
+        ByteBuffer buf = ByteBuffer.allocate(12 + 24 + 12 + 8 + dataPresent).order(ByteOrder.LITTLE_ENDIAN);
+        buf.put("RIFF".getBytes(StandardCharsets.ISO_8859_1)).putInt(0).put("WAVE".getBytes(StandardCharsets.ISO_8859_1));
+        buf.put("fmt ".getBytes(StandardCharsets.ISO_8859_1)).putInt(16)
+                .putShort((short) 1).putShort((short) 1).putInt(1000).putInt(1000).putShort((short) 1).putShort((short) 8);
+        // Odd-sized chunks are followed by a pad byte.
+        buf.put("LIST".getBytes(StandardCharsets.ISO_8859_1)).putInt(3).put(new byte[4]);
+        buf.put("data".getBytes(StandardCharsets.ISO_8859_1)).putInt(dataClaimed);
+        return buf.array();
+    }
+
+    @Test
+    void wavDividesTheDataChunkByTheByteRate() throws Exception {
+        assertEquals(2_500, DurationProbe.probeMillis(write("whole.wav", wav(2_500, 2_500))));
+        // A truncated file is measured by what is actually there.
+        assertEquals(1_200, DurationProbe.probeMillis(write("torn.wav", wav(9_000, 1_200))));
+    }
+
+    @Test
+    void unknownOrUnreadableFilesHaveNoDuration() throws Exception {
+        assertEquals(-1, DurationProbe.probeMillis(write("noise.mp3", new byte[4096])));
+        assertEquals(-1, DurationProbe.probeMillis(write("short.wav", new byte[5])));
+        assertEquals(-1, DurationProbe.probeMillis(write("track.flac", new byte[64])));
+        assertEquals(-1, DurationProbe.probeMillis(dir.resolve("missing.mp3")));
+    }
+}
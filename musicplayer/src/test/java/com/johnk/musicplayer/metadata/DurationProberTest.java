@@ -0,0 +1,52 @@
+package com.johnk.musicplayer.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.johnk.musicplayer.domain.Song;
+
+class DurationProberTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void everyBatchArrivesBeforeTheSingleFinishedCallback() throws Exception {
+        List<Song> songs = new ArrayList<>();
+        for (int i = 0; i < 1100; i++) {
+            songs.add(new Song("T" + i, "Artist", "Album", dir.resolve(i + ".mp3").toString()));
+        }
+        Song known = new Song("Known", "Artist", "Album", dir.resolve("known.mp3").toString());
+        known.setDurationMillis(1234);
+        songs.add(known);
+
+        List<Song> delivered = new ArrayList<>();
+        List<Integer> deliveredWhenFinished = new ArrayList<>();
+        CountDownLatch finished = new CountDownLatch(1);
+        DurationProber prober = new DurationProber(2);
+        try {
+            prober.probeMissing(songs, delivered::addAll, () -> {
+                deliveredWhenFinished.add(delivered.size());
+                finished.countDown();
+            }, Runnable::run);
+
+            assertTrue(finished.await(10, TimeUnit.SECONDS));
+        } finally {
+            prober.shutdown();
+        }
+
+        assertEquals(List.of(1100), deliveredWhenFinished);
+        // Missing files count as probed with no answer, so they are not read again next start.
+        for (Song s : delivered) assertEquals(0, s.getDurationMillis());
+        assertEquals(1234, known.getDurationMillis());
+    }
+}
@@ -0,0 +1,105 @@
+package com.johnk.musicplayer.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.service.LibraryService;
+import com.johnk.musicplayer.service.PlaylistService;
+
+class BinarySnapshotStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripKeepsSongsDurationsAndPlaylists() {
+        Song a = new Song("A", "Artist", "Album", "/music/a.mp3");
+        a.setDurationMillis(123_456);
+        Song b = new Song("B", "Artist", "Album", "/music/b.mp3");
+        BinarySnapshotStore store = new BinarySnapshotStore(dir.resolve("library.bin"), DurabilityMode.NONE);
+        store.save(List.of(a, b), Map.of("Mix", List.of(b.getId(), a.getId())));
+
+        LibraryService library = new LibraryService();
+        PlaylistService playlists = new PlaylistService();
+        assertTrue(store.load(library, playlists));
+
+        assertEquals(List.of(a, b), library.getAllSongs());
+        assertEquals(123_456, library.getAllSongs().get(0).getDurationMillis());
+        assertEquals(List.of(b.getId(), a.getId()), playlists.getSongIds("Mix"));
+        assertNull(store.recoveryNote());
+    }
+
+    @Test
+    void newerVersionIsSetAsideWithANote() throws Exception {
+        Path file = dir.resolve("library.bin");
+        byte[] newer = ByteBuffer.allocate(12).putInt(0x504C5242).putInt(99).putInt(0).array();
+        Files.write(file, newer);
+
+        BinarySnapshotStore store = new BinarySnapshotStore(file, DurabilityMode.NONE);
+        assertFalse(store.load(new LibraryService(), new PlaylistService()));
+
+        assertNotNull(store.recoveryNote());
+        assertTrue(store.recoveryNote().contains("newer version"));
+        assertArrayEquals(newer, Files.readAllBytes(copyWithPrefix("library.bin.v99")));
+    }
+
+    @Test
+    void truncatedSnapshotIsSetAsideAsDamaged() throws Exception {
+        Path file = dir.resolve("library.bin");
+        BinarySnapshotStore store = new BinarySnapshotStore(file, DurabilityMode.NONE);
+        store.save(List.of(new Song("A", "Artist", "Album", "/music/a.mp3")), Map.of());
+        byte[] whole = Files.readAllBytes(file);
+        byte[] torn = Arrays.copyOf(whole, whole.length - 3);
+        Files.write(file, torn);
+
+        assertFalse(store.load(new LibraryService(), new PlaylistService()));
+        assertNotNull(store.recoveryNote());
+        assertArrayEquals(torn, Files.readAllBytes(copyWithPrefix("library.bin.damaged")));
+    }
+
+    @Test
+    void damagedCountsAreRejectedBeforeAllocating() throws Exception {
+        Path file = dir.resolve("library.bin");
+        BinarySnapshotStore store = new BinarySnapshotStore(file, DurabilityMode.NONE);
+        store.save(List.of(new Song("A", "Artist", "Album", "/music/a.mp3")), Map.of("Mix", List.of()));
+        byte[] whole = Files.readAllBytes(file);
+
+        // The string table count follows the 8-byte header.
+        for (int count : new int[] {-1, Integer.MAX_VALUE}) {
+            byte[] damaged = whole.clone();
+            ByteBuffer.wrap(damaged).putInt(8, count);
+            Files.write(file, damaged);
+            assertNull(BinarySnapshotStore.decode(file));
+        }
+
+        // So does the first string's length.
+        byte[] damaged = whole.clone();
+        ByteBuffer.wrap(damaged).putInt(12, Integer.MAX_VALUE);
+        Files.write(file, damaged);
+        assertFalse(store.load(new LibraryService(), new PlaylistService()));
+        assertNotNull(store.recoveryNote());
+        assertArrayEquals(damaged, Files.readAllBytes(copyWithPrefix("library.bin.damaged")));
+    }
+
+    private Path copyWithPrefix(String prefix) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().startsWith(prefix)).findFirst().orElseThrow();
+        }
+    }
+}
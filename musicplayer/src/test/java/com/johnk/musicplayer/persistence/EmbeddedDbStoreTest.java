@@ -0,0 +1,153 @@
+package com.johnk.musicplayer.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.service.LibraryService;
+import com.johnk.musicplayer.service.PlaylistService;
+
+class EmbeddedDbStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final Song a = new Song("A", "Artist", "Album", "/music/a.mp3");
+    private final Song b = new Song("B", "Artist", "Album", "/music/b.mp3");
+
+    private EmbeddedDbStore seeded(LibraryService library, PlaylistService playlists) {
+        EmbeddedDbStore store = new EmbeddedDbStore(dir.resolve("library"));
+        store.save(List.of(a, b), Map.of("Mix", List.of(a.getId(), b.getId())));
+        assertTrue(store.load(library, playlists));
+        store.attach(library, playlists);
+        return store;
+    }
+
+    private void reload(LibraryService library, PlaylistService playlists) {
+        EmbeddedDbStore store = new EmbeddedDbStore(dir.resolve("library"));
+        try {
+            store.load(library, playlists);
+            store.loadRemaining(library::appendLoaded, Runnable::run).join();
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void removedSongKeepsItsPlaylistRowsLikeTheOtherBackends() {
+        LibraryService library = new LibraryService();
+        PlaylistService playlists = new PlaylistService();
+        EmbeddedDbStore store = seeded(library, playlists);
+
+        library.removeSong(a.getId());
+        store.prepareSave(library, playlists).run();
+        store.close();
+
+        LibraryService restoredLibrary = new LibraryService();
+        PlaylistService restored = new PlaylistService();
+        reload(restoredLibrary, restored);
+        assertEquals(List.of(b), restoredLibrary.getAllSongs());
+        assertEquals(playlists.getSongIds("Mix"), restored.getSongIds("Mix"));
+        assertEquals(List.of(a.getId(), b.getId()), restored.getSongIds("Mix"));
+    }
+
+    @Test
+    void clearedLibraryKeepsPlaylistsAndTheirEntries() {
+        LibraryService library = new LibraryService();
+        PlaylistService playlists = new PlaylistService();
+        EmbeddedDbStore store = seeded(library, playlists);
+
+        library.clearLibrary();
+        store.prepareSave(library, playlists).run();
+        store.close();
+
+        PlaylistService restored = new PlaylistService();
+        reload(new LibraryService(), restored);
+        // The reset promises playlists come back once their songs are imported again.
+        assertEquals(List.of(a.getId(), b.getId()), restored.getSongIds("Mix"));
+    }
+
+    @Test
+    void writeAppliesEverythingQueuedWhenItRuns() {
+        LibraryService library = new LibraryService();
+        PlaylistService playlists = new PlaylistService();
+        EmbeddedDbStore store = seeded(library, playlists);
+
+        Song c = new Song("C", "Artist", "Album", "/music/c.mp3");
+        library.removeSong(a.getId());
+        Runnable write = store.prepareSave(library, playlists);
+        library.addSong(c);
+        write.run();
+        assertNull(store.prepareSave(library, playlists));
+        store.close();
+
+        LibraryService restored = new LibraryService();
+        reload(restored, new PlaylistService());
+        assertEquals(List.of(b, c), restored.getAllSongs());
+    }
+
+    @Test
+    void largeLibrariesLoadAFirstPageThenTheRestInOrder() {
+        List<Song> songs = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) songs.add(new Song("T" + i, "Artist", "Album", "/music/" + i + ".mp3"));
+        EmbeddedDbStore store = new EmbeddedDbStore(dir.resolve("library"));
+        store.save(songs, Map.of());
+
+        LibraryService library = new LibraryService();
+        assertTrue(store.load(library, new PlaylistService()));
+        assertEquals(500, library.size());
+
+        List<Integer> pages = new ArrayList<>();
+        store.loadRemaining(page -> {
+            pages.add(page.size());
+            library.appendLoaded(page);
+        }, Runnable::run).join();
+        store.close();
+
+        assertEquals(List.of(700), pages);
+        assertEquals(songs, library.getAllSongs());
+    }
+
+    @Test
+    void queriesAndPointUpdatesSeeQueuedChanges() {
+        LibraryService library = new LibraryService();
+        PlaylistService playlists = new PlaylistService();
+        EmbeddedDbStore store = seeded(library, playlists);
+
+        Song c = new Song("C", "Other", "Album", "/music/c.mp3");
+        library.addSong(c);
+        library.removeSong(a.getId());
+
+        assertEquals(2, store.countSongs());
+        assertEquals(List.of(b, c), store.readSongs(0, 10));
+        assertEquals(List.of(c), store.readSongs(1, 10));
+        assertEquals(Optional.of(c), store.findSongByPath("/music/c.mp3"));
+        assertEquals(Optional.empty(), store.findSongById(a.getId()));
+        assertEquals(List.of(b), store.findSongsByArtist("Artist"));
+
+        store.putSong(a);
+        store.putPlaylist("Mix", List.of(c.getId()));
+        store.deletePlaylist("Missing");
+        store.removeSong(b.getId());
+        assertNull(store.prepareSave(library, playlists));
+        store.close();
+
+        LibraryService restored = new LibraryService();
+        PlaylistService restoredPlaylists = new PlaylistService();
+        reload(restored, restoredPlaylists);
+        assertEquals(List.of(c, a), restored.getAllSongs());
+        assertEquals(List.of(c.getId()), restoredPlaylists.getSongIds("Mix"));
+        assertFalse(restored.getAllSongs().contains(b));
+    }
+}
@@ -0,0 +1,166 @@
+package com.johnk.musicplayer.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.service.LibraryService;
+import com.johnk.musicplayer.service.PlaylistService;
+
+class FramedStoreTest {
+
+    private static final int SYNC = 0x46524D42;
+
+    @TempDir
+    Path dir;
+
+    // 2500 songs fill three song frames: 1024, 1024 and 452.
+    private static List<Song> songs() {
+        List<Song> out = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            Song s = new Song("Song " + i, "Artist", "Album", "/music/" + i + ".mp3");
+            s.setDurationMillis(i * 1000L);
+            out.add(s);
+        }
+        return out;
+    }
+
+    private static List<Integer> frameOffsets(byte[] file) {
+        List<Integer> out = new ArrayList<>();
+        ByteBuffer buf = ByteBuffer.wrap(file);
+        for (int i = 8; i + 4 <= file.length; i++) {
+            if (buf.getInt(i) == SYNC) out.add(i);
+        }
+        return out;
+    }
+
+    private Path saved(List<Song> songs) {
+        Path file = dir.resolve("library.frames");
+        new FramedStore(file, DurabilityMode.NONE).save(songs, Map.of("Mix", List.of(songs.get(1).getId())));
+        return file;
+    }
+
+    @Test
+    void roundTripNeedsNoRecovery() {
+        List<Song> songs = songs();
+        FramedStore store = new FramedStore(saved(songs), DurabilityMode.NONE);
+
+        LibraryService library = new LibraryService();
+        PlaylistService playlists = new PlaylistService();
+        assertTrue(store.load(library, playlists));
+
+        assertEquals(songs, library.getAllSongs());
+        assertEquals(2_499_000, library.getAllSongs().get(2499).getDurationMillis());
+        assertEquals(List.of(songs.get(1).getId()), playlists.getSongIds("Mix"));
+        assertNull(store.recoveryNote());
+        assertFalse(store.attach(library, playlists));
+    }
+
+    @Test
+    void aCorruptFrameCostsOnlyItsOwnBlock() throws Exception {
+        List<Song> songs = songs();
+        Path file = saved(songs);
+        byte[] bytes = Files.readAllBytes(file);
+        int second = frameOffsets(bytes).get(1);
+        bytes[second + 100] ^= 0x55;
+        Files.write(file, bytes);
+
+        FramedStore.Decoded decoded = FramedStore.decode(file);
+        assertEquals(1, decoded.damagedFrames);
+        assertTrue(decoded.complete);
+        List<Song> expected = new ArrayList<>(songs.subList(0, 1024));
+        expected.addAll(songs.subList(2048, 2500));
+        assertEquals(expected, decoded.songs);
+        assertEquals(List.of(songs.get(1).getId()), decoded.playlists.get("Mix"));
+
+        FramedStore store = new FramedStore(file, DurabilityMode.NONE);
+        LibraryService library = new LibraryService();
+        PlaylistService playlists = new PlaylistService();
+        assertTrue(store.load(library, playlists));
+        assertEquals(1476, library.getAllSongs().size());
+        assertTrue(store.recoveryNote().startsWith("Recovered 1476 song(s)"));
+        assertTrue(store.attach(library, playlists));
+        assertArrayEquals(bytes, Files.readAllBytes(copyWithPrefix("library.frames.damaged")));
+    }
+
+    @Test
+    void aTornTailKeepsEveryWholeFrame() throws Exception {
+        List<Song> songs = songs();
+        Path file = saved(songs);
+        byte[] whole = Files.readAllBytes(file);
+        List<Integer> frames = frameOffsets(whole);
+        // Cut inside the END frame, which is the last one.
+        Files.write(file, Arrays.copyOf(whole, frames.get(frames.size() - 1) + 6));
+
+        FramedStore.Decoded decoded = FramedStore.decode(file);
+        assertFalse(decoded.complete);
+        assertEquals(songs, decoded.songs);
+        assertEquals(1, decoded.playlists.size());
+
+        FramedStore store = new FramedStore(file, DurabilityMode.NONE);
+        assertTrue(store.load(new LibraryService(), new PlaylistService()));
+        assertTrue(store.recoveryNote().startsWith("Recovered 2500 song(s)"));
+    }
+
+    @Test
+    void aDamagedVersionFieldStillLoadsEveryCheckedFrame() throws Exception {
+        List<Song> songs = songs();
+        Path file = saved(songs);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[4] ^= 0x40; // a flipped bit in the unchecked header
+        Files.write(file, bytes);
+
+        FramedStore store = new FramedStore(file, DurabilityMode.NONE);
+        LibraryService library = new LibraryService();
+        PlaylistService playlists = new PlaylistService();
+        assertTrue(store.load(library, playlists));
+        assertEquals(songs, library.getAllSongs());
+        assertEquals(List.of(songs.get(1).getId()), playlists.getSongIds("Mix"));
+        assertTrue(store.recoveryNote().contains("unknown format " + ((0x40 << 24) | 2)));
+        assertTrue(store.attach(library, playlists));
+        assertArrayEquals(bytes, Files.readAllBytes(copyWithPrefix("library.frames.v")));
+    }
+
+    @Test
+    void anUnknownVersionWithNothingReadableIsSetAside() throws Exception {
+        Path file = dir.resolve("library.frames");
+        Files.write(file, ByteBuffer.allocate(64).putInt(0x504C4652).putInt(9).array());
+
+        FramedStore store = new FramedStore(file, DurabilityMode.NONE);
+        assertFalse(store.load(new LibraryService(), new PlaylistService()));
+        assertTrue(store.recoveryNote().contains("unknown format version (9)"));
+        copyWithPrefix("library.frames.v9");
+    }
+
+    @Test
+    void aFileThatIsNotAFramedStoreIsSetAside() throws Exception {
+        Path file = dir.resolve("library.frames");
+        Files.write(file, "{\"songs\": []}".getBytes());
+
+        FramedStore store = new FramedStore(file, DurabilityMode.NONE);
+        assertFalse(store.load(new LibraryService(), new PlaylistService()));
+        assertTrue(store.recoveryNote().startsWith("Library file was not readable"));
+        copyWithPrefix("library.frames.unreadable");
+    }
+
+    private Path copyWithPrefix(String prefix) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().startsWith(prefix)).findFirst().orElseThrow();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.johnk.musicplayer.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.service.LibraryService;
+import com.johnk.musicplayer.service.PlaylistService;
+
+class JournaledStoreTest {
+
+    @TempDir
+    Path dir;
+
+    // Snapshot store that fails its first save and records the rest.
+    private static final class FlakySnapshot implements LibraryStore {
+        int failuresLeft = 1;
+        final List<List<Song>> saved = new ArrayList<>();
+
+        @Override
+        public boolean exists() {
+            return !saved.isEmpty();
+        }
+
+        @Override
+        public boolean load(LibraryService library, PlaylistService playlists) {
+            return false;
+        }
+
+        @Override
+        public boolean attach(LibraryService library, PlaylistService playlists) {
+            return true;  // forces the first save to be a snapshot
+        }
+
+        @Override
+        public void save(List<Song> songs, Map<String, List<String>> playlists) {
+            if (failuresLeft-- > 0) throw new RuntimeException("disk full");
+            saved.add(songs);
+        }
+    }
+
+    private static Song song(String title) {
+        return new Song(title, "Artist", "Album", "/music/" + title + ".mp3");
+    }
+
+    @Test
+    void failedSnapshotKeepsBufferedRecordsAndIsRetried() {
+        FlakySnapshot snapshot = new FlakySnapshot();
+        LibraryJournal journal = new LibraryJournal(dir.resolve("journal.bin"), Long.MAX_VALUE, DurabilityMode.NONE);
+        JournaledStore store = new JournaledStore(snapshot, journal);
+        LibraryService library = new LibraryService();
+        PlaylistService playlists = new PlaylistService();
+        store.attach(library, playlists);
+
+        library.addSong(song("a"));
+        long buffered = journal.pendingEnd();
+        assertThrows(RuntimeException.class, () -> store.prepareSave(library, playlists).run());
+        assertEquals(buffered, journal.pendingEnd());
+
+        library.addSong(song("b"));
+        store.prepareSave(library, playlists).run();
+        assertEquals(1, snapshot.saved.size());
+        assertEquals(2, snapshot.saved.get(0).size());
+        journal.close();
+
+        // Everything went into the snapshot, so nothing is left to replay.
+        assertEquals(0, new LibraryJournal(dir.resolve("journal.bin"), Long.MAX_VALUE, DurabilityMode.NONE)
+                .replay(new LibraryService(), new PlaylistService()));
+    }
+
+    @Test
+    void recordsMadeAfterCaptureAreKeptForTheNextAppend() {
+        LibraryJournal journal = new LibraryJournal(dir.resolve("journal.bin"), Long.MAX_VALUE, DurabilityMode.NONE);
+        JournaledStore store = new JournaledStore(new BinarySnapshotStore(dir.resolve("library.bin"), DurabilityMode.NONE),
+                journal);
+        LibraryService library = new LibraryService();
+        PlaylistService playlists = new PlaylistService();
+        store.attach(library, playlists);
+
+        library.addSong(song("a"));
+        Runnable write = store.prepareSave(library, playlists);
+        library.addSong(song("b"));
+        write.run();
+        store.prepareSave(library, playlists).run();
+        journal.close();
+
+        LibraryService restored = new LibraryService();
+        new LibraryJournal(dir.resolve("journal.bin"), Long.MAX_VALUE, DurabilityMode.NONE)
+                .replay(restored, new PlaylistService());
+        assertEquals(library.getAllSongs(), restored.getAllSongs());
+    }
+}
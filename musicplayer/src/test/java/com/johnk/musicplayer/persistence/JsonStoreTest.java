@@ -0,0 +1,105 @@
+package com.johnk.musicplayer.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.service.LibraryService;
+import com.johnk.musicplayer.service.PlaylistService;
+
+class JsonStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final Song a = new Song("A", "Artist", "Album", "/music/a.mp3");
+    private final Song b = new Song("B", "Artist", "Album", "/music/b.mp3");
+    private final Song c = new Song("C", "Artist", "Album", "/music/c.mp3");
+
+    private Path saved() {
+        Path file = dir.resolve("data.json");
+        Map<String, List<String>> playlists = new LinkedHashMap<>();
+        playlists.put("Mix", List.of(c.getId(), a.getId()));
+        playlists.put("Empty", List.of());
+        new JsonStore(file, DurabilityMode.NONE).save(List.of(a, b, c), playlists);
+        return file;
+    }
+
+    @Test
+    void roundTrip() {
+        Path file = saved();
+        LibraryService library = new LibraryService();
+        PlaylistService playlists = new PlaylistService();
+        JsonStore store = new JsonStore(file, DurabilityMode.NONE);
+
+        assertTrue(store.load(library, playlists));
+        assertEquals(List.of(a, b, c), library.getAllSongs());
+        assertEquals(List.of(c.getId(), a.getId()), playlists.getSongIds("Mix"));
+        assertNull(store.recoveryNote());
+        assertFalse(store.attach(library, playlists));
+    }
+
+    @Test
+    void damageInsideSongsStillRecoversThePlaylists() throws Exception {
+        Path file = saved();
+        String json = Files.readString(file, StandardCharsets.UTF_8);
+        int second = json.indexOf("{\"id\":\"" + b.getId());
+        Files.writeString(file, json.substring(0, second) + "{\"id\":]" + json.substring(second + 6));
+
+        LibraryService library = new LibraryService();
+        PlaylistService playlists = new PlaylistService();
+        JsonStore store = new JsonStore(file, DurabilityMode.NONE);
+
+        assertTrue(store.load(library, playlists));
+        assertEquals(List.of(a), library.getAllSongs());
+        assertEquals(List.of(c.getId(), a.getId()), playlists.getSongIds("Mix"));
+        assertTrue(playlists.hasPlaylist("Empty"));
+        assertNotNull(store.recoveryNote());
+        assertTrue(store.attach(library, playlists));
+    }
+
+    @Test
+    void lostPlaylistsAreNotRewrittenAway() throws Exception {
+        Path file = saved();
+        String json = Files.readString(file, StandardCharsets.UTF_8);
+        String torn = json.substring(0, json.indexOf("{\"id\":\"" + b.getId()) + 10);
+        Files.writeString(file, torn);
+
+        LibraryService library = new LibraryService();
+        PlaylistService playlists = new PlaylistService();
+        JsonStore store = new JsonStore(file, DurabilityMode.NONE);
+
+        assertTrue(store.load(library, playlists));
+        assertEquals(List.of(a), library.getAllSongs());
+        assertTrue(store.recoveryNote().contains("playlists could not be recovered"));
+        assertFalse(store.attach(library, playlists));
+        try (Stream<Path> files = Files.list(dir)) {
+            Path copy = files.filter(p -> p.getFileName().toString().startsWith("data.json.damaged"))
+                    .findFirst().orElseThrow();
+            assertEquals(torn, Files.readString(copy, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void salvageFindsTheTopLevelKeyNotATitle() throws Exception {
+        Path file = dir.resolve("data.json");
+        Files.writeString(file, "{\"songs\":[{\"title\":\"\\\"playlists\\\":{\\\"x\\\":[]}\",\"id\":]"
+                + "],\"playlists\" : {\"Mix\":[\"1\",\"2\"]}}");
+
+        assertEquals(Map.of("Mix", List.of("1", "2")), JsonStore.salvagePlaylists(file));
+    }
+}
@@ -0,0 +1,141 @@
+package com.johnk.musicplayer.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.service.LibraryService;
+import com.johnk.musicplayer.service.PlaylistService;
+
+class LibraryJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private LibraryJournal journal() {
+        return new LibraryJournal(dir.resolve("journal.bin"), Long.MAX_VALUE, DurabilityMode.NONE);
+    }
+
+    private static Song song(String title) {
+        return new Song(title, "Artist", "Album", "/music/" + title + ".mp3");
+    }
+
+    @Test
+    void replayRestoresRecordedChanges() {
+        LibraryJournal writer = journal();
+        LibraryService library = new LibraryService();
+        PlaylistService playlists = new PlaylistService();
+        writer.attach(library, playlists);
+
+        Song a = song("a");
+        Song b = song("b");
+        library.addSong(a);
+        library.addSong(b);
+        library.removeSong(a.getId());
+        playlists.createPlaylist("Mix");
+        playlists.addSong("Mix", b.getId());
+        writer.commit();
+        writer.close();
+
+        LibraryService restored = new LibraryService();
+        PlaylistService restoredPlaylists = new PlaylistService();
+        LibraryJournal reader = journal();
+        assertEquals(5, reader.replay(restored, restoredPlaylists));
+        reader.close();
+
+        assertEquals(List.of(b), restored.getAllSongs());
+        assertEquals(List.of(b.getId()), restoredPlaylists.getSongIds("Mix"));
+        assertNull(reader.recoveryNote());
+    }
+
+    @Test
+    void rejectedRecordIsSkippedWithoutLosingLaterOnes() throws Exception {
+        LibraryJournal writer = journal();
+        writer.playlistCreated("Mix");
+        writer.songsAdded("Mix", List.of(" "));  // blank id: PlaylistService rejects it
+        writer.songsAdded("Mix", List.of("kept"));
+        writer.commit();
+        writer.close();
+        long size = Files.size(dir.resolve("journal.bin"));
+
+        PlaylistService playlists = new PlaylistService();
+        LibraryJournal reader = journal();
+        assertEquals(2, reader.replay(new LibraryService(), playlists));
+        reader.close();
+
+        assertEquals(List.of("kept"), playlists.getSongIds("Mix"));
+        assertEquals(size, Files.size(dir.resolve("journal.bin")));
+        assertNotNull(reader.recoveryNote());
+    }
+
+    @Test
+    void tornTailIsTruncatedAndEarlierRecordsKept() throws Exception {
+        LibraryJournal writer = journal();
+        writer.playlistCreated("Mix");
+        writer.commit();
+        writer.close();
+        Path file = dir.resolve("journal.bin");
+        long size = Files.size(file);
+        Files.write(file, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        PlaylistService playlists = new PlaylistService();
+        LibraryJournal reader = journal();
+        assertEquals(1, reader.replay(new LibraryService(), playlists));
+        reader.close();
+
+        assertTrue(playlists.hasPlaylist("Mix"));
+        assertEquals(size, Files.size(file));
+    }
+
+    @Test
+    void retriedAppendOverwritesATornRecord() throws Exception {
+        Path file = dir.resolve("journal.bin");
+        LibraryJournal writer = journal();
+        writer.playlistCreated("Mix");
+        writer.commit();
+
+        // What a write that failed partway leaves behind: a record length with too few bytes after it.
+        Files.write(file, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        writer.songsAdded("Mix", List.of("kept"));
+        writer.commit();
+        writer.close();
+
+        PlaylistService playlists = new PlaylistService();
+        LibraryJournal reader = journal();
+        assertEquals(2, reader.replay(new LibraryService(), playlists));
+        reader.close();
+        assertEquals(List.of("kept"), playlists.getSongIds("Mix"));
+    }
+
+    @Test
+    void unknownFormatIsSetAsideInsteadOfDiscarded() throws Exception {
+        Path file = dir.resolve("journal.bin");
+        byte[] foreign = "not a journal at all".getBytes();
+        Files.write(file, foreign);
+
+        LibraryJournal reader = journal();
+        assertEquals(0, reader.replay(new LibraryService(), new PlaylistService()));
+        reader.close();
+
+        assertFalse(Files.exists(file));
+        assertNotNull(reader.recoveryNote());
+        try (Stream<Path> files = Files.list(dir)) {
+            Path copy = files.filter(p -> p.getFileName().toString().startsWith("journal.bin.unreadable"))
+                    .findFirst().orElseThrow();
+            assertArrayEquals(foreign, Files.readAllBytes(copy));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.johnk.musicplayer.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class PersistenceWorkerTest {
+
+    @Test
+    void failedWriteIsRetriedWithoutANewChange() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch written = new CountDownLatch(1);
+        PersistenceWorker worker = new PersistenceWorker(() -> () -> {
+            if (attempts.incrementAndGet() == 1) throw new RuntimeException("disk full");
+            written.countDown();
+        }, Runnable::run, 1);
+        worker.setOnError(e -> errors.incrementAndGet());
+
+        worker.markDirty();
+
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        assertEquals(2, attempts.get());
+        assertEquals(1, errors.get());
+        assertTrue(worker.flushAndShutdown(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void notificationsInsideOneWindowCoalesce() throws Exception {
+        AtomicInteger captures = new AtomicInteger();
+        CountDownLatch written = new CountDownLatch(1);
+        PersistenceWorker worker = new PersistenceWorker(() -> {
+            captures.incrementAndGet();
+            return written::countDown;
+        }, Runnable::run, 100);
+
+        for (int i = 0; i < 50; i++) worker.markDirty();
+
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        assertTrue(worker.flushAndShutdown(1, TimeUnit.SECONDS));
+        assertEquals(1, captures.get());
+    }
+}
@@ -0,0 +1,92 @@
+package com.johnk.musicplayer.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PlayLogTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<String> replayed(PlayLog log) {
+        List<String> out = new ArrayList<>();
+        log.replay((time, kind, song, artist, listened) ->
+                out.add(time + "/" + kind + "/" + song + "/" + artist + "/" + listened));
+        return out;
+    }
+
+    @Test
+    void replayReturnsRecordsInOrder() {
+        PlayLog log = new PlayLog(dir.resolve("history.bin"), DurabilityMode.NONE);
+        log.append(1, (byte) 3, 10, 20, 1000);
+        log.append(2, (byte) 2, -11, 21, 0);
+        log.close();
+
+        PlayLog reader = new PlayLog(dir.resolve("history.bin"), DurabilityMode.NONE);
+        assertEquals(List.of("1/3/10/20/1000", "2/2/-11/21/0"), replayed(reader));
+        reader.close();
+    }
+
+    @Test
+    void tornAppendIsOverwrittenByTheNextOne() throws Exception {
+        Path file = dir.resolve("history.bin");
+        PlayLog log = new PlayLog(file, DurabilityMode.NONE);
+        log.append(1, (byte) 3, 10, 20, 1000);
+
+        // What a write that failed partway leaves behind.
+        Files.write(file, new byte[] {1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+        log.append(2, (byte) 3, 11, 21, 2000);
+        log.append(3, (byte) 3, 12, 22, 3000);
+        log.close();
+
+        assertEquals(8 + 3 * PlayLog.RECORD_BYTES, Files.size(file));
+        PlayLog reader = new PlayLog(file, DurabilityMode.NONE);
+        assertEquals(List.of("1/3/10/20/1000", "2/3/11/21/2000", "3/3/12/22/3000"), replayed(reader));
+        reader.close();
+    }
+
+    @Test
+    void replayDropsATornTailAndAppendsAfterTheLastWholeRecord() throws Exception {
+        Path file = dir.resolve("history.bin");
+        PlayLog log = new PlayLog(file, DurabilityMode.NONE);
+        log.append(1, (byte) 3, 10, 20, 1000);
+        log.close();
+        Files.write(file, new byte[] {9, 9, 9}, StandardOpenOption.APPEND);
+
+        PlayLog reader = new PlayLog(file, DurabilityMode.NONE);
+        assertEquals(1, replayed(reader).size());
+        assertEquals(8 + PlayLog.RECORD_BYTES, Files.size(file));
+        reader.append(2, (byte) 3, 11, 21, 2000);
+        reader.close();
+
+        PlayLog again = new PlayLog(file, DurabilityMode.NONE);
+        assertEquals(List.of("1/3/10/20/1000", "2/3/11/21/2000"), replayed(again));
+        again.close();
+    }
+
+    @Test
+    void foreignFileIsSetAside() throws Exception {
+        Path file = dir.resolve("history.bin");
+        Files.write(file, "not a play log at all".getBytes());
+
+        PlayLog log = new PlayLog(file, DurabilityMode.NONE);
+        assertEquals(0, log.replay((time, kind, song, artist, listened) -> { }));
+        log.close();
+
+        assertFalse(Files.exists(file));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.anyMatch(p -> p.getFileName().toString().startsWith("history.bin.unreadable")));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.johnk.musicplayer.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.johnk.musicplayer.domain.Song;
+
+class PlaylistFilesTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void m3uRoundTripKeepsOrderAndResolvesRelativePaths() {
+        Song a = new Song("A", "Artist", "Album", dir.resolve("music/a.mp3").toString());
+        Song b = new Song("B", "Artist", "Album", dir.resolve("other/b.mp3").toString());
+        Path file = dir.resolve("list.m3u8");
+
+        PlaylistFiles.write(file, List.of(b, a));
+
+        assertEquals(List.of(b.getPath(), a.getPath()), PlaylistFiles.readPaths(file));
+    }
+
+    @Test
+    void plsEntriesAreOrderedByNumber() throws Exception {
+        Path file = dir.resolve("list.pls");
+        Files.writeString(file, "﻿[playlist]\nFile2=b.mp3\nFile1=a.mp3\nTitle1=A\nNumberOfEntries=2\n");
+
+        assertEquals(List.of(dir.resolve("a.mp3").toString(), dir.resolve("b.mp3").toString()),
+                PlaylistFiles.readPaths(file));
+    }
+
+    @Test
+    void m3uSkipsCommentsAndRemoteEntries() throws Exception {
+        Path file = dir.resolve("list.m3u");
+        Files.writeString(file, "#EXTM3U\n#EXTINF:-1,A\na.mp3\n\nhttp://example.com/stream\n");
+
+        assertEquals(List.of(dir.resolve("a.mp3").toString()), PlaylistFiles.readPaths(file));
+    }
+
+    @Test
+    void unknownExtensionIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PlaylistFiles.readPaths(dir.resolve("list.txt")));
+    }
+}
@@ -0,0 +1,104 @@
+package com.johnk.musicplayer.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.service.LibraryService;
+import com.johnk.musicplayer.service.PlaylistService;
+
+class ShardedStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<Song> songs(int n) {
+        List<Song> songs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) songs.add(new Song("T" + i, "Artist", "Album", "/music/" + i + ".mp3"));
+        return songs;
+    }
+
+    private static List<Song> loadAll(ShardedStore store, LibraryService library, PlaylistService playlists) {
+        List<Song> loaded = new ArrayList<>();
+        if (!store.load(library, playlists)) return loaded;
+        loaded.addAll(library.getAllSongs());
+        store.loadRemaining(loaded::addAll, Runnable::run).join();
+        return loaded;
+    }
+
+    @Test
+    void roundTripAcrossSeveralShards() {
+        List<Song> songs = songs(20_000);
+        ShardedStore store = new ShardedStore(dir, DurabilityMode.NONE);
+        store.save(songs, Map.of("Mix", List.of(songs.get(7).getId())));
+
+        PlaylistService playlists = new PlaylistService();
+        assertEquals(songs, loadAll(new ShardedStore(dir, DurabilityMode.NONE), new LibraryService(), playlists));
+        assertEquals(List.of(songs.get(7).getId()), playlists.getSongIds("Mix"));
+    }
+
+    @Test
+    void unreadableShardIsReportedAndItsGenerationKeptOnSave() throws Exception {
+        ShardedStore store = new ShardedStore(dir, DurabilityMode.NONE);
+        store.save(songs(20_000), Map.of());
+        Path generation = generations("gen-").get(0);
+        Files.write(generation.resolve("songs-00001.bin"), new byte[] {1, 2, 3});
+
+        ShardedStore reloaded = new ShardedStore(dir, DurabilityMode.NONE);
+        List<Song> loaded = loadAll(reloaded, new LibraryService(), new PlaylistService());
+        assertEquals(20_000 - 16_384, loaded.size());
+        assertNotNull(reloaded.recoveryNote());
+
+        reloaded.save(loaded, Map.of());
+        Path kept = dir.resolve("damaged-" + generation.getFileName());
+        assertTrue(Files.isDirectory(kept));
+        assertEquals(3, Files.size(kept.resolve("songs-00001.bin")));
+        assertEquals(1, generations("gen-").size());
+
+        // Once set aside, the next save cleans up as usual.
+        reloaded.save(loaded, Map.of());
+        assertTrue(Files.isDirectory(kept));
+    }
+
+    @Test
+    void unreadablePlaylistsKeepTheSongs() throws Exception {
+        ShardedStore store = new ShardedStore(dir, DurabilityMode.NONE);
+        List<Song> songs = songs(10);
+        store.save(songs, Map.of("Mix", List.of()));
+        Files.write(generations("gen-").get(0).resolve("playlists.bin"), new byte[0]);
+
+        ShardedStore reloaded = new ShardedStore(dir, DurabilityMode.NONE);
+        PlaylistService playlists = new PlaylistService();
+        assertEquals(songs, loadAll(reloaded, new LibraryService(), playlists));
+        assertFalse(playlists.hasPlaylist("Mix"));
+        assertNotNull(reloaded.recoveryNote());
+    }
+
+    @Test
+    void cleanLoadHasNoNote() {
+        ShardedStore store = new ShardedStore(dir, DurabilityMode.NONE);
+        store.save(songs(3), Map.of());
+        ShardedStore reloaded = new ShardedStore(dir, DurabilityMode.NONE);
+        loadAll(reloaded, new LibraryService(), new PlaylistService());
+        assertNull(reloaded.recoveryNote());
+    }
+
+    private List<Path> generations(String prefix) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().startsWith(prefix)).toList();
+        }
+    }
+}
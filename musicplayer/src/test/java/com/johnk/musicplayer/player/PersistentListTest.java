@@ -0,0 +1,107 @@
+package com.johnk.musicplayer.player;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class PersistentListTest {
+
+    private static List<Integer> range(int n) {
+        return IntStream.range(0, n).boxed().collect(Collectors.toList());
+    }
+
+    // Applies the same random edits to the persistent list and an ArrayList and compares after each one.
+    private static void checkAgainstArrayList(PersistentList<Integer> list, List<Integer> expected, long seed) {
+        Random random = new Random(seed);
+        for (int step = 0; step < 2_000; step++) {
+            int op = random.nextInt(4);
+            if (op == 0 || expected.isEmpty()) {
+                int at = random.nextInt(expected.size() + 1);
+                list = list.insert(at, -step);
+                expected.add(at, -step);
+            } else if (op == 1) {
+                int at = random.nextInt(expected.size());
+                list = list.remove(at);
+                expected.remove(at);
+            } else if (op == 2) {
+                int from = random.nextInt(expected.size());
+                int to = random.nextInt(expected.size());
+                list = list.move(from, to);
+                expected.add(to, expected.remove(from));
+            } else {
+                int at = random.nextInt(expected.size());
+                assertEquals(expected.get(at), list.get(at));
+            }
+            assertEquals(expected.size(), list.size());
+        }
+        assertEquals(expected, list.asList());
+        assertEquals(expected, new ArrayList<>(list.asList()));
+    }
+
+    @Test
+    void builtListMatchesArrayListUnderRandomEdits() {
+        checkAgainstArrayList(PersistentList.of(range(500)), range(500), 1);
+    }
+
+    @Test
+    void wrappedListMatchesArrayListUnderRandomEdits() {
+        checkAgainstArrayList(PersistentList.wrap(range(500)), range(500), 2);
+        checkAgainstArrayList(PersistentList.wrap(range(3)), range(3), 3);
+    }
+
+    @Test
+    void oldVersionsDoNotSeeLaterEdits() {
+        PersistentList<Integer> v1 = PersistentList.wrap(range(10));
+        PersistentList<Integer> v2 = v1.remove(0).add(99).insert(3, 42);
+
+        assertEquals(range(10), v1.asList());
+        assertEquals(11, v2.size());
+        assertEquals(99, v2.get(10));
+        assertEquals(42, v2.get(3));
+    }
+
+    @Test
+    void wrapReadsNothingUntilAsked() {
+        int[] reads = {0};
+        List<Integer> counting = new AbstractList<>() {
+            @Override
+            public Integer get(int index) {
+                reads[0]++;
+                return index;
+            }
+
+            @Override
+            public int size() {
+                return 1_000_000;
+            }
+        };
+
+        PersistentList<Integer> list = PersistentList.wrap(counting);
+        assertEquals(1_000_000, list.size());
+        assertEquals(0, reads[0]);
+
+        assertEquals(123_456, list.get(123_456));
+        PersistentList<Integer> edited = list.remove(0);
+        assertEquals(1, edited.get(0));
+        // An edit only splits the slices on its path: a few dozen reads, not a million.
+        assertTrue(reads[0] < 100, "reads: " + reads[0]);
+    }
+
+    @Test
+    void indexesAreChecked() {
+        PersistentList<Integer> list = PersistentList.wrap(range(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.remove(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.insert(4, 0));
+        assertEquals(0, PersistentList.wrap(List.of()).size());
+    }
+}
@@ -0,0 +1,150 @@
+package com.johnk.musicplayer.player;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.johnk.musicplayer.domain.Song;
+
+class PlaybackQueueTest {
+
+    private static List<Song> songs(int n) {
+        List<Song> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) out.add(new Song("T" + i, "Artist", "Album", "/music/" + i + ".mp3"));
+        return out;
+    }
+
+    private static List<Song> playToEnd(PlaybackQueue queue) {
+        List<Song> played = new ArrayList<>();
+        for (Song s = queue.next(); s != null; s = queue.next()) played.add(s);
+        return played;
+    }
+
+    @Test
+    void shufflePlaysEverySongOnceStartingFromTheCurrentOne() {
+        List<Song> songs = songs(50);
+        PlaybackQueue queue = new PlaybackQueue();
+        queue.setQueue(songs);
+        queue.playAt(7);
+        queue.setShuffle(true);
+
+        List<Song> played = new ArrayList<>(List.of(queue.getCurrent()));
+        played.addAll(playToEnd(queue));
+
+        assertSame(songs.get(7), played.get(0));
+        assertEquals(50, played.size());
+        assertEquals(new HashSet<>(songs), new HashSet<>(played));
+        assertFalse(queue.hasNext());
+    }
+
+    @Test
+    void repeatAllReplaysTheSameShuffledOrder() {
+        PlaybackQueue queue = new PlaybackQueue();
+        queue.setQueue(songs(20));
+        queue.playAt(0);
+        queue.setShuffle(true);
+        queue.setRepeat(RepeatMode.ALL);
+
+        List<Song> first = new ArrayList<>();
+        List<Song> second = new ArrayList<>();
+        for (int i = 0; i < 20; i++) first.add(queue.next());
+        for (int i = 0; i < 20; i++) second.add(queue.next());
+        assertEquals(first, second);
+    }
+
+    @Test
+    void aHandPickedTrackJoinsTheShuffleWithoutRepeats() {
+        List<Song> songs = songs(30);
+        PlaybackQueue queue = new PlaybackQueue();
+        queue.setQueue(songs);
+        queue.playAt(0);
+        queue.setShuffle(true);
+
+        List<Song> played = new ArrayList<>(List.of(queue.getCurrent()));
+        for (int i = 0; i < 5; i++) played.add(queue.next());
+        Song picked = songs.stream().filter(s -> !played.contains(s)).findFirst().orElseThrow();
+        played.add(queue.playAt(songs.indexOf(picked)));
+        played.addAll(playToEnd(queue));
+
+        assertEquals(30, played.size());
+        assertEquals(new HashSet<>(songs), new HashSet<>(played));
+    }
+
+    @Test
+    void prevInShuffleRetracesWhatActuallyPlayed() {
+        PlaybackQueue queue = new PlaybackQueue();
+        queue.setQueue(songs(40));
+        queue.playAt(3);
+        queue.setShuffle(true);
+
+        List<Song> played = new ArrayList<>(List.of(queue.getCurrent()));
+        for (int i = 0; i < 10; i++) played.add(queue.next());
+
+        for (int i = played.size() - 2; i >= 0; i--) {
+            assertTrue(queue.hasPrev());
+            assertSame(played.get(i), queue.prev());
+        }
+        assertFalse(queue.hasPrev());
+        assertNull(queue.prev());
+    }
+
+    @Test
+    void historyIsBoundedAndClearedWithTheContext() {
+        PlaybackQueue queue = new PlaybackQueue();
+        queue.setQueue(songs(400));
+        queue.playAt(0);
+        queue.setShuffle(true);
+        for (int i = 0; i < 300; i++) queue.next();
+
+        int steps = 0;
+        while (queue.prev() != null) steps++;
+        assertEquals(256, steps);
+
+        queue.setQueue(songs(5));
+        queue.playAt(1);
+        assertFalse(queue.hasPrev());
+    }
+
+    @Test
+    void upNextPlaysBeforeTheContextAndPrevReturnsToIt() {
+        List<Song> songs = songs(5);
+        Song extra = new Song("Extra", "Artist", "Album", "/music/extra.mp3");
+        PlaybackQueue queue = new PlaybackQueue();
+        queue.setQueue(songs);
+        queue.playAt(1);
+        queue.enqueue(extra);
+
+        assertSame(extra, queue.peekNext());
+        assertSame(extra, queue.next());
+        assertTrue(queue.isPlayingQueued());
+        assertSame(songs.get(1), queue.prev());
+        assertSame(songs.get(2), queue.next());
+    }
+
+    @Test
+    void repeatModesInOrder() {
+        List<Song> songs = songs(3);
+        PlaybackQueue queue = new PlaybackQueue();
+        queue.setQueue(songs);
+        queue.playAt(2);
+
+        assertNull(queue.peekNext());
+        queue.setRepeat(RepeatMode.ALL);
+        assertSame(songs.get(0), queue.next());
+        assertSame(songs.get(2), queue.prev());
+
+        queue.setRepeat(RepeatMode.ONE);
+        assertSame(songs.get(2), queue.advanceAfterEnd());
+        // An explicit skip ignores repeat-one.
+        assertNull(queue.next());
+    }
+}
@@ -0,0 +1,89 @@
+package com.johnk.musicplayer.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class CooccurrenceMatrixTest {
+
+    // Reference model: one map per row, same removal rule as the matrix.
+    private static void add(Map<Integer, Map<Integer, Integer>> model, int from, int to, int delta) {
+        Map<Integer, Integer> row = model.computeIfAbsent(from, k -> new HashMap<>());
+        Integer old = row.get(to);
+        if (old == null) {
+            if (delta > 0) row.put(to, delta);
+        } else if (old + delta > 0) {
+            row.put(to, old + delta);
+        } else {
+            row.remove(to);
+        }
+    }
+
+    private static int[] expectedTop(Map<Integer, Integer> row, int k) {
+        return row.keySet().stream()
+                .sorted(Comparator.<Integer>comparingInt(row::get).reversed().thenComparing(Comparator.naturalOrder()))
+                .limit(k)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    // Ordinals past the initial 1024 rows exercise growth; few rows keep them dense enough to collide.
+    @Test
+    void matchesAMapModelUnderRandomUpdates() {
+        Random random = new Random(1);
+        CooccurrenceMatrix matrix = new CooccurrenceMatrix();
+        Map<Integer, Map<Integer, Integer>> model = new HashMap<>();
+        List<Integer> ordinals = new ArrayList<>();
+        for (int i = 0; i < 40; i++) ordinals.add(random.nextInt(3000));
+
+        for (int step = 0; step < 30_000; step++) {
+            int a = ordinals.get(random.nextInt(ordinals.size()));
+            int b = ordinals.get(random.nextInt(ordinals.size()));
+            int delta = random.nextInt(9) - 3;
+            matrix.add(a, b, delta);
+            if (a != b && delta != 0) {
+                add(model, a, b, delta);
+                add(model, b, a, delta);
+            }
+        }
+
+        for (int a : ordinals) {
+            Map<Integer, Integer> row = model.getOrDefault(a, Map.of());
+            assertEquals(row.size(), matrix.rowSize(a));
+            for (int b : ordinals) {
+                assertEquals(row.getOrDefault(b, 0), matrix.weight(a, b));
+                assertEquals(matrix.weight(a, b), matrix.weight(b, a));
+            }
+            assertArrayEquals(expectedTop(row, 5), matrix.top(a, 5));
+            assertArrayEquals(expectedTop(row, 100), matrix.top(a, 100));
+        }
+    }
+
+    @Test
+    void topBreaksTiesByOrdinalAndIgnoresUnknownRows() {
+        CooccurrenceMatrix matrix = new CooccurrenceMatrix();
+        matrix.add(1, 9, 2);
+        matrix.add(1, 4, 2);
+        matrix.add(1, 7, 5);
+        matrix.add(1, 2, 1);
+        matrix.add(1, 1, 50); // self-pairs are ignored
+
+        assertArrayEquals(new int[] {7, 4, 9}, matrix.top(1, 3));
+        assertArrayEquals(new int[] {1}, matrix.top(9, 3));
+        assertEquals(0, matrix.top(5000, 3).length);
+        assertEquals(0, matrix.weight(5000, 1));
+
+        matrix.add(7, 1, -5);
+        assertEquals(0, matrix.weight(1, 7));
+        assertEquals(0, matrix.rowSize(7));
+        assertEquals(3, matrix.rowSize(1));
+    }
+}
@@ -0,0 +1,114 @@
+package com.johnk.musicplayer.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.johnk.musicplayer.domain.Song;
+import com.johnk.musicplayer.persistence.DurabilityMode;
+import com.johnk.musicplayer.persistence.PlayLog;
+
+class ListeningHistoryTest {
+
+    private static final long DAY = 86_400_000L;
+
+    @TempDir
+    Path dir;
+
+    private final Song a = new Song("A", "One", "Album", "/music/a.mp3");
+    private final Song b = new Song("B", "Two", "Album", "/music/b.mp3");
+    private final Song c = new Song("C", "ONE", "Album", "/music/c.mp3");
+
+    private ListeningHistory history() {
+        return new ListeningHistory(new PlayLog(dir.resolve("history.bin"), DurabilityMode.NONE), ZoneOffset.UTC, 30_000);
+    }
+
+    private static long at(LocalDate date) {
+        return date.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli() + 60_000;
+    }
+
+    private static List<String> tracks(ListeningHistory history, ListeningHistory.Window window) {
+        return history.topTracks(window, 10).stream()
+                .map(p -> p.getItem().getTitle() + "=" + p.getPlays())
+                .collect(Collectors.toList());
+    }
+
+    // shutdown() waits for the history thread, so everything recorded before it is counted.
+    @Test
+    void onlyFinishedOrLongEnoughListensCount() {
+        ListeningHistory history = history();
+        long now = System.currentTimeMillis();
+        history.started(a, now);
+        history.completed(a, now, 200_000);
+        history.skipped(a, now, 29_999);
+        history.skipped(b, now, 30_000);
+        history.shutdown();
+
+        assertEquals(1, history.playCount(a));
+        assertEquals(1, history.playCount(b));
+        assertEquals(0, history.playCount(c));
+    }
+
+    @Test
+    void windowsPickTheMatchingCounters() {
+        ListeningHistory history = history();
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        history.completed(b, at(today.minusDays(400)), 1);
+        history.completed(b, at(today.withDayOfMonth(1)), 1);
+        history.completed(c, at(today.with(DayOfWeek.MONDAY)), 1);
+        for (int i = 0; i < 3; i++) history.completed(a, at(today), 1);
+        history.shutdown();
+
+        assertEquals("A=3", tracks(history, ListeningHistory.Window.TODAY).get(0));
+        assertTrue(tracks(history, ListeningHistory.Window.THIS_WEEK).containsAll(List.of("A=3", "C=1")));
+        assertTrue(tracks(history, ListeningHistory.Window.THIS_MONTH).containsAll(List.of("A=3", "B=1")));
+        assertEquals(List.of("A=3", "B=2", "C=1"), tracks(history, ListeningHistory.Window.ALL_TIME));
+
+        // Artist names are matched ignoring case; the first spelling played is shown.
+        assertEquals("ONE", history.topArtists(ListeningHistory.Window.ALL_TIME, 1).get(0).getItem());
+        assertEquals(4, history.topArtists(ListeningHistory.Window.ALL_TIME, 1).get(0).getPlays());
+    }
+
+    @Test
+    void dayCountersOlderThanTheRetentionAreDropped() {
+        ListeningHistory history = history();
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        for (int d = 60; d >= 0; d--) history.completed(a, at(today.minusDays(d)), 1);
+        history.shutdown();
+
+        assertEquals(40, history.dayCounters());
+        assertEquals(61, history.playCount(a));
+    }
+
+    @Test
+    void replayRebuildsCountsAndNamesFromTheLog() {
+        ListeningHistory first = history();
+        long now = System.currentTimeMillis();
+        first.completed(a, now, 1);
+        first.completed(a, now, 1);
+        first.skipped(b, now, 5_000);
+        first.completed(c, now - 400 * DAY, 1);
+        first.shutdown();
+
+        List<Long> played = new ArrayList<>();
+        ListeningHistory second = history();
+        second.setPlayListener((time, songKey) -> played.add(songKey));
+        assertEquals(4L, second.load().join());
+        second.index(List.of(a, b, c));
+        second.shutdown();
+
+        assertEquals(List.of("A=2", "C=1"), tracks(second, ListeningHistory.Window.ALL_TIME));
+        assertEquals(List.of("A=2"), tracks(second, ListeningHistory.Window.TODAY));
+        assertEquals(List.of(ListeningHistory.songKey(a), ListeningHistory.songKey(a), ListeningHistory.songKey(c)), played);
+    }
+}
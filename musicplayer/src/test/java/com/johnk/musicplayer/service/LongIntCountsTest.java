@@ -0,0 +1,81 @@
+package com.johnk.musicplayer.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LongIntCountsTest {
+
+    private static Map<Long, Integer> contents(LongIntCounts counts) {
+        Map<Long, Integer> out = new HashMap<>();
+        counts.forEach(out::put);
+        return out;
+    }
+
+    // Few distinct keys, including 0 and negatives, so probe runs collide and keys come and go often.
+    @Test
+    void matchesAHashMapUnderRandomAddsAndRemovals() {
+        Random random = new Random(1);
+        LongIntCounts counts = new LongIntCounts();
+        Map<Long, Integer> expected = new HashMap<>();
+
+        for (int step = 0; step < 50_000; step++) {
+            long key = (random.nextInt(300) - 150) * 1_000_003L;
+            int delta = random.nextInt(7) - 3;
+            int now = Math.max(0, expected.getOrDefault(key, 0) + delta);
+            if (now == 0) expected.remove(key);
+            else expected.put(key, now);
+
+            assertEquals(now, counts.add(key, delta));
+            assertEquals(now, counts.get(key));
+            assertEquals(expected.size(), counts.size());
+        }
+        assertEquals(expected, contents(counts));
+    }
+
+    @Test
+    void topKeysOrdersByCountThenKey() {
+        LongIntCounts counts = new LongIntCounts(2);
+        for (long key = -50; key < 50; key++) counts.add(key, Math.floorMod(key * 7, 13) + 1);
+
+        Map<Long, Integer> all = contents(counts);
+        long[] expected = all.keySet().stream()
+                .sorted(Comparator.<Long>comparingInt(all::get).reversed().thenComparing(Comparator.naturalOrder()))
+                .limit(15)
+                .mapToLong(Long::longValue)
+                .toArray();
+
+        assertArrayEquals(expected, counts.topKeys(15));
+        assertEquals(100, counts.topKeys(500).length);
+        assertEquals(0, counts.topKeys(0).length);
+    }
+
+    @Test
+    void addAllSumsAndClearEmpties() {
+        LongIntCounts a = new LongIntCounts();
+        LongIntCounts b = new LongIntCounts();
+        a.add(0, 2);
+        a.add(5, 1);
+        b.add(0, 3);
+        b.add(7, 4);
+        a.addAll(b);
+
+        assertEquals(Map.of(0L, 5, 5L, 1, 7L, 4), contents(a));
+
+        a.clear();
+        assertTrue(a.isEmpty());
+        assertEquals(0, a.get(0));
+        assertEquals(0, a.get(7));
+        assertEquals(0, a.add(9, -1));
+        assertTrue(a.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> new LongIntCounts(-1));
+    }
+}
@@ -0,0 +1,66 @@
+package com.johnk.musicplayer.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.johnk.musicplayer.domain.Song;
+
+class PlaylistServiceTest {
+
+    private static final String A = "/music/a.mp3";
+    private static final String B = "/music/b.mp3";
+
+    private static LibraryService library() {
+        LibraryService library = new LibraryService();
+        library.addSong(new Song("A", "Artist", "Album", A));
+        library.addSong(new Song("B", "Artist", "Album", B));
+        return library;
+    }
+
+    @Test
+    void importCountsRepeatedEntriesOnce() {
+        LibraryService library = library();
+        PlaylistService playlists = new PlaylistService();
+        List<List<String>> added = new ArrayList<>();
+        playlists.addListener(new PlaylistListener() {
+            @Override
+            public void songsAdded(String playlist, List<String> songIds) {
+                added.add(songIds);
+            }
+        });
+
+        PlaylistService.ImportResult result =
+                playlists.importPlaylist("Road Trip", List.of(A, B, A, "/music/missing.mp3"), library);
+
+        assertEquals("Road Trip", result.playlistName);
+        assertEquals(2, result.imported);
+        assertEquals(1, result.skipped);
+        assertEquals(2, playlists.getSongIds("Road Trip").size());
+        assertEquals(List.of(playlists.getSongIds("Road Trip")), added);
+    }
+
+    @Test
+    void importPicksAnUnusedName() {
+        PlaylistService playlists = new PlaylistService();
+        LibraryService library = library();
+
+        assertEquals("Gym (2)", playlists.importPlaylist("Gym", List.of(A), library).playlistName);
+        assertEquals("Gym (3)", playlists.importPlaylist("Gym", List.of(B), library).playlistName);
+        assertEquals("Imported Playlist", playlists.importPlaylist("  ", List.of(), library).playlistName);
+    }
+
+    @Test
+    void addingASongTwiceKeepsOneEntry() {
+        PlaylistService playlists = new PlaylistService();
+        playlists.addSong("Gym", "x");
+        playlists.addSong("Gym", "x");
+
+        assertEquals(List.of("x"), playlists.getSongIds("Gym"));
+        assertThrows(IllegalArgumentException.class, () -> playlists.addSong("Nope", "x"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.johnk.musicplayer.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class RecommendationServiceTest {
+
+    private static final int WINDOW = 3;
+
+    private static List<String> ids(int n) {
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) out.add("song-" + i);
+        return out;
+    }
+
+    private static void assertSameWeights(RecommendationService expected, RecommendationService actual, List<String> ids) {
+        for (String a : ids) {
+            for (String b : ids) {
+                assertEquals(expected.weight(a, b), actual.weight(a, b), a + " / " + b);
+            }
+        }
+    }
+
+    private static RecommendationService rebuilt(PlaylistService playlists) {
+        RecommendationService fresh = new RecommendationService(WINDOW);
+        fresh.attach(playlists);
+        return fresh;
+    }
+
+    // Playlists far longer than the window, edited at random: removals from the front, middle and end
+    // must re-pair neighbours exactly as a build from the final order would.
+    @Test
+    void incrementalEditsMatchARebuildFromTheFinalOrder() {
+        List<String> ids = ids(40);
+        PlaylistService playlists = new PlaylistService();
+        playlists.createPlaylist("One");
+        playlists.createPlaylist("Two");
+        for (int i = 0; i < 25; i++) playlists.addSong("One", ids.get(i));
+
+        RecommendationService live = new RecommendationService(WINDOW);
+        live.attach(playlists);
+
+        Random random = new Random(1);
+        for (int step = 0; step < 500; step++) {
+            String playlist = random.nextBoolean() ? "One" : "Two";
+            List<String> current = playlists.getSongIds(playlist);
+            if (current.size() > 4 && random.nextInt(3) != 0) {
+                playlists.removeSong(playlist, current.get(random.nextInt(current.size())));
+            } else {
+                playlists.addSong(playlist, ids.get(random.nextInt(ids.size())));
+            }
+        }
+        assertSameWeights(rebuilt(playlists), live, ids);
+
+        playlists.deletePlaylist("Two");
+        assertSameWeights(rebuilt(playlists), live, ids);
+    }
+
+    @Test
+    void removingFromTheMiddleBringsTheNextSongIntoTheWindow() {
+        List<String> ids = ids(8);
+        PlaylistService playlists = new PlaylistService();
+        playlists.createPlaylist("Mix");
+        for (String id : ids) playlists.addSong("Mix", id);
+        RecommendationService live = new RecommendationService(WINDOW);
+        live.attach(playlists);
+
+        assertEquals(0, live.weight("song-1", "song-5"));
+        playlists.removeSong("Mix", "song-3");
+        assertEquals(2, live.weight("song-1", "song-5"));
+        assertEquals(0, live.weight("song-3", "song-2"));
+        assertSameWeights(rebuilt(playlists), live, ids);
+    }
+}
@@ -0,0 +1,85 @@
+package com.johnk.musicplayer.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import org.junit.jupiter.api.Test;
+
+import com.johnk.musicplayer.domain.Song;
+
+class SortIndexTest {
+
+    private static final Executor DIRECT = Runnable::run;
+
+    // Few distinct words in mixed case, so ties and case-insensitive ties are common.
+    private static List<Song> songs(int count, long seed) {
+        String[] words = {"alpha", "Beta", "beta", "gamma", "Delta", "épée", "epee", "zulu"};
+        Random random = new Random(seed);
+        List<Song> out = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Song s = new Song("id" + seed + "-" + i,
+                    words[random.nextInt(words.length)] + " " + random.nextInt(3),
+                    words[random.nextInt(words.length)],
+                    words[random.nextInt(words.length)],
+                    "/music/" + seed + "/" + i + ".mp3");
+            s.setDurationMillis(random.nextInt(4) == 0 ? -1 : random.nextInt(5) * 1000L);
+            out.add(s);
+        }
+        return out;
+    }
+
+    @Test
+    void mergingAppendedSongsMatchesAFullBuild() {
+        List<Song> all = songs(400, 1);
+        SortIndex index = SortIndex.build(all.subList(0, 150));
+        index.append(all.subList(0, 151));
+        index.append(all.subList(0, 300));
+        index.append(all);
+
+        SortIndex fresh = SortIndex.build(all);
+        for (SortColumn column : SortColumn.values()) {
+            assertArrayEquals(fresh.order(column), index.order(column), column.name());
+            assertArrayEquals(fresh.rank(column), index.rank(column), column.name());
+        }
+    }
+
+    @Test
+    void replacedDurationsPickUpProbedValuesAndLaterAppends() {
+        List<Song> all = songs(200, 2);
+        SortIndex index = SortIndex.build(all.subList(0, 120));
+        for (Song s : all) s.setDurationMillis(s.getDurationMillis() < 0 ? 7000 : s.getDurationMillis());
+
+        int[] fresh = SortIndex.durationOrder(all.subList(0, 120));
+        index.append(all);
+        index.replaceDurations(fresh, all);
+
+        assertArrayEquals(SortIndex.build(all).order(SortColumn.DURATION), index.order(SortColumn.DURATION));
+    }
+
+    @Test
+    void libraryLeavesRowsUnsortedUntilTheIndexIsInstalled() {
+        LibraryService library = new LibraryService();
+        for (Song s : songs(50, 3)) library.addSong(s);
+        int[] subset = {5, 1, 3};
+
+        assertFalse(library.isSortIndexReady());
+        assertNull(library.sortedOrdinals(SortColumn.TITLE, true, null));
+        assertArrayEquals(subset, library.sortedOrdinals(SortColumn.TITLE, true, subset));
+
+        library.prepareSortIndex(DIRECT, DIRECT).join();
+        assertTrue(library.isSortIndexReady());
+
+        int[] order = library.sortedOrdinals(SortColumn.TITLE, true, null);
+        assertArrayEquals(SortIndex.build(library.getAllSongs()).order(SortColumn.TITLE), order);
+        int[] sorted = library.sortedOrdinals(SortColumn.TITLE, false, subset);
+        int[] rank = SortIndex.build(library.getAllSongs()).rank(SortColumn.TITLE);
+        for (int i = 1; i < sorted.length; i++) assertTrue(rank[sorted[i - 1]] > rank[sorted[i]]);
+    }
+}
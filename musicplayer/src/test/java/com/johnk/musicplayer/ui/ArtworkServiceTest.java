@@ -0,0 +1,69 @@
+package com.johnk.musicplayer.ui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.johnk.musicplayer.analysis.ThumbnailCache;
+import com.johnk.musicplayer.domain.Song;
+
+// Only songs without art, so no image is ever decoded and no FX toolkit is needed.
+class ArtworkServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private Song untaggedSong(String name) throws Exception {
+        Path album = Files.createDirectories(dir.resolve("album"));
+        Path file = album.resolve(name);
+        Files.write(file, new byte[256]);
+        return new Song("id-" + name, name, "Artist", "Album", file.toString());
+    }
+
+    @Test
+    void findingsAreIndexedAndTrustedWhileTheFilesAreUnchanged() throws Exception {
+        ThumbnailCache disk = new ThumbnailCache(dir.resolve("artwork"));
+        Song song = untaggedSong("a.mp3");
+
+        ArtworkService first = new ArtworkService(disk, 1);
+        assertNull(first.artworkFor(song).get(5, TimeUnit.SECONDS));
+        first.shutdown();
+
+        ThumbnailCache.SongArt art = disk.readSongArt(song.getId());
+        assertEquals("", art.hash);
+        assertEquals(dir.resolve("album"), art.source);
+
+        // Retagging the track changes its stamp, so the entry is rewritten rather than trusted.
+        Path file = Path.of(song.getPath());
+        Files.write(file, new byte[512]);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 5_000));
+        ArtworkService second = new ArtworkService(disk, 1);
+        assertNull(second.artworkFor(song).get(5, TimeUnit.SECONDS));
+        second.shutdown();
+
+        assertNotEquals(art.stamp, disk.readSongArt(song.getId()).stamp);
+    }
+
+    @Test
+    void requestsNobodyWantsAnyMoreAreDroppedUnread() throws Exception {
+        ThumbnailCache disk = new ThumbnailCache(dir.resolve("artwork"));
+        Song song = untaggedSong("b.mp3");
+        ArtworkService service = new ArtworkService(disk, 1);
+
+        assertNull(service.artworkFor(song, () -> false).get(5, TimeUnit.SECONDS));
+        assertNull(disk.readSongArt(song.getId()));
+
+        // Anyone who still wants it keeps the work alive.
+        assertNull(service.artworkFor(song, () -> true).get(5, TimeUnit.SECONDS));
+        assertEquals("", disk.readSongArt(song.getId()).hash);
+        service.shutdown();
+    }
+}